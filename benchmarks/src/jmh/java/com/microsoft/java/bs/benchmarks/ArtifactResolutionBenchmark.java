@@ -0,0 +1,86 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProjectConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microsoft.java.bs.gradle.model.GradleSourceSets;
+
+/**
+ * Benchmarks of building the source sets model of the test projects, which
+ * resolves the sources and javadoc of the module dependencies either with one
+ * artifact resolution query per project, or with one query per module as the
+ * baseline. The Gradle daemon is reused, so the time is spent in the model
+ * builder and the artifacts are taken from the Gradle cache after the first run:
+ * <code>./gradlew :benchmarks:jmh -PjmhIncludes=ArtifactResolution</code>.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class ArtifactResolutionBenchmark {
+
+  /**
+   * The connection to the test project.
+   */
+  @State(Scope.Benchmark)
+  public static class ProjectState {
+    @Param({"junit5-jupiter-starter-gradle", "project-dependency-test-fixtures"})
+    public String project;
+
+    @Param({"batched", "perModule"})
+    public String queries;
+
+    ProjectConnection connection;
+
+    File initScript;
+
+    /**
+     * Connect to the test project, the directories are passed by the build.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+      File projectDir = new File(System.getProperty("bsp.benchmark.testProjects"), project);
+      initScript = new File(System.getProperty("plugin.dir"), "init.gradle");
+      GradleConnector connector = GradleConnector.newConnector()
+          .forProjectDirectory(projectDir);
+      connector.useBuildDistribution();
+      connection = connector.connect();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      connection.close();
+    }
+  }
+
+  /**
+   * Build the source sets model with the sources and javadoc of the modules.
+   */
+  @Benchmark
+  public GradleSourceSets buildModel(ProjectState state) {
+    return state.connection.model(GradleSourceSets.class)
+        .addArguments("--init-script", state.initScript.getAbsolutePath())
+        .addArguments("-Dbsp.gradle.perModuleArtifactQueries="
+            + "perModule".equals(state.queries))
+        .addJvmArguments("-Dbsp.gradle.supportedLanguages=java")
+        .get();
+  }
+}
@@ -0,0 +1,36 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.benchmarks;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import com.microsoft.java.bs.core.internal.managers.BuildTargetManager;
+
+import ch.epfl.scala.bsp4j.BuildTargetEvent;
+
+/**
+ * Benchmarks of storing the model in {@link BuildTargetManager}.
+ */
+public class BuildTargetManagerBenchmark {
+
+  /**
+   * Store the model into an empty manager, like the first model fetch.
+   */
+  @Benchmark
+  public BuildTargetManager storeInitial(WorkspaceState state) {
+    BuildTargetManager manager = new BuildTargetManager();
+    manager.store(state.gradleSourceSets);
+    return manager;
+  }
+
+  /**
+   * Store the same model again, like a refetch that finds no change.
+   */
+  @Benchmark
+  public List<BuildTargetEvent> storeUnchanged(WorkspaceState state) {
+    return state.buildTargetManager.store(state.gradleSourceSets);
+  }
+}
@@ -0,0 +1,96 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.microsoft.java.bs.core.internal.services.BuildTargetService;
+
+import ch.epfl.scala.bsp4j.DependencyModulesParams;
+import ch.epfl.scala.bsp4j.DependencyModulesResult;
+import ch.epfl.scala.bsp4j.DependencySourcesParams;
+import ch.epfl.scala.bsp4j.DependencySourcesResult;
+import ch.epfl.scala.bsp4j.JavacOptionsParams;
+import ch.epfl.scala.bsp4j.JavacOptionsResult;
+import ch.epfl.scala.bsp4j.OutputPathsParams;
+import ch.epfl.scala.bsp4j.OutputPathsResult;
+import ch.epfl.scala.bsp4j.ResourcesParams;
+import ch.epfl.scala.bsp4j.ResourcesResult;
+import ch.epfl.scala.bsp4j.SourcesParams;
+import ch.epfl.scala.bsp4j.SourcesResult;
+import ch.epfl.scala.bsp4j.WorkspaceBuildTargetsResult;
+
+/**
+ * Benchmarks of the {@link BuildTargetService} handlers, each request asks for
+ * all the build targets of the workspace. The allocation per request, with and
+ * without the cached response items, is reported by the gc profiler:
+ * <code>./gradlew :benchmarks:jmh -PjmhIncludes=BuildTargetService -PjmhProfilers=gc</code>.
+ */
+public class BuildTargetServiceBenchmark {
+
+  /**
+   * Whether the handlers are measured with the response items cached by the
+   * previous requests, or on the first request after the model is stored.
+   */
+  @State(Scope.Benchmark)
+  public static class CacheState {
+    @Param({"true", "false"})
+    public boolean cached;
+
+    /**
+     * Store the model again before each request if the cache is not wanted.
+     */
+    @Setup(Level.Invocation)
+    public void setup(WorkspaceState state) {
+      if (!cached) {
+        state.storeModel();
+      }
+    }
+  }
+
+  @Benchmark
+  public WorkspaceBuildTargetsResult workspaceBuildTargets(WorkspaceState state) {
+    return state.buildTargetService.getWorkspaceBuildTargets();
+  }
+
+  @Benchmark
+  public SourcesResult sources(WorkspaceState state, CacheState cache) {
+    return state.buildTargetService.getBuildTargetSources(new SourcesParams(state.targets));
+  }
+
+  @Benchmark
+  public ResourcesResult resources(WorkspaceState state, CacheState cache) {
+    return state.buildTargetService.getBuildTargetResources(
+        new ResourcesParams(state.targets));
+  }
+
+  @Benchmark
+  public OutputPathsResult outputPaths(WorkspaceState state, CacheState cache) {
+    return state.buildTargetService.getBuildTargetOutputPaths(
+        new OutputPathsParams(state.targets));
+  }
+
+  @Benchmark
+  public DependencyModulesResult dependencyModules(WorkspaceState state, CacheState cache) {
+    return state.buildTargetService.getBuildTargetDependencyModules(
+        new DependencyModulesParams(state.targets));
+  }
+
+  @Benchmark
+  public DependencySourcesResult dependencySources(WorkspaceState state, CacheState cache) {
+    return state.buildTargetService.getBuildTargetDependencySources(
+        new DependencySourcesParams(state.targets));
+  }
+
+  @Benchmark
+  public JavacOptionsResult javacOptions(WorkspaceState state, CacheState cache) {
+    return state.buildTargetService.getBuildTargetJavacOptions(
+        new JavacOptionsParams(state.targets));
+  }
+}
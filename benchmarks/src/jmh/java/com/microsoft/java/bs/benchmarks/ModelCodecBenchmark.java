@@ -0,0 +1,77 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.microsoft.java.bs.gradle.model.GradleSourceSets;
+import com.microsoft.java.bs.gradle.model.utils.CompactSourceSetsCodec;
+
+/**
+ * Benchmarks of transferring the model in the compact format, against the java
+ * serialization of the object model as the baseline.
+ */
+public class ModelCodecBenchmark {
+
+  /**
+   * The model encoded in the compact format.
+   */
+  @State(Scope.Benchmark)
+  public static class EncodedState {
+    public byte[] compact;
+
+    /**
+     * Encode the model of the workspace.
+     */
+    @Setup
+    public void setup(WorkspaceState state) throws IOException {
+      compact = CompactSourceSetsCodec.encode(state.gradleSourceSets);
+    }
+  }
+
+  /**
+   * The size of the encoded model, reported as a secondary result.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class ModelSize {
+    public long modelBytes;
+  }
+
+  /**
+   * The baseline, how the object model is serialized by the Tooling API.
+   */
+  @Benchmark
+  public byte[] javaSerialization(WorkspaceState state, ModelSize size) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(state.gradleSourceSets);
+    }
+    size.modelBytes = bytes.size();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Encode the model in the compact format, as the plugin does.
+   */
+  @Benchmark
+  public byte[] compactEncode(WorkspaceState state, ModelSize size) throws IOException {
+    byte[] compact = CompactSourceSetsCodec.encode(state.gradleSourceSets);
+    size.modelBytes = compact.length;
+    return compact;
+  }
+
+  @Benchmark
+  public GradleSourceSets compactDecode(EncodedState state) throws IOException {
+    return CompactSourceSetsCodec.decode(state.compact);
+  }
+}
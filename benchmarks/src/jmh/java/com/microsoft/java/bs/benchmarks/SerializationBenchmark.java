@@ -0,0 +1,128 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.benchmarks;
+
+import java.util.Collections;
+
+import org.eclipse.lsp4j.jsonrpc.json.MessageJsonHandler;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.gson.Gson;
+
+import ch.epfl.scala.bsp4j.DependencyModulesParams;
+import ch.epfl.scala.bsp4j.DependencyModulesResult;
+import ch.epfl.scala.bsp4j.DependencySourcesParams;
+import ch.epfl.scala.bsp4j.DependencySourcesResult;
+import ch.epfl.scala.bsp4j.JavacOptionsParams;
+import ch.epfl.scala.bsp4j.JavacOptionsResult;
+import ch.epfl.scala.bsp4j.WorkspaceBuildTargetsResult;
+
+/**
+ * Benchmarks of serializing the largest responses to JSON, with the same
+ * Gson configuration as the JSON-RPC launcher.
+ */
+public class SerializationBenchmark {
+
+  /**
+   * The responses of all the build targets of the workspace.
+   */
+  @State(Scope.Benchmark)
+  public static class ResponseState {
+    public Gson gson;
+
+    public WorkspaceBuildTargetsResult workspaceBuildTargets;
+
+    public JavacOptionsResult javacOptions;
+
+    public DependencyModulesResult dependencyModules;
+
+    public DependencySourcesResult dependencySources;
+
+    /**
+     * Get the responses from the build target service.
+     */
+    @Setup
+    public void setup(WorkspaceState state) {
+      gson = new MessageJsonHandler(Collections.emptyMap()).getGson();
+      workspaceBuildTargets = state.buildTargetService.getWorkspaceBuildTargets();
+      javacOptions = state.buildTargetService.getBuildTargetJavacOptions(
+          new JavacOptionsParams(state.targets));
+      dependencyModules = state.buildTargetService.getBuildTargetDependencyModules(
+          new DependencyModulesParams(state.targets));
+      dependencySources = state.buildTargetService.getBuildTargetDependencySources(
+          new DependencySourcesParams(state.targets));
+    }
+  }
+
+  /**
+   * A workspace of 1,000 build targets, i.e. 500 projects of 2 source sets, whatever
+   * the parameters of the {@link WorkspaceState}.
+   */
+  @State(Scope.Benchmark)
+  public static class ThousandTargetsState {
+    public Gson gson;
+
+    public WorkspaceState workspace;
+
+    /**
+     * Create the workspace.
+     */
+    @Setup
+    public void setup() {
+      gson = new MessageJsonHandler(Collections.emptyMap()).getGson();
+      workspace = new WorkspaceState();
+      workspace.projects = 500;
+      workspace.sourceSets = 2;
+      workspace.classpath = 100;
+      workspace.setup();
+    }
+  }
+
+  /**
+   * The size of the serialized response, reported as a secondary result. It is
+   * the length of the JSON, whose characters are all ASCII, so it is the size in
+   * bytes as well.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class ResponseSize {
+    public long responseBytes;
+  }
+
+  @Benchmark
+  public String workspaceBuildTargets(ResponseState state) {
+    return state.gson.toJson(state.workspaceBuildTargets);
+  }
+
+  @Benchmark
+  public String javacOptions(ResponseState state) {
+    return state.gson.toJson(state.javacOptions);
+  }
+
+  @Benchmark
+  public String dependencyModules(ResponseState state) {
+    return state.gson.toJson(state.dependencyModules);
+  }
+
+  @Benchmark
+  public String dependencySources(ResponseState state) {
+    return state.gson.toJson(state.dependencySources);
+  }
+
+  /**
+   * Handle and serialize a dependency sources request of 1,000 build targets.
+   */
+  @Benchmark
+  public String dependencySourcesOfThousandTargets(ThousandTargetsState state,
+      ResponseSize size) {
+    String json = state.gson.toJson(state.workspace.buildTargetService
+        .getBuildTargetDependencySources(new DependencySourcesParams(state.workspace.targets)));
+    size.responseBytes = json.length();
+    return json;
+  }
+}
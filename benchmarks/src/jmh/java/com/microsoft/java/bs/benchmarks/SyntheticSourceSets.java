@@ -0,0 +1,128 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.benchmarks;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.microsoft.java.bs.gradle.model.BuildTargetDependency;
+import com.microsoft.java.bs.gradle.model.GradleModuleDependency;
+import com.microsoft.java.bs.gradle.model.GradleSourceSet;
+import com.microsoft.java.bs.gradle.model.SupportedLanguages;
+import com.microsoft.java.bs.gradle.model.impl.DefaultArtifact;
+import com.microsoft.java.bs.gradle.model.impl.DefaultBuildTargetDependency;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleModuleDependency;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleSourceSet;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleSourceSets;
+import com.microsoft.java.bs.gradle.model.impl.DefaultJavaExtension;
+
+/**
+ * Creates synthetic source sets that look like the ones of a large multi-project build.
+ */
+public final class SyntheticSourceSets {
+
+  public static final File ROOT_DIR = new File("/workspace/synthetic");
+
+  private SyntheticSourceSets() {}
+
+  /**
+   * Create the source sets of the given number of projects.
+   *
+   * @param projectCount the number of projects.
+   * @param sourceSetCount the number of source sets per project, the first one
+   *     is 'main' and the others depend on it.
+   * @param classpathCount the number of jars on the classpath of each source set,
+   *     they are shared by all the source sets.
+   */
+  public static DefaultGradleSourceSets create(int projectCount, int sourceSetCount,
+      int classpathCount) {
+    List<File> jars = new ArrayList<>();
+    List<GradleModuleDependency> modules = new ArrayList<>();
+    for (int i = 0; i < classpathCount; i++) {
+      String group = "org.example.group" + i;
+      String module = "module" + i;
+      File jar = new File("/home/user/.gradle/caches/modules-2/files-2.1/" + group + "/"
+          + module + "/1.0." + i + "/" + module + "-1.0." + i + ".jar");
+      File sources = new File(jar.getParentFile(), module + "-1.0." + i + "-sources.jar");
+      jars.add(jar);
+      modules.add(new DefaultGradleModuleDependency(group, module, "1.0." + i, Arrays.asList(
+          new DefaultArtifact(jar.toURI(), null),
+          new DefaultArtifact(sources.toURI(), "sources"))));
+    }
+
+    List<GradleSourceSet> sourceSets = new ArrayList<>();
+    for (int i = 0; i < projectCount; i++) {
+      String projectName = "project" + i;
+      String projectPath = ":" + projectName;
+      File projectDir = new File(ROOT_DIR, projectName);
+      for (int j = 0; j < sourceSetCount; j++) {
+        String sourceSetName = j == 0 ? "main" : j == 1 ? "test" : "sourceSet" + j;
+        DefaultGradleSourceSet sourceSet = new DefaultGradleSourceSet();
+        sourceSet.setGradleVersion("8.1.1");
+        sourceSet.setDisplayName(projectName + " [" + sourceSetName + "]");
+        sourceSet.setProjectName(projectName);
+        sourceSet.setProjectPath(projectPath);
+        sourceSet.setProjectDir(projectDir);
+        sourceSet.setRootDir(ROOT_DIR);
+        sourceSet.setSourceSetName(sourceSetName);
+        sourceSet.setClassesTaskName(j == 0 ? "classes" : sourceSetName + "Classes");
+        sourceSet.setSourceDirs(setOf(new File(projectDir, "src/" + sourceSetName + "/java")));
+        sourceSet.setGeneratedSourceDirs(setOf(new File(projectDir,
+            "build/generated/sources/annotationProcessor/java/" + sourceSetName)));
+        sourceSet.setResourceDirs(setOf(new File(projectDir,
+            "src/" + sourceSetName + "/resources")));
+        sourceSet.setSourceOutputDir(new File(projectDir, "build/classes/java/" + sourceSetName));
+        sourceSet.setResourceOutputDir(new File(projectDir, "build/resources/" + sourceSetName));
+        sourceSet.setModuleDependencies(new LinkedHashSet<>(modules));
+        Set<BuildTargetDependency> buildTargetDependencies = new LinkedHashSet<>();
+        if (i > 0) {
+          // each project depends on the previous one.
+          buildTargetDependencies.add(new DefaultBuildTargetDependency(":project" + (i - 1),
+              "main"));
+        }
+        sourceSet.setBuildTargetDependencies(buildTargetDependencies);
+        sourceSet.setHasTests(j == 1);
+
+        List<File> classpath = new ArrayList<>(jars);
+        if (j > 0) {
+          classpath.add(new File(projectDir, "build/classes/java/main"));
+        }
+        DefaultJavaExtension javaExtension = new DefaultJavaExtension();
+        javaExtension.setCompileClasspath(classpath);
+        javaExtension.setJavaHome(new File("/usr/lib/jvm/java-17"));
+        javaExtension.setJavaVersion("17");
+        javaExtension.setSourceCompatibility("17");
+        javaExtension.setTargetCompatibility("17");
+        javaExtension.setCompilerArgs(Arrays.asList("-source", "17", "-target", "17",
+            "-parameters"));
+        Map<String, Object> extensions = new HashMap<>();
+        extensions.put(SupportedLanguages.JAVA, javaExtension);
+        sourceSet.setExtensions(extensions);
+        sourceSets.add(sourceSet);
+      }
+    }
+    return new DefaultGradleSourceSets(sourceSets);
+  }
+
+  /**
+   * Get the build target uri of the given source set, in the same format as the server.
+   */
+  public static String getBuildTargetUri(GradleSourceSet sourceSet) {
+    URI projectUri = sourceSet.getProjectDir().toURI();
+    return projectUri.toString() + "?sourceset=" + sourceSet.getSourceSetName();
+  }
+
+  private static Set<File> setOf(File file) {
+    Set<File> files = new LinkedHashSet<>();
+    files.add(file);
+    return files;
+  }
+}
@@ -0,0 +1,37 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.microsoft.java.bs.core.internal.utils.UriUtils;
+
+import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+
+/**
+ * Benchmarks of {@link UriUtils} on the uris of all the build targets.
+ */
+public class UriUtilsBenchmark {
+
+  /**
+   * Strip the source set query of the build target uris.
+   */
+  @Benchmark
+  public void getUriWithoutQuery(WorkspaceState state, Blackhole blackhole) {
+    for (BuildTargetIdentifier btId : state.targets) {
+      blackhole.consume(UriUtils.getUriWithoutQuery(btId.getUri()));
+    }
+  }
+
+  /**
+   * Get the source set name from the build target uris.
+   */
+  @Benchmark
+  public void getQueryValueByKey(WorkspaceState state, Blackhole blackhole) {
+    for (BuildTargetIdentifier btId : state.targets) {
+      blackhole.consume(UriUtils.getQueryValueByKey(btId.getUri(), "sourceset"));
+    }
+  }
+}
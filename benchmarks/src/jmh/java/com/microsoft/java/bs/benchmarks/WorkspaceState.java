@@ -0,0 +1,79 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.benchmarks;
+
+import static com.microsoft.java.bs.core.Launcher.LOGGER;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.microsoft.java.bs.core.internal.gradle.GradleApiConnector;
+import com.microsoft.java.bs.core.internal.managers.BuildTargetManager;
+import com.microsoft.java.bs.core.internal.managers.PreferenceManager;
+import com.microsoft.java.bs.core.internal.model.Preferences;
+import com.microsoft.java.bs.core.internal.services.BuildTargetService;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleSourceSets;
+
+import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+
+/**
+ * A synthetic workspace whose model is stored in the build target manager.
+ */
+@State(Scope.Benchmark)
+public class WorkspaceState {
+
+  @Param({"100", "1000"})
+  public int projects;
+
+  @Param({"2"})
+  public int sourceSets;
+
+  @Param({"100"})
+  public int classpath;
+
+  public DefaultGradleSourceSets gradleSourceSets;
+
+  public List<BuildTargetIdentifier> targets;
+
+  public PreferenceManager preferenceManager;
+
+  public GradleApiConnector connector;
+
+  public BuildTargetManager buildTargetManager;
+
+  public BuildTargetService buildTargetService;
+
+  /**
+   * Create the source sets and store them.
+   */
+  @Setup
+  public void setup() {
+    // the server sends the logs to the client, there is no client here.
+    LOGGER.setUseParentHandlers(false);
+    gradleSourceSets = SyntheticSourceSets.create(projects, sourceSets, classpath);
+    targets = gradleSourceSets.getGradleSourceSets().stream()
+        .map(sourceSet -> new BuildTargetIdentifier(
+            SyntheticSourceSets.getBuildTargetUri(sourceSet)))
+        .collect(Collectors.toList());
+    preferenceManager = new PreferenceManager();
+    preferenceManager.setPreferences(new Preferences());
+    connector = new GradleApiConnector(preferenceManager);
+    storeModel();
+  }
+
+  /**
+   * Store the model into a new build target manager, so nothing is cached.
+   */
+  public void storeModel() {
+    buildTargetManager = new BuildTargetManager();
+    buildTargetManager.store(gradleSourceSets);
+    buildTargetService = new BuildTargetService(buildTargetManager, connector,
+        preferenceManager);
+  }
+}
@@ -0,0 +1,15 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.gradle.model;
+
+import java.io.Serializable;
+
+/**
+ * The Gradle source sets encoded in a compact binary format, in which the strings
+ * and paths are stored once in a shared table and referenced by index.
+ * See {@link com.microsoft.java.bs.gradle.model.utils.CompactSourceSetsCodec}.
+ */
+public interface CompactGradleSourceSets extends Serializable {
+  public byte[] getData();
+}
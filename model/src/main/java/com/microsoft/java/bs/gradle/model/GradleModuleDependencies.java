@@ -0,0 +1,15 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.gradle.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * List of module dependencies with their sources and javadoc artifacts,
+ * which are resolved on demand.
+ */
+public interface GradleModuleDependencies extends Serializable {
+  public List<GradleModuleDependency> getModuleDependencies();
+}
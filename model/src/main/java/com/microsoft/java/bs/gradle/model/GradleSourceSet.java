@@ -5,6 +5,7 @@ package com.microsoft.java.bs.gradle.model;
 
 import java.io.File;
 import java.io.Serializable;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -94,6 +95,17 @@ public interface GradleSourceSet extends Serializable {
    */
   public boolean hasTests();
 
+  /**
+   * Names of the test tasks which run the tests of this source set.
+   */
+  public Set<String> getTestTaskNames();
+
+  /**
+   * The runtime classpath of this source set. The archives built from the other
+   * source sets are replaced by their output directories.
+   */
+  public List<File> getRuntimeClasspath();
+
   /**
    * Extensions of the source set.
    */
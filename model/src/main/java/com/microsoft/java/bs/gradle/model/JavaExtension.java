@@ -6,6 +6,7 @@ package com.microsoft.java.bs.gradle.model;
 import java.io.File;
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The extension model for Java language.
@@ -40,4 +41,37 @@ public interface JavaExtension extends Serializable {
    * The list of compiler arguments.
    */
   public List<String> getCompilerArgs();
+
+  /**
+   * The JVM options to run the main classes of the source set, taken from its exec
+   * task.
+   */
+  public List<String> getJvmOptions();
+
+  /**
+   * The working directory to run the main classes of the source set.
+   */
+  public File getWorkingDirectory();
+
+  /**
+   * The environment variables which the exec task adds to the environment of the
+   * Gradle daemon.
+   */
+  public Map<String, String> getEnvironmentVariables();
+
+  /**
+   * The JVM options to run the tests of the source set, taken from its test task.
+   */
+  public List<String> getTestJvmOptions();
+
+  /**
+   * The working directory to run the tests of the source set.
+   */
+  public File getTestWorkingDirectory();
+
+  /**
+   * The environment variables which the test task adds to the environment of the
+   * Gradle daemon.
+   */
+  public Map<String, String> getTestEnvironmentVariables();
 }
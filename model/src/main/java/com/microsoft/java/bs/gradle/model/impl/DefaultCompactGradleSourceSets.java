@@ -0,0 +1,27 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.gradle.model.impl;
+
+import com.microsoft.java.bs.gradle.model.CompactGradleSourceSets;
+
+/**
+ * Default implementation of {@link CompactGradleSourceSets}.
+ */
+public class DefaultCompactGradleSourceSets implements CompactGradleSourceSets {
+  private static final long serialVersionUID = 1L;
+
+  private byte[] data;
+
+  public DefaultCompactGradleSourceSets(byte[] data) {
+    this.data = data;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+
+  public void setData(byte[] data) {
+    this.data = data;
+  }
+}
@@ -0,0 +1,60 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.gradle.model.impl;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import com.microsoft.java.bs.gradle.model.GradleModuleDependencies;
+import com.microsoft.java.bs.gradle.model.GradleModuleDependency;
+
+/**
+ * Default implementation of {@link GradleModuleDependencies}.
+ */
+public class DefaultGradleModuleDependencies implements GradleModuleDependencies {
+  private static final long serialVersionUID = 1L;
+
+  private List<GradleModuleDependency> moduleDependencies;
+
+  public DefaultGradleModuleDependencies(List<GradleModuleDependency> moduleDependencies) {
+    this.moduleDependencies = moduleDependencies;
+  }
+
+  /**
+   * Copy constructor.
+   */
+  public DefaultGradleModuleDependencies(GradleModuleDependencies moduleDependencies) {
+    this.moduleDependencies = moduleDependencies.getModuleDependencies().stream()
+        .map(DefaultGradleModuleDependency::new).collect(Collectors.toList());
+  }
+
+  public List<GradleModuleDependency> getModuleDependencies() {
+    return moduleDependencies;
+  }
+
+  public void setModuleDependencies(List<GradleModuleDependency> moduleDependencies) {
+    this.moduleDependencies = moduleDependencies;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(moduleDependencies);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null) {
+      return false;
+    }
+    if (getClass() != obj.getClass()) {
+      return false;
+    }
+    DefaultGradleModuleDependencies other = (DefaultGradleModuleDependencies) obj;
+    return Objects.equals(moduleDependencies, other.moduleDependencies);
+  }
+}
@@ -4,6 +4,7 @@
 package com.microsoft.java.bs.gradle.model.impl;
 
 import java.io.File;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -51,6 +52,10 @@ public class DefaultGradleSourceSet implements GradleSourceSet {
 
   private boolean hasTests;
 
+  private Set<String> testTaskNames;
+
+  private List<File> runtimeClasspath;
+
   private Map<String, Object> extensions;
 
   public DefaultGradleSourceSet() {}
@@ -79,6 +84,8 @@ public class DefaultGradleSourceSet implements GradleSourceSet {
     this.buildTargetDependencies = gradleSourceSet.getBuildTargetDependencies().stream()
         .map(DefaultBuildTargetDependency::new).collect(Collectors.toSet());
     this.hasTests = gradleSourceSet.hasTests();
+    this.testTaskNames = gradleSourceSet.getTestTaskNames();
+    this.runtimeClasspath = gradleSourceSet.getRuntimeClasspath();
     this.extensions = gradleSourceSet.getExtensions();
   }
 
@@ -210,6 +217,22 @@ public class DefaultGradleSourceSet implements GradleSourceSet {
     this.hasTests = hasTests;
   }
 
+  public Set<String> getTestTaskNames() {
+    return testTaskNames;
+  }
+
+  public void setTestTaskNames(Set<String> testTaskNames) {
+    this.testTaskNames = testTaskNames;
+  }
+
+  public List<File> getRuntimeClasspath() {
+    return runtimeClasspath;
+  }
+
+  public void setRuntimeClasspath(List<File> runtimeClasspath) {
+    this.runtimeClasspath = runtimeClasspath;
+  }
+
   public Map<String, Object> getExtensions() {
     return extensions;
   }
@@ -223,7 +246,7 @@ public class DefaultGradleSourceSet implements GradleSourceSet {
     return Objects.hash(gradleVersion, displayName, projectName, projectPath,
         projectDir, rootDir, sourceSetName, classesTaskName, sourceDirs,
         generatedSourceDirs, sourceOutputDir, moduleDependencies,
-        buildTargetDependencies, hasTests, extensions);
+        buildTargetDependencies, hasTests, testTaskNames, runtimeClasspath, extensions);
   }
 
   @Override
@@ -254,6 +277,8 @@ public class DefaultGradleSourceSet implements GradleSourceSet {
         && Objects.equals(moduleDependencies, other.moduleDependencies)
         && Objects.equals(buildTargetDependencies, other.buildTargetDependencies)
         && hasTests == other.hasTests
+        && Objects.equals(testTaskNames, other.testTaskNames)
+        && Objects.equals(runtimeClasspath, other.runtimeClasspath)
         && Objects.equals(extensions, other.extensions);
   }
 }
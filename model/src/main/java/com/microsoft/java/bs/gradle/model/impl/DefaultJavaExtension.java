@@ -5,6 +5,7 @@ package com.microsoft.java.bs.gradle.model.impl;
 
 import java.io.File;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import com.microsoft.java.bs.gradle.model.JavaExtension;
@@ -27,6 +28,18 @@ public class DefaultJavaExtension implements JavaExtension {
 
   private List<String> compilerArgs;
 
+  private List<String> jvmOptions;
+
+  private File workingDirectory;
+
+  private Map<String, String> environmentVariables;
+
+  private List<String> testJvmOptions;
+
+  private File testWorkingDirectory;
+
+  private Map<String, String> testEnvironmentVariables;
+
   @Override
   public List<File> getCompileClasspath() {
     return compileClasspath;
@@ -81,10 +94,66 @@ public class DefaultJavaExtension implements JavaExtension {
     this.compilerArgs = compilerArgs;
   }
 
+  @Override
+  public List<String> getJvmOptions() {
+    return jvmOptions;
+  }
+
+  public void setJvmOptions(List<String> jvmOptions) {
+    this.jvmOptions = jvmOptions;
+  }
+
+  @Override
+  public File getWorkingDirectory() {
+    return workingDirectory;
+  }
+
+  public void setWorkingDirectory(File workingDirectory) {
+    this.workingDirectory = workingDirectory;
+  }
+
+  @Override
+  public Map<String, String> getEnvironmentVariables() {
+    return environmentVariables;
+  }
+
+  public void setEnvironmentVariables(Map<String, String> environmentVariables) {
+    this.environmentVariables = environmentVariables;
+  }
+
+  @Override
+  public List<String> getTestJvmOptions() {
+    return testJvmOptions;
+  }
+
+  public void setTestJvmOptions(List<String> testJvmOptions) {
+    this.testJvmOptions = testJvmOptions;
+  }
+
+  @Override
+  public File getTestWorkingDirectory() {
+    return testWorkingDirectory;
+  }
+
+  public void setTestWorkingDirectory(File testWorkingDirectory) {
+    this.testWorkingDirectory = testWorkingDirectory;
+  }
+
+  @Override
+  public Map<String, String> getTestEnvironmentVariables() {
+    return testEnvironmentVariables;
+  }
+
+  public void setTestEnvironmentVariables(Map<String, String> testEnvironmentVariables) {
+    this.testEnvironmentVariables = testEnvironmentVariables;
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(compileClasspath, javaHome, javaVersion,
-        sourceCompatibility, targetCompatibility, compilerArgs
+        sourceCompatibility, targetCompatibility, compilerArgs, jvmOptions,
+        workingDirectory, environmentVariables, testJvmOptions, testWorkingDirectory,
+        testEnvironmentVariables
     );
   }
 
@@ -105,6 +174,12 @@ public class DefaultJavaExtension implements JavaExtension {
         && Objects.equals(javaVersion, other.javaVersion)
         && Objects.equals(sourceCompatibility, other.sourceCompatibility)
         && Objects.equals(targetCompatibility, other.targetCompatibility)
-        && Objects.equals(compilerArgs, other.compilerArgs);
+        && Objects.equals(compilerArgs, other.compilerArgs)
+        && Objects.equals(jvmOptions, other.jvmOptions)
+        && Objects.equals(workingDirectory, other.workingDirectory)
+        && Objects.equals(environmentVariables, other.environmentVariables)
+        && Objects.equals(testJvmOptions, other.testJvmOptions)
+        && Objects.equals(testWorkingDirectory, other.testWorkingDirectory)
+        && Objects.equals(testEnvironmentVariables, other.testEnvironmentVariables);
   }
 }
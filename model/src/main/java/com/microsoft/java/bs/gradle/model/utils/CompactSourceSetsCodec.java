@@ -0,0 +1,520 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.gradle.model.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.microsoft.java.bs.gradle.model.Artifact;
+import com.microsoft.java.bs.gradle.model.BuildTargetDependency;
+import com.microsoft.java.bs.gradle.model.GradleModuleDependency;
+import com.microsoft.java.bs.gradle.model.GradleSourceSet;
+import com.microsoft.java.bs.gradle.model.GradleSourceSets;
+import com.microsoft.java.bs.gradle.model.JavaExtension;
+import com.microsoft.java.bs.gradle.model.SupportedLanguages;
+import com.microsoft.java.bs.gradle.model.impl.DefaultArtifact;
+import com.microsoft.java.bs.gradle.model.impl.DefaultBuildTargetDependency;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleModuleDependency;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleSourceSet;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleSourceSets;
+import com.microsoft.java.bs.gradle.model.impl.DefaultJavaExtension;
+
+/**
+ * Encode and decode the Gradle source sets in a compact binary format.
+ *
+ * <p>All the strings, including the paths, are stored once in a shared table and
+ * referenced by their indexes. The module dependencies are stored once in a shared
+ * table as well. The layout is:
+ * <pre>
+ * int version
+ * int stringCount, (int length, UTF-8 bytes)[stringCount]
+ * int moduleCount, module[moduleCount]
+ * int sourceSetCount, sourceSet[sourceSetCount]
+ * </pre>
+ * The decoded model shares the same {@link File} and dependency instances among
+ * the source sets.
+ */
+public class CompactSourceSetsCodec {
+
+  /**
+   * Bump this version whenever the layout changes.
+   */
+  private static final int VERSION = 5;
+
+  private static final int NULL_INDEX = -1;
+
+  private static final byte EXTENSION_JAVA = 1;
+
+  private static final byte EXTENSION_SERIALIZED = 2;
+
+  private CompactSourceSetsCodec() {}
+
+  /**
+   * Encode the source sets.
+   */
+  public static byte[] encode(GradleSourceSets sourceSets) throws IOException {
+    return new Encoder().encode(sourceSets);
+  }
+
+  /**
+   * Decode the source sets.
+   */
+  public static DefaultGradleSourceSets decode(byte[] data) throws IOException {
+    return new Decoder(data).decode();
+  }
+
+  private static class Encoder {
+    private Map<String, Integer> strings = new LinkedHashMap<>();
+    private Map<GradleModuleDependency, Integer> modules = new HashMap<>();
+    private List<GradleModuleDependency> moduleTable = new ArrayList<>();
+
+    byte[] encode(GradleSourceSets sourceSets) throws IOException {
+      ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+      DataOutputStream body = new DataOutputStream(bodyBytes);
+      List<GradleSourceSet> list = sourceSets.getGradleSourceSets();
+      body.writeInt(list.size());
+      for (GradleSourceSet sourceSet : list) {
+        writeSourceSet(body, sourceSet);
+      }
+      body.flush();
+
+      // the module table references strings, so it's encoded before the string table.
+      ByteArrayOutputStream moduleBytes = new ByteArrayOutputStream();
+      DataOutputStream moduleOut = new DataOutputStream(moduleBytes);
+      moduleOut.writeInt(moduleTable.size());
+      for (GradleModuleDependency module : moduleTable) {
+        writeString(moduleOut, module.getGroup());
+        writeString(moduleOut, module.getModule());
+        writeString(moduleOut, module.getVersion());
+        List<Artifact> artifacts = module.getArtifacts();
+        moduleOut.writeInt(artifacts.size());
+        for (Artifact artifact : artifacts) {
+          writeString(moduleOut, artifact.getUri() == null ? null : artifact.getUri().toString());
+          writeString(moduleOut, artifact.getClassifier());
+        }
+      }
+      moduleOut.flush();
+
+      ByteArrayOutputStream result = new ByteArrayOutputStream(
+          bodyBytes.size() + moduleBytes.size() + strings.size() * 32);
+      DataOutputStream out = new DataOutputStream(result);
+      out.writeInt(VERSION);
+      out.writeInt(strings.size());
+      for (String value : strings.keySet()) {
+        // not using writeUTF() since it's limited to 64KB.
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      moduleBytes.writeTo(out);
+      bodyBytes.writeTo(out);
+      out.flush();
+      return result.toByteArray();
+    }
+
+    private void writeSourceSet(DataOutputStream out, GradleSourceSet sourceSet)
+        throws IOException {
+      writeString(out, sourceSet.getGradleVersion());
+      writeString(out, sourceSet.getDisplayName());
+      writeString(out, sourceSet.getProjectName());
+      writeString(out, sourceSet.getProjectPath());
+      writeFile(out, sourceSet.getProjectDir());
+      writeFile(out, sourceSet.getRootDir());
+      writeString(out, sourceSet.getSourceSetName());
+      writeString(out, sourceSet.getClassesTaskName());
+      writeFiles(out, sourceSet.getSourceDirs());
+      writeFiles(out, sourceSet.getGeneratedSourceDirs());
+      writeFiles(out, sourceSet.getResourceDirs());
+      writeFile(out, sourceSet.getSourceOutputDir());
+      writeFile(out, sourceSet.getResourceOutputDir());
+
+      Set<GradleModuleDependency> moduleDependencies = sourceSet.getModuleDependencies();
+      writeSize(out, moduleDependencies);
+      if (moduleDependencies != null) {
+        for (GradleModuleDependency module : moduleDependencies) {
+          out.writeInt(getModuleIndex(module));
+        }
+      }
+
+      Set<BuildTargetDependency> buildTargetDependencies = sourceSet.getBuildTargetDependencies();
+      writeSize(out, buildTargetDependencies);
+      if (buildTargetDependencies != null) {
+        for (BuildTargetDependency dependency : buildTargetDependencies) {
+          writeString(out, dependency.getProjectPath());
+          writeString(out, dependency.getSourceSetName());
+        }
+      }
+
+      out.writeBoolean(sourceSet.hasTests());
+      Set<String> testTaskNames = sourceSet.getTestTaskNames();
+      writeSize(out, testTaskNames);
+      if (testTaskNames != null) {
+        for (String testTaskName : testTaskNames) {
+          writeString(out, testTaskName);
+        }
+      }
+      writeFiles(out, sourceSet.getRuntimeClasspath());
+
+      Map<String, Object> extensions = sourceSet.getExtensions();
+      writeSize(out, extensions == null ? null : extensions.keySet());
+      if (extensions != null) {
+        for (Map.Entry<String, Object> entry : extensions.entrySet()) {
+          writeString(out, entry.getKey());
+          writeExtension(out, entry.getKey(), entry.getValue());
+        }
+      }
+    }
+
+    private void writeExtension(DataOutputStream out, String language, Object extension)
+        throws IOException {
+      if (SupportedLanguages.JAVA.equals(language) && extension instanceof JavaExtension) {
+        JavaExtension javaExtension = (JavaExtension) extension;
+        out.writeByte(EXTENSION_JAVA);
+        writeFiles(out, javaExtension.getCompileClasspath());
+        writeFile(out, javaExtension.getJavaHome());
+        writeString(out, javaExtension.getJavaVersion());
+        writeString(out, javaExtension.getSourceCompatibility());
+        writeString(out, javaExtension.getTargetCompatibility());
+        writeStrings(out, javaExtension.getCompilerArgs());
+        writeStrings(out, javaExtension.getJvmOptions());
+        writeFile(out, javaExtension.getWorkingDirectory());
+        writeStringMap(out, javaExtension.getEnvironmentVariables());
+        writeStrings(out, javaExtension.getTestJvmOptions());
+        writeFile(out, javaExtension.getTestWorkingDirectory());
+        writeStringMap(out, javaExtension.getTestEnvironmentVariables());
+      } else {
+        // fall back to the java serialization for the other extensions.
+        out.writeByte(EXTENSION_SERIALIZED);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+          objectOut.writeObject(extension);
+        }
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+      }
+    }
+
+    private int getModuleIndex(GradleModuleDependency module) {
+      Integer index = modules.get(module);
+      if (index == null) {
+        index = moduleTable.size();
+        moduleTable.add(module);
+        modules.put(module, index);
+      }
+      return index;
+    }
+
+    private void writeSize(DataOutputStream out, Collection<?> collection) throws IOException {
+      out.writeInt(collection == null ? NULL_INDEX : collection.size());
+    }
+
+    private void writeFiles(DataOutputStream out, Collection<File> files) throws IOException {
+      writeSize(out, files);
+      if (files != null) {
+        for (File file : files) {
+          writeFile(out, file);
+        }
+      }
+    }
+
+    private void writeStrings(DataOutputStream out, Collection<String> values)
+        throws IOException {
+      writeSize(out, values);
+      if (values != null) {
+        for (String value : values) {
+          writeString(out, value);
+        }
+      }
+    }
+
+    private void writeStringMap(DataOutputStream out, Map<String, String> map)
+        throws IOException {
+      writeSize(out, map == null ? null : map.keySet());
+      if (map != null) {
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+          writeString(out, entry.getKey());
+          writeString(out, entry.getValue());
+        }
+      }
+    }
+
+    private void writeFile(DataOutputStream out, File file) throws IOException {
+      writeString(out, file == null ? null : file.getPath());
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+      if (value == null) {
+        out.writeInt(NULL_INDEX);
+        return;
+      }
+      Integer index = strings.get(value);
+      if (index == null) {
+        index = strings.size();
+        strings.put(value, index);
+      }
+      out.writeInt(index);
+    }
+  }
+
+  private static class Decoder {
+    private DataInputStream in;
+    private String[] strings;
+    private File[] files;
+    private GradleModuleDependency[] modules;
+
+    Decoder(byte[] data) {
+      this.in = new DataInputStream(new ByteArrayInputStream(data));
+    }
+
+    DefaultGradleSourceSets decode() throws IOException {
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported compact source sets version: " + version);
+      }
+      strings = new String[in.readInt()];
+      for (int i = 0; i < strings.length; i++) {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        strings[i] = new String(bytes, StandardCharsets.UTF_8);
+      }
+      files = new File[strings.length];
+
+      modules = new GradleModuleDependency[in.readInt()];
+      for (int i = 0; i < modules.length; i++) {
+        String group = readString();
+        String module = readString();
+        String moduleVersion = readString();
+        int artifactCount = in.readInt();
+        List<Artifact> artifacts = new ArrayList<>(artifactCount);
+        for (int j = 0; j < artifactCount; j++) {
+          String uri = readString();
+          artifacts.add(new DefaultArtifact(uri == null ? null : URI.create(uri),
+              readString()));
+        }
+        modules[i] = new DefaultGradleModuleDependency(group, module, moduleVersion,
+            artifacts);
+      }
+
+      int sourceSetCount = in.readInt();
+      List<GradleSourceSet> sourceSets = new ArrayList<>(sourceSetCount);
+      for (int i = 0; i < sourceSetCount; i++) {
+        sourceSets.add(readSourceSet());
+      }
+      return new DefaultGradleSourceSets(sourceSets);
+    }
+
+    private GradleSourceSet readSourceSet() throws IOException {
+      DefaultGradleSourceSet sourceSet = new DefaultGradleSourceSet();
+      sourceSet.setGradleVersion(readString());
+      sourceSet.setDisplayName(readString());
+      sourceSet.setProjectName(readString());
+      sourceSet.setProjectPath(readString());
+      sourceSet.setProjectDir(readFile());
+      sourceSet.setRootDir(readFile());
+      sourceSet.setSourceSetName(readString());
+      sourceSet.setClassesTaskName(readString());
+      sourceSet.setSourceDirs(readFileSet());
+      sourceSet.setGeneratedSourceDirs(readFileSet());
+      sourceSet.setResourceDirs(readFileSet());
+      sourceSet.setSourceOutputDir(readFile());
+      sourceSet.setResourceOutputDir(readFile());
+
+      int moduleCount = in.readInt();
+      if (moduleCount != NULL_INDEX) {
+        Set<GradleModuleDependency> moduleDependencies = new LinkedHashSet<>();
+        for (int i = 0; i < moduleCount; i++) {
+          moduleDependencies.add(modules[in.readInt()]);
+        }
+        sourceSet.setModuleDependencies(moduleDependencies);
+      }
+
+      int dependencyCount = in.readInt();
+      if (dependencyCount != NULL_INDEX) {
+        Set<BuildTargetDependency> dependencies = new LinkedHashSet<>();
+        for (int i = 0; i < dependencyCount; i++) {
+          dependencies.add(new DefaultBuildTargetDependency(readString(), readString()));
+        }
+        sourceSet.setBuildTargetDependencies(dependencies);
+      }
+
+      sourceSet.setHasTests(in.readBoolean());
+      int testTaskCount = in.readInt();
+      if (testTaskCount != NULL_INDEX) {
+        Set<String> testTaskNames = new LinkedHashSet<>();
+        for (int i = 0; i < testTaskCount; i++) {
+          testTaskNames.add(readString());
+        }
+        sourceSet.setTestTaskNames(testTaskNames);
+      }
+      sourceSet.setRuntimeClasspath(readFileList());
+
+      int extensionCount = in.readInt();
+      if (extensionCount != NULL_INDEX) {
+        Map<String, Object> extensions = new HashMap<>();
+        for (int i = 0; i < extensionCount; i++) {
+          String language = readString();
+          extensions.put(language, readExtension());
+        }
+        sourceSet.setExtensions(extensions);
+      }
+      return sourceSet;
+    }
+
+    private Object readExtension() throws IOException {
+      byte kind = in.readByte();
+      if (kind == EXTENSION_JAVA) {
+        DefaultJavaExtension javaExtension = new DefaultJavaExtension();
+        javaExtension.setCompileClasspath(readFileList());
+        javaExtension.setJavaHome(readFile());
+        javaExtension.setJavaVersion(readString());
+        javaExtension.setSourceCompatibility(readString());
+        javaExtension.setTargetCompatibility(readString());
+        javaExtension.setCompilerArgs(readStringList());
+        javaExtension.setJvmOptions(readStringList());
+        javaExtension.setWorkingDirectory(readFile());
+        javaExtension.setEnvironmentVariables(readStringMap());
+        javaExtension.setTestJvmOptions(readStringList());
+        javaExtension.setTestWorkingDirectory(readFile());
+        javaExtension.setTestEnvironmentVariables(readStringMap());
+        return javaExtension;
+      } else if (kind == EXTENSION_SERIALIZED) {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        try (ObjectInputStream objectIn = new AllowlistObjectInputStream(
+            new ByteArrayInputStream(bytes))) {
+          return objectIn.readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IOException(e);
+        }
+      }
+      throw new IOException("Unknown extension kind: " + kind);
+    }
+
+    private List<File> readFileList() throws IOException {
+      int count = in.readInt();
+      if (count == NULL_INDEX) {
+        return null;
+      }
+      List<File> result = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        result.add(readFile());
+      }
+      return result;
+    }
+
+    private List<String> readStringList() throws IOException {
+      int count = in.readInt();
+      if (count == NULL_INDEX) {
+        return null;
+      }
+      List<String> result = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        result.add(readString());
+      }
+      return result;
+    }
+
+    private Map<String, String> readStringMap() throws IOException {
+      int count = in.readInt();
+      if (count == NULL_INDEX) {
+        return null;
+      }
+      Map<String, String> result = new LinkedHashMap<>();
+      for (int i = 0; i < count; i++) {
+        result.put(readString(), readString());
+      }
+      return result;
+    }
+
+    private Set<File> readFileSet() throws IOException {
+      int count = in.readInt();
+      if (count == NULL_INDEX) {
+        return null;
+      }
+      Set<File> result = new LinkedHashSet<>();
+      for (int i = 0; i < count; i++) {
+        result.add(readFile());
+      }
+      return result;
+    }
+
+    private File readFile() throws IOException {
+      int index = in.readInt();
+      if (index == NULL_INDEX) {
+        return null;
+      }
+      if (files[index] == null) {
+        files[index] = new File(strings[index]);
+      }
+      return files[index];
+    }
+
+    private String readString() throws IOException {
+      int index = in.readInt();
+      return index == NULL_INDEX ? null : strings[index];
+    }
+  }
+
+  /**
+   * Deserializes only the model classes and the JDK types they are made of, since
+   * the encoded data can come from a file in the workspace.
+   */
+  private static class AllowlistObjectInputStream extends ObjectInputStream {
+
+    AllowlistObjectInputStream(ByteArrayInputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc)
+        throws IOException, ClassNotFoundException {
+      if (!isAllowed(desc.getName())) {
+        throw new InvalidClassException(desc.getName(), "Class is not allowed in the model");
+      }
+      return super.resolveClass(desc);
+    }
+
+    private static boolean isAllowed(String name) {
+      String elementName = name;
+      while (elementName.startsWith("[")) {
+        elementName = elementName.substring(1);
+      }
+      if (elementName.length() == 1) {
+        // the primitive arrays, e.g. [B.
+        return true;
+      }
+      if (elementName.startsWith("L") && elementName.endsWith(";")) {
+        elementName = elementName.substring(1, elementName.length() - 1);
+      }
+      return elementName.startsWith("com.microsoft.java.bs.gradle.model.")
+          || elementName.startsWith("java.util.")
+          || elementName.equals("java.io.File")
+          || elementName.equals("java.net.URI")
+          || elementName.equals("java.lang.String")
+          || elementName.equals("java.lang.Boolean")
+          || elementName.equals("java.lang.Number")
+          || elementName.equals("java.lang.Integer")
+          || elementName.equals("java.lang.Long")
+          || elementName.equals("java.lang.Enum");
+    }
+  }
+}
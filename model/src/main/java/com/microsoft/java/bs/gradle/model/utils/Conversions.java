@@ -4,9 +4,17 @@
 package com.microsoft.java.bs.gradle.model.utils;
 
 import java.io.File;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import com.microsoft.java.bs.gradle.model.JavaExtension;
 import com.microsoft.java.bs.gradle.model.impl.DefaultJavaExtension;
 
 /**
@@ -15,27 +23,146 @@ import com.microsoft.java.bs.gradle.model.impl.DefaultJavaExtension;
  */
 public class Conversions {
 
+  private static final Logger LOGGER = Logger.getLogger("GradleBuildServerLogger");
+
   /**
-   * Convert an object to a DefaultJavaExtension.
+   * The getters of the java extension classes loaded by other class loaders,
+   * looked up once per class. <code>null</code> is stored if the class does not
+   * have the getters.
+   */
+  private static final ClassValue<JavaExtensionGetters> JAVA_EXTENSION_GETTERS =
+      new ClassValue<JavaExtensionGetters>() {
+        @Override
+        protected JavaExtensionGetters computeValue(Class<?> type) {
+          try {
+            return new JavaExtensionGetters(type);
+          } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+            LOGGER.log(Level.WARNING, "Cannot read the java extension of " + type.getName(), e);
+            return null;
+          }
+        }
+      };
+
+  /**
+   * Convert an object to a DefaultJavaExtension. The object is returned as is if
+   * it is already a DefaultJavaExtension of this class loader.
    */
   public static DefaultJavaExtension toJavaExtension(Object object) {
+    if (object == null) {
+      return null;
+    }
+    if (object instanceof DefaultJavaExtension) {
+      return (DefaultJavaExtension) object;
+    }
+
     DefaultJavaExtension result = new DefaultJavaExtension();
+    if (object instanceof JavaExtension) {
+      JavaExtension javaExtension = (JavaExtension) object;
+      result.setCompileClasspath(javaExtension.getCompileClasspath());
+      result.setJavaHome(javaExtension.getJavaHome());
+      result.setJavaVersion(javaExtension.getJavaVersion());
+      result.setSourceCompatibility(javaExtension.getSourceCompatibility());
+      result.setTargetCompatibility(javaExtension.getTargetCompatibility());
+      result.setCompilerArgs(javaExtension.getCompilerArgs());
+      result.setJvmOptions(javaExtension.getJvmOptions());
+      result.setWorkingDirectory(javaExtension.getWorkingDirectory());
+      result.setEnvironmentVariables(javaExtension.getEnvironmentVariables());
+      result.setTestJvmOptions(javaExtension.getTestJvmOptions());
+      result.setTestWorkingDirectory(javaExtension.getTestWorkingDirectory());
+      result.setTestEnvironmentVariables(javaExtension.getTestEnvironmentVariables());
+      return result;
+    }
+
+    JavaExtensionGetters getters = JAVA_EXTENSION_GETTERS.get(object.getClass());
+    if (getters == null) {
+      return null;
+    }
     try {
-      result.setCompileClasspath(
-          (List<File>) object.getClass().getDeclaredMethod("getCompileClasspath").invoke(object));
-      result.setJavaHome((File) object.getClass().getDeclaredMethod("getJavaHome").invoke(object));
-      result.setJavaVersion(
-          (String) object.getClass().getDeclaredMethod("getJavaVersion").invoke(object));
-      result.setSourceCompatibility(
-          (String) object.getClass().getDeclaredMethod("getSourceCompatibility").invoke(object));
-      result.setTargetCompatibility(
-          (String) object.getClass().getDeclaredMethod("getTargetCompatibility").invoke(object));
-      result.setCompilerArgs(
-          (List<String>) object.getClass().getDeclaredMethod("getCompilerArgs").invoke(object));
-    } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException
-        | NoSuchMethodException | SecurityException e) {
+      result.setCompileClasspath((List<File>) getters.compileClasspath.invoke(object));
+      result.setJavaHome((File) getters.javaHome.invoke(object));
+      result.setJavaVersion((String) getters.javaVersion.invoke(object));
+      result.setSourceCompatibility((String) getters.sourceCompatibility.invoke(object));
+      result.setTargetCompatibility((String) getters.targetCompatibility.invoke(object));
+      result.setCompilerArgs((List<String>) getters.compilerArgs.invoke(object));
+      if (getters.jvmOptions != null) {
+        result.setJvmOptions((List<String>) getters.jvmOptions.invoke(object));
+      }
+      if (getters.workingDirectory != null) {
+        result.setWorkingDirectory((File) getters.workingDirectory.invoke(object));
+      }
+      if (getters.environmentVariables != null) {
+        result.setEnvironmentVariables(
+            (Map<String, String>) getters.environmentVariables.invoke(object));
+      }
+      if (getters.testJvmOptions != null) {
+        result.setTestJvmOptions((List<String>) getters.testJvmOptions.invoke(object));
+      }
+      if (getters.testWorkingDirectory != null) {
+        result.setTestWorkingDirectory((File) getters.testWorkingDirectory.invoke(object));
+      }
+      if (getters.testEnvironmentVariables != null) {
+        result.setTestEnvironmentVariables(
+            (Map<String, String>) getters.testEnvironmentVariables.invoke(object));
+      }
+    } catch (ClassCastException | WrongMethodTypeException e) {
+      LOGGER.log(Level.WARNING, "Cannot convert the java extension "
+          + object.getClass().getName(), e);
       return null;
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      // the getters do not declare checked exceptions.
+      throw new UndeclaredThrowableException(e);
     }
     return result;
   }
+
+  private static class JavaExtensionGetters {
+    private final MethodHandle compileClasspath;
+    private final MethodHandle javaHome;
+    private final MethodHandle javaVersion;
+    private final MethodHandle sourceCompatibility;
+    private final MethodHandle targetCompatibility;
+    private final MethodHandle compilerArgs;
+    private final MethodHandle jvmOptions;
+    private final MethodHandle workingDirectory;
+    private final MethodHandle environmentVariables;
+    private final MethodHandle testJvmOptions;
+    private final MethodHandle testWorkingDirectory;
+    private final MethodHandle testEnvironmentVariables;
+
+    JavaExtensionGetters(Class<?> type) throws NoSuchMethodException, IllegalAccessException {
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      this.compileClasspath = lookup.findVirtual(type, "getCompileClasspath",
+          MethodType.methodType(List.class));
+      this.javaHome = lookup.findVirtual(type, "getJavaHome", MethodType.methodType(File.class));
+      this.javaVersion = lookup.findVirtual(type, "getJavaVersion",
+          MethodType.methodType(String.class));
+      this.sourceCompatibility = lookup.findVirtual(type, "getSourceCompatibility",
+          MethodType.methodType(String.class));
+      this.targetCompatibility = lookup.findVirtual(type, "getTargetCompatibility",
+          MethodType.methodType(String.class));
+      this.compilerArgs = lookup.findVirtual(type, "getCompilerArgs",
+          MethodType.methodType(List.class));
+      // the runtime environment is missing in the models of the older plugins.
+      this.jvmOptions = findOptional(lookup, type, "getJvmOptions", List.class);
+      this.workingDirectory = findOptional(lookup, type, "getWorkingDirectory", File.class);
+      this.environmentVariables = findOptional(lookup, type, "getEnvironmentVariables",
+          Map.class);
+      this.testJvmOptions = findOptional(lookup, type, "getTestJvmOptions", List.class);
+      this.testWorkingDirectory = findOptional(lookup, type, "getTestWorkingDirectory",
+          File.class);
+      this.testEnvironmentVariables = findOptional(lookup, type,
+          "getTestEnvironmentVariables", Map.class);
+    }
+
+    private static MethodHandle findOptional(MethodHandles.Lookup lookup, Class<?> type,
+        String name, Class<?> returnType) throws IllegalAccessException {
+      try {
+        return lookup.findVirtual(type, name, MethodType.methodType(returnType));
+      } catch (NoSuchMethodException e) {
+        return null;
+      }
+    }
+  }
 }
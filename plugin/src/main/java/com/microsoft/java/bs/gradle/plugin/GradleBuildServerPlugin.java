@@ -35,6 +35,7 @@ public class GradleBuildServerPlugin implements Plugin<Project> {
   @Override
   public void apply(Project project) {
     registry.register(new SourceSetsModelBuilder());
+    registry.register(new ModuleDependenciesModelBuilder());
   }
 
   private void registerSupportedLanguages() {
@@ -7,11 +7,15 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -21,12 +25,16 @@ import java.util.stream.Stream;
 
 import org.gradle.api.Project;
 import org.gradle.api.file.Directory;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.tasks.compile.DefaultJavaCompileSpec;
 import org.gradle.api.internal.tasks.compile.JavaCompilerArgumentsBuilder;
+import org.gradle.api.tasks.JavaExec;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.compile.CompileOptions;
 import org.gradle.api.tasks.compile.JavaCompile;
+import org.gradle.api.tasks.testing.Test;
 import org.gradle.plugins.ide.internal.tooling.java.DefaultInstalledJdk;
+import org.gradle.process.JavaForkOptions;
 import org.gradle.util.GradleVersion;
 
 import com.microsoft.java.bs.gradle.model.SupportedLanguages;
@@ -76,6 +84,28 @@ public class JavaLanguageModelBuilder extends LanguageModelBuilder {
         getSourceCompatibility(compilerArgs));
     extension.setTargetCompatibility(
         getTargetCompatibility(compilerArgs));
+
+    // runtime environment
+    JavaForkOptions runOptions = getRunTask(project, sourceSet);
+    if (runOptions != null) {
+      extension.setJvmOptions(getJvmOptions(runOptions));
+      extension.setWorkingDirectory(runOptions.getWorkingDir());
+      extension.setEnvironmentVariables(getEnvironmentVariables(runOptions));
+    } else {
+      extension.setJvmOptions(Collections.emptyList());
+      extension.setWorkingDirectory(project.getProjectDir());
+      extension.setEnvironmentVariables(Collections.emptyMap());
+    }
+    JavaForkOptions testOptions = getTestTask(project, sourceSet);
+    if (testOptions != null) {
+      extension.setTestJvmOptions(getJvmOptions(testOptions));
+      extension.setTestWorkingDirectory(testOptions.getWorkingDir());
+      extension.setTestEnvironmentVariables(getEnvironmentVariables(testOptions));
+    } else {
+      extension.setTestJvmOptions(Collections.emptyList());
+      extension.setTestWorkingDirectory(project.getProjectDir());
+      extension.setTestEnvironmentVariables(Collections.emptyMap());
+    }
     return extension;
   }
 
@@ -83,6 +113,81 @@ public class JavaLanguageModelBuilder extends LanguageModelBuilder {
     return (JavaCompile) getLanguageCompileTask(SupportedLanguages.JAVA, project, sourceSet);
   }
 
+  /**
+   * Get the exec task which runs the main classes of the source set, e.g. the
+   * <code>run</code> task of the application plugin for the main source set. The
+   * task is matched by its name or by the identity of its classpath, so no
+   * classpath is resolved.
+   */
+  private JavaExec getRunTask(Project project, SourceSet sourceSet) {
+    String runTaskName = sourceSet.getTaskName("run", null);
+    FileCollection runtimeClasspath = sourceSet.getRuntimeClasspath();
+    for (JavaExec execTask : project.getTasks().withType(JavaExec.class)) {
+      if (runTaskName.equals(execTask.getName())
+          || execTask.getClasspath() == runtimeClasspath) {
+        return execTask;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the test task which runs the test classes of the source set.
+   */
+  private Test getTestTask(Project project, SourceSet sourceSet) {
+    FileCollection classesDirs = sourceSet.getOutput().getClassesDirs();
+    for (Test testTask : project.getTasks().withType(Test.class)) {
+      FileCollection files = testTask.getTestClassesDirs();
+      if (files != null && classesDirs.getFiles().stream().anyMatch(files::contains)) {
+        return testTask;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the JVM options of a task. The argument providers are not included, they
+   * may depend on the outputs of other tasks, e.g. the agent of jacoco.
+   */
+  private List<String> getJvmOptions(JavaForkOptions forkOptions) {
+    List<String> jvmOptions = new ArrayList<>();
+    for (Map.Entry<String, Object> entry : forkOptions.getSystemProperties().entrySet()) {
+      Object value = entry.getValue();
+      jvmOptions.add(value == null ? "-D" + entry.getKey()
+          : "-D" + entry.getKey() + "=" + value);
+    }
+    if (forkOptions.getMinHeapSize() != null) {
+      jvmOptions.add("-Xms" + forkOptions.getMinHeapSize());
+    }
+    if (forkOptions.getMaxHeapSize() != null) {
+      jvmOptions.add("-Xmx" + forkOptions.getMaxHeapSize());
+    }
+    List<String> jvmArgs = forkOptions.getJvmArgs();
+    if (jvmArgs != null) {
+      // Groovy can use GStringImpl which cannot be passed over the tooling connection.
+      for (Object jvmArg : jvmArgs) {
+        jvmOptions.add(jvmArg.toString());
+      }
+    }
+    return jvmOptions;
+  }
+
+  /**
+   * Get the environment variables which a task adds to or changes in the
+   * environment of the daemon, which the task inherits.
+   */
+  private Map<String, String> getEnvironmentVariables(JavaForkOptions forkOptions) {
+    Map<String, String> inherited = System.getenv();
+    Map<String, String> environmentVariables = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> entry : forkOptions.getEnvironment().entrySet()) {
+      String value = Objects.toString(entry.getValue(), "");
+      if (!value.equals(inherited.get(entry.getKey()))) {
+        environmentVariables.put(entry.getKey(), value);
+      }
+    }
+    return environmentVariables;
+  }
+
   private void addAnnotationProcessingDir(Project project, SourceSet sourceSet,
       Set<File> generatedSrcDirs) {
     JavaCompile javaCompile = getJavaCompileTask(project, sourceSet);
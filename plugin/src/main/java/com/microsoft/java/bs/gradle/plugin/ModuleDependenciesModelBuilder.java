@@ -0,0 +1,117 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.gradle.plugin;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.query.ArtifactResolutionQuery;
+import org.gradle.api.artifacts.result.ComponentArtifactsResult;
+import org.gradle.jvm.JvmLibrary;
+import org.gradle.language.base.artifact.SourcesArtifact;
+import org.gradle.language.java.artifact.JavadocArtifact;
+import org.gradle.tooling.provider.model.ToolingModelBuilder;
+
+import com.microsoft.java.bs.gradle.model.Artifact;
+import com.microsoft.java.bs.gradle.model.GradleModuleDependencies;
+import com.microsoft.java.bs.gradle.model.GradleModuleDependency;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleModuleDependencies;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleModuleDependency;
+import com.microsoft.java.bs.gradle.plugin.dependency.DependencyCollector;
+
+/**
+ * The model builder to resolve the sources and javadoc artifacts of the module
+ * dependencies on demand.
+ */
+public class ModuleDependenciesModelBuilder implements ToolingModelBuilder {
+  @Override
+  public boolean canBuild(String modelName) {
+    return modelName.equals(GradleModuleDependencies.class.getName());
+  }
+
+  /**
+   * The system property to specify the file which contains the coordinates of the
+   * modules to resolve, in the format of <code>group:module:version</code>, one per
+   * line. A file is used since there can be too many modules for the command line.
+   */
+  public static final String MODULE_COORDINATES_FILE_PROPERTY =
+      "bsp.gradle.moduleCoordinatesFile";
+
+  @Override
+  public Object buildAll(String modelName, Project rootProject) {
+    Set<String> coordinates = getCoordinates();
+    Set<String> projectPaths = SourceSetsModelBuilder.getPropertyValues(
+        SourceSetsModelBuilder.PROJECT_PATHS_PROPERTY);
+    List<GradleModuleDependency> moduleDependencies = new LinkedList<>();
+    // the repositories are declared per project, try the requested projects
+    // until all the modules are resolved.
+    for (Project project : rootProject.getAllprojects()) {
+      if (coordinates.isEmpty()) {
+        break;
+      }
+      if (!projectPaths.isEmpty() && !projectPaths.contains(project.getPath())) {
+        continue;
+      }
+
+      ArtifactResolutionQuery query = project.getDependencies().createArtifactResolutionQuery();
+      for (String coordinate : coordinates) {
+        String[] parts = coordinate.split(":");
+        if (parts.length == 3) {
+          query.forModule(parts[0], parts[1], parts[2]);
+        }
+      }
+      Set<ComponentArtifactsResult> components = query
+          .withArtifacts(
+            JvmLibrary.class /* componentType */,
+            JavadocArtifact.class, SourcesArtifact.class /*artifactTypes*/
+          )
+          .execute()
+          .getResolvedComponents();
+      for (ComponentArtifactsResult component : components) {
+        ComponentIdentifier id = component.getId();
+        if (!(id instanceof ModuleComponentIdentifier)) {
+          continue;
+        }
+        ModuleComponentIdentifier moduleId = (ModuleComponentIdentifier) id;
+        List<Artifact> artifacts = DependencyCollector.getSourcesAndJavadoc(component);
+        if (artifacts.isEmpty()) {
+          continue;
+        }
+        moduleDependencies.add(new DefaultGradleModuleDependency(moduleId.getGroup(),
+            moduleId.getModule(), moduleId.getVersion(), artifacts));
+        coordinates.remove(moduleId.getGroup() + ":" + moduleId.getModule() + ":"
+            + moduleId.getVersion());
+      }
+    }
+    return new DefaultGradleModuleDependencies(moduleDependencies);
+  }
+
+  private static Set<String> getCoordinates() {
+    Set<String> coordinates = new LinkedHashSet<>();
+    String file = System.getProperty(MODULE_COORDINATES_FILE_PROPERTY);
+    if (file == null) {
+      return coordinates;
+    }
+    try {
+      for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+        if (!line.trim().isEmpty()) {
+          coordinates.add(line.trim());
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return coordinates;
+  }
+}
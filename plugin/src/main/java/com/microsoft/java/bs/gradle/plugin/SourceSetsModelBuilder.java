@@ -4,15 +4,23 @@
 package com.microsoft.java.bs.gradle.plugin;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
 import org.gradle.api.file.CopySpec;
 import org.gradle.api.file.Directory;
 import org.gradle.api.file.FileCollection;
@@ -28,11 +36,17 @@ import org.gradle.tooling.provider.model.ToolingModelBuilder;
 import org.gradle.util.GradleVersion;
 
 import com.microsoft.java.bs.gradle.model.BuildTargetDependency;
+import com.microsoft.java.bs.gradle.model.CompactGradleSourceSets;
+import com.microsoft.java.bs.gradle.model.GradleModuleDependency;
+import com.microsoft.java.bs.gradle.model.GradleSourceSet;
 import com.microsoft.java.bs.gradle.model.GradleSourceSets;
 import com.microsoft.java.bs.gradle.model.impl.DefaultBuildTargetDependency;
+import com.microsoft.java.bs.gradle.model.impl.DefaultCompactGradleSourceSets;
 import com.microsoft.java.bs.gradle.model.impl.DefaultGradleSourceSet;
 import com.microsoft.java.bs.gradle.model.impl.DefaultGradleSourceSets;
+import com.microsoft.java.bs.gradle.model.utils.CompactSourceSetsCodec;
 import com.microsoft.java.bs.gradle.plugin.dependency.DependencyCollector;
+import com.microsoft.java.bs.gradle.plugin.dependency.ModuleDependencyCache;
 
 /**
  * The model builder for Gradle source sets.
@@ -40,13 +54,32 @@ import com.microsoft.java.bs.gradle.plugin.dependency.DependencyCollector;
 public class SourceSetsModelBuilder implements ToolingModelBuilder {
   @Override
   public boolean canBuild(String modelName) {
-    return modelName.equals(GradleSourceSets.class.getName());
+    return modelName.equals(GradleSourceSets.class.getName())
+        || modelName.equals(CompactGradleSourceSets.class.getName());
   }
 
+  /**
+   * The system property to specify the paths of the projects to build the model for,
+   * separated by comma. The model of all the projects will be built if it is not set.
+   */
+  public static final String PROJECT_PATHS_PROPERTY = "bsp.gradle.projectPaths";
+
+  /**
+   * The system property to skip resolving the sources and javadoc artifacts of the
+   * module dependencies. They can be resolved on demand with the
+   * {@link ModuleDependenciesModelBuilder} instead.
+   */
+  public static final String SKIP_SOURCES_AND_JAVADOC_PROPERTY =
+      "bsp.gradle.skipSourcesAndJavadoc";
+
   @Override
   public Object buildAll(String modelName, Project rootProject) {
     Set<Project> allProject = rootProject.getAllprojects();
+    Set<String> requestedProjectPaths = getPropertyValues(PROJECT_PATHS_PROPERTY);
     SourceSetCache cache = new SourceSetCache();
+    // the source sets whose model will be returned. The other source sets are
+    // only used to find the build target dependencies of the requested ones.
+    Set<SourceSet> requestedSourceSets = new LinkedHashSet<>();
     // this set is used to eliminate the source, resource and output
     // directories from the module dependencies.
     Set<File> exclusionFromDependencies = new HashSet<>();
@@ -56,10 +89,15 @@ public class SourceSetsModelBuilder implements ToolingModelBuilder {
       if (sourceSets == null || sourceSets.isEmpty()) {
         continue;
       }
+      boolean requested = requestedProjectPaths.isEmpty()
+          || requestedProjectPaths.contains(project.getPath());
       sourceSets.forEach(sourceSet -> {
         DefaultGradleSourceSet gradleSourceSet = new DefaultGradleSourceSet();
         cache.addGradleSourceSet(sourceSet, gradleSourceSet);
         cache.addProject(sourceSet, project);
+        if (requested) {
+          requestedSourceSets.add(sourceSet);
+        }
         gradleSourceSet.setGradleVersion(project.getGradle().getGradleVersion());
         gradleSourceSet.setProjectName(project.getName());
         gradleSourceSet.setProjectPath(project.getPath());
@@ -81,8 +119,11 @@ public class SourceSetsModelBuilder implements ToolingModelBuilder {
             GradleBuildServerPlugin.SUPPORTED_LANGUAGE_BUILDERS) {
           if (languageModelBuilder.appliesFor(project, sourceSet)) {
             srcDirs.addAll(languageModelBuilder.getSourceFoldersFor(project, sourceSet));
-            generatedSrcDirs.addAll(
-                languageModelBuilder.getGeneratedSourceFoldersFor(project, sourceSet));
+            // inferring the generated source folders is expensive, only do it when required.
+            if (requested) {
+              generatedSrcDirs.addAll(
+                  languageModelBuilder.getGeneratedSourceFoldersFor(project, sourceSet));
+            }
           }
         }
         gradleSourceSet.setSourceDirs(srcDirs);
@@ -112,21 +153,24 @@ public class SourceSetsModelBuilder implements ToolingModelBuilder {
         // tests
         if (sourceOutputDir != null) {
           TaskCollection<Test> testTasks = project.getTasks().withType(Test.class);
+          Set<String> testTaskNames = new LinkedHashSet<>();
           for (Test testTask : testTasks) {
             FileCollection files = testTask.getTestClassesDirs();
             if (files.contains(sourceOutputDir)) {
-              gradleSourceSet.setHasTests(true);
-              break;
+              testTaskNames.add(testTask.getName());
             }
           }
+          gradleSourceSet.setHasTests(!testTaskNames.isEmpty());
+          gradleSourceSet.setTestTaskNames(testTaskNames);
         }
       });
     }
 
-    setSourceSetDependencies(cache);
-    setModuleDependencies(cache, exclusionFromDependencies);
+    setSourceSetDependencies(cache, requestedSourceSets);
+    setModuleDependencies(cache, requestedSourceSets, exclusionFromDependencies);
 
-    for (SourceSet sourceSet : cache.getAllSourceSets()) {
+    List<GradleSourceSet> result = new LinkedList<>();
+    for (SourceSet sourceSet : requestedSourceSets) {
       DefaultGradleSourceSet gradleSourceSet = cache.getGradleSourceSet(sourceSet);
       if (gradleSourceSet == null) {
         continue;
@@ -146,26 +190,121 @@ public class SourceSetsModelBuilder implements ToolingModelBuilder {
         }
       }
       gradleSourceSet.setExtensions(extensions);
+      result.add(gradleSourceSet);
+    }
 
+    DefaultGradleSourceSets gradleSourceSets = new DefaultGradleSourceSets(result);
+    if (modelName.equals(CompactGradleSourceSets.class.getName())) {
+      try {
+        return new DefaultCompactGradleSourceSets(
+            CompactSourceSetsCodec.encode(gradleSourceSets));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
     }
+    return gradleSourceSets;
+  }
 
-    return new DefaultGradleSourceSets(new LinkedList<>(cache.getAllGradleSourceSets()));
+  /**
+   * Get the values of a comma separated system property.
+   */
+  static Set<String> getPropertyValues(String property) {
+    Set<String> values = new LinkedHashSet<>();
+    String propertyValue = System.getProperty(property);
+    if (propertyValue != null) {
+      for (String value : propertyValue.split(",")) {
+        if (!value.trim().isEmpty()) {
+          values.add(value.trim());
+        }
+      }
+    }
+    return values;
   }
 
-  private void setModuleDependencies(SourceSetCache cache, Set<File> exclusionFromDependencies) {
-    for (SourceSet sourceSet : cache.getAllSourceSets()) {
-      DefaultGradleSourceSet gradleSourceSet = cache.getGradleSourceSet(sourceSet);
-      if (gradleSourceSet == null) {
+  private void setModuleDependencies(SourceSetCache cache, Set<SourceSet> requestedSourceSets,
+      Set<File> exclusionFromDependencies) {
+    // group the source sets by project, so that the sources and javadoc
+    // of a project are resolved in one query.
+    Map<Project, Map<SourceSet, Set<String>>> configurationNames = new LinkedHashMap<>();
+    for (SourceSet sourceSet : requestedSourceSets) {
+      Project project = cache.getProject(sourceSet);
+      if (project == null || cache.getGradleSourceSet(sourceSet) == null) {
         continue;
       }
-      DependencyCollector collector = new DependencyCollector(cache.getProject(sourceSet),
-          exclusionFromDependencies);
-      collector.collectByConfigurationNames(getClasspathConfigurationNames(sourceSet));
-      gradleSourceSet.setModuleDependencies(collector.getModuleDependencies());
+      configurationNames.computeIfAbsent(project, k -> new LinkedHashMap<>())
+          .put(sourceSet, getClasspathConfigurationNames(sourceSet));
+    }
+
+    // resolved dependencies are shared among the projects.
+    ModuleDependencyCache dependencyCache = new ModuleDependencyCache();
+    boolean resolveSourcesAndJavadoc = !Boolean.getBoolean(SKIP_SOURCES_AND_JAVADOC_PROPERTY);
+    for (Map.Entry<Project, Map<SourceSet, Set<String>>> entry
+        : configurationNames.entrySet()) {
+      DependencyCollector collector = new DependencyCollector(entry.getKey(),
+          exclusionFromDependencies, dependencyCache, resolveSourcesAndJavadoc);
+      Map<SourceSet, Set<GradleModuleDependency>> moduleDependencies =
+          collector.collectByConfigurationNames(entry.getValue());
+      moduleDependencies.forEach((sourceSet, dependencies) ->
+          cache.getGradleSourceSet(sourceSet).setModuleDependencies(dependencies));
+    }
+  }
+
+  private void setSourceSetDependencies(SourceSetCache cache,
+      Set<SourceSet> requestedSourceSets) {
+    Map<File, DefaultGradleSourceSet> outputsToSourceSet = getOutputsToSourceSet(cache);
+
+    // match any classpath entries to other project's output dirs/jars to create dependencies
+    for (SourceSet sourceSet : requestedSourceSets) {
+      Set<BuildTargetDependency> dependencies = new HashSet<>();
+      for (File file : sourceSet.getCompileClasspath()) {
+        DefaultGradleSourceSet otherSourceSet = outputsToSourceSet.get(file);
+        if (otherSourceSet != null) {
+          dependencies.add(new DefaultBuildTargetDependency(otherSourceSet));
+        }
+      }
+      DefaultGradleSourceSet gradleSourceSet = cache.getGradleSourceSet(sourceSet);
+      gradleSourceSet.setBuildTargetDependencies(dependencies);
+
+      // The archives of the other source sets are replaced by their output dirs, so
+      // that the classpath can be used once the source sets are compiled.
+      Set<File> runtimeClasspath = new LinkedHashSet<>();
+      for (File file : getRuntimeClasspath(cache.getProject(sourceSet), sourceSet)) {
+        DefaultGradleSourceSet otherSourceSet = outputsToSourceSet.get(file);
+        if (otherSourceSet == null || otherSourceSet == gradleSourceSet) {
+          runtimeClasspath.add(file);
+          continue;
+        }
+        if (otherSourceSet.getSourceOutputDir() != null) {
+          runtimeClasspath.add(otherSourceSet.getSourceOutputDir());
+        }
+        if (otherSourceSet.getResourceOutputDir() != null) {
+          runtimeClasspath.add(otherSourceSet.getResourceOutputDir());
+        }
+      }
+      gradleSourceSet.setRuntimeClasspath(new ArrayList<>(runtimeClasspath));
+    }
+  }
+
+  /**
+   * Get the runtime classpath of a source set, i.e. its output followed by the
+   * artifacts of its runtime classpath configuration. The configuration is resolved
+   * leniently like the module dependencies, so an unresolvable runtime dependency
+   * does not fail the import.
+   */
+  private List<File> getRuntimeClasspath(Project project, SourceSet sourceSet) {
+    List<File> files = new ArrayList<>(sourceSet.getOutput().getFiles());
+    Configuration configuration = project == null ? null : project.getConfigurations()
+        .findByName(sourceSet.getRuntimeClasspathConfigurationName());
+    if (configuration != null && configuration.isCanBeResolved()) {
+      for (ResolvedArtifactResult artifact
+          : DependencyCollector.getConfigurationArtifacts(configuration)) {
+        files.add(artifact.getFile());
+      }
     }
+    return files;
   }
 
-  private void setSourceSetDependencies(SourceSetCache cache) {
+  private Map<File, DefaultGradleSourceSet> getOutputsToSourceSet(SourceSetCache cache) {
     // map all output dirs to their source sets
     Map<File, DefaultGradleSourceSet> outputsToSourceSet = new HashMap<>();
     for (DefaultGradleSourceSet sourceSet : cache.getAllGradleSourceSets()) {
@@ -210,17 +349,7 @@ public class SourceSetsModelBuilder implements ToolingModelBuilder {
       }
     }
 
-    // match any classpath entries to other project's output dirs/jars to create dependencies
-    for (SourceSet sourceSet : cache.getAllSourceSets()) {
-      Set<BuildTargetDependency> dependencies = new HashSet<>();
-      for (File file : sourceSet.getCompileClasspath()) {
-        DefaultGradleSourceSet otherSourceSet = outputsToSourceSet.get(file);
-        if (otherSourceSet != null) {
-          dependencies.add(new DefaultBuildTargetDependency(otherSourceSet));
-        }
-      }
-      cache.getGradleSourceSet(sourceSet).setBuildTargetDependencies(dependencies);
-    }
+    return outputsToSourceSet;
   }
 
   private SourceSetContainer getSourceSetContainer(Project project) {
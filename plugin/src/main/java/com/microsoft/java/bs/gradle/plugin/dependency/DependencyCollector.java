@@ -4,9 +4,13 @@
 package com.microsoft.java.bs.gradle.plugin.dependency;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -14,6 +18,7 @@ import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.result.ArtifactResolutionResult;
 import org.gradle.api.artifacts.result.ArtifactResult;
 import org.gradle.api.artifacts.result.ComponentArtifactsResult;
@@ -33,53 +38,107 @@ import com.microsoft.java.bs.gradle.model.impl.DefaultArtifact;
 import com.microsoft.java.bs.gradle.model.impl.DefaultGradleModuleDependency;
 
 /**
- * Collects dependencies from a {@link SourceSet}.
+ * Collects dependencies from the {@link SourceSet}s of a project.
  */
 public class DependencyCollector {
 
   private static final String UNKNOWN = "unknown";
 
+  /**
+   * The system property to resolve the sources and javadoc with one artifact
+   * resolution query per module, as the baseline of the benchmarks. They are
+   * resolved by one query per project otherwise.
+   */
+  public static final String PER_MODULE_QUERIES_PROPERTY = "bsp.gradle.perModuleArtifactQueries";
+
   private Project project;
   private Set<File> exclusionFromDependencies;
-  private Set<GradleModuleDependency> moduleDependencies;
+  private ModuleDependencyCache dependencyCache;
+  private boolean resolveSourcesAndJavadoc;
 
   /**
    * Instantiates a new dependency collector.
+   *
+   * @param project the project to collect dependencies from.
+   * @param exclusionFromDependencies the files that are not dependencies.
+   * @param dependencyCache the memo of the resolved dependencies.
+   * @param resolveSourcesAndJavadoc whether to resolve the sources and javadoc
+   *     artifacts of the module dependencies.
    */
-  public DependencyCollector(Project project, Set<File> exclusionFromDependencies) {
+  public DependencyCollector(Project project, Set<File> exclusionFromDependencies,
+      ModuleDependencyCache dependencyCache, boolean resolveSourcesAndJavadoc) {
     this.project = project;
     this.exclusionFromDependencies = exclusionFromDependencies;
-    this.moduleDependencies = new LinkedHashSet<>();
-  }
-
-  public Set<GradleModuleDependency> getModuleDependencies() {
-    return moduleDependencies;
+    this.dependencyCache = dependencyCache;
+    this.resolveSourcesAndJavadoc = resolveSourcesAndJavadoc;
   }
 
   /**
-   * Resolve and collect dependencies from a {@link SourceSet}.
+   * Resolve and collect dependencies from the {@link SourceSet}s of the project.
+   * The sources and javadoc of all the module components that are not in the
+   * dependency cache yet are resolved by a single artifact resolution query.
+   *
+   * @param configurationNames the names of the configurations to resolve for each
+   *     source set.
+   * @return the module dependencies of each source set.
    */
-  public void collectByConfigurationNames(Set<String> configurationNames) {
-    List<ResolvedArtifactResult> resolvedResult = project.getConfigurations()
-        .stream()
-        .filter(configuration -> configurationNames.contains(configuration.getName())
-            && configuration.isCanBeResolved())
-        .flatMap(configuration -> getConfigurationArtifacts(configuration).stream())
-        .filter(artifact -> !exclusionFromDependencies.contains(artifact.getFile()))
-        .collect(Collectors.toList());
-    for (ResolvedArtifactResult artifactResult : resolvedResult) {
-      ComponentArtifactIdentifier id = artifactResult.getId();
-      if (id instanceof ModuleComponentArtifactIdentifier) {
-        resolveModuleArtifactDependency((ModuleComponentArtifactIdentifier) id, artifactResult);
-      } else if (id instanceof OpaqueComponentArtifactIdentifier) {
-        resolveFileArtifactDependency((OpaqueComponentArtifactIdentifier) id, artifactResult);
-      } else if (id instanceof ComponentFileArtifactIdentifier) {
-        resolveFileArtifactDependency((ComponentFileArtifactIdentifier) id, artifactResult);
+  public Map<SourceSet, Set<GradleModuleDependency>> collectByConfigurationNames(
+      Map<SourceSet, Set<String>> configurationNames) {
+    Map<SourceSet, List<ResolvedArtifactResult>> resolvedResults = new LinkedHashMap<>();
+    Set<ModuleComponentIdentifier> moduleComponentIds = new LinkedHashSet<>();
+    for (Map.Entry<SourceSet, Set<String>> entry : configurationNames.entrySet()) {
+      List<ResolvedArtifactResult> resolvedResult = project.getConfigurations()
+          .stream()
+          .filter(configuration -> entry.getValue().contains(configuration.getName())
+              && configuration.isCanBeResolved())
+          .flatMap(configuration -> getConfigurationArtifacts(configuration).stream())
+          .filter(artifact -> !exclusionFromDependencies.contains(artifact.getFile()))
+          .collect(Collectors.toList());
+      for (ResolvedArtifactResult artifactResult : resolvedResult) {
+        ComponentArtifactIdentifier id = artifactResult.getId();
+        if (id instanceof ModuleComponentArtifactIdentifier) {
+          ModuleComponentIdentifier componentId =
+              ((ModuleComponentArtifactIdentifier) id).getComponentIdentifier();
+          if (resolveSourcesAndJavadoc && !dependencyCache.hasComponentArtifacts(componentId)) {
+            moduleComponentIds.add(componentId);
+          }
+        }
+      }
+      resolvedResults.put(entry.getKey(), resolvedResult);
+    }
+
+    resolveComponentArtifacts(moduleComponentIds);
+    Map<SourceSet, Set<GradleModuleDependency>> moduleDependencies = new LinkedHashMap<>();
+    for (Map.Entry<SourceSet, List<ResolvedArtifactResult>> entry : resolvedResults.entrySet()) {
+      Set<GradleModuleDependency> dependencies = new LinkedHashSet<>();
+      for (ResolvedArtifactResult artifactResult : entry.getValue()) {
+        ComponentArtifactIdentifier id = artifactResult.getId();
+        if (id instanceof ModuleComponentArtifactIdentifier) {
+          dependencies.add(dependencyCache.getDependency(id, () ->
+              getModuleArtifactDependency((ModuleComponentArtifactIdentifier) id,
+                  artifactResult)));
+        } else if (id instanceof OpaqueComponentArtifactIdentifier) {
+          dependencies.add(dependencyCache.getDependency(artifactResult.getFile(), () ->
+              getFileArtifactDependency(
+                  ((OpaqueComponentArtifactIdentifier) id).getCapitalizedDisplayName(),
+                  artifactResult)));
+        } else if (id instanceof ComponentFileArtifactIdentifier) {
+          dependencies.add(dependencyCache.getDependency(artifactResult.getFile(), () ->
+              getFileArtifactDependency(
+                  ((ComponentFileArtifactIdentifier) id).getCapitalizedDisplayName(),
+                  artifactResult)));
+        }
       }
+      moduleDependencies.put(entry.getKey(), dependencies);
     }
+    return moduleDependencies;
   }
 
-  private List<ResolvedArtifactResult> getConfigurationArtifacts(Configuration config) {
+  /**
+   * Get the artifacts of a configuration. The configuration is resolved leniently,
+   * so the unresolvable dependencies are skipped instead of failing the model.
+   */
+  public static List<ResolvedArtifactResult> getConfigurationArtifacts(Configuration config) {
     return config.getIncoming()
         .artifactView(viewConfiguration -> {
           viewConfiguration.lenient(true);
@@ -91,71 +150,92 @@ public class DependencyCollector {
         .collect(Collectors.toList());
   }
 
-  private void resolveModuleArtifactDependency(ModuleComponentArtifactIdentifier artifactIdentifier,
-      ResolvedArtifactResult artifactResult) {
+  private void resolveComponentArtifacts(Set<ModuleComponentIdentifier> componentIds) {
+    if (componentIds.isEmpty()) {
+      return;
+    }
+
+    Map<ComponentIdentifier, ComponentArtifactsResult> resolvedComponents = new HashMap<>();
+    if (Boolean.getBoolean(PER_MODULE_QUERIES_PROPERTY)) {
+      for (ModuleComponentIdentifier componentId : componentIds) {
+        addResolvedComponents(Collections.singleton(componentId), resolvedComponents);
+      }
+    } else {
+      addResolvedComponents(componentIds, resolvedComponents);
+    }
+
+    for (ModuleComponentIdentifier componentId : componentIds) {
+      ComponentArtifactsResult component = resolvedComponents.get(componentId);
+      dependencyCache.addComponentArtifacts(componentId, component == null
+          ? new LinkedList<>() : getSourcesAndJavadoc(component));
+    }
+  }
+
+  private void addResolvedComponents(Set<ModuleComponentIdentifier> componentIds,
+      Map<ComponentIdentifier, ComponentArtifactsResult> resolvedComponents) {
     ArtifactResolutionResult resolutionResult = project.getDependencies()
         .createArtifactResolutionQuery()
-        .forComponents(artifactIdentifier.getComponentIdentifier())
+        .forComponents(componentIds)
         .withArtifacts(
           JvmLibrary.class /* componentType */,
           JavadocArtifact.class, SourcesArtifact.class /*artifactTypes*/
         )
         .execute();
-
-    List<Artifact> artifacts = new LinkedList<>();
-    if (artifactResult.getFile() != null) {
-      artifacts.add(new DefaultArtifact(artifactResult.getFile().toURI(), null));
+    for (ComponentArtifactsResult component : resolutionResult.getResolvedComponents()) {
+      resolvedComponents.put(component.getId(), component);
     }
+  }
 
-    Set<ComponentArtifactsResult> resolvedComponents = resolutionResult.getResolvedComponents();
-    File sourceJar = getArtifact(resolvedComponents, SourcesArtifact.class);
+  /**
+   * Get the resolved sources and javadoc artifacts of the component.
+   */
+  public static List<Artifact> getSourcesAndJavadoc(ComponentArtifactsResult component) {
+    List<Artifact> artifacts = new LinkedList<>();
+    File sourceJar = getArtifact(component, SourcesArtifact.class);
     if (sourceJar != null) {
       artifacts.add(new DefaultArtifact(sourceJar.toURI(), "sources"));
     }
 
-    File javaDocJar = getArtifact(resolvedComponents, JavadocArtifact.class);
+    File javaDocJar = getArtifact(component, JavadocArtifact.class);
     if (javaDocJar != null) {
       artifacts.add(new DefaultArtifact(javaDocJar.toURI(), "javadoc"));
     }
+    return artifacts;
+  }
 
-    moduleDependencies.add(new DefaultGradleModuleDependency(
+  private GradleModuleDependency getModuleArtifactDependency(
+      ModuleComponentArtifactIdentifier artifactIdentifier,
+      ResolvedArtifactResult artifactResult) {
+    List<Artifact> artifacts = new LinkedList<>();
+    if (artifactResult.getFile() != null) {
+      artifacts.add(new DefaultArtifact(artifactResult.getFile().toURI(), null));
+    }
+    List<Artifact> componentArtifacts = dependencyCache.getComponentArtifacts(
+        artifactIdentifier.getComponentIdentifier());
+    if (componentArtifacts != null) {
+      artifacts.addAll(componentArtifacts);
+    }
+
+    return new DefaultGradleModuleDependency(
         artifactIdentifier.getComponentIdentifier().getGroup(),
         artifactIdentifier.getComponentIdentifier().getModule(),
         artifactIdentifier.getComponentIdentifier().getVersion(),
         artifacts
-    ));
+    );
   }
 
-  private File getArtifact(Set<ComponentArtifactsResult> resolvedComponents,
+  private static File getArtifact(ComponentArtifactsResult component,
       Class<? extends org.gradle.api.component.Artifact> artifactClass) {
-    for (ComponentArtifactsResult component : resolvedComponents) {
-      Set<ArtifactResult> artifacts = component.getArtifacts(artifactClass);
-      for (ArtifactResult artifact : artifacts) {
-        if (artifact instanceof ResolvedArtifactResult) {
-          // TODO: only return the first found result, might be wrong!
-          return ((ResolvedArtifactResult) artifact).getFile();
-        }
+    Set<ArtifactResult> artifacts = component.getArtifacts(artifactClass);
+    for (ArtifactResult artifact : artifacts) {
+      if (artifact instanceof ResolvedArtifactResult) {
+        // TODO: only return the first found result, might be wrong!
+        return ((ResolvedArtifactResult) artifact).getFile();
       }
     }
     return null;
   }
 
-  private void resolveFileArtifactDependency(ComponentFileArtifactIdentifier artifactIdentifier,
-      ResolvedArtifactResult artifactResult) {
-    moduleDependencies.add(getFileArtifactDependency(
-        artifactIdentifier.getCapitalizedDisplayName(),
-        artifactResult
-    ));
-  }
-
-  private void resolveFileArtifactDependency(OpaqueComponentArtifactIdentifier artifactIdentifier,
-      ResolvedArtifactResult artifactResult) {
-    moduleDependencies.add(getFileArtifactDependency(
-        artifactIdentifier.getCapitalizedDisplayName(),
-        artifactResult
-    ));
-  }
-
   private GradleModuleDependency getFileArtifactDependency(String displayName,
       ResolvedArtifactResult artifactResult) {
     List<Artifact> artifacts = new LinkedList<>();
@@ -0,0 +1,61 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.gradle.plugin.dependency;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+
+import com.microsoft.java.bs.gradle.model.Artifact;
+import com.microsoft.java.bs.gradle.model.GradleModuleDependency;
+
+/**
+ * Memo of the resolved module dependencies during one model build, shared by all
+ * the {@link DependencyCollector}s. The same dependency objects are returned for the
+ * same artifacts, so they are serialized only once in the model.
+ */
+public class ModuleDependencyCache {
+
+  /**
+   * The sources and javadoc artifacts of the module components.
+   */
+  private Map<ModuleComponentIdentifier, List<Artifact>> componentArtifacts;
+
+  /**
+   * The artifact identifier or file to the dependency.
+   */
+  private Map<Object, GradleModuleDependency> dependencies;
+
+  /**
+   * Instantiates a new module dependency cache.
+   */
+  public ModuleDependencyCache() {
+    this.componentArtifacts = new HashMap<>();
+    this.dependencies = new HashMap<>();
+  }
+
+  public boolean hasComponentArtifacts(ModuleComponentIdentifier componentId) {
+    return componentArtifacts.containsKey(componentId);
+  }
+
+  public List<Artifact> getComponentArtifacts(ModuleComponentIdentifier componentId) {
+    return componentArtifacts.get(componentId);
+  }
+
+  public void addComponentArtifacts(ModuleComponentIdentifier componentId,
+      List<Artifact> artifacts) {
+    componentArtifacts.put(componentId, artifacts);
+  }
+
+  /**
+   * Get the dependency of the given key, create it if it does not exist.
+   */
+  public GradleModuleDependency getDependency(Object key,
+      Supplier<GradleModuleDependency> creator) {
+    return dependencies.computeIfAbsent(key, k -> creator.get());
+  }
+}
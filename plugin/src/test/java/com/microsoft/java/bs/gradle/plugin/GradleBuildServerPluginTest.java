@@ -21,10 +21,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.EnabledOnJre;
 import org.junit.jupiter.api.condition.JRE;
 
+import com.microsoft.java.bs.gradle.model.CompactGradleSourceSets;
 import com.microsoft.java.bs.gradle.model.GradleSourceSet;
 import com.microsoft.java.bs.gradle.model.GradleSourceSets;
 import com.microsoft.java.bs.gradle.model.SupportedLanguages;
 import com.microsoft.java.bs.gradle.model.impl.DefaultJavaExtension;
+import com.microsoft.java.bs.gradle.model.utils.CompactSourceSetsCodec;
 import com.microsoft.java.bs.gradle.model.utils.Conversions;
 
 class GradleBuildServerPluginTest {
@@ -86,6 +88,36 @@ class GradleBuildServerPluginTest {
     }
   }
 
+  @Test
+  void testCompactModel() throws IOException {
+    File projectDir = projectPath.resolve("junit5-jupiter-starter-gradle").toFile();
+    GradleConnector connector = GradleConnector.newConnector().forProjectDirectory(projectDir);
+    connector.useBuildDistribution();
+    try (ProjectConnection connect = connector.connect()) {
+      GradleSourceSets gradleSourceSets = getGradleSourceSets(connect);
+      ModelBuilder<CompactGradleSourceSets> modelBuilder =
+          connect.model(CompactGradleSourceSets.class);
+      modelBuilder.addArguments("--init-script", PluginHelper.getInitScript().getAbsolutePath());
+      modelBuilder.addJvmArguments("-Dbsp.gradle.supportedLanguages=java");
+      GradleSourceSets decoded = CompactSourceSetsCodec.decode(modelBuilder.get().getData());
+
+      assertEquals(gradleSourceSets.getGradleSourceSets().size(),
+          decoded.getGradleSourceSets().size());
+      for (int i = 0; i < decoded.getGradleSourceSets().size(); i++) {
+        GradleSourceSet expected = gradleSourceSets.getGradleSourceSets().get(i);
+        GradleSourceSet actual = decoded.getGradleSourceSets().get(i);
+        assertEquals(expected.getDisplayName(), actual.getDisplayName());
+        assertEquals(expected.getSourceDirs(), actual.getSourceDirs());
+        assertEquals(expected.getSourceOutputDir(), actual.getSourceOutputDir());
+        assertEquals(expected.getModuleDependencies().size(),
+            actual.getModuleDependencies().size());
+        DefaultJavaExtension expectedExtension = Conversions.toJavaExtension(
+            expected.getExtensions().get(SupportedLanguages.JAVA));
+        assertEquals(expectedExtension, actual.getExtensions().get(SupportedLanguages.JAVA));
+      }
+    }
+  }
+
   @Test
   @EnabledOnJre({JRE.JAVA_8})
   void testGetSourceContainerFromOldGradle() throws IOException {
@@ -3,16 +3,22 @@
 
 package com.microsoft.java.bs.core;
 
-import java.util.concurrent.Executors;
+import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.microsoft.java.bs.core.internal.gradle.GradleApiConnector;
+import com.microsoft.java.bs.core.internal.log.LogDispatcher;
 import com.microsoft.java.bs.core.internal.log.LogHandler;
 import com.microsoft.java.bs.core.internal.log.TelemetryHandler;
 import com.microsoft.java.bs.core.internal.managers.BuildTargetManager;
 import com.microsoft.java.bs.core.internal.managers.PreferenceManager;
+import com.microsoft.java.bs.core.internal.managers.SnapshotManager;
+import com.microsoft.java.bs.core.internal.metrics.MessageSizeRecorder;
+import com.microsoft.java.bs.core.internal.metrics.MetricsRegistry;
+import com.microsoft.java.bs.core.internal.metrics.PrometheusExporter;
 import com.microsoft.java.bs.core.internal.server.GradleBuildServer;
+import com.microsoft.java.bs.core.internal.server.RequestExecutor;
 import com.microsoft.java.bs.core.internal.services.BuildTargetService;
 import com.microsoft.java.bs.core.internal.services.LifecycleService;
 
@@ -27,17 +33,26 @@ public class Launcher {
 
   public static final Logger LOGGER = Logger.getLogger("GradleBuildServerLogger");
 
+  public static final MetricsRegistry METRICS = new MetricsRegistry();
+
   /**
    * The property name for the directory location storing the plugin and init script.
    */
   public static final String PROP_PLUGIN_DIR = "plugin.dir";
 
+  /**
+   * The property name for the local port serving the metrics in the Prometheus
+   * text format. The metrics are not served if it is not set.
+   */
+  public static final String PROP_METRICS_PORT = "bsp.metrics.port";
+
   /**
    * Main entry point.
    */
   public static void main(String[] args) {
     checkRequiredProperties();
     setupLoggers();
+    startMetricsExporter();
 
     org.eclipse.lsp4j.jsonrpc.Launcher<BuildClient> launcher = createLauncher();
     client = launcher.getRemoteProxy();
@@ -48,18 +63,21 @@ public class Launcher {
     BuildTargetManager buildTargetManager = new BuildTargetManager();
     PreferenceManager preferenceManager = new PreferenceManager();
     GradleApiConnector connector = new GradleApiConnector(preferenceManager);
+    SnapshotManager snapshotManager = new SnapshotManager(preferenceManager);
     LifecycleService lifecycleService = new LifecycleService(buildTargetManager,
-        connector, preferenceManager);
+        connector, preferenceManager, snapshotManager);
     BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
         connector, preferenceManager);
     GradleBuildServer gradleBuildServer = new GradleBuildServer(lifecycleService,
         buildTargetService);
+    MessageSizeRecorder sizeRecorder = new MessageSizeRecorder(METRICS, System.in, System.out);
     return new org.eclipse.lsp4j.jsonrpc.Launcher.Builder<BuildClient>()
-      .setOutput(System.out)
-      .setInput(System.in)
+      .setOutput(sizeRecorder.getOutput())
+      .setInput(sizeRecorder.getInput())
+      .wrapMessages(sizeRecorder::wrap)
       .setLocalService(gradleBuildServer)
       .setRemoteInterface(BuildClient.class)
-      .setExecutorService(Executors.newCachedThreadPool())
+      .setExecutorService(RequestExecutor.newThreadPerTaskExecutor("bsp-jsonrpc"))
       .create();
   }
 
@@ -69,14 +87,31 @@ public class Launcher {
     }
   }
 
+  private static void startMetricsExporter() {
+    String port = System.getProperty(PROP_METRICS_PORT);
+    if (port == null) {
+      return;
+    }
+    try {
+      PrometheusExporter exporter = new PrometheusExporter(METRICS, Integer.parseInt(port));
+      exporter.start();
+      LOGGER.info("Serving the metrics at http://127.0.0.1:" + exporter.getPort()
+          + "/metrics");
+    } catch (IOException | NumberFormatException e) {
+      LOGGER.warning("Failed to serve the metrics on port " + port + ": " + e.getMessage());
+    }
+  }
+
   private static void setupLoggers() {
     LOGGER.setUseParentHandlers(false);
-    LogHandler logHandler = new LogHandler();
+    // both handlers share the dispatcher, so the messages are sent in order.
+    LogDispatcher dispatcher = new LogDispatcher();
+    LogHandler logHandler = new LogHandler(dispatcher);
     logHandler.setLevel(Level.FINE);
     LOGGER.addHandler(logHandler);
 
     if (System.getProperty("disableServerTelemetry") == null) {
-      TelemetryHandler telemetryHandler = new TelemetryHandler();
+      TelemetryHandler telemetryHandler = new TelemetryHandler(dispatcher);
       telemetryHandler.setLevel(Level.INFO);
       LOGGER.addHandler(telemetryHandler);
     }
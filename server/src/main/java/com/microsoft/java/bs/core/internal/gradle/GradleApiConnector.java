@@ -4,44 +4,88 @@
 package com.microsoft.java.bs.core.internal.gradle;
 
 import static com.microsoft.java.bs.core.Launcher.LOGGER;
+import static com.microsoft.java.bs.core.Launcher.METRICS;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.gradle.tooling.BuildCancelledException;
 import org.gradle.tooling.BuildException;
 import org.gradle.tooling.BuildLauncher;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.ConfigurableLauncher;
 import org.gradle.tooling.GradleConnectionException;
 import org.gradle.tooling.GradleConnector;
 import org.gradle.tooling.ModelBuilder;
 import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.TestExecutionException;
+import org.gradle.tooling.TestLauncher;
 import org.gradle.tooling.events.OperationType;
 import org.gradle.tooling.model.build.BuildEnvironment;
 
 import com.microsoft.java.bs.core.internal.managers.PreferenceManager;
+import com.microsoft.java.bs.core.internal.managers.TimingReportManager;
+import com.microsoft.java.bs.core.internal.model.BuildTimingReport;
+import com.microsoft.java.bs.core.internal.reporter.BuildOutputListener;
+import com.microsoft.java.bs.core.internal.reporter.BuildTimingCollector;
 import com.microsoft.java.bs.core.internal.reporter.CompileProgressReporter;
 import com.microsoft.java.bs.core.internal.reporter.DefaultProgressReporter;
+import com.microsoft.java.bs.core.internal.reporter.DiagnosticsReporter;
+import com.microsoft.java.bs.core.internal.reporter.LineOutputStream;
+import com.microsoft.java.bs.core.internal.reporter.OutputBatcher;
+import com.microsoft.java.bs.core.internal.reporter.OutputTailBuffer;
 import com.microsoft.java.bs.core.internal.reporter.TaskProgressReporter;
+import com.microsoft.java.bs.core.internal.reporter.TestProgressReporter;
+import com.microsoft.java.bs.gradle.model.CompactGradleSourceSets;
+import com.microsoft.java.bs.gradle.model.GradleModuleDependencies;
 import com.microsoft.java.bs.gradle.model.GradleSourceSets;
-import com.microsoft.java.bs.gradle.model.impl.DefaultGradleSourceSets;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleModuleDependencies;
+import com.microsoft.java.bs.gradle.model.utils.CompactSourceSetsCodec;
 
 import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+import ch.epfl.scala.bsp4j.MessageType;
+import ch.epfl.scala.bsp4j.ScalaTestSuiteSelection;
 import ch.epfl.scala.bsp4j.StatusCode;
 
 /**
  * Connect to Gradle Daemon via Gradle Tooling API.
  */
 public class GradleApiConnector {
+
+  /**
+   * The max number of lines of the standard error kept as the summary of a failed
+   * build.
+   */
+  private static final int MAX_SUMMARY_LINES = 100;
+
   private Map<File, GradleConnector> connectors;
   private PreferenceManager preferenceManager;
+  private TimingReportManager timingReportManager;
 
+  /**
+   * Instantiates a {@link GradleApiConnector}.
+   */
   public GradleApiConnector(PreferenceManager preferenceManager) {
     this.preferenceManager = preferenceManager;
-    connectors = new HashMap<>();
+    this.timingReportManager = new TimingReportManager();
+    connectors = new ConcurrentHashMap<>();
+  }
+
+  public TimingReportManager getTimingReportManager() {
+    return timingReportManager;
   }
 
   /**
@@ -67,22 +111,51 @@ public class GradleApiConnector {
    * @return an instance of {@link GradleSourceSets}
    */
   public GradleSourceSets getGradleSourceSets(URI projectUri) {
+    return getGradleSourceSets(projectUri, Collections.emptySet());
+  }
+
+  /**
+   * Get the source sets of the given projects in the Gradle build.
+   *
+   * @param projectUri uri of the project
+   * @param projectPaths paths of the projects to get the source sets for. The source
+   *     sets of all the projects will be returned if it's empty.
+   * @return an instance of {@link GradleSourceSets}
+   */
+  public GradleSourceSets getGradleSourceSets(URI projectUri, Set<String> projectPaths) {
+    return getGradleSourceSets(projectUri, projectPaths, null);
+  }
+
+  /**
+   * Get the source sets of the given projects in the Gradle build.
+   *
+   * @param projectUri uri of the project
+   * @param projectPaths paths of the projects to get the source sets for. The source
+   *     sets of all the projects will be returned if it's empty.
+   * @param cancellationToken token to cancel the model build, can be <code>null</code>.
+   * @return an instance of {@link GradleSourceSets}
+   */
+  public GradleSourceSets getGradleSourceSets(URI projectUri, Set<String> projectPaths,
+      CancellationToken cancellationToken) {
     File initScript = Utils.getInitScriptFile();
     if (!initScript.exists()) {
       throw new IllegalStateException("Failed to get init script file.");
     }
     TaskProgressReporter reporter = new TaskProgressReporter(new DefaultProgressReporter());
+    BuildTimingCollector timingCollector = new BuildTimingCollector("sourceSets", projectUri,
+        Collections.emptyList());
     String summary = "";
     StatusCode statusCode = StatusCode.OK;
     try (ProjectConnection connection = getGradleConnector(projectUri).connect()) {
       reporter.taskStarted("Connect to Gradle Daemon");
-      ModelBuilder<GradleSourceSets> customModelBuilder = Utils.getModelBuilder(
+      ModelBuilder<CompactGradleSourceSets> customModelBuilder = Utils.getModelBuilder(
           connection,
           preferenceManager.getPreferences(),
-          GradleSourceSets.class
+          CompactGradleSourceSets.class
       );
       customModelBuilder.addProgressListener(reporter,
           OperationType.FILE_DOWNLOAD, OperationType.PROJECT_CONFIGURATION)
+          .addProgressListener(timingCollector, getTimingOperationTypes())
           .addArguments("--init-script", initScript.getAbsolutePath());
       if (Boolean.getBoolean("bsp.plugin.debug.enabled")) {
         customModelBuilder.addJvmArguments(
@@ -90,57 +163,289 @@ public class GradleApiConnector {
       }
       customModelBuilder.addJvmArguments("-Dbsp.gradle.supportedLanguages="
           + String.join(",", preferenceManager.getClientSupportedLanguages()));
-      // since the model returned from Gradle TAPI is a wrapped object, here we re-construct it
-      // via a copy constructor and return as a POJO.
-      return new DefaultGradleSourceSets(customModelBuilder.get());
+      if (!projectPaths.isEmpty()) {
+        // pass as a build argument instead of a JVM argument to reuse the daemon.
+        customModelBuilder.addArguments("-Dbsp.gradle.projectPaths="
+            + String.join(",", projectPaths));
+      }
+      if (preferenceManager.getPreferences().isLazySourcesAndJavadoc()) {
+        customModelBuilder.addArguments("-Dbsp.gradle.skipSourcesAndJavadoc=true");
+      }
+      if (cancellationToken != null) {
+        customModelBuilder.withCancellationToken(cancellationToken);
+      }
+      // the source sets are transferred in a compact format instead of the
+      // wrapped object graph, and decoded into POJOs of the server.
+      return CompactSourceSetsCodec.decode(customModelBuilder.get().getData());
+    } catch (IOException e) {
+      summary = e.getMessage();
+      statusCode = StatusCode.ERROR;
+      throw new IllegalStateException("Failed to decode the source sets.", e);
+    } catch (BuildCancelledException e) {
+      summary = "Cancelled";
+      statusCode = StatusCode.CANCELLED;
+      throw e;
     } catch (GradleConnectionException | IllegalStateException e) {
       summary = e.getMessage();
       statusCode = StatusCode.ERROR;
       throw e;
     } finally {
       reporter.taskFinished(summary, statusCode);
+      recordTiming(timingCollector.finish(statusCode));
+    }
+  }
+
+  /**
+   * Resolve the sources and javadoc artifacts of the given modules.
+   *
+   * @param projectUri uri of the project
+   * @param projectPaths paths of the projects whose repositories are used to resolve
+   *     the modules. All the projects will be used if it's empty.
+   * @param coordinates coordinates of the modules, in the format of
+   *     <code>group:module:version</code>.
+   * @return an instance of {@link GradleModuleDependencies}
+   */
+  public GradleModuleDependencies getModuleDependencies(URI projectUri,
+      Set<String> projectPaths, Collection<String> coordinates) {
+    File initScript = Utils.getInitScriptFile();
+    if (!initScript.exists()) {
+      throw new IllegalStateException("Failed to get init script file.");
+    }
+    TaskProgressReporter reporter = new TaskProgressReporter(new DefaultProgressReporter());
+    BuildTimingCollector timingCollector = new BuildTimingCollector("moduleDependencies",
+        projectUri, Collections.emptyList());
+    String summary = "";
+    StatusCode statusCode = StatusCode.OK;
+    // the coordinates are passed through a file, since there can be too many of
+    // them for the command line.
+    Path coordinatesFile = null;
+    try (ProjectConnection connection = getGradleConnector(projectUri).connect()) {
+      reporter.taskStarted("Resolve sources and javadoc");
+      coordinatesFile = Files.createTempFile("bsp-module-coordinates", ".txt");
+      Files.write(coordinatesFile, coordinates);
+      ModelBuilder<GradleModuleDependencies> customModelBuilder = Utils.getModelBuilder(
+          connection,
+          preferenceManager.getPreferences(),
+          GradleModuleDependencies.class
+      );
+      customModelBuilder.addProgressListener(reporter, OperationType.FILE_DOWNLOAD)
+          .addProgressListener(timingCollector, getTimingOperationTypes())
+          .addArguments("--init-script", initScript.getAbsolutePath())
+          .addArguments("-Dbsp.gradle.moduleCoordinatesFile=" + coordinatesFile);
+      customModelBuilder.addJvmArguments("-Dbsp.gradle.supportedLanguages="
+          + String.join(",", preferenceManager.getClientSupportedLanguages()));
+      if (!projectPaths.isEmpty()) {
+        customModelBuilder.addArguments("-Dbsp.gradle.projectPaths="
+            + String.join(",", projectPaths));
+      }
+      return new DefaultGradleModuleDependencies(customModelBuilder.get());
+    } catch (GradleConnectionException | IllegalStateException e) {
+      summary = e.getMessage();
+      statusCode = StatusCode.ERROR;
+      throw e;
+    } catch (IOException e) {
+      summary = e.getMessage();
+      statusCode = StatusCode.ERROR;
+      throw new UncheckedIOException(e);
+    } finally {
+      deleteQuietly(coordinatesFile);
+      reporter.taskFinished(summary, statusCode);
+      recordTiming(timingCollector.finish(statusCode));
     }
   }
 
   /**
    * Request Gradle daemon to run the tasks.
+   *
+   * @param projectUri uri of the project
+   * @param btIds the build targets whose tasks are run
+   * @param cancellationToken token to cancel the build, can be <code>null</code>.
+   * @param diagnosticsReporter receives the output of the build to publish the
+   *     compiler diagnostics, can be <code>null</code>.
+   * @param tasks the tasks to run
    */
-  public StatusCode runTasks(URI projectUri, Set<BuildTargetIdentifier> btIds, String... tasks) {
+  public StatusCode runTasks(URI projectUri, Set<BuildTargetIdentifier> btIds,
+      CancellationToken cancellationToken, DiagnosticsReporter diagnosticsReporter,
+      String... tasks) {
     // Note: this might be anti-sepc, because the spec limits that one compile task report
     // can only have one build target id. While we aggregate all compile related tasks into one
-    // Gradle call for the perf consideration. So, the build target id passed into the reporter
-    // is not accurate.
-    TaskProgressReporter reporter = new TaskProgressReporter(new CompileProgressReporter(
-        btIds.iterator().next()));
-    final ByteArrayOutputStream errorOut = new ByteArrayOutputStream();
+    // Gradle call for the perf consideration. So each build target gets its own compile
+    // task, which is started and finished with the Gradle call.
+    CompileProgressReporter compileReporter = new CompileProgressReporter(btIds,
+        diagnosticsReporter);
+    TaskProgressReporter reporter = new TaskProgressReporter(compileReporter);
+    BuildTimingCollector timingCollector = new BuildTimingCollector("build", projectUri,
+        Arrays.asList(tasks));
+    // the output is forwarded to the client in batches of lines, only the tail of the
+    // standard error is kept as the summary of a failed build.
+    OutputTailBuffer errorTail = new OutputTailBuffer(MAX_SUMMARY_LINES);
+    List<BuildOutputListener> outListeners = new ArrayList<>();
+    outListeners.add(new OutputBatcher(
+        text -> compileReporter.logMessage(text, MessageType.LOG)));
+    List<BuildOutputListener> errListeners = new ArrayList<>();
+    errListeners.add(errorTail);
+    errListeners.add(new OutputBatcher(
+        text -> compileReporter.logMessage(text, MessageType.ERROR)));
+    if (diagnosticsReporter != null) {
+      // javac logs the errors to the standard error and the warnings to the standard
+      // output, both are parsed while the build is running.
+      outListeners.add(diagnosticsReporter.newParser());
+      errListeners.add(diagnosticsReporter.newParser());
+    }
     String summary = "BUILD SUCCESSFUL";
     StatusCode statusCode = StatusCode.OK;
+    boolean completed = false;
     try (ProjectConnection connection = getGradleConnector(projectUri).connect();
-        errorOut;
+        LineOutputStream standardOut = new LineOutputStream(
+            outListeners.toArray(new BuildOutputListener[0]));
+        LineOutputStream standardErr = new LineOutputStream(
+            errListeners.toArray(new BuildOutputListener[0]));
     ) {
       reporter.taskStarted("Start to build: " + String.join(" ", tasks));
       BuildLauncher launcher = Utils.getBuildLauncher(connection,
           preferenceManager.getPreferences());
-      // TODO: consider to use outputstream to capture the output.
-      launcher.addProgressListener(reporter, OperationType.TASK)
-          .setStandardError(errorOut)
+      if (cancellationToken != null) {
+        launcher.withCancellationToken(cancellationToken);
+      }
+      launcher.addProgressListener(reporter, OperationType.TASK, OperationType.BUILD_PHASE)
+          .addProgressListener(timingCollector, getTimingOperationTypes())
+          .setStandardOutput(standardOut)
+          .setStandardError(standardErr)
           .forTasks(tasks)
           .run();
-    } catch (IOException e) {
-      // caused by close the output stream, just simply log the error.
-      LOGGER.severe(e.getMessage());
+      completed = true;
+    } catch (BuildCancelledException e) {
+      summary = "BUILD CANCELLED";
+      statusCode = StatusCode.CANCELLED;
     } catch (BuildException e) {
-      summary = errorOut.toString();
+      summary = errorTail.toString();
       statusCode = StatusCode.ERROR;
+      completed = true;
     } finally {
+      // the diagnostics of a build which ran to the end are complete, so the fixed
+      // documents of its targets can be cleared.
+      if (completed && diagnosticsReporter != null) {
+        diagnosticsReporter.buildCompleted(btIds);
+      }
       // If a build/taskStart notification has been sent,
       // the server must send build/taskFinish on completion of the same task.
+      // The output streams are closed at this point, so all the diagnostics are counted.
       reporter.taskFinished(summary, statusCode);
+      recordTiming(timingCollector.finish(statusCode));
     }
 
     return statusCode;
   }
 
+  /**
+   * Request Gradle daemon to run the tests. All the test tasks are run in one
+   * Gradle build, so Gradle schedules them and their test forks in parallel as it
+   * does for a <code>gradle test</code> run.
+   *
+   * @param projectUri uri of the project
+   * @param testTasks the build target of each test task, keyed by the task path.
+   * @param selections the test classes and methods to run of each build target, all
+   *     the tests of the test tasks are run if it's empty. Otherwise every test task
+   *     must have a selection.
+   * @param originId the origin id of the test request, can be <code>null</code>.
+   * @param cancellationToken token to cancel the build, can be <code>null</code>.
+   */
+  public StatusCode runTests(URI projectUri, Map<String, BuildTargetIdentifier> testTasks,
+      Map<BuildTargetIdentifier, List<ScalaTestSuiteSelection>> selections, String originId,
+      CancellationToken cancellationToken) {
+    TestProgressReporter testReporter = new TestProgressReporter(testTasks, originId);
+    TaskProgressReporter reporter = new TaskProgressReporter(testReporter);
+    String[] tasks = testTasks.keySet().toArray(new String[0]);
+    BuildTimingCollector timingCollector = new BuildTimingCollector("test", projectUri,
+        Arrays.asList(tasks));
+    OutputTailBuffer errorTail = new OutputTailBuffer(MAX_SUMMARY_LINES);
+    String summary = "BUILD SUCCESSFUL";
+    StatusCode statusCode = StatusCode.OK;
+    try (ProjectConnection connection = getGradleConnector(projectUri).connect();
+        LineOutputStream standardOut = new LineOutputStream(
+            new OutputBatcher(text -> testReporter.logMessage(text, MessageType.LOG)));
+        LineOutputStream standardErr = new LineOutputStream(errorTail,
+            new OutputBatcher(text -> testReporter.logMessage(text, MessageType.ERROR)));
+    ) {
+      reporter.taskStarted("Start to test: " + String.join(" ", tasks));
+      if (selections.isEmpty()) {
+        // the same build as 'gradle test', which is the fastest way to run all the tests.
+        configureTestRun(Utils.getBuildLauncher(connection, preferenceManager.getPreferences()),
+            reporter, testReporter, timingCollector, standardOut, standardErr,
+            cancellationToken).forTasks(tasks).run();
+      } else {
+        TestLauncher launcher = configureTestRun(Utils.getTestLauncher(connection,
+            preferenceManager.getPreferences()), reporter, testReporter, timingCollector,
+            standardOut, standardErr, cancellationToken);
+        for (Map.Entry<String, BuildTargetIdentifier> entry : testTasks.entrySet()) {
+          for (ScalaTestSuiteSelection selection : selections.getOrDefault(entry.getValue(),
+              Collections.emptyList())) {
+            if (selection.getTests() == null || selection.getTests().isEmpty()) {
+              launcher.withTaskAndTestClasses(entry.getKey(),
+                  Collections.singletonList(selection.getClassName()));
+            } else {
+              launcher.withTaskAndTestMethods(entry.getKey(), selection.getClassName(),
+                  selection.getTests());
+            }
+          }
+        }
+        launcher.run();
+      }
+    } catch (BuildCancelledException e) {
+      summary = "BUILD CANCELLED";
+      statusCode = StatusCode.CANCELLED;
+    } catch (BuildException | TestExecutionException e) {
+      summary = errorTail.toString();
+      statusCode = StatusCode.ERROR;
+    } finally {
+      reporter.taskFinished(summary, statusCode);
+      recordTiming(timingCollector.finish(statusCode));
+    }
+
+    return statusCode;
+  }
+
+  private <T extends ConfigurableLauncher<T>> T configureTestRun(T launcher,
+      TaskProgressReporter reporter, TestProgressReporter testReporter,
+      BuildTimingCollector timingCollector, LineOutputStream standardOut,
+      LineOutputStream standardErr, CancellationToken cancellationToken) {
+    if (cancellationToken != null) {
+      launcher.withCancellationToken(cancellationToken);
+    }
+    // the results of all the test tasks are reported even if some of them fail.
+    return launcher.addArguments("--continue")
+        .addProgressListener(reporter, OperationType.TASK, OperationType.BUILD_PHASE)
+        .addProgressListener(testReporter, OperationType.TASK, OperationType.TEST)
+        .addProgressListener(timingCollector, getTimingOperationTypes())
+        .setStandardOutput(standardOut)
+        .setStandardError(standardErr);
+  }
+
+  private void recordTiming(BuildTimingReport report) {
+    METRICS.record("gradle." + report.getOperation(), report.getDuration());
+    if (!StatusCode.OK.name().equals(report.getStatus())) {
+      METRICS.increment("gradle." + report.getOperation() + "."
+          + report.getStatus().toLowerCase(Locale.ROOT));
+    }
+    timingReportManager.record(report);
+  }
+
+  private static void deleteQuietly(Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      LOGGER.fine("Failed to delete " + file + ": " + e.getMessage());
+    }
+  }
+
+  private OperationType[] getTimingOperationTypes() {
+    return BuildTimingCollector.getOperationTypes(
+        preferenceManager.getPreferences().isDetailedTimingReport());
+  }
+
   public void shutdown() {
     connectors.values().forEach(GradleConnector::disconnect);
   }
@@ -0,0 +1,53 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.gradle;
+
+import java.util.concurrent.CancellationException;
+
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnector;
+
+/**
+ * The cancel checker of a BSP request, which also cancels the Gradle operations
+ * started with its {@link #getToken() token} when the request is cancelled.
+ */
+public class GradleCancelChecker implements CancelChecker {
+
+  private final CancellationTokenSource tokenSource;
+
+  private volatile boolean canceled;
+
+  public GradleCancelChecker() {
+    this.tokenSource = GradleConnector.newCancellationTokenSource();
+  }
+
+  /**
+   * Cancel the request and the Gradle operations running for it.
+   */
+  public void cancel() {
+    canceled = true;
+    tokenSource.cancel();
+  }
+
+  /**
+   * Get the token to pass to the Gradle operations of the request.
+   */
+  public CancellationToken getToken() {
+    return tokenSource.token();
+  }
+
+  @Override
+  public void checkCanceled() {
+    if (canceled) {
+      throw new CancellationException();
+    }
+  }
+
+  @Override
+  public boolean isCanceled() {
+    return canceled;
+  }
+}
@@ -13,9 +13,11 @@ import java.util.Optional;
 
 import org.gradle.internal.impldep.org.apache.commons.lang.StringUtils;
 import org.gradle.tooling.BuildLauncher;
+import org.gradle.tooling.ConfigurableLauncher;
 import org.gradle.tooling.GradleConnector;
 import org.gradle.tooling.ModelBuilder;
 import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.TestLauncher;
 import org.gradle.util.GradleVersion;
 
 import com.microsoft.java.bs.core.Launcher;
@@ -122,8 +124,22 @@ public class Utils {
    */
   public static BuildLauncher getBuildLauncher(ProjectConnection connection,
       Preferences preferences) {
-    BuildLauncher launcher = connection.newBuild();
+    return configureLauncher(connection.newBuild(), preferences);
+  }
+
+  /**
+   * Get the Test Launcher.
+   *
+   * @param connection The project connection.
+   * @param preferences The preferences.
+   */
+  public static TestLauncher getTestLauncher(ProjectConnection connection,
+      Preferences preferences) {
+    return configureLauncher(connection.newTestLauncher(), preferences);
+  }
 
+  private static <T extends ConfigurableLauncher<T>> T configureLauncher(T launcher,
+      Preferences preferences) {
     File gradleJavaHomeFile = getGradleJavaHomeFile(preferences.getGradleJavaHome());
     if (gradleJavaHomeFile != null && gradleJavaHomeFile.exists()) {
       launcher.setJavaHome(gradleJavaHomeFile);
@@ -0,0 +1,261 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.launcher;
+
+import static com.microsoft.java.bs.core.Launcher.LOGGER;
+import static com.microsoft.java.bs.core.Launcher.METRICS;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Manages the application class data sharing (AppCDS) archives of the launched JVMs,
+ * so the repeated launches of the same main class load the classes from a memory
+ * mapped archive instead of parsing and verifying them again.
+ *
+ * <p>HotSpot only archives the classes loaded from jar files, and refuses to dump
+ * an archive if a non-empty directory is on the classpath. The output directories
+ * on the classpath are packed into jars, which are rewritten only when the content
+ * of the directory changes. The archive is keyed by the stamps of the classpath
+ * entries, so it is recreated once any entry changes.
+ *
+ * <p>The archive is created by the first launch with
+ * <code>-XX:ArchiveClassesAtExit</code> on JDK 13 to 18, and maintained by the JVM
+ * with <code>-XX:+AutoCreateSharedArchive</code> on JDK 19 and later.
+ */
+public class ClassDataSharingCache {
+
+  /**
+   * The first JDK which supports the dynamic archives.
+   */
+  static final int MIN_JAVA_VERSION = 13;
+
+  /**
+   * The first JDK which recreates the stale dynamic archives by itself.
+   */
+  static final int AUTO_CREATE_JAVA_VERSION = 19;
+
+  private static final String ARCHIVE_EXTENSION = ".jsa";
+
+  private static final String FINGERPRINT_EXTENSION = ".sha";
+
+  /**
+   * The cache directories used by the running launches. The packed jars and the
+   * archive of a directory cannot be replaced while a JVM is using them.
+   */
+  private final Set<File> activeDirs = new HashSet<>();
+
+  /**
+   * Prepare the classpath and the JVM options of a launch. The launch must be
+   * {@link #release}d when the JVM exits.
+   *
+   * @param cacheDir the directory of the packed jars and the archive, which is
+   *     dedicated to one main class of one build target.
+   * @param classpath the runtime classpath.
+   * @param javaHome the JDK which runs the main class.
+   * @param javaVersion the feature version of the JDK.
+   */
+  public synchronized Launch prepare(File cacheDir, List<File> classpath, File javaHome,
+      int javaVersion) {
+    if (javaVersion < MIN_JAVA_VERSION) {
+      return new Launch(null, classpath, Collections.emptyList());
+    }
+    if (!activeDirs.add(cacheDir)) {
+      // the same main class is already running, it is launched without the archive.
+      METRICS.increment("run.cds.busy");
+      return new Launch(null, classpath, Collections.emptyList());
+    }
+
+    try {
+      Files.createDirectories(cacheDir.toPath());
+      List<File> packedClasspath = new ArrayList<>(classpath.size());
+      for (int i = 0; i < classpath.size(); i++) {
+        File entry = classpath.get(i);
+        if (isNonEmptyDirectory(entry)) {
+          entry = pack(entry, new File(cacheDir, "classpath-" + i + ".jar"));
+        }
+        packedClasspath.add(entry);
+      }
+
+      File archive = new File(cacheDir, getArchiveName(packedClasspath, javaHome));
+      List<String> jvmOptions = new ArrayList<>();
+      // a stale archive is ignored by the JVM, it should not print warnings into the
+      // output of the application.
+      jvmOptions.add("-Xlog:cds=off,cds+dynamic=off");
+      if (javaVersion >= AUTO_CREATE_JAVA_VERSION) {
+        jvmOptions.add("-XX:+AutoCreateSharedArchive");
+        jvmOptions.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+      } else if (archive.isFile()) {
+        jvmOptions.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+      } else {
+        jvmOptions.add("-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath());
+      }
+      if (archive.isFile()) {
+        METRICS.increment("run.cds.hit");
+      } else {
+        METRICS.increment("run.cds.miss");
+        deleteArchives(cacheDir);
+      }
+      return new Launch(cacheDir, packedClasspath, jvmOptions);
+    } catch (IOException e) {
+      LOGGER.warning("Failed to prepare the class data sharing archive in " + cacheDir
+          + ": " + e.getMessage());
+      activeDirs.remove(cacheDir);
+      return new Launch(null, classpath, Collections.emptyList());
+    }
+  }
+
+  /**
+   * Release the cache directory of a launch whose JVM has exited.
+   */
+  public synchronized void release(Launch launch) {
+    if (launch.cacheDir != null) {
+      activeDirs.remove(launch.cacheDir);
+    }
+  }
+
+  /**
+   * Pack a directory into a jar. The jar is kept if the directory is not changed
+   * since it was packed, so its stamp still matches the archive.
+   */
+  private File pack(File dir, File jar) throws IOException {
+    Path root = dir.toPath();
+    List<Path> files;
+    try (Stream<Path> stream = Files.walk(root)) {
+      // the directories are packed as well, so they are found as resources.
+      files = stream.filter(path -> !path.equals(root)).sorted()
+          .collect(Collectors.toList());
+    }
+    String fingerprint = getFingerprint(root, files);
+    Path fingerprintFile = new File(jar.getPath() + FINGERPRINT_EXTENSION).toPath();
+    if (jar.isFile() && Files.isRegularFile(fingerprintFile)
+        && fingerprint.equals(Files.readString(fingerprintFile))) {
+      return jar;
+    }
+
+    METRICS.increment("run.cds.pack");
+    Path tempFile = Files.createTempFile(jar.getParentFile().toPath(), jar.getName(), ".tmp");
+    try {
+      try (OutputStream out = Files.newOutputStream(tempFile);
+          JarOutputStream jarOut = new JarOutputStream(out)) {
+        for (Path file : files) {
+          boolean directory = Files.isDirectory(file);
+          String name = root.relativize(file).toString().replace(File.separatorChar, '/');
+          JarEntry entry = new JarEntry(directory ? name + "/" : name);
+          entry.setTime(Files.getLastModifiedTime(file).toMillis());
+          jarOut.putNextEntry(entry);
+          if (!directory) {
+            Files.copy(file, jarOut);
+          }
+          jarOut.closeEntry();
+        }
+      }
+      Files.move(tempFile, jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+    Files.writeString(fingerprintFile, fingerprint);
+    return jar;
+  }
+
+  private static String getFingerprint(Path root, List<Path> files) throws IOException {
+    StringBuilder builder = new StringBuilder();
+    for (Path file : files) {
+      builder.append(root.relativize(file)).append('|')
+          .append(Files.isDirectory(file) ? -1 : Files.size(file)).append('|')
+          .append(Files.getLastModifiedTime(file).toMillis()).append('\n');
+    }
+    return hash(builder.toString());
+  }
+
+  /**
+   * Get the name of the archive of a classpath. The JVM validates the archive by
+   * the size and the modification time of the jars, so they are part of the name.
+   */
+  private static String getArchiveName(List<File> classpath, File javaHome) {
+    StringBuilder builder = new StringBuilder();
+    builder.append(javaHome == null ? "" : javaHome.getAbsolutePath()).append('\n');
+    for (File entry : classpath) {
+      builder.append(entry.getAbsolutePath()).append('|')
+          .append(entry.length()).append('|')
+          .append(entry.lastModified()).append('\n');
+    }
+    return hash(builder.toString()) + ARCHIVE_EXTENSION;
+  }
+
+  private static void deleteArchives(File cacheDir) throws IOException {
+    File[] archives = cacheDir.listFiles((dir, name) -> name.endsWith(ARCHIVE_EXTENSION));
+    if (archives != null) {
+      for (File archive : archives) {
+        Files.deleteIfExists(archive.toPath());
+      }
+    }
+  }
+
+  private static boolean isNonEmptyDirectory(File file) throws IOException {
+    if (!file.isDirectory()) {
+      return false;
+    }
+    try (Stream<Path> children = Files.list(file.toPath())) {
+      return children.findAny().isPresent();
+    }
+  }
+
+  static String hash(String value) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] bytes = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder();
+      // the first 8 bytes are enough to tell the classpaths apart.
+      for (int i = 0; i < 8; i++) {
+        hex.append(String.format("%02x", bytes[i]));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * The classpath and the JVM options of a launch.
+   */
+  public static class Launch {
+
+    private final File cacheDir;
+
+    private final List<File> classpath;
+
+    private final List<String> jvmOptions;
+
+    Launch(File cacheDir, List<File> classpath, List<String> jvmOptions) {
+      this.cacheDir = cacheDir;
+      this.classpath = classpath;
+      this.jvmOptions = jvmOptions;
+    }
+
+    public List<File> getClasspath() {
+      return classpath;
+    }
+
+    public List<String> getJvmOptions() {
+      return jvmOptions;
+    }
+  }
+}
@@ -0,0 +1,233 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.launcher;
+
+import static com.microsoft.java.bs.core.Launcher.LOGGER;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.gradle.tooling.CancellationToken;
+
+import com.microsoft.java.bs.core.Launcher;
+import com.microsoft.java.bs.core.internal.reporter.OutputBatcher;
+import com.microsoft.java.bs.gradle.model.GradleSourceSet;
+import com.microsoft.java.bs.gradle.model.JavaExtension;
+
+import ch.epfl.scala.bsp4j.BuildClient;
+import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+import ch.epfl.scala.bsp4j.LogMessageParams;
+import ch.epfl.scala.bsp4j.MessageType;
+import ch.epfl.scala.bsp4j.ScalaMainClass;
+import ch.epfl.scala.bsp4j.StatusCode;
+
+/**
+ * Launches a main class of a build target in a new JVM with the runtime classpath
+ * of the build target, without going through Gradle. The output of the JVM is
+ * forwarded to the client as log messages.
+ *
+ * <p>The launches with class data sharing reuse the archive of the main class, see
+ * {@link ClassDataSharingCache}.
+ */
+public class JvmLauncher {
+
+  private static final String CACHE_DIR = ".gradle/bsp/cds";
+
+  private static final long CANCEL_CHECK_INTERVAL_MILLIS = 100L;
+
+  private final ClassDataSharingCache cdsCache;
+
+  public JvmLauncher() {
+    this(new ClassDataSharingCache());
+  }
+
+  JvmLauncher(ClassDataSharingCache cdsCache) {
+    this.cdsCache = cdsCache;
+  }
+
+  /**
+   * Launch the main class and wait until the JVM exits.
+   *
+   * @param btId the build target of the main class.
+   * @param sourceSet the source set of the build target.
+   * @param javaExtension the java extension of the build target, which provides the
+   *     JDK and the JVM options, working directory and environment of the test or exec
+   *     task, can be <code>null</code>.
+   * @param mainClass the main class with its arguments, JVM options and environment.
+   * @param arguments the additional arguments of the main class, can be <code>null</code>.
+   * @param originId the origin id of the run request, can be <code>null</code>.
+   * @param classDataSharing whether to use the class data sharing archive.
+   * @param cancellationToken token to stop the JVM, can be <code>null</code>.
+   * @return {@link StatusCode#OK} if the JVM exits with 0.
+   */
+  public StatusCode launch(BuildTargetIdentifier btId, GradleSourceSet sourceSet,
+      JavaExtension javaExtension, ScalaMainClass mainClass, List<String> arguments,
+      String originId, boolean classDataSharing, CancellationToken cancellationToken) {
+    File javaHome = getJavaHome(javaExtension);
+    List<File> classpath = sourceSet.getRuntimeClasspath() == null ? Collections.emptyList()
+        : sourceSet.getRuntimeClasspath();
+    ClassDataSharingCache.Launch launch;
+    if (classDataSharing) {
+      File cacheDir = new File(new File(sourceSet.getRootDir(), CACHE_DIR),
+          ClassDataSharingCache.hash(btId.getUri() + "#" + mainClass.getClassName()));
+      launch = cdsCache.prepare(cacheDir, classpath, javaHome, getJavaVersion(javaExtension));
+    } else {
+      launch = new ClassDataSharingCache.Launch(null, classpath, Collections.emptyList());
+    }
+
+    try {
+      ProcessBuilder builder = new ProcessBuilder(getCommand(javaHome, launch,
+          javaExtension == null ? null : javaExtension.getJvmOptions(), mainClass, arguments));
+      // the environment of the test or exec task is applied first, the main class
+      // can override it.
+      File workingDirectory = javaExtension == null ? null
+          : javaExtension.getWorkingDirectory();
+      builder.directory(workingDirectory == null ? sourceSet.getProjectDir()
+          : workingDirectory);
+      if (javaExtension != null && javaExtension.getEnvironmentVariables() != null) {
+        builder.environment().putAll(javaExtension.getEnvironmentVariables());
+      }
+      setEnvironment(builder.environment(), mainClass.getEnvironmentVariables());
+      Process process = builder.start();
+      process.getOutputStream().close();
+      Thread stdout = forward(process.getInputStream(), MessageType.LOG, originId);
+      Thread stderr = forward(process.getErrorStream(), MessageType.ERROR, originId);
+      try {
+        while (!process.waitFor(CANCEL_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+          if (cancellationToken != null && cancellationToken.isCancellationRequested()) {
+            process.destroy();
+            return StatusCode.CANCELLED;
+          }
+        }
+        stdout.join();
+        stderr.join();
+      } catch (InterruptedException e) {
+        process.destroy();
+        Thread.currentThread().interrupt();
+        return StatusCode.CANCELLED;
+      }
+      int exitValue = process.exitValue();
+      LOGGER.info(mainClass.getClassName() + " exited with " + exitValue + ".");
+      return exitValue == 0 ? StatusCode.OK : StatusCode.ERROR;
+    } catch (IOException e) {
+      LOGGER.severe("Failed to launch " + mainClass.getClassName() + ": " + e.getMessage());
+      return StatusCode.ERROR;
+    } finally {
+      cdsCache.release(launch);
+    }
+  }
+
+  /**
+   * Get the command line of a launch. The JVM options of the build target come
+   * before the ones of the main class, so the main class wins on conflicts.
+   */
+  static List<String> getCommand(File javaHome, ClassDataSharingCache.Launch launch,
+      List<String> jvmOptions, ScalaMainClass mainClass, List<String> arguments) {
+    List<String> command = new ArrayList<>();
+    String executable = System.getProperty("os.name").startsWith("Windows") ? "java.exe"
+        : "java";
+    command.add(new File(new File(javaHome, "bin"), executable).getAbsolutePath());
+    command.addAll(launch.getJvmOptions());
+    if (jvmOptions != null) {
+      command.addAll(jvmOptions);
+    }
+    if (mainClass.getJvmOptions() != null) {
+      command.addAll(mainClass.getJvmOptions());
+    }
+    if (!launch.getClasspath().isEmpty()) {
+      command.add("-cp");
+      command.add(launch.getClasspath().stream().map(File::getAbsolutePath)
+          .collect(Collectors.joining(File.pathSeparator)));
+    }
+    command.add(mainClass.getClassName());
+    if (mainClass.getArguments() != null) {
+      command.addAll(mainClass.getArguments());
+    }
+    if (arguments != null) {
+      command.addAll(arguments);
+    }
+    return command;
+  }
+
+  /**
+   * Get the feature version of the JDK, e.g. 8 for "1.8" and 17 for "17.0.2".
+   */
+  static int getJavaVersion(JavaExtension javaExtension) {
+    if (javaExtension == null || javaExtension.getJavaHome() == null) {
+      return Runtime.version().feature();
+    }
+    String version = javaExtension.getJavaVersion();
+    if (version == null) {
+      return 0;
+    }
+    if (version.startsWith("1.")) {
+      version = version.substring(2);
+    }
+    int end = 0;
+    while (end < version.length() && Character.isDigit(version.charAt(end))) {
+      end++;
+    }
+    return end == 0 ? 0 : Integer.parseInt(version.substring(0, end));
+  }
+
+  private static File getJavaHome(JavaExtension javaExtension) {
+    if (javaExtension == null || javaExtension.getJavaHome() == null) {
+      return new File(System.getProperty("java.home"));
+    }
+    return javaExtension.getJavaHome();
+  }
+
+  /**
+   * Set the environment variables in the form of <code>KEY=VALUE</code>.
+   */
+  private static void setEnvironment(Map<String, String> environment, List<String> variables) {
+    if (variables == null) {
+      return;
+    }
+    for (String variable : variables) {
+      int index = variable.indexOf('=');
+      if (index > 0) {
+        environment.put(variable.substring(0, index), variable.substring(index + 1));
+      }
+    }
+  }
+
+  private static Thread forward(InputStream input, MessageType type, String originId) {
+    // the lines are sent in batches, so a chatty application does not flood the client.
+    OutputBatcher batcher = new OutputBatcher(text -> {
+      BuildClient client = Launcher.client;
+      if (client != null) {
+        LogMessageParams params = new LogMessageParams(type, text);
+        params.setOriginId(originId);
+        client.onBuildLogMessage(params);
+      }
+    });
+    Thread thread = new Thread(() -> {
+      try (BufferedReader reader = new BufferedReader(
+          new InputStreamReader(input, Charset.defaultCharset()))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          batcher.onOutputLine(line);
+        }
+      } catch (IOException e) {
+        // the stream is closed when the process is destroyed.
+      } finally {
+        batcher.onOutputClosed();
+      }
+    }, "bsp-run-output");
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+}
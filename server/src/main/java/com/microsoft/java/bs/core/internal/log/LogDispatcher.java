@@ -0,0 +1,217 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.log;
+
+import static com.microsoft.java.bs.core.Launcher.METRICS;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.google.gson.Gson;
+import com.microsoft.java.bs.core.Launcher;
+
+import ch.epfl.scala.bsp4j.BuildClient;
+import ch.epfl.scala.bsp4j.LogMessageParams;
+import ch.epfl.scala.bsp4j.MessageType;
+
+/**
+ * Sends the log messages to the client on a dedicated thread, so the logging
+ * threads never block on the JSON-RPC connection.
+ *
+ * <p>The messages are kept in a bounded queue. When the client is too slow and
+ * the queue is full, the oldest message is dropped, and the number of the dropped
+ * messages is reported to the client with the next batch. Consecutive log
+ * messages of the same type are sent as one message. The telemetry messages are
+ * always sent one by one, since each of them is a JSON object.
+ */
+public class LogDispatcher {
+
+  static final int DEFAULT_CAPACITY = 10_000;
+
+  /**
+   * The max number of the queued messages taken at once by the dispatch thread.
+   */
+  static final int MAX_BATCH_SIZE = 100;
+
+  private static final long CLOSE_TIMEOUT_MILLIS = 5_000L;
+
+  private static final Gson GSON = new Gson();
+
+  private final int capacity;
+
+  private final Supplier<BuildClient> clientSupplier;
+
+  private final Deque<Entry> queue = new ArrayDeque<>();
+
+  private final Thread thread;
+
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  /**
+   * The number of the dropped messages which are not reported to the client yet.
+   */
+  private long unreportedDrops;
+
+  private boolean sending;
+
+  private boolean closed;
+
+  /**
+   * Instantiates a {@link LogDispatcher} sending to {@link Launcher#client}.
+   */
+  public LogDispatcher() {
+    this(DEFAULT_CAPACITY, () -> Launcher.client);
+  }
+
+  LogDispatcher(int capacity, Supplier<BuildClient> clientSupplier) {
+    this.capacity = capacity;
+    this.clientSupplier = clientSupplier;
+    this.thread = new Thread(this::dispatch, "bsp-log-dispatcher");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Queue a log message, which can be merged with the adjacent messages of the
+   * same type.
+   */
+  public void log(MessageType type, String message) {
+    enqueue(new Entry(type, message, true));
+  }
+
+  /**
+   * Queue a telemetry object, which is serialized to JSON on the dispatch thread.
+   */
+  public void logTelemetry(Object telemetry) {
+    enqueue(new Entry(MessageType.LOG, telemetry, false));
+  }
+
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * Wait until the queued messages are sent, or the timeout elapses.
+   */
+  public synchronized void flush(long timeoutMillis) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    try {
+      while (!queue.isEmpty() || sending) {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0) {
+          return;
+        }
+        wait(remaining);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Stop accepting messages, and wait for the queued ones to be sent.
+   */
+  public void close() {
+    synchronized (this) {
+      closed = true;
+      notifyAll();
+    }
+    try {
+      thread.join(CLOSE_TIMEOUT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private synchronized void enqueue(Entry entry) {
+    if (closed) {
+      return;
+    }
+    if (queue.size() >= capacity) {
+      queue.pollFirst();
+      unreportedDrops++;
+      droppedCount.incrementAndGet();
+      METRICS.increment("log.dropped");
+    }
+    queue.addLast(entry);
+    notifyAll();
+  }
+
+  private void dispatch() {
+    List<Entry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+    while (true) {
+      long drops;
+      synchronized (this) {
+        sending = false;
+        notifyAll();
+        try {
+          while (queue.isEmpty() && !closed) {
+            wait();
+          }
+        } catch (InterruptedException e) {
+          return;
+        }
+        if (queue.isEmpty()) {
+          return;
+        }
+        while (!queue.isEmpty() && batch.size() < MAX_BATCH_SIZE) {
+          batch.add(queue.pollFirst());
+        }
+        drops = unreportedDrops;
+        unreportedDrops = 0;
+        sending = true;
+      }
+      send(drops, batch);
+      batch.clear();
+    }
+  }
+
+  private void send(long drops, List<Entry> batch) {
+    BuildClient client = clientSupplier.get();
+    if (client == null) {
+      return;
+    }
+    try {
+      if (drops > 0) {
+        client.onBuildLogMessage(new LogMessageParams(MessageType.WARNING,
+            drops + " log messages were dropped because the client is slow."));
+      }
+      int i = 0;
+      while (i < batch.size()) {
+        Entry entry = batch.get(i++);
+        if (!entry.mergeable) {
+          client.onBuildLogMessage(new LogMessageParams(entry.type,
+              GSON.toJson(entry.payload)));
+          continue;
+        }
+        StringBuilder message = new StringBuilder((String) entry.payload);
+        while (i < batch.size() && batch.get(i).mergeable && batch.get(i).type == entry.type) {
+          message.append('\n').append((String) batch.get(i++).payload);
+        }
+        client.onBuildLogMessage(new LogMessageParams(entry.type, message.toString()));
+      }
+      METRICS.add("log.sent", batch.size());
+    } catch (RuntimeException e) {
+      // the connection is closed, it cannot be logged to the client anyway.
+      METRICS.increment("log.failed");
+    }
+  }
+
+  private static class Entry {
+    private final MessageType type;
+    private final Object payload;
+    private final boolean mergeable;
+
+    Entry(MessageType type, Object payload, boolean mergeable) {
+      this.type = type;
+      this.payload = payload;
+      this.mergeable = mergeable;
+    }
+  }
+}
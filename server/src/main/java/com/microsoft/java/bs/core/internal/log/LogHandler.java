@@ -3,41 +3,47 @@
 
 package com.microsoft.java.bs.core.internal.log;
 
-import java.text.Format;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 
-import com.microsoft.java.bs.core.Launcher;
-
-import ch.epfl.scala.bsp4j.LogMessageParams;
 import ch.epfl.scala.bsp4j.MessageType;
 
 /**
- * The log appender to log server events to client.
+ * The log appender to log server events to client. The messages are sent
+ * asynchronously by the {@link LogDispatcher}.
  */
 public class LogHandler extends Handler {
 
+  private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter
+      .ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+
+  private static final long FLUSH_TIMEOUT_MILLIS = 1_000L;
+
+  private final LogDispatcher dispatcher;
+
+  public LogHandler(LogDispatcher dispatcher) {
+    this.dispatcher = dispatcher;
+  }
+
   @Override
   public void publish(LogRecord logRecord) {
-    Format formatter = new SimpleDateFormat("HH:mm:ss");
-    String timestamp = formatter.format(new Date());
-    String logMessage = String.format("[%s - %s] %s", logRecord.getLevel().getName(),
-        timestamp, logRecord.getMessage());
-    Launcher.client.onBuildLogMessage(new LogMessageParams(
-        convertLevelToMessageType(logRecord.getLevel()), logMessage));
+    String timestamp = TIME_FORMATTER.format(logRecord.getInstant());
+    String logMessage = "[" + logRecord.getLevel().getName() + " - " + timestamp + "] "
+        + logRecord.getMessage();
+    dispatcher.log(convertLevelToMessageType(logRecord.getLevel()), logMessage);
   }
 
   @Override
   public void flush() {
-    // do nothing
+    dispatcher.flush(FLUSH_TIMEOUT_MILLIS);
   }
 
   @Override
   public void close() throws SecurityException {
-    // do nothing
+    dispatcher.close();
   }
 
   private MessageType convertLevelToMessageType(Level level) {
@@ -7,17 +7,20 @@ import java.util.Map;
 import java.util.logging.Handler;
 import java.util.logging.LogRecord;
 
-import com.google.gson.Gson;
-import com.microsoft.java.bs.core.Launcher;
-
-import ch.epfl.scala.bsp4j.LogMessageParams;
-import ch.epfl.scala.bsp4j.MessageType;
-
 /**
- * The log appender to send bi data.
+ * The log appender to send bi data. The data is serialized and sent
+ * asynchronously by the {@link LogDispatcher}.
  */
 public class TelemetryHandler extends Handler {
 
+  private static final long FLUSH_TIMEOUT_MILLIS = 1_000L;
+
+  private final LogDispatcher dispatcher;
+
+  public TelemetryHandler(LogDispatcher dispatcher) {
+    this.dispatcher = dispatcher;
+  }
+
   @Override
   public void publish(LogRecord logRecord) {
     Object[] property = logRecord.getParameters();
@@ -26,17 +29,16 @@ public class TelemetryHandler extends Handler {
       return;
     }
 
-    String jsonStr = new Gson().toJson(property[0]);
-    Launcher.client.onBuildLogMessage(new LogMessageParams(MessageType.LOG, jsonStr));
+    dispatcher.logTelemetry(property[0]);
   }
 
   @Override
   public void flush() {
-    // do nothing
+    dispatcher.flush(FLUSH_TIMEOUT_MILLIS);
   }
 
   @Override
   public void close() throws SecurityException {
-    // do nothing
+    dispatcher.close();
   }
 }
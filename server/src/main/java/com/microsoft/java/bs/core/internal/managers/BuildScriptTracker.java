@@ -0,0 +1,152 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.managers;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.microsoft.java.bs.gradle.model.GradleSourceSet;
+
+/**
+ * Track the build scripts of the Gradle projects, to find out the projects whose
+ * model might be changed since the last time they were stored.
+ */
+public class BuildScriptTracker {
+
+  /**
+   * Files in the root project that affect the model of all the projects.
+   */
+  static final String[] ROOT_FILES = {
+    "settings.gradle",
+    "settings.gradle.kts",
+    "gradle.properties",
+    "gradle/wrapper/gradle-wrapper.properties",
+    "gradle/libs.versions.toml",
+    "buildSrc/build.gradle",
+    "buildSrc/build.gradle.kts"
+  };
+
+  /**
+   * Files in each project that affect the model of the project.
+   */
+  static final String[] PROJECT_FILES = {
+    "build.gradle",
+    "build.gradle.kts",
+    "gradle.properties"
+  };
+
+  /**
+   * Root directory to the project directories by the project paths. The project
+   * paths are only unique in the same build, e.g. the root project of each
+   * included build has the path <code>:</code>.
+   */
+  private Map<File, Map<String, File>> projectDirs;
+
+  /**
+   * The stamps of the tracked files when they are recorded.
+   */
+  private Map<File, String> stamps;
+
+  /**
+   * Instantiates a new build script tracker.
+   */
+  public BuildScriptTracker() {
+    this.projectDirs = new HashMap<>();
+    this.stamps = new HashMap<>();
+  }
+
+  /**
+   * Get the current stamps of the tracked files. They should be taken before the
+   * model is fetched and passed to {@link #update(Collection, Map)}, so a build
+   * script changed during the fetch is still found changed afterward.
+   */
+  public synchronized Map<File, String> stamp() {
+    Map<File, String> currentStamps = new HashMap<>();
+    for (File file : stamps.keySet()) {
+      currentStamps.put(file, getStamp(file));
+    }
+    return currentStamps;
+  }
+
+  /**
+   * Record the state of the build scripts of the given source sets.
+   *
+   * @param sourceSets the source sets which are stored.
+   * @param fetchStamps the stamps taken before the source sets were fetched, the
+   *     files absent from them are stamped now. Can be <code>null</code>.
+   */
+  public synchronized void update(Collection<GradleSourceSet> sourceSets,
+      Map<File, String> fetchStamps) {
+    projectDirs.clear();
+    stamps.clear();
+    for (GradleSourceSet sourceSet : sourceSets) {
+      if (sourceSet.getRootDir() == null) {
+        continue;
+      }
+      Map<String, File> dirs = projectDirs.computeIfAbsent(sourceSet.getRootDir(),
+          k -> new HashMap<>());
+      if (sourceSet.getProjectPath() != null && sourceSet.getProjectDir() != null) {
+        dirs.put(sourceSet.getProjectPath(), sourceSet.getProjectDir());
+      }
+    }
+    for (Map.Entry<File, Map<String, File>> entry : projectDirs.entrySet()) {
+      for (String rootFile : ROOT_FILES) {
+        track(new File(entry.getKey(), rootFile), fetchStamps);
+      }
+      for (File projectDir : entry.getValue().values()) {
+        for (String projectFile : PROJECT_FILES) {
+          track(new File(projectDir, projectFile), fetchStamps);
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the paths of the projects whose build scripts have been changed since
+   * the last update. All the projects of a build are returned if any of the files
+   * in its root project has been changed.
+   */
+  public synchronized Set<String> getChangedProjectPaths() {
+    Set<String> changedProjectPaths = new HashSet<>();
+    for (Map.Entry<File, Map<String, File>> entry : projectDirs.entrySet()) {
+      if (isAnyChanged(entry.getKey(), ROOT_FILES)) {
+        changedProjectPaths.addAll(entry.getValue().keySet());
+        continue;
+      }
+      for (Map.Entry<String, File> project : entry.getValue().entrySet()) {
+        if (isAnyChanged(project.getValue(), PROJECT_FILES)) {
+          changedProjectPaths.add(project.getKey());
+        }
+      }
+    }
+    return changedProjectPaths;
+  }
+
+  private void track(File file, Map<File, String> fetchStamps) {
+    String stamp = fetchStamps == null ? null : fetchStamps.get(file);
+    stamps.put(file, stamp == null ? getStamp(file) : stamp);
+  }
+
+  private boolean isAnyChanged(File dir, String[] fileNames) {
+    for (String fileName : fileNames) {
+      File file = new File(dir, fileName);
+      if (!Objects.equals(stamps.get(file), getStamp(file))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private String getStamp(File file) {
+    if (!file.isFile()) {
+      return "";
+    }
+    return file.lastModified() + ":" + file.length();
+  }
+}
@@ -3,12 +3,16 @@
 
 package com.microsoft.java.bs.core.internal.managers;
 
+import java.io.File;
 import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -21,87 +25,230 @@ import com.microsoft.java.bs.gradle.model.BuildTargetDependency;
 import com.microsoft.java.bs.gradle.model.GradleSourceSet;
 import com.microsoft.java.bs.gradle.model.GradleSourceSets;
 import com.microsoft.java.bs.gradle.model.SupportedLanguages;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleSourceSets;
 import com.microsoft.java.bs.gradle.model.impl.DefaultJavaExtension;
 import com.microsoft.java.bs.gradle.model.utils.Conversions;
 
 import ch.epfl.scala.bsp4j.BuildTarget;
 import ch.epfl.scala.bsp4j.BuildTargetCapabilities;
+import ch.epfl.scala.bsp4j.BuildTargetEvent;
+import ch.epfl.scala.bsp4j.BuildTargetEventKind;
 import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
 import ch.epfl.scala.bsp4j.BuildTargetTag;
 import ch.epfl.scala.bsp4j.extended.JvmBuildTargetEx;
 
 /**
  * Build targets manager.
+ *
+ * <p>The build targets are published as immutable {@link BuildTargetSnapshot}s.
+ * The stores are serialized, and each of them computes the created, changed and
+ * deleted targets against the previous generation.
  */
 public class BuildTargetManager {
 
-  private volatile Map<BuildTargetIdentifier, GradleBuildTarget> cache;
+  private volatile BuildTargetSnapshot snapshot;
 
+  private BuildScriptTracker buildScriptTracker;
+
+  private GeneratedSourceTracker generatedSourceTracker;
+
+  /**
+   * Instantiates a new build target manager.
+   */
   public BuildTargetManager() {
-    this.cache = new HashMap<>();
+    this.snapshot = BuildTargetSnapshot.EMPTY;
+    this.buildScriptTracker = new BuildScriptTracker();
+    this.generatedSourceTracker = new GeneratedSourceTracker();
   }
 
   /**
    * Store the Gradle source sets.
    *
-   * @return A list containing identifiers of changed build targets.
+   * @return the events of the created, changed and deleted build targets.
    */
-  public List<BuildTargetIdentifier> store(GradleSourceSets gradleSourceSets) {
+  public List<BuildTargetEvent> store(GradleSourceSets gradleSourceSets) {
+    return store(gradleSourceSets, (Map<File, String>) null);
+  }
+
+  /**
+   * Store the Gradle source sets fetched after the tracked files were stamped.
+   *
+   * @param gradleSourceSets the source sets.
+   * @param fetchStamps the stamps returned by {@link #stampTrackedFiles()}
+   *     before the source sets were fetched, can be <code>null</code>.
+   * @return the events of the created, changed and deleted build targets.
+   */
+  public synchronized List<BuildTargetEvent> store(GradleSourceSets gradleSourceSets,
+      Map<File, String> fetchStamps) {
+    BuildTargetSnapshot previous = snapshot;
     Map<BuildTargetIdentifier, GradleBuildTarget> newCache = new HashMap<>();
-    Map<String, BuildTargetIdentifier> projectPathToBuildTargetId = new HashMap<>();
-    List<BuildTargetIdentifier> changedTargets = new LinkedList<>();
+    List<BuildTargetEvent> events = new LinkedList<>();
+    List<GradleBuildTarget> removedTargets = new ArrayList<>();
+    List<GradleBuildTarget> addedTargets = new ArrayList<>();
+    // the dependencies are resolved before the build targets are created, so a
+    // build target is never modified once it is published.
+    Map<String, BuildTargetIdentifier> projectPathToBuildTargetId =
+        getProjectPathToBuildTargetId(gradleSourceSets.getGradleSourceSets());
     for (GradleSourceSet sourceSet : gradleSourceSets.getGradleSourceSets()) {
-      String sourceSetName = sourceSet.getSourceSetName();
-      URI uri = getBuildTargetUri(sourceSet.getProjectDir().toURI(), sourceSetName);
+      BuildTargetIdentifier btId = getBuildTargetId(sourceSet);
       List<String> tags = getBuildTargetTags(sourceSet.hasTests());
-      BuildTargetIdentifier btId = new BuildTargetIdentifier(uri.toString());
       BuildTarget bt = new BuildTarget(
           btId,
           tags,
           Arrays.asList(SupportedLanguages.JAVA),
-          Collections.emptyList(),
+          getBuildTargetDependencies(sourceSet, projectPathToBuildTargetId),
           new BuildTargetCapabilities(
             true /* canCompile */,
-            false /* canTest */,
-            false /* canRun */,
+            sourceSet.hasTests() /* canTest */,
+            sourceSet.getRuntimeClasspath() != null /* canRun */,
             false /* canDebug */
           )
       );
       bt.setBaseDirectory(sourceSet.getRootDir().toURI().toString());
       bt.setDisplayName(sourceSet.getDisplayName());
 
-      setJvmBuildTarget(sourceSet, bt);
+      // decode the java extension once, request handlers read it from the build target.
+      DefaultJavaExtension javaExtension = Conversions.toJavaExtension(
+          sourceSet.getExtensions().get(SupportedLanguages.JAVA));
+      setJvmBuildTarget(sourceSet, javaExtension, bt);
 
-      GradleBuildTarget buildTarget = new GradleBuildTarget(bt, sourceSet);
-      GradleBuildTarget existingTarget = cache.get(btId);
+      GradleBuildTarget buildTarget = new GradleBuildTarget(bt, sourceSet, javaExtension);
+      GradleBuildTarget existingTarget = previous.getGradleBuildTarget(btId);
       // only compare the source set instance, which is the result
       // returned from the gradle plugin.
-      if (existingTarget != null
-          && !Objects.equals(existingTarget.getSourceSet(), buildTarget.getSourceSet())) {
-        changedTargets.add(btId);
+      if (existingTarget == null) {
+        events.add(createEvent(btId, BuildTargetEventKind.CREATED));
+        addedTargets.add(buildTarget);
+      } else if (Objects.equals(existingTarget.getSourceSet(), buildTarget.getSourceSet())) {
+        buildTarget.reuseResponseItems(existingTarget);
+      } else {
+        events.add(createEvent(btId, BuildTargetEventKind.CHANGED));
+        removedTargets.add(existingTarget);
+        addedTargets.add(buildTarget);
       }
       newCache.put(btId, buildTarget);
-      // Store the relationship between the project path and the build target id.
-      // 'test' and other source sets are ignored.
-      if ("main".equals(sourceSet.getSourceSetName())) {
-        projectPathToBuildTargetId.put(sourceSet.getProjectPath(), btId);
+    }
+    for (GradleBuildTarget existingTarget : previous.getAllGradleBuildTargets()) {
+      BuildTargetIdentifier btId = existingTarget.getBuildTarget().getId();
+      if (!newCache.containsKey(btId)) {
+        events.add(createEvent(btId, BuildTargetEventKind.DELETED));
+        removedTargets.add(existingTarget);
+      }
+    }
+    // only the roots of the added, changed and removed targets are indexed again.
+    SourceRootIndex sourceRootIndex = previous.getSourceRootIndex().update(removedTargets,
+        addedTargets);
+    this.snapshot = new BuildTargetSnapshot(previous.getGeneration() + 1, newCache,
+        sourceRootIndex);
+    buildScriptTracker.update(gradleSourceSets.getGradleSourceSets(), fetchStamps);
+    generatedSourceTracker.update(gradleSourceSets.getGradleSourceSets(), fetchStamps);
+    return events;
+  }
+
+  /**
+   * Store the Gradle source sets of the given projects. The build targets
+   * of the other projects are kept as they are.
+   *
+   * @param gradleSourceSets the source sets of the given projects.
+   * @param projectPaths the paths of the projects whose model has been rebuilt.
+   * @param fetchStamps the stamps returned by {@link #stampTrackedFiles()}
+   *     before the source sets were fetched, can be <code>null</code>.
+   * @return the events of the created, changed and deleted build targets.
+   */
+  public synchronized List<BuildTargetEvent> store(GradleSourceSets gradleSourceSets,
+      Set<String> projectPaths, Map<File, String> fetchStamps) {
+    List<GradleSourceSet> sourceSets = new ArrayList<>(gradleSourceSets.getGradleSourceSets());
+    // the other projects are taken from the latest generation, which cannot be
+    // replaced by a concurrent store while this one is running.
+    for (GradleBuildTarget buildTarget : snapshot.getAllGradleBuildTargets()) {
+      if (!projectPaths.contains(buildTarget.getSourceSet().getProjectPath())) {
+        sourceSets.add(buildTarget.getSourceSet());
+      }
+    }
+    return store(new DefaultGradleSourceSets(sourceSets), fetchStamps);
+  }
+
+  private static BuildTargetEvent createEvent(BuildTargetIdentifier btId,
+      BuildTargetEventKind kind) {
+    BuildTargetEvent event = new BuildTargetEvent(btId);
+    event.setKind(kind);
+    return event;
+  }
+
+  /**
+   * Get the current stamps of the build scripts and the generated source roots,
+   * which should be taken before the source sets are fetched and passed back when
+   * they are stored.
+   */
+  public Map<File, String> stampTrackedFiles() {
+    Map<File, String> stamps = buildScriptTracker.stamp();
+    stamps.putAll(generatedSourceTracker.stamp());
+    return stamps;
+  }
+
+  /**
+   * Get the paths of the projects whose build scripts have been changed since
+   * they were stored.
+   */
+  public Set<String> getChangedProjectPaths() {
+    return buildScriptTracker.getChangedProjectPaths();
+  }
+
+  /**
+   * Get the paths of the projects whose generated source roots have been changed
+   * since they were stored. The given build targets and the ones they depend on
+   * are checked, since their compilation also runs the code generators of the
+   * upstream projects.
+   *
+   * @param compiledTargets the build targets which have been compiled.
+   */
+  public Set<String> getGeneratedSourceChangedProjectPaths(
+      Collection<BuildTargetIdentifier> compiledTargets) {
+    BuildTargetSnapshot current = snapshot;
+    Set<BuildTargetIdentifier> visited = new HashSet<>();
+    Deque<BuildTargetIdentifier> queue = new ArrayDeque<>(compiledTargets);
+    List<GradleSourceSet> sourceSets = new ArrayList<>();
+    while (!queue.isEmpty()) {
+      BuildTargetIdentifier btId = queue.poll();
+      if (!visited.add(btId)) {
+        continue;
+      }
+      GradleBuildTarget target = current.getGradleBuildTarget(btId);
+      if (target != null) {
+        sourceSets.add(target.getSourceSet());
+        queue.addAll(target.getBuildTarget().getDependencies());
       }
     }
-    updateBuildTargetDependencies(newCache.values(), projectPathToBuildTargetId);
-    this.cache = newCache;
-    return changedTargets;
+    return generatedSourceTracker.getChangedProjectPaths(sourceSets);
+  }
+
+  /**
+   * Get the latest generation of the build targets. A request should read all the
+   * build targets it needs from the same snapshot.
+   */
+  public BuildTargetSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Get the paths of all the projects that have build targets.
+   */
+  public Set<String> getAllProjectPaths() {
+    return snapshot.getAllProjectPaths();
   }
 
   public GradleBuildTarget getGradleBuildTarget(BuildTargetIdentifier buildTargetId) {
-    return cache.get(buildTargetId);
+    return snapshot.getGradleBuildTarget(buildTargetId);
   }
 
   public List<GradleBuildTarget> getAllGradleBuildTargets() {
-    return new ArrayList<>(cache.values());
+    return snapshot.getAllGradleBuildTargets();
   }
 
-  private URI getBuildTargetUri(URI projectUri, String sourceSetName) {
-    return URI.create(projectUri.toString() + "?sourceset=" + sourceSetName);
+  private BuildTargetIdentifier getBuildTargetId(GradleSourceSet sourceSet) {
+    URI projectUri = sourceSet.getProjectDir().toURI();
+    return new BuildTargetIdentifier(projectUri.toString() + "?sourceset="
+        + sourceSet.getSourceSetName());
   }
 
   private List<String> getBuildTargetTags(boolean hasTests) {
@@ -112,9 +259,8 @@ public class BuildTargetManager {
     return tags;
   }
 
-  private void setJvmBuildTarget(GradleSourceSet sourceSet, BuildTarget bt) {
-    DefaultJavaExtension javaExtension = Conversions.toJavaExtension(
-        sourceSet.getExtensions().get(SupportedLanguages.JAVA));
+  private void setJvmBuildTarget(GradleSourceSet sourceSet,
+      DefaultJavaExtension javaExtension, BuildTarget bt) {
     if (javaExtension == null) {
       return;
     }
@@ -134,27 +280,34 @@ public class BuildTargetManager {
   }
 
   /**
-   * Iterate all the gradle build targets, and update their dependencies with
-   * the help of 'project path to id' mapping.
+   * Get the relationship between the project path and the build target id.
+   * 'test' and other source sets are ignored.
    */
-  private void updateBuildTargetDependencies(
-      Collection<GradleBuildTarget> gradleBuildTargets,
-      Map<String, BuildTargetIdentifier> projectPathToBuildTargetId
-  ) {
-    for (GradleBuildTarget gradleBuildTarget : gradleBuildTargets) {
-      Set<BuildTargetDependency> buildTargetDependencies =
-          gradleBuildTarget.getSourceSet().getBuildTargetDependencies();
-      if (buildTargetDependencies != null) {
-        List<BuildTargetIdentifier> btDependencies = buildTargetDependencies.stream()
-            .map(btDependency -> {
-              String path = btDependency.getProjectPath();
-              return projectPathToBuildTargetId.get(path);
-            })
-            .filter(Objects::nonNull)
-            .distinct()
-            .collect(Collectors.toList());
-        gradleBuildTarget.getBuildTarget().setDependencies(btDependencies);
+  private Map<String, BuildTargetIdentifier> getProjectPathToBuildTargetId(
+      Collection<GradleSourceSet> sourceSets) {
+    Map<String, BuildTargetIdentifier> projectPathToBuildTargetId = new HashMap<>();
+    for (GradleSourceSet sourceSet : sourceSets) {
+      if ("main".equals(sourceSet.getSourceSetName())) {
+        projectPathToBuildTargetId.put(sourceSet.getProjectPath(), getBuildTargetId(sourceSet));
       }
     }
+    return projectPathToBuildTargetId;
+  }
+
+  /**
+   * Get the dependencies of the build target of a source set with the help of
+   * 'project path to id' mapping.
+   */
+  private List<BuildTargetIdentifier> getBuildTargetDependencies(GradleSourceSet sourceSet,
+      Map<String, BuildTargetIdentifier> projectPathToBuildTargetId) {
+    Set<BuildTargetDependency> buildTargetDependencies = sourceSet.getBuildTargetDependencies();
+    if (buildTargetDependencies == null) {
+      return Collections.emptyList();
+    }
+    return buildTargetDependencies.stream()
+        .map(btDependency -> projectPathToBuildTargetId.get(btDependency.getProjectPath()))
+        .filter(Objects::nonNull)
+        .distinct()
+        .collect(Collectors.toList());
   }
 }
@@ -0,0 +1,92 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.managers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.microsoft.java.bs.core.internal.model.GradleBuildTarget;
+
+import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+
+/**
+ * An immutable generation of the build targets. Each store of the
+ * {@link BuildTargetManager} publishes a new snapshot with the next generation
+ * number, and a request reads all the build targets it needs from one snapshot,
+ * so it never sees a mix of two generations.
+ */
+public class BuildTargetSnapshot {
+
+  static final BuildTargetSnapshot EMPTY = new BuildTargetSnapshot(0L, Collections.emptyMap());
+
+  private final long generation;
+
+  private final Map<BuildTargetIdentifier, GradleBuildTarget> targets;
+
+  private final List<GradleBuildTarget> allTargets;
+
+  private final Set<String> projectPaths;
+
+  private final SourceRootIndex sourceRootIndex;
+
+  /**
+   * Instantiates a {@link BuildTargetSnapshot}, whose source root index is built
+   * from the given build targets.
+   *
+   * @param generation the generation number, which increases with each store.
+   * @param targets the build targets, which must not be modified afterwards.
+   */
+  public BuildTargetSnapshot(long generation,
+      Map<BuildTargetIdentifier, GradleBuildTarget> targets) {
+    this(generation, targets, SourceRootIndex.EMPTY.update(Collections.emptyList(),
+        targets.values()));
+  }
+
+  /**
+   * Instantiates a {@link BuildTargetSnapshot}.
+   *
+   * @param generation the generation number, which increases with each store.
+   * @param targets the build targets, which must not be modified afterwards.
+   * @param sourceRootIndex the index of the source roots of the build targets.
+   */
+  public BuildTargetSnapshot(long generation,
+      Map<BuildTargetIdentifier, GradleBuildTarget> targets, SourceRootIndex sourceRootIndex) {
+    this.generation = generation;
+    this.sourceRootIndex = sourceRootIndex;
+    this.targets = Collections.unmodifiableMap(targets);
+    this.allTargets = Collections.unmodifiableList(new ArrayList<>(targets.values()));
+    Set<String> paths = new HashSet<>();
+    for (GradleBuildTarget target : allTargets) {
+      paths.add(target.getSourceSet().getProjectPath());
+    }
+    this.projectPaths = Collections.unmodifiableSet(paths);
+  }
+
+  public long getGeneration() {
+    return generation;
+  }
+
+  public GradleBuildTarget getGradleBuildTarget(BuildTargetIdentifier buildTargetId) {
+    return targets.get(buildTargetId);
+  }
+
+  public List<GradleBuildTarget> getAllGradleBuildTargets() {
+    return allTargets;
+  }
+
+  /**
+   * Get the paths of all the projects that have build targets.
+   */
+  public Set<String> getAllProjectPaths() {
+    return projectPaths;
+  }
+
+  public SourceRootIndex getSourceRootIndex() {
+    return sourceRootIndex;
+  }
+}
@@ -0,0 +1,158 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.managers;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.microsoft.java.bs.gradle.model.GradleSourceSet;
+
+/**
+ * Track the generated source roots of the Gradle projects, to find out the projects
+ * whose generated source roots might be changed by a compilation. For example, code
+ * generation frameworks such as Protocol Buffer create new source roots when they
+ * run for the first time.
+ */
+public class GeneratedSourceTracker {
+
+  /**
+   * The conventional directory where the code generators put their outputs.
+   */
+  private static final String GENERATED_DIR = "build/generated";
+
+  /**
+   * The depth to scan the generated directory, e.g.
+   * <code>build/generated/source/proto/main/java</code>.
+   */
+  private static final int MAX_DEPTH = 4;
+
+  /**
+   * Project directory to the directories tracked for the project: the generated
+   * directory, which is scanned, and the known generated source roots.
+   */
+  private Map<File, Set<File>> trackedDirs;
+
+  /**
+   * The generated directories of the projects, which are stamped with the
+   * directories under them. The other tracked directories are stamped with their
+   * existence.
+   */
+  private Set<File> scannedDirs;
+
+  /**
+   * The stamps of the tracked directories when they are recorded.
+   */
+  private Map<File, String> stamps;
+
+  /**
+   * Instantiates a new generated source tracker.
+   */
+  public GeneratedSourceTracker() {
+    this.trackedDirs = new HashMap<>();
+    this.scannedDirs = new HashSet<>();
+    this.stamps = new HashMap<>();
+  }
+
+  /**
+   * Get the current stamps of the tracked directories. They should be taken
+   * before the model is fetched and passed to {@link #update(Collection, Map)}, so
+   * a source root generated during the fetch is still found changed afterward.
+   */
+  public synchronized Map<File, String> stamp() {
+    Map<File, String> currentStamps = new HashMap<>();
+    for (File dir : stamps.keySet()) {
+      currentStamps.put(dir, getStamp(dir));
+    }
+    return currentStamps;
+  }
+
+  /**
+   * Record the state of the generated source roots of the given source sets.
+   *
+   * @param sourceSets the source sets which are stored.
+   * @param fetchStamps the stamps taken before the source sets were fetched, the
+   *     directories absent from them are stamped now. Can be <code>null</code>.
+   */
+  public synchronized void update(Collection<GradleSourceSet> sourceSets,
+      Map<File, String> fetchStamps) {
+    trackedDirs.clear();
+    scannedDirs.clear();
+    stamps.clear();
+    for (GradleSourceSet sourceSet : sourceSets) {
+      File projectDir = sourceSet.getProjectDir();
+      if (projectDir == null) {
+        continue;
+      }
+      Set<File> dirs = trackedDirs.computeIfAbsent(projectDir, k -> {
+        File generatedDir = new File(k, GENERATED_DIR);
+        scannedDirs.add(generatedDir);
+        Set<File> result = new HashSet<>();
+        result.add(generatedDir);
+        return result;
+      });
+      if (sourceSet.getGeneratedSourceDirs() != null) {
+        dirs.addAll(sourceSet.getGeneratedSourceDirs());
+      }
+    }
+    for (Set<File> dirs : trackedDirs.values()) {
+      for (File dir : dirs) {
+        String stamp = fetchStamps == null ? null : fetchStamps.get(dir);
+        stamps.put(dir, stamp == null ? getStamp(dir) : stamp);
+      }
+    }
+  }
+
+  /**
+   * Get the project paths of the given source sets whose generated source roots
+   * have been changed since the last update. Projects that are not tracked are
+   * always considered as changed.
+   */
+  public synchronized Set<String> getChangedProjectPaths(
+      Collection<GradleSourceSet> sourceSets) {
+    Set<String> changedProjectPaths = new HashSet<>();
+    for (GradleSourceSet sourceSet : sourceSets) {
+      if (sourceSet.getProjectPath() == null
+          || changedProjectPaths.contains(sourceSet.getProjectPath())) {
+        continue;
+      }
+      Set<File> dirs = trackedDirs.get(sourceSet.getProjectDir());
+      if (dirs == null || dirs.stream()
+          .anyMatch(dir -> !Objects.equals(stamps.get(dir), getStamp(dir)))) {
+        changedProjectPaths.add(sourceSet.getProjectPath());
+      }
+    }
+    return changedProjectPaths;
+  }
+
+  private String getStamp(File dir) {
+    if (!scannedDirs.contains(dir)) {
+      return dir.isDirectory() ? "+" : "-";
+    }
+    Set<String> scanned = new TreeSet<>();
+    collectDirectories(dir, "", 0, scanned);
+    return String.join("\n", scanned);
+  }
+
+  private void collectDirectories(File dir, String relativePath, int depth,
+      Set<String> result) {
+    if (depth >= MAX_DEPTH) {
+      return;
+    }
+    File[] children = dir.listFiles(File::isDirectory);
+    if (children == null) {
+      return;
+    }
+    for (File child : children) {
+      String childPath = relativePath + "/" + child.getName();
+      result.add(childPath);
+      collectDirectories(child, childPath, depth + 1, result);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.managers;
+
+import static com.microsoft.java.bs.core.Launcher.METRICS;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.microsoft.java.bs.gradle.model.Artifact;
+import com.microsoft.java.bs.gradle.model.GradleModuleDependency;
+
+/**
+ * Cache of the sources and javadoc artifacts that are resolved on demand,
+ * keyed by the module coordinates <code>group:module:version</code>.
+ *
+ * <p>The modules found without sources and javadoc are only remembered for the
+ * snapshot they were resolved with, so they are retried once the build targets
+ * are reloaded, e.g. after a repository is added to the build.
+ */
+public class ModuleArtifactsCache {
+
+  private Map<String, List<Artifact>> cache;
+
+  private Set<String> misses;
+
+  /**
+   * The snapshot of the build targets when the misses were resolved.
+   */
+  private BuildTargetSnapshot missesSnapshot;
+
+  /**
+   * Instantiates a {@link ModuleArtifactsCache}.
+   */
+  public ModuleArtifactsCache() {
+    this.cache = new ConcurrentHashMap<>();
+    this.misses = new HashSet<>();
+  }
+
+  /**
+   * Get the coordinates of the module dependency.
+   */
+  public static String getCoordinates(GradleModuleDependency dependency) {
+    return dependency.getGroup() + ":" + dependency.getModule() + ":"
+        + dependency.getVersion();
+  }
+
+  /**
+   * Get the cached artifacts of the module, an empty list is returned if the
+   * module is not resolved yet or it has no sources and javadoc.
+   */
+  public List<Artifact> getArtifacts(String coordinates) {
+    return cache.getOrDefault(coordinates, Collections.emptyList());
+  }
+
+  /**
+   * Get the coordinates that have not been resolved yet. The misses of an older
+   * snapshot are expired.
+   *
+   * @param coordinates the coordinates of the modules.
+   * @param snapshot the current snapshot of the build targets.
+   */
+  public synchronized Set<String> getUnresolvedCoordinates(Collection<String> coordinates,
+      BuildTargetSnapshot snapshot) {
+    if (missesSnapshot != snapshot) {
+      misses.clear();
+      missesSnapshot = snapshot;
+    }
+    Set<String> unresolved = new LinkedHashSet<>();
+    for (String coordinate : coordinates) {
+      if (!cache.containsKey(coordinate) && !misses.contains(coordinate)) {
+        unresolved.add(coordinate);
+      }
+    }
+    METRICS.add("cache.moduleArtifacts.hit", coordinates.size() - unresolved.size());
+    METRICS.add("cache.moduleArtifacts.miss", unresolved.size());
+    return unresolved;
+  }
+
+  /**
+   * Store the resolved artifacts. The requested modules that are absent from the
+   * resolved ones are recorded as misses of the given snapshot.
+   *
+   * @param requestedCoordinates the coordinates of the requested modules.
+   * @param resolved the resolved modules.
+   * @param snapshot the snapshot of the build targets the modules were requested for.
+   */
+  public synchronized void store(Collection<String> requestedCoordinates,
+      Collection<GradleModuleDependency> resolved, BuildTargetSnapshot snapshot) {
+    for (GradleModuleDependency dependency : resolved) {
+      cache.put(getCoordinates(dependency), dependency.getArtifacts());
+    }
+    if (missesSnapshot != snapshot) {
+      return;
+    }
+    for (String coordinate : requestedCoordinates) {
+      if (!cache.containsKey(coordinate)) {
+        misses.add(coordinate);
+      }
+    }
+  }
+}
@@ -0,0 +1,195 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.managers;
+
+import static com.microsoft.java.bs.core.Launcher.LOGGER;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.gson.Gson;
+import com.microsoft.java.bs.core.Constants;
+import com.microsoft.java.bs.gradle.model.GradleSourceSet;
+import com.microsoft.java.bs.gradle.model.GradleSourceSets;
+import com.microsoft.java.bs.gradle.model.utils.CompactSourceSetsCodec;
+
+/**
+ * Persist the Gradle source sets of a workspace on disk, so that the build targets
+ * can be restored without a Tooling API model build when the server starts again.
+ *
+ * <p>The snapshot is keyed by a fingerprint of the Gradle build scripts, the wrapper
+ * properties and the preferences. A snapshot whose fingerprint does not match the
+ * current workspace is considered as stale and will not be loaded.
+ */
+public class SnapshotManager {
+
+  /**
+   * Bump this version whenever the layout of the snapshot file changes.
+   */
+  private static final int FORMAT_VERSION = 6;
+
+  private static final String SNAPSHOT_DIR = ".gradle/bsp";
+
+  private static final String SNAPSHOT_FILE = "sourceSets.snapshot";
+
+  private PreferenceManager preferenceManager;
+
+  public SnapshotManager(PreferenceManager preferenceManager) {
+    this.preferenceManager = preferenceManager;
+  }
+
+  /**
+   * Load the snapshot of the workspace.
+   *
+   * @param rootUri uri of the workspace root.
+   * @return the persisted source sets, or <code>null</code> if the snapshot
+   *     does not exist or is stale.
+   */
+  public GradleSourceSets load(URI rootUri) {
+    File rootDir = new File(rootUri);
+    File snapshotFile = getSnapshotFile(rootDir);
+    if (!snapshotFile.isFile()) {
+      return null;
+    }
+
+    // the snapshot is a file in the workspace, it is decoded by the codec instead
+    // of the java serialization, so it cannot instantiate arbitrary classes.
+    try (DataInputStream in = new DataInputStream(new GZIPInputStream(
+        new BufferedInputStream(Files.newInputStream(snapshotFile.toPath()))))) {
+      if (in.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+      String fingerprint = in.readUTF();
+      int projectCount = in.readInt();
+      List<String> projectDirs = new ArrayList<>(projectCount);
+      for (int i = 0; i < projectCount; i++) {
+        projectDirs.add(in.readUTF());
+      }
+      if (!fingerprint.equals(computeFingerprint(rootDir, projectDirs))) {
+        LOGGER.info("The persisted snapshot of the workspace is stale.");
+        return null;
+      }
+      byte[] data = new byte[in.readInt()];
+      in.readFully(data);
+      return CompactSourceSetsCodec.decode(data);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warning("Failed to load the persisted snapshot of the workspace: "
+          + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Persist the source sets of the workspace. Failures are logged and ignored,
+   * since the snapshot is only used to speed up the next start of the server.
+   *
+   * @param rootUri uri of the workspace root.
+   * @param sourceSets the source sets to persist.
+   */
+  public void save(URI rootUri, GradleSourceSets sourceSets) {
+    File rootDir = new File(rootUri);
+    File snapshotFile = getSnapshotFile(rootDir);
+    List<String> projectDirs = getProjectDirs(sourceSets.getGradleSourceSets());
+    Path tempFile = null;
+    try {
+      Files.createDirectories(snapshotFile.getParentFile().toPath());
+      tempFile = Files.createTempFile(snapshotFile.getParentFile().toPath(),
+          SNAPSHOT_FILE, ".tmp");
+      byte[] data = CompactSourceSetsCodec.encode(sourceSets);
+      try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(tempFile))))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(computeFingerprint(rootDir, projectDirs));
+        out.writeInt(projectDirs.size());
+        for (String projectDir : projectDirs) {
+          out.writeUTF(projectDir);
+        }
+        out.writeInt(data.length);
+        out.write(data);
+      }
+      Files.move(tempFile, snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOGGER.warning("Failed to persist the snapshot of the workspace: " + e.getMessage());
+      if (tempFile != null) {
+        tempFile.toFile().delete();
+      }
+    }
+  }
+
+  /**
+   * Compute the fingerprint of the workspace from the given project directories.
+   */
+  String computeFingerprint(File rootDir, Collection<String> projectDirs) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    update(digest, Constants.SERVER_VERSION);
+    update(digest, new Gson().toJson(preferenceManager.getPreferences()));
+    update(digest, String.join(",", preferenceManager.getClientSupportedLanguages()));
+    for (String rootFile : BuildScriptTracker.ROOT_FILES) {
+      updateFile(digest, new File(rootDir, rootFile));
+    }
+    for (String projectDir : projectDirs) {
+      for (String projectFile : BuildScriptTracker.PROJECT_FILES) {
+        updateFile(digest, new File(projectDir, projectFile));
+      }
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (byte b : digest.digest()) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+
+  private void updateFile(MessageDigest digest, File file) throws IOException {
+    update(digest, file.getAbsolutePath());
+    if (file.isFile()) {
+      digest.update(Files.readAllBytes(file.toPath()));
+    } else {
+      update(digest, "<missing>");
+    }
+  }
+
+  private void update(MessageDigest digest, String value) {
+    digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  private List<String> getProjectDirs(List<GradleSourceSet> sourceSets) {
+    TreeSet<String> projectDirs = new TreeSet<>();
+    for (GradleSourceSet sourceSet : sourceSets) {
+      if (sourceSet.getProjectDir() != null) {
+        projectDirs.add(sourceSet.getProjectDir().getAbsolutePath());
+      }
+    }
+    return new ArrayList<>(projectDirs);
+  }
+
+  private File getSnapshotFile(File rootDir) {
+    return new File(new File(rootDir, SNAPSHOT_DIR), SNAPSHOT_FILE);
+  }
+}
@@ -0,0 +1,189 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.managers;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.microsoft.java.bs.core.internal.model.GradleBuildTarget;
+import com.microsoft.java.bs.gradle.model.GradleSourceSet;
+
+import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+
+/**
+ * An immutable index of the source, generated source and resource roots of the
+ * build targets, which finds the build targets of a file by its nearest root.
+ *
+ * <p>The roots are stored in a trie keyed by the path elements, so a lookup walks
+ * the path of the file once, whatever the number of roots. An {@link #update} copies
+ * only the nodes on the paths of the changed roots, the other nodes are shared with
+ * the previous index.
+ */
+public final class SourceRootIndex {
+
+  public static final SourceRootIndex EMPTY = new SourceRootIndex(new Node(null));
+
+  private final Node root;
+
+  private SourceRootIndex(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * Get the build targets of the nearest root containing the given file, or an
+   * empty list if the file is not in any root.
+   */
+  public List<BuildTargetIdentifier> getBuildTargets(File file) {
+    List<BuildTargetIdentifier> targets = Collections.emptyList();
+    Node node = root;
+    for (Path key : getKeys(file)) {
+      node = node.children.get(key);
+      if (node == null) {
+        break;
+      }
+      if (!node.targets.isEmpty()) {
+        targets = node.targets;
+      }
+    }
+    return Collections.unmodifiableList(targets);
+  }
+
+  /**
+   * Create a new index with the roots of the removed build targets removed and
+   * the roots of the added ones added. This index is not modified.
+   */
+  public SourceRootIndex update(Collection<GradleBuildTarget> removed,
+      Collection<GradleBuildTarget> added) {
+    if (removed.isEmpty() && added.isEmpty()) {
+      return this;
+    }
+    // the nodes owned by this token are new, so they can be modified until
+    // the new index is returned.
+    Object owner = new Object();
+    Node newRoot = root.editable(owner);
+    for (GradleBuildTarget target : removed) {
+      BuildTargetIdentifier btId = target.getBuildTarget().getId();
+      for (File dir : getRoots(target.getSourceSet())) {
+        remove(newRoot, getKeys(dir), btId, owner);
+      }
+    }
+    for (GradleBuildTarget target : added) {
+      BuildTargetIdentifier btId = target.getBuildTarget().getId();
+      for (File dir : getRoots(target.getSourceSet())) {
+        Node node = newRoot;
+        for (Path key : getKeys(dir)) {
+          node = node.editableChild(key, owner);
+        }
+        if (!node.targets.contains(btId)) {
+          node.targets.add(btId);
+        }
+      }
+    }
+    return new SourceRootIndex(newRoot);
+  }
+
+  private void remove(Node newRoot, List<Path> keys, BuildTargetIdentifier btId,
+      Object owner) {
+    List<Node> parents = new ArrayList<>(keys.size());
+    Node node = newRoot;
+    for (Path key : keys) {
+      if (!node.children.containsKey(key)) {
+        return;
+      }
+      parents.add(node);
+      node = node.editableChild(key, owner);
+    }
+    node.targets.remove(btId);
+    // prune the nodes left without any root.
+    for (int i = keys.size() - 1; i >= 0; i--) {
+      if (!node.targets.isEmpty() || !node.children.isEmpty()) {
+        return;
+      }
+      node = parents.get(i);
+      node.children.remove(keys.get(i));
+    }
+  }
+
+  private static Set<File> getRoots(GradleSourceSet sourceSet) {
+    Set<File> roots = new LinkedHashSet<>();
+    addAll(roots, sourceSet.getSourceDirs());
+    addAll(roots, sourceSet.getGeneratedSourceDirs());
+    addAll(roots, sourceSet.getResourceDirs());
+    return roots;
+  }
+
+  private static void addAll(Set<File> roots, Collection<File> dirs) {
+    if (dirs != null) {
+      roots.addAll(dirs);
+    }
+  }
+
+  /**
+   * Get the keys of a file in the trie, which are the root component and the
+   * name elements of its normalized absolute path. They are compared as paths,
+   * so they are case-insensitive on Windows, e.g. the drive letter of
+   * <code>c:\</code> sent by the client matches <code>C:\</code> of Gradle.
+   */
+  private static List<Path> getKeys(File file) {
+    Path path = file.toPath().toAbsolutePath().normalize();
+    List<Path> keys = new ArrayList<>(path.getNameCount() + 1);
+    if (path.getRoot() != null) {
+      keys.add(path.getRoot());
+    }
+    for (Path name : path) {
+      keys.add(name);
+    }
+    return keys;
+  }
+
+  private static final class Node {
+
+    private final Object owner;
+
+    private final Map<Path, Node> children;
+
+    private final List<BuildTargetIdentifier> targets;
+
+    Node(Object owner) {
+      this(owner, new HashMap<>(), new ArrayList<>(1));
+    }
+
+    private Node(Object owner, Map<Path, Node> children,
+        List<BuildTargetIdentifier> targets) {
+      this.owner = owner;
+      this.children = children;
+      this.targets = targets;
+    }
+
+    /**
+     * Get this node if it is owned by the given token, otherwise a copy of it.
+     */
+    Node editable(Object newOwner) {
+      if (owner == newOwner) {
+        return this;
+      }
+      return new Node(newOwner, new HashMap<>(children), new ArrayList<>(targets));
+    }
+
+    /**
+     * Get the editable child of the given key, which is created if it is absent.
+     */
+    Node editableChild(Path key, Object newOwner) {
+      Node child = children.get(key);
+      Node editable = child == null ? new Node(newOwner) : child.editable(newOwner);
+      if (editable != child) {
+        children.put(key, editable);
+      }
+      return editable;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.managers;
+
+import static com.microsoft.java.bs.core.Launcher.LOGGER;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.microsoft.java.bs.core.internal.model.BuildTimingReport;
+
+/**
+ * Keeps the timing reports of the latest Gradle operations, and writes each of
+ * them as a JSON file to the <code>build/bsp-timing</code> directory of the
+ * Gradle build. Only the latest {@link #MAX_REPORTS} reports are kept, both in
+ * memory and on disk.
+ *
+ * <p>The files are written in background one after another, so the requests
+ * running the Gradle operations do not wait for the disk.
+ */
+public class TimingReportManager {
+
+  static final int MAX_REPORTS = 20;
+
+  private static final String REPORT_DIR = "build/bsp-timing";
+
+  private static final String REPORT_PREFIX = "timing-";
+
+  private static final String REPORT_SUFFIX = ".json";
+
+  private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+  private final Deque<BuildTimingReport> reports = new ArrayDeque<>();
+
+  private final Executor writer;
+
+  /**
+   * Instantiates a {@link TimingReportManager}.
+   */
+  public TimingReportManager() {
+    this(Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "bsp-timing-report-writer");
+      thread.setDaemon(true);
+      return thread;
+    }));
+  }
+
+  /**
+   * Instantiates a {@link TimingReportManager} writing the reports with the given
+   * executor, which must run them in the submission order.
+   */
+  TimingReportManager(Executor writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * Keep the report of a finished operation and write it to disk in background.
+   * Failures to write the report are logged and ignored.
+   */
+  public void record(BuildTimingReport report) {
+    synchronized (reports) {
+      reports.addLast(report);
+      if (reports.size() > MAX_REPORTS) {
+        reports.removeFirst();
+      }
+    }
+    writer.execute(() -> write(report));
+  }
+
+  /**
+   * Get the latest reports, the newest first.
+   *
+   * @param count the max number of the reports to return.
+   */
+  public List<BuildTimingReport> getReports(int count) {
+    List<BuildTimingReport> result = new ArrayList<>();
+    synchronized (reports) {
+      Iterator<BuildTimingReport> iterator = reports.descendingIterator();
+      while (iterator.hasNext() && result.size() < count) {
+        result.add(iterator.next());
+      }
+    }
+    return result;
+  }
+
+  private void write(BuildTimingReport report) {
+    File reportDir = new File(report.getRootDir(), REPORT_DIR);
+    String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS")
+        .format(new Date(report.getStartTime()));
+    Path reportFile = reportDir.toPath().resolve(REPORT_PREFIX + timestamp + "-"
+        + report.getOperation() + REPORT_SUFFIX);
+    try {
+      Files.createDirectories(reportDir.toPath());
+      try (Writer writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+        gson.toJson(report, writer);
+      }
+      deleteOldReports(reportDir);
+    } catch (IOException e) {
+      LOGGER.warning("Failed to write the timing report to " + reportFile + ": "
+          + e.getMessage());
+    }
+  }
+
+  private void deleteOldReports(File reportDir) throws IOException {
+    File[] files = reportDir.listFiles((dir, name) -> name.startsWith(REPORT_PREFIX)
+        && name.endsWith(REPORT_SUFFIX));
+    if (files == null || files.length <= MAX_REPORTS) {
+      return;
+    }
+    // the timestamp in the file names keeps them in chronological order.
+    Arrays.sort(files);
+    for (int i = 0; i < files.length - MAX_REPORTS; i++) {
+      Files.deleteIfExists(files[i].toPath());
+    }
+  }
+}
@@ -0,0 +1,129 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative values, e.g. latencies in milliseconds or
+ * sizes in bytes. The values are counted in buckets of a 1-2-5 series, so the
+ * percentiles are estimated by the upper bound of the bucket they fall in.
+ */
+public class Histogram {
+
+  /**
+   * The upper bounds (inclusive) of the buckets, the values larger than the last
+   * bound are counted in an extra overflow bucket.
+   */
+  static final long[] BOUNDS = createBounds();
+
+  private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+
+  private final LongAdder count = new LongAdder();
+
+  private final LongAdder sum = new LongAdder();
+
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+  /**
+   * Instantiates a {@link Histogram}.
+   */
+  public Histogram() {
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Record a value, negative values are recorded as 0.
+   */
+  public void record(long value) {
+    long v = Math.max(value, 0L);
+    buckets[getBucketIndex(v)].increment();
+    count.increment();
+    sum.add(v);
+    max.accumulate(v);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getSum() {
+    return sum.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Get the counts of the buckets, the last one is the overflow bucket.
+   */
+  public long[] getBucketCounts() {
+    long[] counts = new long[buckets.length];
+    for (int i = 0; i < buckets.length; i++) {
+      counts[i] = buckets[i].sum();
+    }
+    return counts;
+  }
+
+  /**
+   * Estimate the value at the given percentile.
+   *
+   * @param percentile the percentile between 0 and 1, e.g. 0.99.
+   * @return the upper bound of the bucket of the percentile, which is never larger
+   *     than the max recorded value. 0 is returned if nothing is recorded.
+   */
+  public long getPercentile(double percentile) {
+    long[] counts = getBucketCounts();
+    long total = 0;
+    for (long c : counts) {
+      total += c;
+    }
+    if (total == 0) {
+      return 0L;
+    }
+    long rank = Math.max(1L, (long) Math.ceil(percentile * total));
+    long seen = 0;
+    long maxValue = getMax();
+    for (int i = 0; i < BOUNDS.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(BOUNDS[i], maxValue);
+      }
+    }
+    return maxValue;
+  }
+
+  static int getBucketIndex(long value) {
+    int low = 0;
+    int high = BOUNDS.length;
+    // find the first bound which is not less than the value.
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (BOUNDS[mid] < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static long[] createBounds() {
+    // 0, 1, 2, 5, 10, 20, 50, ... 5 * 10^9.
+    long[] bounds = new long[31];
+    long scale = 1;
+    bounds[0] = 0;
+    for (int i = 1; i < bounds.length; i += 3) {
+      bounds[i] = scale;
+      bounds[i + 1] = 2 * scale;
+      bounds[i + 2] = 5 * scale;
+      scale *= 10;
+    }
+    return bounds;
+  }
+}
@@ -0,0 +1,136 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.metrics;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.lsp4j.jsonrpc.MessageConsumer;
+import org.eclipse.lsp4j.jsonrpc.json.StreamMessageConsumer;
+
+/**
+ * Records the sizes of the JSON-RPC messages, including the headers, by counting
+ * the bytes read from and written to the streams of the connection between two
+ * messages. It does not serialize the messages again.
+ */
+public class MessageSizeRecorder {
+
+  static final String INCOMING = "bsp.payload.in";
+
+  static final String OUTGOING = "bsp.payload.out";
+
+  private final MetricsRegistry registry;
+
+  private final CountingInputStream input;
+
+  private final CountingOutputStream output;
+
+  /**
+   * The number of bytes read when the last incoming message was consumed.
+   */
+  private long lastInputCount;
+
+  /**
+   * Instantiates a {@link MessageSizeRecorder}.
+   *
+   * @param registry the registry to record the sizes to.
+   * @param input the input stream of the connection.
+   * @param output the output stream of the connection.
+   */
+  public MessageSizeRecorder(MetricsRegistry registry, InputStream input, OutputStream output) {
+    this.registry = registry;
+    this.input = new CountingInputStream(input);
+    this.output = new CountingOutputStream(output);
+  }
+
+  public InputStream getInput() {
+    return input;
+  }
+
+  public OutputStream getOutput() {
+    return output;
+  }
+
+  /**
+   * Wrap a message consumer of the launcher. The consumer writing to the output
+   * stream handles the outgoing messages, the other one the incoming messages.
+   */
+  public MessageConsumer wrap(MessageConsumer consumer) {
+    if (consumer instanceof StreamMessageConsumer) {
+      return message -> {
+        // the messages are written one by one, so the bytes written by the
+        // consumer belong to this message.
+        synchronized (output) {
+          long before = output.count.get();
+          consumer.consume(message);
+          registry.record(OUTGOING, output.count.get() - before);
+        }
+      };
+    }
+    return message -> {
+      // the incoming messages are read and consumed one by one on the same thread.
+      long count = input.count.get();
+      registry.record(INCOMING, count - lastInputCount);
+      lastInputCount = count;
+      consumer.consume(message);
+    };
+  }
+
+  private static class CountingInputStream extends FilterInputStream {
+    private final AtomicLong count = new AtomicLong();
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count.incrementAndGet();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) {
+        count.addAndGet(n);
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      count.addAndGet(skipped);
+      return skipped;
+    }
+  }
+
+  private static class CountingOutputStream extends FilterOutputStream {
+    private final AtomicLong count = new AtomicLong();
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count.incrementAndGet();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count.addAndGet(len);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.microsoft.java.bs.core.internal.model.MetricsResult;
+import com.microsoft.java.bs.core.internal.model.MetricsResult.HistogramSummary;
+
+/**
+ * An in-process registry of the counters, gauges and histograms of the server,
+ * which are aggregated over the whole session. Recording is lock-free, so it can
+ * be called on the hot paths.
+ */
+public class MetricsRegistry {
+
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+  private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+  private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+  private final long startTime = System.currentTimeMillis();
+
+  /**
+   * Increment the counter of the given name.
+   */
+  public void increment(String name) {
+    add(name, 1L);
+  }
+
+  /**
+   * Add the delta to the counter of the given name.
+   */
+  public void add(String name, long delta) {
+    counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+  }
+
+  /**
+   * Record a value to the histogram of the given name.
+   */
+  public void record(String name, long value) {
+    getHistogram(name).record(value);
+  }
+
+  /**
+   * Register a gauge whose value is read when the metrics are requested. It
+   * replaces the gauge registered with the same name.
+   */
+  public void registerGauge(String name, LongSupplier gauge) {
+    gauges.put(name, gauge);
+  }
+
+  public long getCounter(String name) {
+    LongAdder counter = counters.get(name);
+    return counter == null ? 0L : counter.sum();
+  }
+
+  public Histogram getHistogram(String name) {
+    return histograms.computeIfAbsent(name, k -> new Histogram());
+  }
+
+  /**
+   * Get a snapshot of all the metrics, sorted by name.
+   */
+  public MetricsResult getSnapshot() {
+    Map<String, Long> counterValues = new TreeMap<>();
+    counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+    gauges.forEach((name, gauge) -> counterValues.put(name, gauge.getAsLong()));
+    Map<String, HistogramSummary> summaries = new TreeMap<>();
+    histograms.forEach((name, histogram) -> summaries.put(name, new HistogramSummary(
+        histogram.getCount(), histogram.getSum(), histogram.getMax(),
+        histogram.getPercentile(0.5), histogram.getPercentile(0.9),
+        histogram.getPercentile(0.99))));
+    return new MetricsResult(System.currentTimeMillis() - startTime, counterValues,
+        summaries);
+  }
+
+  /**
+   * Dump the metrics in the Prometheus text exposition format.
+   */
+  public String toPrometheusText() {
+    StringBuilder sb = new StringBuilder();
+    new TreeMap<>(counters).forEach((name, counter) -> {
+      String metric = toMetricName(name) + "_total";
+      sb.append("# TYPE ").append(metric).append(" counter\n");
+      sb.append(metric).append(' ').append(counter.sum()).append('\n');
+    });
+    new TreeMap<>(gauges).forEach((name, gauge) -> {
+      String metric = toMetricName(name);
+      sb.append("# TYPE ").append(metric).append(" gauge\n");
+      sb.append(metric).append(' ').append(gauge.getAsLong()).append('\n');
+    });
+    new TreeMap<>(histograms).forEach((name, histogram) -> {
+      String metric = toMetricName(name);
+      sb.append("# TYPE ").append(metric).append(" histogram\n");
+      long[] counts = histogram.getBucketCounts();
+      long cumulative = 0;
+      for (int i = 0; i < Histogram.BOUNDS.length; i++) {
+        cumulative += counts[i];
+        sb.append(metric).append("_bucket{le=\"").append(Histogram.BOUNDS[i]).append("\"} ")
+            .append(cumulative).append('\n');
+      }
+      cumulative += counts[counts.length - 1];
+      sb.append(metric).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+      sb.append(metric).append("_sum ").append(histogram.getSum()).append('\n');
+      sb.append(metric).append("_count ").append(cumulative).append('\n');
+    });
+    return sb.toString();
+  }
+
+  private static String toMetricName(String name) {
+    return "bsp_" + name.replaceAll("[^a-zA-Z0-9_]", "_");
+  }
+}
@@ -0,0 +1,56 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the metrics in the Prometheus text format at
+ * <code>http://127.0.0.1:&lt;port&gt;/metrics</code>. It only listens on the
+ * loopback address.
+ */
+public class PrometheusExporter {
+
+  private final HttpServer server;
+
+  /**
+   * Instantiates a {@link PrometheusExporter}, which is not started yet.
+   *
+   * @param registry the metrics to serve.
+   * @param port the local port, 0 to pick a free one.
+   */
+  public PrometheusExporter(MetricsRegistry registry, int port) throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+        0);
+    server.createContext("/metrics", exchange -> respond(exchange, registry));
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  public void stop() {
+    server.stop(0);
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  private void respond(HttpExchange exchange, MetricsRegistry registry) throws IOException {
+    byte[] body = registry.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+}
@@ -0,0 +1,216 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The timing report of a Gradle operation, e.g. running the tasks or fetching the
+ * models, which tells where the time went. All the times are in milliseconds.
+ */
+public class BuildTimingReport {
+
+  private String operation;
+
+  private String rootDir;
+
+  private List<String> tasks;
+
+  private long startTime;
+
+  private long duration;
+
+  private String status;
+
+  private long configurationTime;
+
+  private long taskTime;
+
+  private long dependencyResolutionTime;
+
+  private long downloadTime;
+
+  private long downloadedBytes;
+
+  private List<Timing> projects = new ArrayList<>();
+
+  private List<TaskTiming> taskTimings = new ArrayList<>();
+
+  private List<Timing> dependencyResolutions = new ArrayList<>();
+
+  private List<DownloadTiming> downloads = new ArrayList<>();
+
+  /**
+   * Instantiates a {@link BuildTimingReport}.
+   *
+   * @param operation the name of the operation.
+   * @param rootDir the root directory of the Gradle build.
+   * @param tasks the requested tasks, empty if the operation fetches a model.
+   * @param startTime the time the operation was started.
+   */
+  public BuildTimingReport(String operation, String rootDir, List<String> tasks,
+      long startTime) {
+    this.operation = operation;
+    this.rootDir = rootDir;
+    this.tasks = tasks;
+    this.startTime = startTime;
+  }
+
+  public String getOperation() {
+    return operation;
+  }
+
+  public String getRootDir() {
+    return rootDir;
+  }
+
+  public List<String> getTasks() {
+    return tasks;
+  }
+
+  public long getStartTime() {
+    return startTime;
+  }
+
+  public long getDuration() {
+    return duration;
+  }
+
+  public void setDuration(long duration) {
+    this.duration = duration;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public void setStatus(String status) {
+    this.status = status;
+  }
+
+  public long getConfigurationTime() {
+    return configurationTime;
+  }
+
+  public long getTaskTime() {
+    return taskTime;
+  }
+
+  public long getDependencyResolutionTime() {
+    return dependencyResolutionTime;
+  }
+
+  public long getDownloadTime() {
+    return downloadTime;
+  }
+
+  public long getDownloadedBytes() {
+    return downloadedBytes;
+  }
+
+  public List<Timing> getProjects() {
+    return projects;
+  }
+
+  public List<TaskTiming> getTaskTimings() {
+    return taskTimings;
+  }
+
+  public List<Timing> getDependencyResolutions() {
+    return dependencyResolutions;
+  }
+
+  public List<DownloadTiming> getDownloads() {
+    return downloads;
+  }
+
+  /**
+   * Add the configuration time of a project.
+   */
+  public void addProject(String projectPath, long duration) {
+    projects.add(new Timing(projectPath, duration));
+    configurationTime += duration;
+  }
+
+  /**
+   * Add the execution time of a task.
+   */
+  public void addTask(String taskPath, long duration, String outcome) {
+    taskTimings.add(new TaskTiming(taskPath, duration, outcome));
+    taskTime += duration;
+  }
+
+  /**
+   * Add the time of a dependency resolution.
+   */
+  public void addDependencyResolution(String name, long duration) {
+    dependencyResolutions.add(new Timing(name, duration));
+    dependencyResolutionTime += duration;
+  }
+
+  /**
+   * Add the time of a file download.
+   */
+  public void addDownload(String uri, long duration, long bytes) {
+    downloads.add(new DownloadTiming(uri, duration, bytes));
+    downloadTime += duration;
+    downloadedBytes += bytes;
+  }
+
+  /**
+   * The time spent on a named item.
+   */
+  public static class Timing {
+    private String name;
+    private long duration;
+
+    public Timing(String name, long duration) {
+      this.name = name;
+      this.duration = duration;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getDuration() {
+      return duration;
+    }
+  }
+
+  /**
+   * The execution time and the outcome of a task, the outcome is one of
+   * <code>SUCCESS</code>, <code>FAILED</code>, <code>UP-TO-DATE</code>,
+   * <code>FROM-CACHE</code> or the skip message, e.g. <code>NO-SOURCE</code>.
+   */
+  public static class TaskTiming extends Timing {
+    private String outcome;
+
+    public TaskTiming(String name, long duration, String outcome) {
+      super(name, duration);
+      this.outcome = outcome;
+    }
+
+    public String getOutcome() {
+      return outcome;
+    }
+  }
+
+  /**
+   * The time and the size of a file download.
+   */
+  public static class DownloadTiming extends Timing {
+    private long bytes;
+
+    public DownloadTiming(String name, long duration, long bytes) {
+      super(name, duration);
+      this.bytes = bytes;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+  }
+}
@@ -3,9 +3,15 @@
 
 package com.microsoft.java.bs.core.internal.model;
 
+import static com.microsoft.java.bs.core.Launcher.METRICS;
+
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import com.microsoft.java.bs.gradle.model.GradleSourceSet;
+import com.microsoft.java.bs.gradle.model.impl.DefaultJavaExtension;
 
 import ch.epfl.scala.bsp4j.BuildTarget;
 
@@ -14,14 +20,37 @@ import ch.epfl.scala.bsp4j.BuildTarget;
  */
 public class GradleBuildTarget {
   public GradleBuildTarget(BuildTarget buildTarget, GradleSourceSet sourceSet) {
+    this(buildTarget, sourceSet, null);
+  }
+
+  /**
+   * Instantiates a new Gradle build target with the java extension decoded
+   * from the source set.
+   */
+  public GradleBuildTarget(BuildTarget buildTarget, GradleSourceSet sourceSet,
+      DefaultJavaExtension javaExtension) {
     this.buildTarget = buildTarget;
     this.sourceSet = sourceSet;
+    this.javaExtension = javaExtension;
   }
 
   private BuildTarget buildTarget;
 
   private GradleSourceSet sourceSet;
 
+  /**
+   * The java extension of the source set, <code>null</code> if the source set
+   * has no java extension.
+   */
+  private DefaultJavaExtension javaExtension;
+
+  /**
+   * The BSP response items of this build target, keyed by the item type and kind. They are
+   * built lazily on the first request, and dropped together with this object when
+   * the source set is changed.
+   */
+  private final Map<String, Object> responseItems = new ConcurrentHashMap<>();
+
   public BuildTarget getBuildTarget() {
     return buildTarget;
   }
@@ -38,6 +67,45 @@ public class GradleBuildTarget {
     this.sourceSet = sourceSet;
   }
 
+  public DefaultJavaExtension getJavaExtension() {
+    return javaExtension;
+  }
+
+  public void setJavaExtension(DefaultJavaExtension javaExtension) {
+    this.javaExtension = javaExtension;
+  }
+
+  /**
+   * Get the cached response item of the given type, build it if it is not cached.
+   */
+  public <T> T getResponseItem(Class<T> type, Supplier<T> creator) {
+    return getResponseItem(type, null, creator);
+  }
+
+  /**
+   * Get the cached response item of the given type and kind, build it if it is not
+   * cached. The kind tells apart the items of the same type answering different
+   * requests, e.g. the run and the test environments.
+   */
+  public <T> T getResponseItem(Class<T> type, String kind, Supplier<T> creator) {
+    String cacheKey = kind == null ? type.getName() : type.getName() + "#" + kind;
+    Object item = responseItems.get(cacheKey);
+    if (item != null) {
+      METRICS.increment("cache.responseItem.hit");
+      return type.cast(item);
+    }
+    METRICS.increment("cache.responseItem.miss");
+    return type.cast(responseItems.computeIfAbsent(cacheKey, key -> creator.get()));
+  }
+
+  /**
+   * Reuse the cached response items of the given build target, which has the
+   * same source set as this one.
+   */
+  public void reuseResponseItems(GradleBuildTarget other) {
+    responseItems.putAll(other.responseItems);
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(buildTarget, sourceSet);
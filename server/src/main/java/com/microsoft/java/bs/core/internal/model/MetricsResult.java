@@ -0,0 +1,93 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.model;
+
+import java.util.Map;
+
+/**
+ * The result of the 'buildServer/metrics' request. The latencies are in
+ * milliseconds and the payload sizes are in bytes.
+ */
+public class MetricsResult {
+
+  private long uptime;
+
+  private Map<String, Long> counters;
+
+  private Map<String, HistogramSummary> histograms;
+
+  /**
+   * Instantiates a {@link MetricsResult}.
+   *
+   * @param uptime the time in milliseconds since the metrics are collected.
+   * @param counters the counters and gauges by name.
+   * @param histograms the summaries of the histograms by name.
+   */
+  public MetricsResult(long uptime, Map<String, Long> counters,
+      Map<String, HistogramSummary> histograms) {
+    this.uptime = uptime;
+    this.counters = counters;
+    this.histograms = histograms;
+  }
+
+  public long getUptime() {
+    return uptime;
+  }
+
+  public Map<String, Long> getCounters() {
+    return counters;
+  }
+
+  public Map<String, HistogramSummary> getHistograms() {
+    return histograms;
+  }
+
+  /**
+   * The summary of a histogram, the percentiles are estimated.
+   */
+  public static class HistogramSummary {
+    private long count;
+    private long sum;
+    private long max;
+    private long p50;
+    private long p90;
+    private long p99;
+
+    /**
+     * Instantiates a {@link HistogramSummary}.
+     */
+    public HistogramSummary(long count, long sum, long max, long p50, long p90, long p99) {
+      this.count = count;
+      this.sum = sum;
+      this.max = max;
+      this.p50 = p50;
+      this.p90 = p90;
+      this.p99 = p99;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getSum() {
+      return sum;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    public long getP50() {
+      return p50;
+    }
+
+    public long getP90() {
+      return p90;
+    }
+
+    public long getP99() {
+      return p99;
+    }
+  }
+}
@@ -57,6 +57,39 @@ public class Preferences {
    */
   private Map<String, String> jdks;
 
+  /**
+   * The time in milliseconds to wait after a compilation before refetching
+   * the build targets. Refetch requests that arrive within this window are
+   * coalesced into one.
+   */
+  private long refetchDebounce;
+
+  /**
+   * Whether to skip the sources and javadoc artifacts when importing the build,
+   * and resolve them when the dependency modules are requested.
+   */
+  private boolean lazySourcesAndJavadoc;
+
+  /**
+   * The maximum number of Gradle builds of different root directories that run
+   * in parallel for one request. The builds run one after another if it is 1.
+   */
+  private int maxConcurrentBuilds;
+
+  /**
+   * Whether the timing reports include the dependency resolution time. It listens
+   * to all the build operations of Gradle, which slows down large builds.
+   */
+  private boolean detailedTimingReport;
+
+  /**
+   * Whether <code>buildTarget/run</code> launches the JVM from the cached runtime
+   * classpath without building the target with Gradle first. The output directories
+   * are packed into jars to share the class data archive of the main class among
+   * the runs, so the resources are loaded from the jars.
+   */
+  private boolean directRun;
+
   /**
    * Initialize the preferences.
    */
@@ -65,6 +98,8 @@ public class Preferences {
     gradleArguments = Collections.emptyList();
     gradleJvmArguments = Collections.emptyList();
     jdks = Collections.emptyMap();
+    refetchDebounce = 500L;
+    maxConcurrentBuilds = 1;
   }
 
   public String getGradleJavaHome() {
@@ -130,4 +165,44 @@ public class Preferences {
   public void setJdks(Map<String, String> jdks) {
     this.jdks = jdks;
   }
+
+  public long getRefetchDebounce() {
+    return refetchDebounce;
+  }
+
+  public void setRefetchDebounce(long refetchDebounce) {
+    this.refetchDebounce = refetchDebounce;
+  }
+
+  public boolean isLazySourcesAndJavadoc() {
+    return lazySourcesAndJavadoc;
+  }
+
+  public void setLazySourcesAndJavadoc(boolean lazySourcesAndJavadoc) {
+    this.lazySourcesAndJavadoc = lazySourcesAndJavadoc;
+  }
+
+  public int getMaxConcurrentBuilds() {
+    return maxConcurrentBuilds;
+  }
+
+  public void setMaxConcurrentBuilds(int maxConcurrentBuilds) {
+    this.maxConcurrentBuilds = maxConcurrentBuilds;
+  }
+
+  public boolean isDetailedTimingReport() {
+    return detailedTimingReport;
+  }
+
+  public void setDetailedTimingReport(boolean detailedTimingReport) {
+    this.detailedTimingReport = detailedTimingReport;
+  }
+
+  public boolean isDirectRun() {
+    return directRun;
+  }
+
+  public void setDirectRun(boolean directRun) {
+    this.directRun = directRun;
+  }
 }
@@ -0,0 +1,24 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.model;
+
+/**
+ * The parameters of the 'buildServer/timingReports' request.
+ */
+public class TimingReportsParams {
+
+  /**
+   * The max number of the reports to return. All the kept reports are returned
+   * if it is <code>null</code>.
+   */
+  private Integer count;
+
+  public Integer getCount() {
+    return count;
+  }
+
+  public void setCount(Integer count) {
+    this.count = count;
+  }
+}
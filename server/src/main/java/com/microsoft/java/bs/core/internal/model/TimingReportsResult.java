@@ -0,0 +1,22 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.model;
+
+import java.util.List;
+
+/**
+ * The result of the 'buildServer/timingReports' request.
+ */
+public class TimingReportsResult {
+
+  private List<BuildTimingReport> reports;
+
+  public TimingReportsResult(List<BuildTimingReport> reports) {
+    this.reports = reports;
+  }
+
+  public List<BuildTimingReport> getReports() {
+    return reports;
+  }
+}
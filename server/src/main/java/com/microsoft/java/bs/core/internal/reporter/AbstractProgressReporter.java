@@ -0,0 +1,92 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.microsoft.java.bs.core.Launcher;
+
+import ch.epfl.scala.bsp4j.BuildClient;
+import ch.epfl.scala.bsp4j.StatusCode;
+import ch.epfl.scala.bsp4j.TaskFinishParams;
+import ch.epfl.scala.bsp4j.TaskId;
+import ch.epfl.scala.bsp4j.TaskProgressParams;
+import ch.epfl.scala.bsp4j.TaskStartParams;
+
+/**
+ * The base class of the {@link ProgressReporter}s, which reports the progress and
+ * the subtasks of a BSP task.
+ */
+public abstract class AbstractProgressReporter implements ProgressReporter {
+
+  protected final TaskId taskId;
+
+  protected BuildClient client;
+
+  private final Map<String, TaskId> subtaskIds = new ConcurrentHashMap<>();
+
+  protected AbstractProgressReporter(TaskId taskId) {
+    this.taskId = taskId;
+    this.client = Launcher.client;
+  }
+
+  @Override
+  public void taskInProgress(String message) {
+    TaskProgressParams progressParam = new TaskProgressParams(taskId);
+    progressParam.setMessage(message);
+    notifyProgress(progressParam);
+  }
+
+  @Override
+  public void taskInProgress(String message, long progress, long total, String unit) {
+    TaskProgressParams progressParam = new TaskProgressParams(taskId);
+    progressParam.setMessage(message);
+    progressParam.setProgress(progress);
+    if (total > 0) {
+      progressParam.setTotal(total);
+    }
+    progressParam.setUnit(unit);
+    notifyProgress(progressParam);
+  }
+
+  @Override
+  public void subtaskStarted(String name, String message, long eventTime) {
+    TaskId subtaskId = new TaskId(UUID.randomUUID().toString());
+    subtaskId.setParents(Collections.singletonList(taskId.getId()));
+    subtaskIds.put(name, subtaskId);
+    TaskStartParams startParam = new TaskStartParams(subtaskId);
+    startParam.setMessage(message);
+    startParam.setEventTime(eventTime);
+    BuildClient buildClient = client;
+    if (buildClient != null) {
+      buildClient.onBuildTaskStart(startParam);
+    }
+  }
+
+  @Override
+  public void subtaskFinished(String name, String message, StatusCode statusCode,
+      long eventTime) {
+    TaskId subtaskId = subtaskIds.remove(name);
+    if (subtaskId == null) {
+      return;
+    }
+    TaskFinishParams endParam = new TaskFinishParams(subtaskId, statusCode);
+    endParam.setMessage(message);
+    endParam.setEventTime(eventTime);
+    BuildClient buildClient = client;
+    if (buildClient != null) {
+      buildClient.onBuildTaskFinish(endParam);
+    }
+  }
+
+  private void notifyProgress(TaskProgressParams progressParam) {
+    BuildClient buildClient = client;
+    if (buildClient != null) {
+      buildClient.onBuildTaskProgress(progressParam);
+    }
+  }
+}
@@ -0,0 +1,23 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+/**
+ * Listens to the output of a Gradle build, line by line.
+ */
+public interface BuildOutputListener {
+
+  /**
+   * Called for each line of the output, without the line terminator.
+   *
+   * @param line the line of the output.
+   */
+  void onOutputLine(String line);
+
+  /**
+   * Called when the output is closed.
+   */
+  default void onOutputClosed() {
+  }
+}
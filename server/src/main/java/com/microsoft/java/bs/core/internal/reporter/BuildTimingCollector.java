@@ -0,0 +1,130 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+import java.io.File;
+import java.net.URI;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationResult;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.ProgressListener;
+import org.gradle.tooling.events.configuration.ProjectConfigurationFinishEvent;
+import org.gradle.tooling.events.download.FileDownloadFinishEvent;
+import org.gradle.tooling.events.task.TaskFailureResult;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskOperationResult;
+import org.gradle.tooling.events.task.TaskSkippedResult;
+import org.gradle.tooling.events.task.TaskSuccessResult;
+
+import com.microsoft.java.bs.core.internal.model.BuildTimingReport;
+
+import ch.epfl.scala.bsp4j.StatusCode;
+
+/**
+ * Collects the timing of a Gradle operation from the progress events into a
+ * {@link BuildTimingReport}.
+ */
+public class BuildTimingCollector implements ProgressListener {
+
+  /**
+   * The prefix of the display names of the build operations resolving the
+   * dependencies of a configuration.
+   */
+  private static final String RESOLVE_DEPENDENCIES = "Resolve dependencies";
+
+  private final BuildTimingReport report;
+
+  private final LongSupplier clock;
+
+  /**
+   * Instantiates a {@link BuildTimingCollector}.
+   *
+   * @param operation the name of the operation.
+   * @param projectUri the uri of the Gradle build.
+   * @param tasks the requested tasks, empty if the operation fetches a model.
+   */
+  public BuildTimingCollector(String operation, URI projectUri, List<String> tasks) {
+    this(operation, projectUri, tasks, System::currentTimeMillis);
+  }
+
+  BuildTimingCollector(String operation, URI projectUri, List<String> tasks,
+      LongSupplier clock) {
+    this.clock = clock;
+    this.report = new BuildTimingReport(operation, new File(projectUri).getAbsolutePath(),
+        tasks, clock.getAsLong());
+  }
+
+  /**
+   * Get the operation types to listen to. The dependency resolution is only
+   * reported with the generic build operations, which are too many to be listened
+   * to by default.
+   *
+   * @param includeDependencyResolution whether to listen to the generic build
+   *     operations to report the dependency resolution time.
+   */
+  public static OperationType[] getOperationTypes(boolean includeDependencyResolution) {
+    if (includeDependencyResolution) {
+      return new OperationType[] {OperationType.TASK, OperationType.PROJECT_CONFIGURATION,
+          OperationType.FILE_DOWNLOAD, OperationType.GENERIC};
+    }
+    return new OperationType[] {OperationType.TASK, OperationType.PROJECT_CONFIGURATION,
+        OperationType.FILE_DOWNLOAD};
+  }
+
+  @Override
+  public synchronized void statusChanged(ProgressEvent event) {
+    if (!(event instanceof FinishEvent)) {
+      return;
+    }
+    OperationResult result = ((FinishEvent) event).getResult();
+    long duration = result.getEndTime() - result.getStartTime();
+    if (event instanceof TaskFinishEvent) {
+      TaskFinishEvent taskEvent = (TaskFinishEvent) event;
+      report.addTask(taskEvent.getDescriptor().getTaskPath(), duration,
+          getOutcome(taskEvent.getResult()));
+    } else if (event instanceof ProjectConfigurationFinishEvent) {
+      report.addProject(((ProjectConfigurationFinishEvent) event).getDescriptor().getProject()
+          .getProjectPath(), duration);
+    } else if (event instanceof FileDownloadFinishEvent) {
+      FileDownloadFinishEvent downloadEvent = (FileDownloadFinishEvent) event;
+      report.addDownload(downloadEvent.getDescriptor().getUri().toString(), duration,
+          downloadEvent.getResult().getBytesDownloaded());
+    } else {
+      String name = event.getDescriptor().getDisplayName();
+      if (name != null && name.startsWith(RESOLVE_DEPENDENCIES)) {
+        report.addDependencyResolution(name, duration);
+      }
+    }
+  }
+
+  /**
+   * Complete the report when the operation is finished.
+   */
+  public synchronized BuildTimingReport finish(StatusCode statusCode) {
+    report.setDuration(clock.getAsLong() - report.getStartTime());
+    report.setStatus(statusCode.name());
+    return report;
+  }
+
+  static String getOutcome(TaskOperationResult result) {
+    if (result instanceof TaskFailureResult) {
+      return "FAILED";
+    }
+    if (result instanceof TaskSkippedResult) {
+      return ((TaskSkippedResult) result).getSkipMessage();
+    }
+    if (result instanceof TaskSuccessResult) {
+      TaskSuccessResult successResult = (TaskSuccessResult) result;
+      if (successResult.isFromCache()) {
+        return "FROM-CACHE";
+      }
+      return successResult.isUpToDate() ? "UP-TO-DATE" : "SUCCESS";
+    }
+    return "UNKNOWN";
+  }
+}
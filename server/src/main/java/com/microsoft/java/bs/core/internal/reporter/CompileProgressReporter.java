@@ -3,72 +3,121 @@
 
 package com.microsoft.java.bs.core.internal.reporter;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
-import com.microsoft.java.bs.core.Launcher;
-
 import ch.epfl.scala.bsp4j.BuildClient;
 import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
 import ch.epfl.scala.bsp4j.CompileReport;
 import ch.epfl.scala.bsp4j.CompileTask;
+import ch.epfl.scala.bsp4j.LogMessageParams;
+import ch.epfl.scala.bsp4j.MessageType;
 import ch.epfl.scala.bsp4j.StatusCode;
 import ch.epfl.scala.bsp4j.TaskDataKind;
 import ch.epfl.scala.bsp4j.TaskFinishParams;
 import ch.epfl.scala.bsp4j.TaskId;
-import ch.epfl.scala.bsp4j.TaskProgressParams;
 import ch.epfl.scala.bsp4j.TaskStartParams;
 
 /**
  * An implementation of {@link ProgressReporter} used for compilation tasks.
+ * All the build targets of a Gradle build are compiled in one Gradle call, each of
+ * them gets its own compile task, the progress is reported to the task of the
+ * first build target.
  */
-public class CompileProgressReporter implements ProgressReporter {
+public class CompileProgressReporter extends AbstractProgressReporter {
 
-  private BuildTargetIdentifier btId;
-  private final TaskId taskId;
-  private BuildClient client;
+  private final Map<BuildTargetIdentifier, TaskId> taskIds;
+  private final DiagnosticsReporter diagnosticsReporter;
+  private long startTime;
 
   /**
    * Instantiates a {@link CompileProgressReporter}.
    *
-   * @param btId Build target identifier
+   * @param btIds Build target identifiers compiled by the Gradle build.
+   * @param diagnosticsReporter counts the errors and warnings of the build targets,
+   *     can be <code>null</code>.
    */
-  public CompileProgressReporter(BuildTargetIdentifier btId) {
-    this.btId = btId;
-    this.taskId = new TaskId(UUID.randomUUID().toString());
-    client = Launcher.client;
+  public CompileProgressReporter(Collection<BuildTargetIdentifier> btIds,
+      DiagnosticsReporter diagnosticsReporter) {
+    this(createTaskIds(btIds), diagnosticsReporter);
+  }
+
+  private CompileProgressReporter(Map<BuildTargetIdentifier, TaskId> taskIds,
+      DiagnosticsReporter diagnosticsReporter) {
+    super(taskIds.values().iterator().next());
+    this.taskIds = taskIds;
+    this.diagnosticsReporter = diagnosticsReporter;
+  }
+
+  private static Map<BuildTargetIdentifier, TaskId> createTaskIds(
+      Collection<BuildTargetIdentifier> btIds) {
+    Map<BuildTargetIdentifier, TaskId> taskIds = new LinkedHashMap<>();
+    for (BuildTargetIdentifier btId : btIds) {
+      taskIds.put(btId, new TaskId(UUID.randomUUID().toString()));
+    }
+    return taskIds;
   }
 
   @Override
   public void taskStarted(String message) {
-    TaskStartParams startParam = new TaskStartParams(taskId);
-    startParam.setMessage(message);
-    startParam.setDataKind(TaskDataKind.COMPILE_TASK);
-    startParam.setData(new CompileTask(this.btId));
-    if (client != null) {
-      client.onBuildTaskStart(startParam);
+    startTime = System.currentTimeMillis();
+    for (Map.Entry<BuildTargetIdentifier, TaskId> entry : taskIds.entrySet()) {
+      TaskStartParams startParam = new TaskStartParams(entry.getValue());
+      startParam.setMessage(message);
+      startParam.setEventTime(startTime);
+      startParam.setDataKind(TaskDataKind.COMPILE_TASK);
+      startParam.setData(new CompileTask(entry.getKey()));
+      if (client != null) {
+        client.onBuildTaskStart(startParam);
+      }
     }
   }
 
-  @Override
-  public void taskInProgress(String message) {
-    TaskProgressParams progressParam = new TaskProgressParams(taskId);
-    progressParam.setMessage(message);
-    progressParam.setDataKind(TaskDataKind.COMPILE_TASK);
-    if (client != null) {
-      client.onBuildTaskProgress(progressParam);
+  /**
+   * Forward a line of the build output to the client, as a log message of the task
+   * of the first build target.
+   *
+   * @param message the line of the output.
+   * @param type the type of the message.
+   */
+  public void logMessage(String message, MessageType type) {
+    BuildClient buildClient = client;
+    if (buildClient == null) {
+      return;
+    }
+    LogMessageParams params = new LogMessageParams(type, message);
+    params.setTask(taskId);
+    if (diagnosticsReporter != null) {
+      params.setOriginId(diagnosticsReporter.getOriginId());
     }
+    buildClient.onBuildLogMessage(params);
   }
 
   @Override
   public void taskFinished(String message, StatusCode statusCode) {
-    TaskFinishParams endParam = new TaskFinishParams(taskId, statusCode);
-    endParam.setMessage(message);
-    endParam.setDataKind(TaskDataKind.COMPILE_REPORT);
-    endParam.setData(new CompileReport(this.btId, 0, 0)); // TODO: parse the errors and warnings
-    if (client != null) {
-      client.onBuildTaskFinish(endParam);
+    long endTime = System.currentTimeMillis();
+    for (Map.Entry<BuildTargetIdentifier, TaskId> entry : taskIds.entrySet()) {
+      BuildTargetIdentifier btId = entry.getKey();
+      TaskFinishParams endParam = new TaskFinishParams(entry.getValue(), statusCode);
+      endParam.setMessage(message);
+      endParam.setEventTime(endTime);
+      endParam.setDataKind(TaskDataKind.COMPILE_REPORT);
+      CompileReport report;
+      if (diagnosticsReporter == null) {
+        report = new CompileReport(btId, 0, 0);
+      } else {
+        report = new CompileReport(btId, diagnosticsReporter.getErrorCount(btId),
+            diagnosticsReporter.getWarningCount(btId));
+        report.setOriginId(diagnosticsReporter.getOriginId());
+      }
+      report.setTime(endTime - startTime);
+      endParam.setData(report);
+      if (client != null) {
+        client.onBuildTaskFinish(endParam);
+      }
     }
     client = null;
   }
 }
-
@@ -0,0 +1,189 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import ch.epfl.scala.bsp4j.Diagnostic;
+import ch.epfl.scala.bsp4j.DiagnosticSeverity;
+import ch.epfl.scala.bsp4j.Position;
+import ch.epfl.scala.bsp4j.Range;
+
+/**
+ * Parses the javac and scalac diagnostics from the output of a Gradle build, line
+ * by line. A javac diagnostic looks like:
+ * <pre>
+ * /path/to/Foo.java:12: error: cannot find symbol
+ *     bar();
+ *     ^
+ *   symbol:   method bar()
+ *   location: class Foo
+ * </pre>
+ * and a scalac diagnostic logged by the Gradle Scala plugin looks like:
+ * <pre>
+ * [Error] /path/to/Foo.scala:12:5: type mismatch;
+ *  found   : String("")
+ *  required: Int
+ *   val x: Int = ""
+ *                ^
+ * </pre>
+ * This class is not thread-safe, each output stream should use its own parser.
+ */
+public class CompilerOutputParser implements BuildOutputListener {
+
+  private static final Pattern JAVAC_DIAGNOSTIC = Pattern.compile(
+      "^(.+\\.java):(\\d+): (error|warning): (.*)$");
+
+  private static final Pattern SCALAC_DIAGNOSTIC = Pattern.compile(
+      "^\\[(Error|Warn)\\] (.+\\.scala):(\\d+):(\\d+): (.*)$");
+
+  private static final Pattern CARET = Pattern.compile("^(\\s*)\\^\\s*$");
+
+  /**
+   * The lines which end the diagnostic being parsed, e.g. the task headers and the
+   * summaries of Gradle and the compilers.
+   */
+  private static final Pattern TERMINATOR = Pattern.compile(
+      "^(> |FAILURE:|BUILD |\\* |Note: |\\S+ (errors?|warnings?)( found)?$)");
+
+  private static final Pattern CODE = Pattern.compile("^\\[([\\w-]+)\\] ");
+
+  /**
+   * javac always prints the source line right before the caret.
+   */
+  private static final int JAVAC_MAX_LINES_BEFORE_CARET = 1;
+
+  /**
+   * scalac prints the rest of the message and then the source line before the caret.
+   */
+  private static final int SCALAC_MAX_LINES_BEFORE_CARET = 20;
+
+  /**
+   * The max number of lines kept in the message of a diagnostic.
+   */
+  private static final int MAX_DETAIL_LINES = 50;
+
+  private final BiConsumer<File, Diagnostic> consumer;
+
+  private File file;
+  private int line;
+  private int column;
+  private DiagnosticSeverity severity;
+  private String source;
+  private String message;
+  private int maxLinesBeforeCaret;
+  private boolean caretFound;
+  private final List<String> details = new ArrayList<>();
+
+  /**
+   * Instantiates a {@link CompilerOutputParser}.
+   *
+   * @param consumer receives the file and the diagnostic once a diagnostic is
+   *     completely parsed.
+   */
+  public CompilerOutputParser(BiConsumer<File, Diagnostic> consumer) {
+    this.consumer = consumer;
+  }
+
+  @Override
+  public void onOutputLine(String text) {
+    Matcher matcher = JAVAC_DIAGNOSTIC.matcher(text);
+    if (matcher.matches()) {
+      flush();
+      start(matcher.group(1), matcher.group(2), -1,
+          "error".equals(matcher.group(3)) ? DiagnosticSeverity.ERROR
+              : DiagnosticSeverity.WARNING,
+          "javac", matcher.group(4), JAVAC_MAX_LINES_BEFORE_CARET);
+      return;
+    }
+    matcher = SCALAC_DIAGNOSTIC.matcher(text);
+    if (matcher.matches()) {
+      flush();
+      // the scalac column is 1-based.
+      start(matcher.group(2), matcher.group(3), Integer.parseInt(matcher.group(4)) - 1,
+          "Error".equals(matcher.group(1)) ? DiagnosticSeverity.ERROR
+              : DiagnosticSeverity.WARNING,
+          "scalac", matcher.group(5), SCALAC_MAX_LINES_BEFORE_CARET);
+      return;
+    }
+    if (file == null) {
+      return;
+    }
+
+    if (!caretFound) {
+      Matcher caret = CARET.matcher(text);
+      if (caret.matches() && !details.isEmpty()) {
+        caretFound = true;
+        // the line before the caret is the source line.
+        details.remove(details.size() - 1);
+        if (column < 0) {
+          column = caret.group(1).length();
+        }
+      } else if (details.size() < maxLinesBeforeCaret
+          && (maxLinesBeforeCaret == JAVAC_MAX_LINES_BEFORE_CARET
+              || !TERMINATOR.matcher(text).find())) {
+        details.add(text);
+      } else {
+        flush();
+      }
+      return;
+    }
+
+    if (!text.isEmpty() && Character.isWhitespace(text.charAt(0))) {
+      if (details.size() < MAX_DETAIL_LINES) {
+        details.add(text);
+      }
+    } else {
+      flush();
+    }
+  }
+
+  @Override
+  public void onOutputClosed() {
+    flush();
+  }
+
+  /**
+   * Complete the diagnostic being parsed.
+   */
+  private void flush() {
+    if (file == null) {
+      return;
+    }
+    StringBuilder fullMessage = new StringBuilder(message);
+    for (String detail : details) {
+      fullMessage.append('\n').append(detail.trim());
+    }
+    Position position = new Position(Math.max(line - 1, 0), Math.max(column, 0));
+    Diagnostic diagnostic = new Diagnostic(new Range(position, position),
+        fullMessage.toString());
+    diagnostic.setSeverity(severity);
+    diagnostic.setSource(source);
+    Matcher code = CODE.matcher(message);
+    if (code.find()) {
+      diagnostic.setCode(code.group(1));
+    }
+    File diagnosticFile = file;
+    file = null;
+    details.clear();
+    consumer.accept(diagnosticFile, diagnostic);
+  }
+
+  private void start(String path, String lineNumber, int column, DiagnosticSeverity severity,
+      String source, String message, int maxLinesBeforeCaret) {
+    this.file = new File(path);
+    this.line = Integer.parseInt(lineNumber);
+    this.column = column;
+    this.severity = severity;
+    this.source = source;
+    this.message = message;
+    this.maxLinesBeforeCaret = maxLinesBeforeCaret;
+    this.caretFound = false;
+  }
+}
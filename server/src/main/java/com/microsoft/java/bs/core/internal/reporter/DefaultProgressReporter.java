@@ -5,26 +5,18 @@ package com.microsoft.java.bs.core.internal.reporter;
 
 import java.util.UUID;
 
-import com.microsoft.java.bs.core.Launcher;
-
-import ch.epfl.scala.bsp4j.BuildClient;
 import ch.epfl.scala.bsp4j.StatusCode;
 import ch.epfl.scala.bsp4j.TaskFinishParams;
 import ch.epfl.scala.bsp4j.TaskId;
-import ch.epfl.scala.bsp4j.TaskProgressParams;
 import ch.epfl.scala.bsp4j.TaskStartParams;
 
 /**
  * A default implementation of {@link ProgressReporter}.
  */
-public class DefaultProgressReporter implements ProgressReporter {
-
-  private final TaskId taskId;
-  private BuildClient client;
+public class DefaultProgressReporter extends AbstractProgressReporter {
 
   public DefaultProgressReporter() {
-    this.taskId = new TaskId(UUID.randomUUID().toString());
-    client = Launcher.client;
+    super(new TaskId(UUID.randomUUID().toString()));
   }
 
   @Override
@@ -36,15 +28,6 @@ public class DefaultProgressReporter implements ProgressReporter {
     }
   }
 
-  @Override
-  public void taskInProgress(String message) {
-    TaskProgressParams progressParam = new TaskProgressParams(taskId);
-    progressParam.setMessage(message);
-    if (client != null) {
-      client.onBuildTaskProgress(progressParam);
-    }
-  }
-
   @Override
   public void taskFinished(String message, StatusCode statusCode) {
     TaskFinishParams endParam = new TaskFinishParams(taskId, statusCode);
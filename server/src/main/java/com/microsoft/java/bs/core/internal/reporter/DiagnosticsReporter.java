@@ -0,0 +1,171 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+import static com.microsoft.java.bs.core.Launcher.LOGGER;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.microsoft.java.bs.core.Launcher;
+
+import ch.epfl.scala.bsp4j.BuildClient;
+import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+import ch.epfl.scala.bsp4j.Diagnostic;
+import ch.epfl.scala.bsp4j.DiagnosticSeverity;
+import ch.epfl.scala.bsp4j.PublishDiagnosticsParams;
+import ch.epfl.scala.bsp4j.TextDocumentIdentifier;
+
+/**
+ * Publishes the compiler diagnostics of a build to the client with
+ * <code>build/publishDiagnostics</code> while the build is running, and counts the
+ * errors and warnings of each build target.
+ *
+ * <p>The first diagnostic of a document resets the diagnostics of the document in
+ * the client, the following ones are appended. When the build is finished, the
+ * documents of the compiled targets which had diagnostics in the last build but
+ * not in this one are cleared. Only the targets whose Gradle build ran to the end
+ * are cleared, the diagnostics of a cancelled or skipped build are kept.
+ */
+public class DiagnosticsReporter {
+
+  private final Set<BuildTargetIdentifier> compiledTargets;
+
+  private final String originId;
+
+  private final Function<File, BuildTargetIdentifier> targetResolver;
+
+  /**
+   * The documents with diagnostics of each build target, which is updated when the
+   * build is finished and shared between builds.
+   */
+  private final Map<BuildTargetIdentifier, Set<String>> publishedDocuments;
+
+  private final Map<BuildTargetIdentifier, Set<String>> documents = new HashMap<>();
+
+  private final Map<BuildTargetIdentifier, int[]> counts = new HashMap<>();
+
+  private final Set<BuildTargetIdentifier> completedTargets = new HashSet<>();
+
+  private BuildClient client;
+
+  /**
+   * Instantiates a {@link DiagnosticsReporter}.
+   *
+   * @param compiledTargets the build targets requested to be compiled.
+   * @param originId the origin id of the compile request, can be <code>null</code>.
+   * @param targetResolver finds the build target of a source file.
+   * @param publishedDocuments the documents with diagnostics of each build target
+   *     published by the previous builds.
+   */
+  public DiagnosticsReporter(Collection<BuildTargetIdentifier> compiledTargets, String originId,
+      Function<File, BuildTargetIdentifier> targetResolver,
+      Map<BuildTargetIdentifier, Set<String>> publishedDocuments) {
+    this.compiledTargets = new LinkedHashSet<>(compiledTargets);
+    this.originId = originId;
+    this.targetResolver = targetResolver;
+    this.publishedDocuments = publishedDocuments;
+    this.client = Launcher.client;
+  }
+
+  public String getOriginId() {
+    return originId;
+  }
+
+  /**
+   * Create a parser of the output of the build. Each output stream needs its own
+   * parser, so the standard output and error can be written concurrently.
+   */
+  public CompilerOutputParser newParser() {
+    return new CompilerOutputParser(this::report);
+  }
+
+  /**
+   * Publish a diagnostic of the given source file.
+   */
+  public synchronized void report(File file, Diagnostic diagnostic) {
+    BuildTargetIdentifier btId = targetResolver.apply(file);
+    if (btId == null) {
+      LOGGER.fine("Skip the diagnostic of " + file + ", which is not in any build target.");
+      return;
+    }
+    int[] count = counts.computeIfAbsent(btId, k -> new int[2]);
+    if (diagnostic.getSeverity() == DiagnosticSeverity.ERROR) {
+      count[0]++;
+    } else if (diagnostic.getSeverity() == DiagnosticSeverity.WARNING) {
+      count[1]++;
+    }
+
+    String uri = file.toURI().toString();
+    boolean reset = documents.computeIfAbsent(btId, k -> new HashSet<>()).add(uri);
+    publish(uri, btId, Collections.singletonList(diagnostic), reset);
+  }
+
+  public synchronized int getErrorCount(BuildTargetIdentifier btId) {
+    return counts.getOrDefault(btId, new int[2])[0];
+  }
+
+  public synchronized int getWarningCount(BuildTargetIdentifier btId) {
+    return counts.getOrDefault(btId, new int[2])[1];
+  }
+
+  /**
+   * Mark the given build targets as compiled by a Gradle build which ran to the end,
+   * successfully or not, so their fixed documents are cleared when finished.
+   */
+  public synchronized void buildCompleted(Collection<BuildTargetIdentifier> btIds) {
+    completedTargets.addAll(btIds);
+  }
+
+  /**
+   * Clear the diagnostics of the documents of the completed targets which have no
+   * diagnostics any more, and remember the documents with diagnostics for the next
+   * build.
+   */
+  public synchronized void finish() {
+    Set<BuildTargetIdentifier> targets = new LinkedHashSet<>(compiledTargets);
+    targets.addAll(documents.keySet());
+    for (BuildTargetIdentifier btId : targets) {
+      Set<String> current = documents.getOrDefault(btId, Collections.emptySet());
+      Set<String> previous = publishedDocuments.getOrDefault(btId, Collections.emptySet());
+      if (completedTargets.contains(btId)) {
+        for (String uri : previous) {
+          if (!current.contains(uri)) {
+            publish(uri, btId, Collections.emptyList(), true);
+          }
+        }
+      } else {
+        // the build of the target did not run to the end, the documents it did not
+        // report are not known to be fixed and are cleared by a later build.
+        current = new HashSet<>(current);
+        current.addAll(previous);
+      }
+      if (current.isEmpty()) {
+        publishedDocuments.remove(btId);
+      } else {
+        publishedDocuments.put(btId, current);
+      }
+    }
+    client = null;
+  }
+
+  private void publish(String uri, BuildTargetIdentifier btId, List<Diagnostic> list,
+      boolean reset) {
+    if (client == null) {
+      return;
+    }
+    PublishDiagnosticsParams params = new PublishDiagnosticsParams(
+        new TextDocumentIdentifier(uri), btId, list, reset);
+    params.setOriginId(originId);
+    client.onBuildPublishDiagnostics(params);
+  }
+}
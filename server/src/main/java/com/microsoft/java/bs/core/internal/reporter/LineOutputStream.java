@@ -0,0 +1,133 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An output stream which splits the output of a Gradle build into lines and passes
+ * them to the listeners as soon as they are complete. Nothing but the current line
+ * is kept, and a line longer than the limit is truncated, so the memory used by
+ * the stream is constant however much the build prints.
+ */
+public class LineOutputStream extends OutputStream {
+
+  /**
+   * The max number of bytes kept for a line, the rest of the line is dropped. A
+   * line is never cut in the middle of a UTF-8 character.
+   */
+  static final int MAX_LINE_LENGTH = 8 * 1024;
+
+  private static final String TRUNCATED = "...";
+
+  private final List<BuildOutputListener> listeners;
+
+  private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+  private boolean truncated;
+
+  private boolean closed;
+
+  /**
+   * Instantiates a {@link LineOutputStream}.
+   *
+   * @param listeners the listeners of the lines.
+   */
+  public LineOutputStream(BuildOutputListener... listeners) {
+    this.listeners = Arrays.asList(listeners);
+  }
+
+  @Override
+  public synchronized void write(int b) {
+    if (b == '\n') {
+      endLine();
+    } else {
+      append(new byte[] {(byte) b}, 0, 1);
+    }
+  }
+
+  @Override
+  public synchronized void write(byte[] b, int off, int len) {
+    int start = off;
+    for (int i = off; i < off + len; i++) {
+      if (b[i] == '\n') {
+        append(b, start, i - start);
+        endLine();
+        start = i + 1;
+      }
+    }
+    append(b, start, off + len - start);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (line.size() > 0 || truncated) {
+      endLine();
+    }
+    for (BuildOutputListener listener : listeners) {
+      listener.onOutputClosed();
+    }
+  }
+
+  private void append(byte[] b, int off, int len) {
+    int remaining = MAX_LINE_LENGTH - line.size();
+    if (len > remaining) {
+      truncated = true;
+      len = remaining;
+    }
+    line.write(b, off, len);
+  }
+
+  private void endLine() {
+    byte[] bytes = line.toByteArray();
+    int length = truncated ? getCharacterBoundary(bytes) : bytes.length;
+    String text = new String(bytes, 0, length, StandardCharsets.UTF_8);
+    line.reset();
+    if (text.endsWith("\r")) {
+      text = text.substring(0, text.length() - 1);
+    }
+    if (truncated) {
+      text += TRUNCATED;
+      truncated = false;
+    }
+    for (BuildOutputListener listener : listeners) {
+      listener.onOutputLine(text);
+    }
+  }
+
+  /**
+   * Get the length of the bytes without the last UTF-8 character if it is cut by
+   * the truncation.
+   */
+  private static int getCharacterBoundary(byte[] bytes) {
+    int start = bytes.length - 1;
+    // skip back the continuation bytes to the first byte of the last character.
+    while (start >= 0 && start > bytes.length - 4 && (bytes[start] & 0xC0) == 0x80) {
+      start--;
+    }
+    if (start < 0) {
+      return bytes.length;
+    }
+    int lead = bytes[start] & 0xFF;
+    int characterLength;
+    if (lead >= 0xF0) {
+      characterLength = 4;
+    } else if (lead >= 0xE0) {
+      characterLength = 3;
+    } else if (lead >= 0xC0) {
+      characterLength = 2;
+    } else {
+      characterLength = 1;
+    }
+    return start + characterLength > bytes.length ? start : bytes.length;
+  }
+}
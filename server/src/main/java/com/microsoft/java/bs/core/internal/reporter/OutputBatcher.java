@@ -0,0 +1,88 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Joins the lines of an output into batches, so a chatty build or application
+ * sends one <code>build/logMessage</code> per interval instead of one per line.
+ *
+ * <p>A batch is sent when the interval after its first line elapses, when it
+ * grows over the size limit, or when the output is closed. So all the output is
+ * sent before the task which owns it is finished.
+ */
+public class OutputBatcher implements BuildOutputListener {
+
+  static final long FLUSH_INTERVAL_MILLIS = 100L;
+
+  /**
+   * The max number of characters of a batch, a longer batch is sent at once.
+   */
+  static final int MAX_BATCH_LENGTH = 64 * 1024;
+
+  private static final ScheduledExecutorService SCHEDULER =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bsp-output-batcher");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final Consumer<String> sender;
+
+  private final StringBuilder batch = new StringBuilder();
+
+  private int lineCount;
+
+  private ScheduledFuture<?> scheduledFlush;
+
+  /**
+   * Instantiates an {@link OutputBatcher}.
+   *
+   * @param sender sends a batch of lines, which are separated by line feeds.
+   */
+  public OutputBatcher(Consumer<String> sender) {
+    this.sender = sender;
+  }
+
+  @Override
+  public synchronized void onOutputLine(String line) {
+    if (lineCount++ > 0) {
+      batch.append('\n');
+    }
+    batch.append(line);
+    if (batch.length() >= MAX_BATCH_LENGTH) {
+      flush();
+    } else if (scheduledFlush == null) {
+      scheduledFlush = SCHEDULER.schedule(this::flush, FLUSH_INTERVAL_MILLIS,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public void onOutputClosed() {
+    flush();
+  }
+
+  /**
+   * Send the pending lines, if any.
+   */
+  public synchronized void flush() {
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+    if (lineCount == 0) {
+      return;
+    }
+    String text = batch.toString();
+    batch.setLength(0);
+    lineCount = 0;
+    sender.accept(text);
+  }
+}
@@ -0,0 +1,50 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+/**
+ * A ring buffer which keeps the last lines of the output of a Gradle build, used
+ * as the summary of a failed build.
+ */
+public class OutputTailBuffer implements BuildOutputListener {
+
+  private final String[] lines;
+
+  private int next;
+
+  private long count;
+
+  /**
+   * Instantiates an {@link OutputTailBuffer}.
+   *
+   * @param capacity the max number of lines to keep.
+   */
+  public OutputTailBuffer(int capacity) {
+    this.lines = new String[capacity];
+  }
+
+  @Override
+  public synchronized void onOutputLine(String line) {
+    lines[next] = line;
+    next = (next + 1) % lines.length;
+    count++;
+  }
+
+  /**
+   * Get the kept lines, the number of dropped lines is noted in the first line.
+   */
+  @Override
+  public synchronized String toString() {
+    StringBuilder builder = new StringBuilder();
+    if (count > lines.length) {
+      builder.append("... ").append(count - lines.length).append(" lines omitted\n");
+    }
+    int size = (int) Math.min(count, lines.length);
+    int start = count > lines.length ? next : 0;
+    for (int i = 0; i < size; i++) {
+      builder.append(lines[(start + i) % lines.length]).append('\n');
+    }
+    return builder.toString();
+  }
+}
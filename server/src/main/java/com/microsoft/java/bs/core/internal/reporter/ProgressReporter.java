@@ -24,6 +24,35 @@ public interface ProgressReporter {
    */
   void taskInProgress(String message);
 
+  /**
+   * Notify the progress of the task with the amount of the work done.
+   *
+   * @param message the message to be displayed.
+   * @param progress the amount of the work done.
+   * @param total the total amount of the work, or 0 if it is unknown.
+   * @param unit the unit of the work.
+   */
+  void taskInProgress(String message, long progress, long total, String unit);
+
+  /**
+   * Notify the client that a subtask of the task has been started.
+   *
+   * @param name the unique name of the subtask.
+   * @param message the message to be displayed.
+   * @param eventTime the time the subtask was started, in milliseconds.
+   */
+  void subtaskStarted(String name, String message, long eventTime);
+
+  /**
+   * Notify the client that a subtask of the task has been finished.
+   *
+   * @param name the unique name of the subtask.
+   * @param message the message to be displayed.
+   * @param statusCode the status code of the subtask.
+   * @param eventTime the time the subtask was finished, in milliseconds.
+   */
+  void subtaskFinished(String name, String message, StatusCode statusCode, long eventTime);
+
   /**
    * Notify the client that a task has been finished.
    *
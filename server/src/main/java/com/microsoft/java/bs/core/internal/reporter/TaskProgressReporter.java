@@ -3,26 +3,122 @@
 
 package com.microsoft.java.bs.core.internal.reporter;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
 import org.gradle.tooling.events.ProgressEvent;
 import org.gradle.tooling.events.ProgressListener;
+import org.gradle.tooling.events.lifecycle.BuildPhaseOperationDescriptor;
+import org.gradle.tooling.events.lifecycle.BuildPhaseStartEvent;
+import org.gradle.tooling.events.task.TaskFailureResult;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskOperationResult;
+import org.gradle.tooling.events.task.TaskSkippedResult;
+import org.gradle.tooling.events.task.TaskStartEvent;
+import org.gradle.tooling.events.task.TaskSuccessResult;
 
 import ch.epfl.scala.bsp4j.StatusCode;
 
 /**
  * Implements {@link ProgressListener} that listens to the progress of gradle tasks,
  * and reports the progress to the client.
+ *
+ * <p>The planned tasks, known from the build phase events of Gradle 7.6+, and the
+ * completed tasks are reported as the progress of the task. The progress
+ * notifications are throttled, so a build with thousands of tasks does not flood
+ * the client. A Gradle task which is still running after the throttle interval is
+ * reported as a subtask, which is finished with its duration and outcome when the
+ * task finishes, so the client sees the long running tasks. The other tasks, e.g.
+ * the up-to-date ones, are only counted in the progress, unless they fail.
  */
 public class TaskProgressReporter implements ProgressListener {
 
-  private ProgressReporter reporter;
+  /**
+   * The min interval between two progress notifications.
+   */
+  static final long PROGRESS_INTERVAL_MILLIS = 200;
+
+  private static final String RUN_MAIN_TASKS = "RUN_MAIN_TASKS";
+
+  private static final ScheduledExecutorService SCHEDULER =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bsp-task-progress");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private static final String UNIT = "tasks";
+
+  private final ProgressReporter reporter;
+
+  private final LongSupplier clock;
+
+  private final ScheduledExecutorService scheduler;
+
+  private long plannedTasks;
+
+  private long completedTasks;
+
+  private long nextProgressTime;
+
+  /**
+   * The tasks which are started but not reported yet, by their paths.
+   */
+  private final Map<String, PendingTask> pendingTasks = new LinkedHashMap<>();
+
+  /**
+   * The paths of the tasks which are reported as started but not finished yet.
+   */
+  private final Set<String> runningTasks = new LinkedHashSet<>();
+
+  private boolean checkScheduled;
 
   public TaskProgressReporter(ProgressReporter reporter) {
+    this(reporter, System::currentTimeMillis, SCHEDULER);
+  }
+
+  TaskProgressReporter(ProgressReporter reporter, LongSupplier clock,
+      ScheduledExecutorService scheduler) {
     this.reporter = reporter;
+    this.clock = clock;
+    this.scheduler = scheduler;
   }
 
   @Override
-  public void statusChanged(ProgressEvent event) {
-    taskInProgress(event.getDisplayName());
+  public synchronized void statusChanged(ProgressEvent event) {
+    reportLongRunningTasks();
+    if (event instanceof BuildPhaseStartEvent) {
+      BuildPhaseOperationDescriptor descriptor =
+          ((BuildPhaseStartEvent) event).getDescriptor();
+      if (RUN_MAIN_TASKS.equals(descriptor.getBuildPhase())) {
+        plannedTasks += descriptor.getBuildItemsCount();
+      }
+    } else if (event instanceof TaskStartEvent) {
+      String taskPath = ((TaskStartEvent) event).getDescriptor().getTaskPath();
+      if (!runningTasks.contains(taskPath)) {
+        pendingTasks.putIfAbsent(taskPath,
+            new PendingTask(event.getEventTime(), clock.getAsLong()));
+        scheduleCheck();
+      }
+      if (shouldReportProgress(false)) {
+        reportTaskProgress(event.getDisplayName());
+      }
+    } else if (event instanceof TaskFinishEvent) {
+      completedTasks++;
+      reportTaskResult((TaskFinishEvent) event);
+      if (shouldReportProgress(completedTasks == plannedTasks)) {
+        reportTaskProgress(event.getDisplayName());
+      }
+    } else if (shouldReportProgress(false)) {
+      taskInProgress(event.getDisplayName());
+    }
   }
 
   public void taskStarted(String message) {
@@ -33,7 +129,122 @@ public class TaskProgressReporter implements ProgressListener {
     reporter.taskInProgress(message);
   }
 
+  /**
+   * Finish the task, and the subtasks of the Gradle tasks which never finished,
+   * e.g. when the build is cancelled.
+   */
   public void taskFinished(String message, StatusCode statusCode) {
+    synchronized (this) {
+      long now = clock.getAsLong();
+      for (String taskPath : runningTasks) {
+        reporter.subtaskFinished(taskPath, taskPath, statusCode, now);
+      }
+      runningTasks.clear();
+      pendingTasks.clear();
+    }
     reporter.taskFinished(message, statusCode);
   }
+
+  /**
+   * Report the pending tasks which have been running for the throttle interval
+   * as started subtasks.
+   */
+  synchronized void reportLongRunningTasks() {
+    long startedBefore = clock.getAsLong() - PROGRESS_INTERVAL_MILLIS;
+    Iterator<Map.Entry<String, PendingTask>> iterator = pendingTasks.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, PendingTask> entry = iterator.next();
+      if (entry.getValue().seenTime > startedBefore) {
+        // the tasks are in the start order.
+        break;
+      }
+      iterator.remove();
+      runningTasks.add(entry.getKey());
+      reporter.subtaskStarted(entry.getKey(), entry.getKey(), entry.getValue().eventTime);
+    }
+  }
+
+  /**
+   * Check the pending tasks after the throttle interval, in case no other event
+   * comes while they are running.
+   */
+  private void scheduleCheck() {
+    if (checkScheduled) {
+      return;
+    }
+    checkScheduled = true;
+    scheduler.schedule(() -> {
+      synchronized (this) {
+        checkScheduled = false;
+        reportLongRunningTasks();
+        if (!pendingTasks.isEmpty()) {
+          scheduleCheck();
+        }
+      }
+    }, PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  private boolean shouldReportProgress(boolean force) {
+    long now = clock.getAsLong();
+    if (!force && now < nextProgressTime) {
+      return false;
+    }
+    nextProgressTime = now + PROGRESS_INTERVAL_MILLIS;
+    return true;
+  }
+
+  private void reportTaskProgress(String message) {
+    // the tasks of the included builds may not be planned in the root build.
+    long total = plannedTasks > 0 ? Math.max(plannedTasks, completedTasks) : 0;
+    reporter.taskInProgress(message, completedTasks, total, UNIT);
+  }
+
+  private void reportTaskResult(TaskFinishEvent event) {
+    String taskPath = event.getDescriptor().getTaskPath();
+    TaskOperationResult result = event.getResult();
+    PendingTask pendingTask = pendingTasks.remove(taskPath);
+    if (pendingTask != null && result instanceof TaskFailureResult) {
+      // a failure is always reported, even if the task fails at once.
+      reporter.subtaskStarted(taskPath, taskPath, pendingTask.eventTime);
+    } else if (!runningTasks.remove(taskPath)) {
+      return;
+    }
+    String outcome;
+    StatusCode statusCode = StatusCode.OK;
+    if (result instanceof TaskFailureResult) {
+      outcome = "FAILED";
+      statusCode = StatusCode.ERROR;
+    } else if (result instanceof TaskSkippedResult) {
+      outcome = ((TaskSkippedResult) result).getSkipMessage();
+    } else if (result instanceof TaskSuccessResult
+        && ((TaskSuccessResult) result).isFromCache()) {
+      outcome = "FROM-CACHE";
+    } else if (result instanceof TaskSuccessResult
+        && ((TaskSuccessResult) result).isUpToDate()) {
+      outcome = "UP-TO-DATE";
+    } else {
+      outcome = "SUCCESS";
+    }
+
+    long duration = result.getEndTime() - result.getStartTime();
+    reporter.subtaskFinished(taskPath, taskPath + " " + outcome + " (" + duration + " ms)",
+        statusCode, result.getEndTime());
+  }
+
+  private static final class PendingTask {
+    /**
+     * The time of the start event, reported to the client.
+     */
+    private final long eventTime;
+
+    /**
+     * The time when the start event is received, by the clock of the reporter.
+     */
+    private final long seenTime;
+
+    PendingTask(long eventTime, long seenTime) {
+      this.eventTime = eventTime;
+      this.seenTime = seenTime;
+    }
+  }
 }
@@ -0,0 +1,260 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.gradle.tooling.Failure;
+import org.gradle.tooling.events.OperationDescriptor;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.ProgressListener;
+import org.gradle.tooling.events.task.TaskOperationDescriptor;
+import org.gradle.tooling.events.test.JvmTestKind;
+import org.gradle.tooling.events.test.JvmTestOperationDescriptor;
+import org.gradle.tooling.events.test.TestFailureResult;
+import org.gradle.tooling.events.test.TestFinishEvent;
+import org.gradle.tooling.events.test.TestOperationResult;
+import org.gradle.tooling.events.test.TestSkippedResult;
+import org.gradle.tooling.events.test.TestStartEvent;
+
+import ch.epfl.scala.bsp4j.BuildClient;
+import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+import ch.epfl.scala.bsp4j.LogMessageParams;
+import ch.epfl.scala.bsp4j.MessageType;
+import ch.epfl.scala.bsp4j.StatusCode;
+import ch.epfl.scala.bsp4j.TaskDataKind;
+import ch.epfl.scala.bsp4j.TaskFinishParams;
+import ch.epfl.scala.bsp4j.TaskId;
+import ch.epfl.scala.bsp4j.TaskStartParams;
+import ch.epfl.scala.bsp4j.TestFinish;
+import ch.epfl.scala.bsp4j.TestReport;
+import ch.epfl.scala.bsp4j.TestStart;
+import ch.epfl.scala.bsp4j.TestStatus;
+import ch.epfl.scala.bsp4j.TestTask;
+
+/**
+ * An implementation of {@link ProgressReporter} used for test tasks. Each build
+ * target gets its own test task, and each test case is reported as a subtask of
+ * the test task of its build target as soon as it is started and finished, so the
+ * client sees the results while the tests are running.
+ *
+ * <p>The test events are mapped to the build targets by the Gradle test task which
+ * runs them, so the listener must be registered for the task events as well.
+ */
+public class TestProgressReporter extends AbstractProgressReporter implements ProgressListener {
+
+  private final Map<String, BuildTargetIdentifier> testTasks;
+
+  private final Map<BuildTargetIdentifier, TaskId> taskIds;
+
+  private final String originId;
+
+  private final Map<BuildTargetIdentifier, int[]> counts = new HashMap<>();
+
+  private final Map<OperationDescriptor, TaskId> testIds = new HashMap<>();
+
+  private long startTime;
+
+  /**
+   * Instantiates a {@link TestProgressReporter}.
+   *
+   * @param testTasks the build target of each Gradle test task, keyed by the task path.
+   * @param originId the origin id of the test request, can be <code>null</code>.
+   */
+  public TestProgressReporter(Map<String, BuildTargetIdentifier> testTasks, String originId) {
+    this(testTasks, createTaskIds(testTasks), originId);
+  }
+
+  private TestProgressReporter(Map<String, BuildTargetIdentifier> testTasks,
+      Map<BuildTargetIdentifier, TaskId> taskIds, String originId) {
+    super(taskIds.values().iterator().next());
+    this.testTasks = testTasks;
+    this.taskIds = taskIds;
+    this.originId = originId;
+  }
+
+  private static Map<BuildTargetIdentifier, TaskId> createTaskIds(
+      Map<String, BuildTargetIdentifier> testTasks) {
+    Map<BuildTargetIdentifier, TaskId> taskIds = new LinkedHashMap<>();
+    for (BuildTargetIdentifier btId : testTasks.values()) {
+      taskIds.computeIfAbsent(btId, k -> new TaskId(UUID.randomUUID().toString()));
+    }
+    return taskIds;
+  }
+
+  @Override
+  public void taskStarted(String message) {
+    startTime = System.currentTimeMillis();
+    for (Map.Entry<BuildTargetIdentifier, TaskId> entry : taskIds.entrySet()) {
+      TaskStartParams startParam = new TaskStartParams(entry.getValue());
+      startParam.setMessage(message);
+      startParam.setEventTime(startTime);
+      startParam.setDataKind(TaskDataKind.TEST_TASK);
+      startParam.setData(new TestTask(entry.getKey()));
+      notifyStart(startParam);
+    }
+  }
+
+  @Override
+  public synchronized void statusChanged(ProgressEvent event) {
+    if (!(event.getDescriptor() instanceof JvmTestOperationDescriptor)) {
+      return;
+    }
+    JvmTestOperationDescriptor descriptor = (JvmTestOperationDescriptor) event.getDescriptor();
+    // only the test cases are reported, the suites are the classes and the executors.
+    if (descriptor.getJvmTestKind() != JvmTestKind.ATOMIC) {
+      return;
+    }
+    BuildTargetIdentifier btId = getBuildTarget(descriptor);
+    if (btId == null) {
+      return;
+    }
+    if (event instanceof TestStartEvent) {
+      testStarted(btId, descriptor, event.getEventTime());
+    } else if (event instanceof TestFinishEvent) {
+      testFinished(btId, descriptor, ((TestFinishEvent) event).getResult(),
+          event.getEventTime());
+    }
+  }
+
+  private void testStarted(BuildTargetIdentifier btId, JvmTestOperationDescriptor descriptor,
+      long eventTime) {
+    TaskId testId = new TaskId(UUID.randomUUID().toString());
+    testId.setParents(Collections.singletonList(taskIds.get(btId).getId()));
+    testIds.put(descriptor, testId);
+    TaskStartParams startParam = new TaskStartParams(testId);
+    startParam.setMessage(getDisplayName(descriptor));
+    startParam.setEventTime(eventTime);
+    startParam.setDataKind(TaskDataKind.TEST_START);
+    startParam.setData(new TestStart(getDisplayName(descriptor)));
+    notifyStart(startParam);
+  }
+
+  private void testFinished(BuildTargetIdentifier btId, JvmTestOperationDescriptor descriptor,
+      TestOperationResult result, long eventTime) {
+    TaskId testId = testIds.remove(descriptor);
+    if (testId == null) {
+      return;
+    }
+    TestStatus status;
+    StatusCode statusCode = StatusCode.OK;
+    String message = null;
+    if (result instanceof TestFailureResult) {
+      status = TestStatus.FAILED;
+      statusCode = StatusCode.ERROR;
+      message = getFailureMessage((TestFailureResult) result);
+    } else if (result instanceof TestSkippedResult) {
+      status = TestStatus.IGNORED;
+    } else {
+      status = TestStatus.PASSED;
+    }
+    counts.computeIfAbsent(btId, k -> new int[TestStatus.values().length])[status.ordinal()]++;
+
+    TestFinish testFinish = new TestFinish(getDisplayName(descriptor), status);
+    testFinish.setMessage(message);
+    TaskFinishParams endParam = new TaskFinishParams(testId, statusCode);
+    endParam.setMessage(getDisplayName(descriptor) + " " + status);
+    endParam.setEventTime(eventTime);
+    endParam.setDataKind(TaskDataKind.TEST_FINISH);
+    endParam.setData(testFinish);
+    notifyFinish(endParam);
+  }
+
+  /**
+   * Forward a line of the build output to the client, as a log message of the task
+   * of the first build target.
+   *
+   * @param message the line of the output.
+   * @param type the type of the message.
+   */
+  public void logMessage(String message, MessageType type) {
+    BuildClient buildClient = client;
+    if (buildClient == null) {
+      return;
+    }
+    LogMessageParams params = new LogMessageParams(type, message);
+    params.setTask(taskId);
+    params.setOriginId(originId);
+    buildClient.onBuildLogMessage(params);
+  }
+
+  /**
+   * Get the number of the finished tests of the build target with the given status.
+   */
+  public synchronized int getCount(BuildTargetIdentifier btId, TestStatus status) {
+    int[] count = counts.get(btId);
+    return count == null ? 0 : count[status.ordinal()];
+  }
+
+  @Override
+  public void taskFinished(String message, StatusCode statusCode) {
+    long endTime = System.currentTimeMillis();
+    for (Map.Entry<BuildTargetIdentifier, TaskId> entry : taskIds.entrySet()) {
+      BuildTargetIdentifier btId = entry.getKey();
+      TaskFinishParams endParam = new TaskFinishParams(entry.getValue(), statusCode);
+      endParam.setMessage(message);
+      endParam.setEventTime(endTime);
+      endParam.setDataKind(TaskDataKind.TEST_REPORT);
+      TestReport report = new TestReport(btId, getCount(btId, TestStatus.PASSED),
+          getCount(btId, TestStatus.FAILED), getCount(btId, TestStatus.IGNORED),
+          getCount(btId, TestStatus.CANCELLED), getCount(btId, TestStatus.SKIPPED));
+      report.setOriginId(originId);
+      report.setTime(endTime - startTime);
+      endParam.setData(report);
+      notifyFinish(endParam);
+    }
+    client = null;
+  }
+
+  /**
+   * Find the build target of a test by the test task which runs it.
+   */
+  private BuildTargetIdentifier getBuildTarget(OperationDescriptor descriptor) {
+    for (OperationDescriptor parent = descriptor.getParent(); parent != null;
+        parent = parent.getParent()) {
+      if (parent instanceof TaskOperationDescriptor) {
+        return testTasks.get(((TaskOperationDescriptor) parent).getTaskPath());
+      }
+    }
+    // the task is unknown if the task events are not received.
+    return taskIds.size() == 1 ? taskIds.keySet().iterator().next() : null;
+  }
+
+  private static String getDisplayName(JvmTestOperationDescriptor descriptor) {
+    if (descriptor.getClassName() != null && descriptor.getMethodName() != null) {
+      return descriptor.getClassName() + "." + descriptor.getMethodName();
+    }
+    return descriptor.getDisplayName();
+  }
+
+  private static String getFailureMessage(TestFailureResult result) {
+    StringBuilder message = new StringBuilder();
+    for (Failure failure : result.getFailures()) {
+      if (message.length() > 0) {
+        message.append('\n');
+      }
+      message.append(failure.getDescription() != null ? failure.getDescription()
+          : failure.getMessage());
+    }
+    return message.toString();
+  }
+
+  private void notifyStart(TaskStartParams startParam) {
+    BuildClient buildClient = client;
+    if (buildClient != null) {
+      buildClient.onBuildTaskStart(startParam);
+    }
+  }
+
+  private void notifyFinish(TaskFinishParams endParam) {
+    BuildClient buildClient = client;
+    if (buildClient != null) {
+      buildClient.onBuildTaskFinish(endParam);
+    }
+  }
+}
@@ -0,0 +1,79 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An executor which runs at most a given number of tasks at the same time on the
+ * delegate executor, the others are queued in the submission order. The queued
+ * tasks do not hold any thread.
+ */
+class BulkheadExecutor implements Executor {
+
+  private final Executor delegate;
+
+  private final int limit;
+
+  private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger running = new AtomicInteger();
+
+  BulkheadExecutor(Executor delegate, int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("The limit must be positive: " + limit);
+    }
+    this.delegate = delegate;
+    this.limit = limit;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    queue.add(task);
+    drain();
+  }
+
+  int getRunningCount() {
+    return running.get();
+  }
+
+  int getQueuedCount() {
+    return queue.size();
+  }
+
+  private void drain() {
+    while (!queue.isEmpty()) {
+      int count = running.get();
+      if (count >= limit) {
+        // a running task drains the queue when it completes.
+        return;
+      }
+      if (!running.compareAndSet(count, count + 1)) {
+        continue;
+      }
+      Runnable task = queue.poll();
+      if (task == null) {
+        running.decrementAndGet();
+        continue;
+      }
+      try {
+        delegate.execute(() -> {
+          try {
+            task.run();
+          } finally {
+            running.decrementAndGet();
+            drain();
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        running.decrementAndGet();
+        throw e;
+      }
+    }
+  }
+}
@@ -4,7 +4,9 @@
 package com.microsoft.java.bs.core.internal.server;
 
 import static com.microsoft.java.bs.core.Launcher.LOGGER;
+import static com.microsoft.java.bs.core.Launcher.METRICS;
 
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
@@ -13,13 +15,16 @@ import java.util.logging.Level;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.eclipse.lsp4j.jsonrpc.CancelChecker;
-import org.eclipse.lsp4j.jsonrpc.CompletableFutures;
 import org.eclipse.lsp4j.jsonrpc.ResponseErrorException;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import org.eclipse.lsp4j.jsonrpc.messages.ResponseError;
 import org.eclipse.lsp4j.jsonrpc.messages.ResponseErrorCode;
 
+import com.microsoft.java.bs.core.internal.gradle.GradleCancelChecker;
 import com.microsoft.java.bs.core.internal.log.BspTraceEntity;
+import com.microsoft.java.bs.core.internal.model.MetricsResult;
+import com.microsoft.java.bs.core.internal.model.TimingReportsParams;
+import com.microsoft.java.bs.core.internal.model.TimingReportsResult;
 import com.microsoft.java.bs.core.internal.services.BuildTargetService;
 import com.microsoft.java.bs.core.internal.services.LifecycleService;
 
@@ -41,6 +46,11 @@ import ch.epfl.scala.bsp4j.InverseSourcesResult;
 import ch.epfl.scala.bsp4j.JavaBuildServer;
 import ch.epfl.scala.bsp4j.JavacOptionsParams;
 import ch.epfl.scala.bsp4j.JavacOptionsResult;
+import ch.epfl.scala.bsp4j.JvmBuildServer;
+import ch.epfl.scala.bsp4j.JvmRunEnvironmentParams;
+import ch.epfl.scala.bsp4j.JvmRunEnvironmentResult;
+import ch.epfl.scala.bsp4j.JvmTestEnvironmentParams;
+import ch.epfl.scala.bsp4j.JvmTestEnvironmentResult;
 import ch.epfl.scala.bsp4j.OutputPathsParams;
 import ch.epfl.scala.bsp4j.OutputPathsResult;
 import ch.epfl.scala.bsp4j.ResourcesParams;
@@ -56,21 +66,35 @@ import ch.epfl.scala.bsp4j.WorkspaceBuildTargetsResult;
 /**
  * The implementation of the Build Server Protocol.
  */
-public class GradleBuildServer implements BuildServer, JavaBuildServer {
+public class GradleBuildServer implements BuildServer, JavaBuildServer, JvmBuildServer,
+    GradleBuildServerExtension {
 
   private LifecycleService lifecycleService;
 
   private BuildTargetService buildTargetService;
 
+  private RequestExecutor requestExecutor;
+
   public GradleBuildServer(LifecycleService lifecycleService,
       BuildTargetService buildTargetService) {
+    this(lifecycleService, buildTargetService, new RequestExecutor());
+  }
+
+  /**
+   * Instantiates a {@link GradleBuildServer} running the requests with the given
+   * executor.
+   */
+  public GradleBuildServer(LifecycleService lifecycleService,
+      BuildTargetService buildTargetService, RequestExecutor requestExecutor) {
     this.lifecycleService = lifecycleService;
     this.buildTargetService = buildTargetService;
+    this.requestExecutor = requestExecutor;
   }
 
   @Override
   public CompletableFuture<InitializeBuildResult> buildInitialize(InitializeBuildParams params) {
-    return handleRequest("build/initialize", cc -> lifecycleService.initializeServer(params));
+    return handleRequest("build/initialize", cc -> lifecycleService.initializeServer(params,
+        requestExecutor.getExecutor(RequestExecutor.RequestKind.MODEL)));
   }
 
   @Override
@@ -80,8 +104,10 @@ public class GradleBuildServer implements BuildServer, JavaBuildServer {
 
   @Override
   public CompletableFuture<Object> buildShutdown() {
-    return handleRequest("build/shutdown", cc ->
-        lifecycleService.shutdown());
+    return handleRequest("build/shutdown", cc -> {
+      buildTargetService.shutdown();
+      return lifecycleService.shutdown();
+    });
   }
 
   @Override
@@ -98,7 +124,7 @@ public class GradleBuildServer implements BuildServer, JavaBuildServer {
   @Override
   public CompletableFuture<Object> workspaceReload() {
     return handleRequest("workspace/reload", cc ->
-        lifecycleService.reloadWorkspace());
+        lifecycleService.reloadWorkspace(cc.getToken()));
   }
 
   @Override
@@ -110,15 +136,15 @@ public class GradleBuildServer implements BuildServer, JavaBuildServer {
   @Override
   public CompletableFuture<InverseSourcesResult> buildTargetInverseSources(
       InverseSourcesParams params) {
-    // TODO Auto-generated method stub
-    throw new UnsupportedOperationException("Unimplemented method 'buildTargetInverseSources'");
+    return handleRequest("buildTarget/inverseSources", cc ->
+        buildTargetService.getBuildTargetInverseSources(params));
   }
 
   @Override
   public CompletableFuture<DependencySourcesResult> buildTargetDependencySources(
       DependencySourcesParams params) {
-    // TODO Auto-generated method stub
-    throw new UnsupportedOperationException("Unimplemented method 'buildTargetDependencySources'");
+    return handleRequest("buildTarget/dependencySources", cc ->
+        buildTargetService.getBuildTargetDependencySources(params));
   }
 
   @Override
@@ -135,19 +161,21 @@ public class GradleBuildServer implements BuildServer, JavaBuildServer {
 
   @Override
   public CompletableFuture<CompileResult> buildTargetCompile(CompileParams params) {
-    return handleRequest("buildTarget/compile", cc -> buildTargetService.compile(params));
+    return handleRequest("buildTarget/compile", cc ->
+        buildTargetService.compile(params, cc.getToken()));
   }
 
   @Override
   public CompletableFuture<TestResult> buildTargetTest(TestParams params) {
-    // TODO Auto-generated method stub
-    throw new UnsupportedOperationException("Unimplemented method 'buildTargetTest'");
+    return handleRequest("buildTarget/test", cc ->
+        buildTargetService.test(params, cc.getToken()));
   }
 
   @Override
   public CompletableFuture<RunResult> buildTargetRun(RunParams params) {
-    // TODO Auto-generated method stub
-    throw new UnsupportedOperationException("Unimplemented method 'buildTargetRun'");
+    return handleRequest("buildTarget/run", cc ->
+        buildTargetService.run(params, cc.getToken(),
+            requestExecutor.getExecutor(RequestExecutor.RequestKind.BUILD)));
   }
 
   @Override
@@ -158,7 +186,8 @@ public class GradleBuildServer implements BuildServer, JavaBuildServer {
 
   @Override
   public CompletableFuture<CleanCacheResult> buildTargetCleanCache(CleanCacheParams params) {
-    return handleRequest("buildTarget/cleanCache", cc -> buildTargetService.cleanCache(params));
+    return handleRequest("buildTarget/cleanCache", cc ->
+        buildTargetService.cleanCache(params, cc.getToken()));
   }
 
   @Override
@@ -174,20 +203,47 @@ public class GradleBuildServer implements BuildServer, JavaBuildServer {
         buildTargetService.getBuildTargetJavacOptions(params));
   }
 
+  @Override
+  public CompletableFuture<JvmRunEnvironmentResult> jvmRunEnvironment(
+      JvmRunEnvironmentParams params) {
+    return handleRequest("buildTarget/jvmRunEnvironment", cc ->
+        buildTargetService.getBuildTargetJvmRunEnvironment(params));
+  }
+
+  @Override
+  public CompletableFuture<JvmTestEnvironmentResult> jvmTestEnvironment(
+      JvmTestEnvironmentParams params) {
+    return handleRequest("buildTarget/jvmTestEnvironment", cc ->
+        buildTargetService.getBuildTargetJvmTestEnvironment(params));
+  }
+
+  @Override
+  public CompletableFuture<TimingReportsResult> buildServerTimingReports(
+      TimingReportsParams params) {
+    return handleRequest("buildServer/timingReports", cc ->
+        lifecycleService.getTimingReports(params));
+  }
+
+  @Override
+  public CompletableFuture<MetricsResult> buildServerMetrics() {
+    return handleRequest("buildServer/metrics", cc -> lifecycleService.getMetrics());
+  }
+
   private void handleNotification(String methodName, Runnable runnable, boolean async) {
     BspTraceEntity entity = new BspTraceEntity.Builder()
         .operationName(escapeMethodName(methodName))
         .build();
     LOGGER.log(Level.INFO, "Received notification '" + methodName + "'.", entity);
+    METRICS.increment("bsp.notification." + methodName);
     if (async) {
-      CompletableFuture.runAsync(runnable);
+      CompletableFuture.runAsync(runnable, requestExecutor.getExecutor(methodName));
     } else {
       runnable.run();
     }
   }
 
   private <R> CompletableFuture<R> handleRequest(String methodName,
-      Function<CancelChecker, R> supplier) {
+      Function<GradleCancelChecker, R> supplier) {
     return runAsync(methodName, supplier);
   }
 
@@ -197,17 +253,31 @@ public class GradleBuildServer implements BuildServer, JavaBuildServer {
     return runAsync(methodName, cancelChecker -> function.apply(cancelChecker, arg));
   }
 
-  private <T> CompletableFuture<T> runAsync(String methodName, Function<CancelChecker, T> request) {
+  private <T> CompletableFuture<T> runAsync(String methodName,
+      Function<GradleCancelChecker, T> request) {
     long startTime = System.nanoTime();
-    return CompletableFutures.computeAsync(request)
+    GradleCancelChecker cancelChecker = new GradleCancelChecker();
+    CompletableFuture<T> result = CompletableFuture.supplyAsync(
+            () -> request.apply(cancelChecker), requestExecutor.getExecutor(methodName))
         .thenApply(Either::<Throwable, T>forRight)
         .exceptionally(Either::forLeft)
         .thenCompose(either -> {
           long elapsedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+          METRICS.record("bsp.request." + methodName, elapsedTime);
           return either.isLeft()
               ? failure(methodName, either.getLeft())
               : success(methodName, either.getRight(), elapsedTime);
         });
+    // '$/cancelRequest' cancels the returned future, pass it on to the running
+    // Gradle operations so that the daemon is released.
+    result.whenComplete((response, throwable) -> {
+      if (throwable instanceof CancellationException) {
+        LOGGER.info("Request '" + methodName + "' is cancelled.");
+        METRICS.increment("bsp.request." + methodName + ".cancelled");
+        cancelChecker.cancel();
+      }
+    });
+    return result;
   }
 
   private <T> CompletableFuture<T> success(String methodName, T response, long elapsedTime) {
@@ -222,6 +292,7 @@ public class GradleBuildServer implements BuildServer, JavaBuildServer {
   }
 
   private <T> CompletableFuture<T> failure(String methodName, Throwable throwable) {
+    METRICS.increment("bsp.request." + methodName + ".errors");
     String stackTrace = ExceptionUtils.getStackTrace(throwable);
     Throwable rootCause = ExceptionUtils.getRootCause(throwable);
     String rootCauseMessage = rootCause != null ? rootCause.getMessage() : null;
@@ -0,0 +1,32 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.server;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.lsp4j.jsonrpc.services.JsonRequest;
+
+import com.microsoft.java.bs.core.internal.model.MetricsResult;
+import com.microsoft.java.bs.core.internal.model.TimingReportsParams;
+import com.microsoft.java.bs.core.internal.model.TimingReportsResult;
+
+/**
+ * The requests of the Gradle Build Server which are not part of the Build Server
+ * Protocol.
+ */
+public interface GradleBuildServerExtension {
+
+  /**
+   * Get the timing reports of the latest Gradle operations, the newest first.
+   */
+  @JsonRequest("buildServer/timingReports")
+  CompletableFuture<TimingReportsResult> buildServerTimingReports(TimingReportsParams params);
+
+  /**
+   * Get the metrics of the server aggregated since it is started, e.g. the
+   * request latencies, the Gradle operation durations and the cache hit rates.
+   */
+  @JsonRequest("buildServer/metrics")
+  CompletableFuture<MetricsResult> buildServerMetrics();
+}
@@ -0,0 +1,154 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.server;
+
+import static com.microsoft.java.bs.core.Launcher.LOGGER;
+import static com.microsoft.java.bs.core.Launcher.METRICS;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the BSP requests with a bulkhead for each kind of request, so that the
+ * cheap requests reading the cached build targets never queue behind the builds
+ * or the model fetches, which can take minutes.
+ *
+ * <p>The requests run on virtual threads if the JVM supports them, otherwise on a
+ * shared cached thread pool whose size is bounded by the sum of the limits.
+ */
+public class RequestExecutor {
+
+  /**
+   * The kind of a request, each kind has its own concurrency limit.
+   */
+  public enum RequestKind {
+    /**
+     * The requests running Gradle tasks, e.g. compile and clean cache.
+     */
+    BUILD,
+    /**
+     * The requests fetching the Gradle models, e.g. reload.
+     */
+    MODEL,
+    /**
+     * The requests running an application until it exits, e.g. run. They are not
+     * limited, since an application such as a server can run for the whole session.
+     * Their compile step runs on the build executor.
+     */
+    RUN,
+    /**
+     * The other requests, which read the cached build targets.
+     */
+    READ
+  }
+
+  static final int BUILD_LIMIT = 2;
+
+  static final int MODEL_LIMIT = 2;
+
+  static final int VIRTUAL_READ_LIMIT = 256;
+
+  private static final Set<String> BUILD_METHODS = Set.of("buildTarget/compile",
+      "buildTarget/cleanCache", "buildTarget/test");
+
+  private static final Set<String> RUN_METHODS = Set.of("buildTarget/run");
+
+  private static final Set<String> MODEL_METHODS = Set.of("workspace/reload",
+      "buildTarget/dependencyModules", "buildTarget/dependencySources");
+
+  private final Map<RequestKind, BulkheadExecutor> executors =
+      new EnumMap<>(RequestKind.class);
+
+  /**
+   * Instantiates a {@link RequestExecutor} with the default limits.
+   */
+  public RequestExecutor() {
+    this(newVirtualThreadExecutor());
+  }
+
+  private RequestExecutor(ExecutorService virtualThreadExecutor) {
+    this(virtualThreadExecutor != null ? virtualThreadExecutor
+        : newCachedThreadPool("bsp-request"), BUILD_LIMIT, MODEL_LIMIT,
+        virtualThreadExecutor != null ? VIRTUAL_READ_LIMIT
+            : Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+  }
+
+  RequestExecutor(Executor delegate, int buildLimit, int modelLimit, int readLimit) {
+    executors.put(RequestKind.BUILD, new BulkheadExecutor(delegate, buildLimit));
+    executors.put(RequestKind.MODEL, new BulkheadExecutor(delegate, modelLimit));
+    executors.put(RequestKind.RUN, new BulkheadExecutor(delegate, Integer.MAX_VALUE));
+    executors.put(RequestKind.READ, new BulkheadExecutor(delegate, readLimit));
+    executors.forEach((kind, executor) -> METRICS.registerGauge(
+        "executor." + kind.name().toLowerCase(Locale.ROOT) + ".queued",
+        executor::getQueuedCount));
+  }
+
+  /**
+   * Get the executor of the given BSP method.
+   */
+  public Executor getExecutor(String methodName) {
+    return executors.get(getRequestKind(methodName));
+  }
+
+  /**
+   * Get the executor of the given kind of request.
+   */
+  public Executor getExecutor(RequestKind kind) {
+    return executors.get(kind);
+  }
+
+  static RequestKind getRequestKind(String methodName) {
+    if (BUILD_METHODS.contains(methodName)) {
+      return RequestKind.BUILD;
+    }
+    if (MODEL_METHODS.contains(methodName)) {
+      return RequestKind.MODEL;
+    }
+    if (RUN_METHODS.contains(methodName)) {
+      return RequestKind.RUN;
+    }
+    return RequestKind.READ;
+  }
+
+  BulkheadExecutor getBulkhead(RequestKind kind) {
+    return executors.get(kind);
+  }
+
+  /**
+   * Create an executor starting a new virtual thread for each task if the JVM
+   * supports virtual threads, otherwise a cached pool of daemon threads.
+   *
+   * @param name the name prefix of the platform threads.
+   */
+  public static ExecutorService newThreadPerTaskExecutor(String name) {
+    ExecutorService executor = newVirtualThreadExecutor();
+    return executor != null ? executor : newCachedThreadPool(name);
+  }
+
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      // the server is compiled against Java 17, which has no virtual threads.
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      LOGGER.fine("Virtual threads are not supported, use the platform threads.");
+      return null;
+    }
+  }
+
+  private static ExecutorService newCachedThreadPool(String name) {
+    AtomicInteger count = new AtomicInteger();
+    return Executors.newCachedThreadPool(r -> {
+      Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+}
@@ -4,35 +4,57 @@
 package com.microsoft.java.bs.core.internal.services;
 
 import static com.microsoft.java.bs.core.Launcher.LOGGER;
+import static com.microsoft.java.bs.core.Launcher.METRICS;
 
 import java.io.File;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.CancellationToken;
 
 import com.microsoft.java.bs.core.Launcher;
 import com.microsoft.java.bs.core.internal.gradle.GradleApiConnector;
+import com.microsoft.java.bs.core.internal.launcher.JvmLauncher;
 import com.microsoft.java.bs.core.internal.managers.BuildTargetManager;
+import com.microsoft.java.bs.core.internal.managers.BuildTargetSnapshot;
+import com.microsoft.java.bs.core.internal.managers.ModuleArtifactsCache;
 import com.microsoft.java.bs.core.internal.managers.PreferenceManager;
+import com.microsoft.java.bs.core.internal.managers.SourceRootIndex;
 import com.microsoft.java.bs.core.internal.model.GradleBuildTarget;
+import com.microsoft.java.bs.core.internal.model.Preferences;
+import com.microsoft.java.bs.core.internal.reporter.DiagnosticsReporter;
+import com.microsoft.java.bs.core.internal.server.RequestExecutor;
+import com.microsoft.java.bs.core.internal.utils.JsonUtils;
 import com.microsoft.java.bs.core.internal.utils.TelemetryUtils;
 import com.microsoft.java.bs.core.internal.utils.UriUtils;
+import com.microsoft.java.bs.gradle.model.Artifact;
+import com.microsoft.java.bs.gradle.model.GradleModuleDependencies;
 import com.microsoft.java.bs.gradle.model.GradleModuleDependency;
 import com.microsoft.java.bs.gradle.model.GradleSourceSet;
 import com.microsoft.java.bs.gradle.model.GradleSourceSets;
-import com.microsoft.java.bs.gradle.model.SupportedLanguages;
 import com.microsoft.java.bs.gradle.model.impl.DefaultJavaExtension;
-import com.microsoft.java.bs.gradle.model.utils.Conversions;
 
 import ch.epfl.scala.bsp4j.BuildTarget;
 import ch.epfl.scala.bsp4j.BuildTargetEvent;
@@ -45,10 +67,20 @@ import ch.epfl.scala.bsp4j.DependencyModule;
 import ch.epfl.scala.bsp4j.DependencyModulesItem;
 import ch.epfl.scala.bsp4j.DependencyModulesParams;
 import ch.epfl.scala.bsp4j.DependencyModulesResult;
+import ch.epfl.scala.bsp4j.DependencySourcesItem;
+import ch.epfl.scala.bsp4j.DependencySourcesParams;
+import ch.epfl.scala.bsp4j.DependencySourcesResult;
+import ch.epfl.scala.bsp4j.InverseSourcesParams;
+import ch.epfl.scala.bsp4j.InverseSourcesResult;
 import ch.epfl.scala.bsp4j.JavacOptionsItem;
 import ch.epfl.scala.bsp4j.JavacOptionsParams;
 import ch.epfl.scala.bsp4j.JavacOptionsResult;
 import ch.epfl.scala.bsp4j.DidChangeBuildTarget;
+import ch.epfl.scala.bsp4j.JvmEnvironmentItem;
+import ch.epfl.scala.bsp4j.JvmRunEnvironmentParams;
+import ch.epfl.scala.bsp4j.JvmRunEnvironmentResult;
+import ch.epfl.scala.bsp4j.JvmTestEnvironmentParams;
+import ch.epfl.scala.bsp4j.JvmTestEnvironmentResult;
 import ch.epfl.scala.bsp4j.MavenDependencyModule;
 import ch.epfl.scala.bsp4j.MavenDependencyModuleArtifact;
 import ch.epfl.scala.bsp4j.OutputPathItem;
@@ -59,12 +91,23 @@ import ch.epfl.scala.bsp4j.OutputPathsResult;
 import ch.epfl.scala.bsp4j.ResourcesItem;
 import ch.epfl.scala.bsp4j.ResourcesParams;
 import ch.epfl.scala.bsp4j.ResourcesResult;
+import ch.epfl.scala.bsp4j.RunParams;
+import ch.epfl.scala.bsp4j.RunParamsDataKind;
+import ch.epfl.scala.bsp4j.RunResult;
+import ch.epfl.scala.bsp4j.ScalaMainClass;
+import ch.epfl.scala.bsp4j.ScalaTestClassesItem;
+import ch.epfl.scala.bsp4j.ScalaTestParams;
+import ch.epfl.scala.bsp4j.ScalaTestSuiteSelection;
+import ch.epfl.scala.bsp4j.ScalaTestSuites;
 import ch.epfl.scala.bsp4j.SourceItem;
 import ch.epfl.scala.bsp4j.SourceItemKind;
 import ch.epfl.scala.bsp4j.SourcesItem;
 import ch.epfl.scala.bsp4j.SourcesParams;
 import ch.epfl.scala.bsp4j.SourcesResult;
 import ch.epfl.scala.bsp4j.StatusCode;
+import ch.epfl.scala.bsp4j.TestParams;
+import ch.epfl.scala.bsp4j.TestParamsDataKind;
+import ch.epfl.scala.bsp4j.TestResult;
 import ch.epfl.scala.bsp4j.WorkspaceBuildTargetsResult;
 
 /**
@@ -74,12 +117,39 @@ public class BuildTargetService {
 
   private static final String MAVEN_DATA_KIND = "maven";
 
+  private static final String UNKNOWN = "unknown";
+
+  private static final String SOURCES_CLASSIFIER = "sources";
+
+  private static final String SCALA_TEST_SUITES = "scala-test-suites";
+
+  private static final String SCALA_TEST_SUITES_SELECTION = "scala-test-suites-selection";
+
+  /**
+   * Runs the builds of different root directories in parallel, shared by all the
+   * requests. The concurrency of each request is limited by the preferences.
+   */
+  private static final ExecutorService BUILD_RUNNER =
+      RequestExecutor.newThreadPerTaskExecutor("bsp-build-runner");
+
   private BuildTargetManager buildTargetManager;
 
   private GradleApiConnector connector;
 
   private PreferenceManager preferenceManager;
 
+  private RefetchScheduler refetchScheduler;
+
+  private ModuleArtifactsCache moduleArtifactsCache;
+
+  /**
+   * The documents with compiler diagnostics of each build target, published by
+   * the previous compilations.
+   */
+  private Map<BuildTargetIdentifier, Set<String>> publishedDiagnostics;
+
+  private JvmLauncher jvmLauncher;
+
   /**
    * Initialize the build target service.
    *
@@ -88,16 +158,44 @@ public class BuildTargetService {
    */
   public BuildTargetService(BuildTargetManager buildTargetManager,
       GradleApiConnector connector, PreferenceManager preferenceManager) {
+    this(buildTargetManager, connector, preferenceManager, new JvmLauncher());
+  }
+
+  BuildTargetService(BuildTargetManager buildTargetManager, GradleApiConnector connector,
+      PreferenceManager preferenceManager, JvmLauncher jvmLauncher) {
     this.buildTargetManager = buildTargetManager;
+    this.jvmLauncher = jvmLauncher;
     this.connector = connector;
     this.preferenceManager = preferenceManager;
+    this.refetchScheduler = new RefetchScheduler(this::refetchBuildTargets, () -> {
+      Preferences preferences = preferenceManager.getPreferences();
+      return preferences == null ? 0L : preferences.getRefetchDebounce();
+    });
+    this.moduleArtifactsCache = new ModuleArtifactsCache();
+    this.publishedDiagnostics = new ConcurrentHashMap<>();
+    METRICS.registerGauge("refetch.requested", refetchScheduler::getRequestedCount);
+    METRICS.registerGauge("refetch.refetched", refetchScheduler::getRefetchedCount);
+    METRICS.registerGauge("refetch.coalesced", refetchScheduler::getCoalescedCount);
+    METRICS.registerGauge("refetch.skipped", refetchScheduler::getSkippedCount);
+  }
+
+  /**
+   * Cancel the running refetch of the build targets and stop scheduling new ones.
+   */
+  public void shutdown() {
+    try {
+      refetchScheduler.shutdown();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
   }
 
   /**
    * Get the build targets of the workspace.
    */
   public WorkspaceBuildTargetsResult getWorkspaceBuildTargets() {
-    List<GradleBuildTarget> allTargets = buildTargetManager.getAllGradleBuildTargets();
+    List<GradleBuildTarget> allTargets = buildTargetManager.getSnapshot()
+        .getAllGradleBuildTargets();
     List<BuildTarget> targets = allTargets.stream()
         .map(GradleBuildTarget::getBuildTarget)
         .collect(Collectors.toList());
@@ -111,230 +209,746 @@ public class BuildTargetService {
    * Get the sources.
    */
   public SourcesResult getBuildTargetSources(SourcesParams params) {
+    BuildTargetSnapshot snapshot = buildTargetManager.getSnapshot();
     List<SourcesItem> sourceItems = new ArrayList<>();
     for (BuildTargetIdentifier btId : params.getTargets()) {
-      GradleBuildTarget target = buildTargetManager.getGradleBuildTarget(btId);
+      GradleBuildTarget target = snapshot.getGradleBuildTarget(btId);
       if (target == null) {
         LOGGER.warning("Skip sources collection for the build target: " + btId.getUri()
             + ". Because it cannot be found in the cache.");
         continue;
       }
 
-      GradleSourceSet sourceSet = target.getSourceSet();
-      List<SourceItem> sources = new ArrayList<>();
-      for (File sourceDir : sourceSet.getSourceDirs()) {
-        sources.add(new SourceItem(sourceDir.toURI().toString(), SourceItemKind.DIRECTORY,
-            false /* generated */));
-      }
-      for (File sourceDir : sourceSet.getGeneratedSourceDirs()) {
-        sources.add(new SourceItem(sourceDir.toURI().toString(), SourceItemKind.DIRECTORY,
-            true /* generated */));
-      }
-      SourcesItem item = new SourcesItem(btId, sources);
-      sourceItems.add(item);
+      sourceItems.add(target.getResponseItem(SourcesItem.class,
+          () -> createSourcesItem(btId, target.getSourceSet())));
     }
     return new SourcesResult(sourceItems);
   }
 
+  private SourcesItem createSourcesItem(BuildTargetIdentifier btId, GradleSourceSet sourceSet) {
+    List<SourceItem> sources = new ArrayList<>();
+    for (File sourceDir : sourceSet.getSourceDirs()) {
+      sources.add(new SourceItem(sourceDir.toURI().toString(), SourceItemKind.DIRECTORY,
+          false /* generated */));
+    }
+    for (File sourceDir : sourceSet.getGeneratedSourceDirs()) {
+      sources.add(new SourceItem(sourceDir.toURI().toString(), SourceItemKind.DIRECTORY,
+          true /* generated */));
+    }
+    return new SourcesItem(btId, sources);
+  }
+
+  /**
+   * Get the build targets whose source, generated source or resource roots
+   * contain the given document.
+   */
+  public InverseSourcesResult getBuildTargetInverseSources(InverseSourcesParams params) {
+    URI uri = UriUtils.getUriFromString(params.getTextDocument().getUri());
+    if (!"file".equals(uri.getScheme())) {
+      return new InverseSourcesResult(Collections.emptyList());
+    }
+    return new InverseSourcesResult(buildTargetManager.getSnapshot().getSourceRootIndex()
+        .getBuildTargets(new File(uri)));
+  }
+
   /**
    * Get the resources.
    */
   public ResourcesResult getBuildTargetResources(ResourcesParams params) {
+    BuildTargetSnapshot snapshot = buildTargetManager.getSnapshot();
     List<ResourcesItem> items = new ArrayList<>();
     for (BuildTargetIdentifier btId : params.getTargets()) {
-      GradleBuildTarget target = buildTargetManager.getGradleBuildTarget(btId);
+      GradleBuildTarget target = snapshot.getGradleBuildTarget(btId);
       if (target == null) {
         LOGGER.warning("Skip resources collection for the build target: " + btId.getUri()
             + ". Because it cannot be found in the cache.");
         continue;
       }
 
-      GradleSourceSet sourceSet = target.getSourceSet();
-      List<String> resources = new ArrayList<>();
-      for (File resourceDir : sourceSet.getResourceDirs()) {
-        resources.add(resourceDir.toURI().toString());
-      }
-      ResourcesItem item = new ResourcesItem(btId, resources);
-      items.add(item);
+      items.add(target.getResponseItem(ResourcesItem.class,
+          () -> createResourcesItem(btId, target.getSourceSet())));
     }
     return new ResourcesResult(items);
   }
 
+  private ResourcesItem createResourcesItem(BuildTargetIdentifier btId,
+      GradleSourceSet sourceSet) {
+    List<String> resources = new ArrayList<>();
+    for (File resourceDir : sourceSet.getResourceDirs()) {
+      resources.add(resourceDir.toURI().toString());
+    }
+    return new ResourcesItem(btId, resources);
+  }
+
   /**
    * Get the output paths.
    */
   public OutputPathsResult getBuildTargetOutputPaths(OutputPathsParams params) {
+    BuildTargetSnapshot snapshot = buildTargetManager.getSnapshot();
     List<OutputPathsItem> items = new ArrayList<>();
     for (BuildTargetIdentifier btId : params.getTargets()) {
-      GradleBuildTarget target = buildTargetManager.getGradleBuildTarget(btId);
+      GradleBuildTarget target = snapshot.getGradleBuildTarget(btId);
       if (target == null) {
         LOGGER.warning("Skip output collection for the build target: " + btId.getUri()
             + ". Because it cannot be found in the cache.");
         continue;
       }
 
-      GradleSourceSet sourceSet = target.getSourceSet();
-      List<OutputPathItem> outputPaths = new ArrayList<>();
-      // Due to the BSP spec does not support additional flags for each output path,
-      // we will leverage the query of the uri to mark whether this is a source/resource
-      // output path.
-      // TODO: file a BSP spec issue to support additional flags for each output path.
-
-      File sourceOutputDir = sourceSet.getSourceOutputDir();
-      if (sourceOutputDir != null) {
-        outputPaths.add(new OutputPathItem(
-            sourceOutputDir.toURI().toString() + "?kind=source",
-            OutputPathItemKind.DIRECTORY
-        ));
-      }
+      items.add(target.getResponseItem(OutputPathsItem.class,
+          () -> createOutputPathsItem(btId, target.getSourceSet())));
+    }
+    return new OutputPathsResult(items);
+  }
 
-      File resourceOutputDir = sourceSet.getResourceOutputDir();
-      if (resourceOutputDir != null) {
-        outputPaths.add(new OutputPathItem(
-            resourceOutputDir.toURI().toString() + "?kind=resource",
-            OutputPathItemKind.DIRECTORY
-        ));
-      }
+  private OutputPathsItem createOutputPathsItem(BuildTargetIdentifier btId,
+      GradleSourceSet sourceSet) {
+    List<OutputPathItem> outputPaths = new ArrayList<>();
+    // Due to the BSP spec does not support additional flags for each output path,
+    // we will leverage the query of the uri to mark whether this is a source/resource
+    // output path.
+    // TODO: file a BSP spec issue to support additional flags for each output path.
 
-      OutputPathsItem item = new OutputPathsItem(btId, outputPaths);
-      items.add(item);
+    File sourceOutputDir = sourceSet.getSourceOutputDir();
+    if (sourceOutputDir != null) {
+      outputPaths.add(new OutputPathItem(
+          sourceOutputDir.toURI().toString() + "?kind=source",
+          OutputPathItemKind.DIRECTORY
+      ));
     }
-    return new OutputPathsResult(items);
+
+    File resourceOutputDir = sourceSet.getResourceOutputDir();
+    if (resourceOutputDir != null) {
+      outputPaths.add(new OutputPathItem(
+          resourceOutputDir.toURI().toString() + "?kind=resource",
+          OutputPathItemKind.DIRECTORY
+      ));
+    }
+
+    return new OutputPathsItem(btId, outputPaths);
   }
 
   /**
    * Get artifacts dependencies.
    */
   public DependencyModulesResult getBuildTargetDependencyModules(DependencyModulesParams params) {
+    BuildTargetSnapshot snapshot = buildTargetManager.getSnapshot();
+    boolean lazySourcesAndJavadoc = preferenceManager.getPreferences() != null
+        && preferenceManager.getPreferences().isLazySourcesAndJavadoc();
+    if (lazySourcesAndJavadoc) {
+      resolveSourcesAndJavadoc(snapshot, params.getTargets());
+    }
     List<DependencyModulesItem> items = new ArrayList<>();
     for (BuildTargetIdentifier btId : params.getTargets()) {
-      GradleBuildTarget target = buildTargetManager.getGradleBuildTarget(btId);
+      GradleBuildTarget target = snapshot.getGradleBuildTarget(btId);
       if (target == null) {
         LOGGER.warning("Skip output collection for the build target: " + btId.getUri()
             + ". Because it cannot be found in the cache.");
         continue;
       }
 
+      if (lazySourcesAndJavadoc) {
+        // the artifacts cache keeps growing, so the item is not cached.
+        items.add(createDependencyModulesItem(btId, target.getSourceSet(), true));
+      } else {
+        items.add(target.getResponseItem(DependencyModulesItem.class,
+            () -> createDependencyModulesItem(btId, target.getSourceSet(), false)));
+      }
+    }
+    return new DependencyModulesResult(items);
+  }
+
+  private DependencyModulesItem createDependencyModulesItem(BuildTargetIdentifier btId,
+      GradleSourceSet sourceSet, boolean lazySourcesAndJavadoc) {
+    List<DependencyModule> modules = new ArrayList<>();
+    for (GradleModuleDependency dep : sourceSet.getModuleDependencies()) {
+      DependencyModule module = new DependencyModule(dep.getModule(), dep.getVersion());
+      module.setDataKind(MAVEN_DATA_KIND);
+      List<Artifact> depArtifacts = dep.getArtifacts();
+      if (lazySourcesAndJavadoc) {
+        depArtifacts = new ArrayList<>(depArtifacts);
+        depArtifacts.addAll(moduleArtifactsCache.getArtifacts(
+            ModuleArtifactsCache.getCoordinates(dep)));
+      }
+      List<MavenDependencyModuleArtifact> artifacts = depArtifacts.stream().map(a -> {
+        MavenDependencyModuleArtifact artifact = new MavenDependencyModuleArtifact(
+            a.getUri().toString());
+        artifact.setClassifier(a.getClassifier());
+        return artifact;
+      }).collect(Collectors.toList());
+      MavenDependencyModule mavenModule = new MavenDependencyModule(
+          dep.getGroup(),
+          dep.getModule(),
+          dep.getVersion(),
+          artifacts
+      );
+      module.setData(mavenModule);
+      modules.add(module);
+    }
+    return new DependencyModulesItem(btId, modules);
+  }
+
+  /**
+   * Get the sources jars of the module dependencies.
+   */
+  public DependencySourcesResult getBuildTargetDependencySources(
+      DependencySourcesParams params) {
+    BuildTargetSnapshot snapshot = buildTargetManager.getSnapshot();
+    boolean lazySourcesAndJavadoc = preferenceManager.getPreferences() != null
+        && preferenceManager.getPreferences().isLazySourcesAndJavadoc();
+    if (lazySourcesAndJavadoc) {
+      resolveSourcesAndJavadoc(snapshot, params.getTargets());
+    }
+    List<DependencySourcesItem> items = new ArrayList<>();
+    for (BuildTargetIdentifier btId : params.getTargets()) {
+      GradleBuildTarget target = snapshot.getGradleBuildTarget(btId);
+      if (target == null) {
+        LOGGER.warning("Skip dependency sources collection for the build target: "
+            + btId.getUri() + ". Because it cannot be found in the cache.");
+        continue;
+      }
+
+      if (lazySourcesAndJavadoc) {
+        // the artifacts cache keeps growing, so the item is not cached.
+        items.add(createDependencySourcesItem(btId, target.getSourceSet(), true));
+      } else {
+        items.add(target.getResponseItem(DependencySourcesItem.class,
+            () -> createDependencySourcesItem(btId, target.getSourceSet(), false)));
+      }
+    }
+    return new DependencySourcesResult(items);
+  }
+
+  private DependencySourcesItem createDependencySourcesItem(BuildTargetIdentifier btId,
+      GradleSourceSet sourceSet, boolean lazySourcesAndJavadoc) {
+    Set<String> sources = new LinkedHashSet<>();
+    for (GradleModuleDependency dep : sourceSet.getModuleDependencies()) {
+      addSourcesJars(sources, dep.getArtifacts());
+      if (lazySourcesAndJavadoc) {
+        addSourcesJars(sources, moduleArtifactsCache.getArtifacts(
+            ModuleArtifactsCache.getCoordinates(dep)));
+      }
+    }
+    return new DependencySourcesItem(btId, new ArrayList<>(sources));
+  }
+
+  private void addSourcesJars(Set<String> sources, List<Artifact> artifacts) {
+    for (Artifact artifact : artifacts) {
+      if (SOURCES_CLASSIFIER.equals(artifact.getClassifier())) {
+        // the uri caches its string, and the artifacts are shared among the
+        // build targets, so the string of each jar is created once.
+        sources.add(artifact.getUri().toString());
+      }
+    }
+  }
+
+  /**
+   * Resolve the sources and javadoc artifacts of the module dependencies of the
+   * given build targets, if they are not resolved yet.
+   */
+  private void resolveSourcesAndJavadoc(BuildTargetSnapshot snapshot,
+      List<BuildTargetIdentifier> targets) {
+    Set<String> projectPaths = new HashSet<>();
+    Set<String> coordinates = new HashSet<>();
+    for (BuildTargetIdentifier btId : targets) {
+      GradleBuildTarget target = snapshot.getGradleBuildTarget(btId);
+      if (target == null) {
+        continue;
+      }
       GradleSourceSet sourceSet = target.getSourceSet();
-      List<DependencyModule> modules = new ArrayList<>();
+      projectPaths.add(sourceSet.getProjectPath());
       for (GradleModuleDependency dep : sourceSet.getModuleDependencies()) {
-        DependencyModule module = new DependencyModule(dep.getModule(), dep.getVersion());
-        module.setDataKind(MAVEN_DATA_KIND);
-        List<MavenDependencyModuleArtifact> artifacts = dep.getArtifacts().stream().map(a -> {
-          MavenDependencyModuleArtifact artifact = new MavenDependencyModuleArtifact(
-              a.getUri().toString());
-          artifact.setClassifier(a.getClassifier());
-          return artifact;
-        }).collect(Collectors.toList());
-        MavenDependencyModule mavenModule = new MavenDependencyModule(
-            dep.getGroup(),
-            dep.getModule(),
-            dep.getVersion(),
-            artifacts
-        );
-        module.setData(mavenModule);
-        modules.add(module);
+        if (!UNKNOWN.equals(dep.getGroup())) {
+          coordinates.add(ModuleArtifactsCache.getCoordinates(dep));
+        }
       }
+    }
 
-      DependencyModulesItem item = new DependencyModulesItem(btId, modules);
-      items.add(item);
+    Set<String> unresolved = moduleArtifactsCache.getUnresolvedCoordinates(coordinates,
+        snapshot);
+    if (unresolved.isEmpty()) {
+      return;
+    }
+    try {
+      GradleModuleDependencies resolved = connector.getModuleDependencies(
+          preferenceManager.getRootUri(), projectPaths, unresolved);
+      moduleArtifactsCache.store(unresolved, resolved.getModuleDependencies(), snapshot);
+    } catch (Exception e) {
+      LOGGER.log(Level.WARNING, "Failed to resolve the sources and javadoc: "
+          + e.getMessage(), e);
     }
-    return new DependencyModulesResult(items);
   }
 
   /**
    * Compile the build targets.
+   *
+   * @param params the compile parameters.
+   * @param cancellationToken token to cancel the build, can be <code>null</code>.
    */
-  public CompileResult compile(CompileParams params) {
-    StatusCode code = runTasks(params.getTargets(), this::getBuildTaskName);
+  public CompileResult compile(CompileParams params, CancellationToken cancellationToken) {
+    BuildTargetSnapshot snapshot = buildTargetManager.getSnapshot();
+    DiagnosticsReporter diagnosticsReporter = new DiagnosticsReporter(params.getTargets(),
+        params.getOriginId(), getSourceRootResolver(snapshot), publishedDiagnostics);
+    StatusCode code = runTasks(snapshot, params.getTargets(),
+        btId -> getBuildTaskName(snapshot, btId), diagnosticsReporter, cancellationToken);
+    diagnosticsReporter.finish();
     CompileResult result = new CompileResult(code);
     result.setOriginId(params.getOriginId());
 
     // Schedule a task to refetch the build targets after compilation, this is to
     // auto detect the source roots changes for those code generation framework,
     // such as Protocol Buffer.
-    CompletableFuture.runAsync(new RefetchBuildTargetTask());
+    refetchScheduler.schedule(params.getTargets());
     return result;
   }
 
   /**
    * clean the build targets.
+   *
+   * @param params the clean cache parameters.
+   * @param cancellationToken token to cancel the build, can be <code>null</code>.
    */
-  public CleanCacheResult cleanCache(CleanCacheParams params) {
-    StatusCode code = runTasks(params.getTargets(), this::getCleanTaskName);
+  public CleanCacheResult cleanCache(CleanCacheParams params,
+      CancellationToken cancellationToken) {
+    BuildTargetSnapshot snapshot = buildTargetManager.getSnapshot();
+    StatusCode code = runTasks(snapshot, params.getTargets(),
+        btId -> getCleanTaskName(snapshot, btId), null, cancellationToken);
     return new CleanCacheResult(null, code == StatusCode.OK);
   }
 
+  /**
+   * Run the tests of the build targets.
+   *
+   * @param params the test parameters.
+   * @param cancellationToken token to cancel the build, can be <code>null</code>.
+   */
+  public TestResult test(TestParams params, CancellationToken cancellationToken) {
+    BuildTargetSnapshot snapshot = buildTargetManager.getSnapshot();
+    Map<BuildTargetIdentifier, List<ScalaTestSuiteSelection>> selections =
+        getTestSelections(params);
+    StatusCode code = runBuilds(snapshot, params.getTargets(), (rootUri, btIds) -> {
+      Map<String, BuildTargetIdentifier> testTasks = getTestTaskPaths(snapshot, btIds);
+      Map<BuildTargetIdentifier, List<ScalaTestSuiteSelection>> rootSelections =
+          new HashMap<>();
+      if (!selections.isEmpty()) {
+        // only the selected tests of this root are run, the test tasks of the
+        // other targets are neither run nor reported.
+        for (BuildTargetIdentifier btId : btIds) {
+          List<ScalaTestSuiteSelection> selection = selections.get(btId);
+          if (selection != null && !selection.isEmpty()) {
+            rootSelections.put(btId, selection);
+          }
+        }
+        testTasks.values().removeIf(btId -> !rootSelections.containsKey(btId));
+      }
+      if (testTasks.isEmpty()) {
+        return StatusCode.OK;
+      }
+      return connector.runTests(rootUri, testTasks, rootSelections, params.getOriginId(),
+          cancellationToken);
+    });
+    TestResult result = new TestResult(code);
+    result.setOriginId(params.getOriginId());
+    return result;
+  }
+
+  /**
+   * Run a main class of the build target in a new JVM.
+   *
+   * <p>The build target and the build targets on its runtime classpath are compiled
+   * first, unless the direct run is enabled in the preferences, which launches the
+   * JVM from the cached runtime classpath with the class data sharing archive of
+   * the main class.
+   *
+   * @param params the run parameters.
+   * @param cancellationToken token to cancel the build and stop the JVM, can be
+   *     <code>null</code>.
+   */
+  public RunResult run(RunParams params, CancellationToken cancellationToken) {
+    return run(params, cancellationToken, Runnable::run);
+  }
+
+  /**
+   * Run a main class of the build target in a new JVM. The compile step runs on
+   * the given executor, so it shares the limit of the builds, while the calling
+   * thread waits for the JVM to exit.
+   *
+   * @param params the run parameters.
+   * @param cancellationToken token to cancel the build and stop the JVM, can be
+   *     <code>null</code>.
+   * @param buildExecutor the executor of the compile step.
+   */
+  public RunResult run(RunParams params, CancellationToken cancellationToken,
+      Executor buildExecutor) {
+    BuildTargetSnapshot snapshot = buildTargetManager.getSnapshot();
+    BuildTargetIdentifier btId = params.getTarget();
+    GradleBuildTarget target = snapshot.getGradleBuildTarget(btId);
+    if (target == null) {
+      // TODO: https://github.com/microsoft/build-server-for-gradle/issues/50
+      throw new IllegalArgumentException("The build target does not exist: " + btId.getUri());
+    }
+    ScalaMainClass mainClass = null;
+    if (RunParamsDataKind.SCALA_MAIN_CLASS.equals(params.getDataKind())) {
+      mainClass = JsonUtils.toModel(params.getData(), ScalaMainClass.class);
+    }
+    if (mainClass == null || StringUtils.isBlank(mainClass.getClassName())) {
+      throw new IllegalArgumentException("The main class to run is not specified, the data "
+          + "kind must be '" + RunParamsDataKind.SCALA_MAIN_CLASS + "'.");
+    }
+
+    Preferences preferences = preferenceManager.getPreferences();
+    boolean directRun = preferences != null && preferences.isDirectRun();
+    if (!directRun) {
+      CompileParams compileParams = new CompileParams(getRuntimeBuildTargets(snapshot, target));
+      compileParams.setOriginId(params.getOriginId());
+      CompileResult compileResult;
+      try {
+        compileResult = CompletableFuture.supplyAsync(
+            () -> compile(compileParams, cancellationToken), buildExecutor).join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+      if (compileResult.getStatusCode() != StatusCode.OK) {
+        RunResult result = new RunResult(compileResult.getStatusCode());
+        result.setOriginId(params.getOriginId());
+        return result;
+      }
+    }
+
+    StatusCode code = jvmLauncher.launch(btId, target.getSourceSet(),
+        target.getJavaExtension(), mainClass, params.getArguments(), params.getOriginId(),
+        directRun, cancellationToken);
+    RunResult result = new RunResult(code);
+    result.setOriginId(params.getOriginId());
+    return result;
+  }
+
+  /**
+   * Get the build target and the build targets whose output directories are on its
+   * runtime classpath.
+   */
+  private List<BuildTargetIdentifier> getRuntimeBuildTargets(BuildTargetSnapshot snapshot,
+      GradleBuildTarget target) {
+    List<BuildTargetIdentifier> targets = new ArrayList<>();
+    targets.add(target.getBuildTarget().getId());
+    List<File> runtimeClasspath = target.getSourceSet().getRuntimeClasspath();
+    if (runtimeClasspath == null) {
+      return targets;
+    }
+    Map<File, BuildTargetIdentifier> outputDirs = new HashMap<>();
+    for (GradleBuildTarget other : snapshot.getAllGradleBuildTargets()) {
+      GradleSourceSet sourceSet = other.getSourceSet();
+      if (sourceSet.getSourceOutputDir() != null) {
+        outputDirs.put(sourceSet.getSourceOutputDir(), other.getBuildTarget().getId());
+      }
+      if (sourceSet.getResourceOutputDir() != null) {
+        outputDirs.put(sourceSet.getResourceOutputDir(), other.getBuildTarget().getId());
+      }
+    }
+    for (File file : runtimeClasspath) {
+      BuildTargetIdentifier btId = outputDirs.get(file);
+      if (btId != null && !targets.contains(btId)) {
+        targets.add(btId);
+      }
+    }
+    return targets;
+  }
+
+  /**
+   * Get the test classes and methods to run of each build target from the data of
+   * the test parameters. An empty map is returned if all the tests should be run.
+   */
+  static Map<BuildTargetIdentifier, List<ScalaTestSuiteSelection>> getTestSelections(
+      TestParams params) {
+    Map<BuildTargetIdentifier, List<ScalaTestSuiteSelection>> selections = new HashMap<>();
+    if (params.getDataKind() == null || params.getData() == null) {
+      return selections;
+    }
+    List<ScalaTestSuiteSelection> suites = null;
+    switch (params.getDataKind()) {
+      case TestParamsDataKind.SCALA_TEST:
+        ScalaTestParams testParams = JsonUtils.toModel(params.getData(), ScalaTestParams.class);
+        if (testParams != null && testParams.getTestClasses() != null) {
+          for (ScalaTestClassesItem item : testParams.getTestClasses()) {
+            for (String className : item.getClasses()) {
+              selections.computeIfAbsent(item.getTarget(), k -> new ArrayList<>())
+                  .add(new ScalaTestSuiteSelection(className, Collections.emptyList()));
+            }
+          }
+        }
+        return selections;
+      case SCALA_TEST_SUITES:
+        String[] classNames = JsonUtils.toModel(params.getData(), String[].class);
+        if (classNames != null) {
+          suites = new ArrayList<>();
+          for (String className : classNames) {
+            suites.add(new ScalaTestSuiteSelection(className, Collections.emptyList()));
+          }
+        }
+        break;
+      case SCALA_TEST_SUITES_SELECTION:
+        ScalaTestSuites testSuites = JsonUtils.toModel(params.getData(), ScalaTestSuites.class);
+        if (testSuites != null) {
+          suites = testSuites.getSuites();
+        }
+        break;
+      default:
+        LOGGER.warning("Ignore the test data of unsupported kind: " + params.getDataKind());
+        break;
+    }
+    if (suites != null) {
+      // the suites apply to all the build targets.
+      for (BuildTargetIdentifier btId : params.getTargets()) {
+        selections.put(btId, suites);
+      }
+    }
+    return selections;
+  }
+
   /**
    * group targets by project root and execute the supplied tasks.
    */
-  private StatusCode runTasks(List<BuildTargetIdentifier> targets,
-      Function<BuildTargetIdentifier, String> taskNameCreator) {
-    Map<URI, Set<BuildTargetIdentifier>> groupedTargets = groupBuildTargetsByRootDir(targets);
+  private StatusCode runTasks(BuildTargetSnapshot snapshot, List<BuildTargetIdentifier> targets,
+      Function<BuildTargetIdentifier, String> taskNameCreator,
+      DiagnosticsReporter diagnosticsReporter, CancellationToken cancellationToken) {
+    return runBuilds(snapshot, targets, (rootUri, btIds) -> connector.runTasks(rootUri, btIds,
+        cancellationToken, diagnosticsReporter, getTaskNames(btIds, taskNameCreator)));
+  }
+
+  /**
+   * group targets by project root and run a build for each root.
+   */
+  private StatusCode runBuilds(BuildTargetSnapshot snapshot, List<BuildTargetIdentifier> targets,
+      BiFunction<URI, Set<BuildTargetIdentifier>, StatusCode> buildRunner) {
+    Map<URI, Set<BuildTargetIdentifier>> groupedTargets = groupBuildTargetsByRootDir(snapshot,
+        targets);
+    Preferences preferences = preferenceManager.getPreferences();
+    int maxConcurrentBuilds = preferences == null ? 1 : preferences.getMaxConcurrentBuilds();
+    if (maxConcurrentBuilds > 1 && groupedTargets.size() > 1) {
+      return runBuildsConcurrently(groupedTargets, buildRunner, maxConcurrentBuilds);
+    }
+
     StatusCode code = StatusCode.OK;
     for (Map.Entry<URI, Set<BuildTargetIdentifier>> entry : groupedTargets.entrySet()) {
-      Set<BuildTargetIdentifier> btIds = entry.getValue();
-      // remove duplicates as some tasks will have the same name for each sourceset e.g. clean.
-      String[] tasks = btIds.stream().map(taskNameCreator).distinct().toArray(String[]::new);
-      code = connector.runTasks(entry.getKey(), btIds, tasks);
-      if (code == StatusCode.ERROR) {
+      code = buildRunner.apply(entry.getKey(), entry.getValue());
+      if (code != StatusCode.OK) {
         break;
       }
     }
     return code;
   }
 
+  /**
+   * Run the builds of different root directories in parallel. The builds are
+   * independent, so all of them are run to the end even if some of them fail,
+   * and the status codes are aggregated.
+   */
+  private StatusCode runBuildsConcurrently(Map<URI, Set<BuildTargetIdentifier>> groupedTargets,
+      BiFunction<URI, Set<BuildTargetIdentifier>, StatusCode> buildRunner,
+      int maxConcurrentBuilds) {
+    Semaphore permits = new Semaphore(maxConcurrentBuilds);
+    Map<URI, Future<StatusCode>> futures = new LinkedHashMap<>();
+    for (Map.Entry<URI, Set<BuildTargetIdentifier>> entry : groupedTargets.entrySet()) {
+      futures.put(entry.getKey(), BUILD_RUNNER.submit(() -> {
+        permits.acquire();
+        try {
+          return buildRunner.apply(entry.getKey(), entry.getValue());
+        } finally {
+          permits.release();
+        }
+      }));
+    }
+
+    StatusCode code = StatusCode.OK;
+    for (Map.Entry<URI, Future<StatusCode>> entry : futures.entrySet()) {
+      code = aggregateStatusCode(code, getStatusCode(entry.getKey(), entry.getValue()));
+    }
+    return code;
+  }
+
+  private StatusCode getStatusCode(URI rootDir, Future<StatusCode> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      return StatusCode.CANCELLED;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof BuildCancelledException) {
+        return StatusCode.CANCELLED;
+      }
+      LOGGER.log(Level.SEVERE, "Failed to run the tasks of " + rootDir + ": "
+          + e.getCause().getMessage(), e.getCause());
+      return StatusCode.ERROR;
+    }
+  }
+
+  /**
+   * Aggregate the status codes of two builds, an error takes precedence over a
+   * cancellation, which takes precedence over a success.
+   */
+  static StatusCode aggregateStatusCode(StatusCode code1, StatusCode code2) {
+    if (code1 == StatusCode.ERROR || code2 == StatusCode.ERROR) {
+      return StatusCode.ERROR;
+    }
+    if (code1 == StatusCode.CANCELLED || code2 == StatusCode.CANCELLED) {
+      return StatusCode.CANCELLED;
+    }
+    return StatusCode.OK;
+  }
+
+  private String[] getTaskNames(Set<BuildTargetIdentifier> btIds,
+      Function<BuildTargetIdentifier, String> taskNameCreator) {
+    // remove duplicates as some tasks will have the same name for each sourceset e.g. clean.
+    return btIds.stream().map(taskNameCreator).distinct().toArray(String[]::new);
+  }
+
+  /**
+   * Get a function which finds the build target of a source file, by the nearest
+   * source root containing the file.
+   */
+  private Function<File, BuildTargetIdentifier> getSourceRootResolver(
+      BuildTargetSnapshot snapshot) {
+    SourceRootIndex sourceRootIndex = snapshot.getSourceRootIndex();
+    return file -> {
+      List<BuildTargetIdentifier> btIds = sourceRootIndex.getBuildTargets(file);
+      return btIds.isEmpty() ? null : btIds.get(0);
+    };
+  }
+
   /**
    * Get the compiler options.
    */
   public JavacOptionsResult getBuildTargetJavacOptions(JavacOptionsParams params) {
+    BuildTargetSnapshot snapshot = buildTargetManager.getSnapshot();
     List<JavacOptionsItem> items = new ArrayList<>();
     for (BuildTargetIdentifier btId : params.getTargets()) {
-      GradleBuildTarget target = buildTargetManager.getGradleBuildTarget(btId);
+      GradleBuildTarget target = snapshot.getGradleBuildTarget(btId);
       if (target == null) {
         LOGGER.warning("Skip javac options collection for the build target: " + btId.getUri()
             + ". Because it cannot be found in the cache.");
         continue;
       }
 
-      GradleSourceSet sourceSet = target.getSourceSet();
-      DefaultJavaExtension javaExtension = Conversions.toJavaExtension(
-          sourceSet.getExtensions().get(SupportedLanguages.JAVA));
+      DefaultJavaExtension javaExtension = target.getJavaExtension();
       if (javaExtension == null) {
         LOGGER.warning("Skip javac options collection for the build target: " + btId.getUri()
             + ". Because the java extension cannot be found from source set.");
         continue;
       }
-      List<String> classpath = javaExtension.getCompileClasspath().stream()
-          .map(file -> file.toURI().toString())
-          .collect(Collectors.toList());
-      String classesDir;
-      if (sourceSet.getSourceOutputDir() != null) {
-        classesDir = sourceSet.getSourceOutputDir().toURI().toString();
-      } else {
-        classesDir = "";
-      }
-      items.add(new JavacOptionsItem(
-          btId,
-          javaExtension.getCompilerArgs(),
-          classpath,
-          classesDir
-      ));
+      items.add(target.getResponseItem(JavacOptionsItem.class,
+          () -> createJavacOptionsItem(btId, target.getSourceSet(), javaExtension)));
     }
     return new JavacOptionsResult(items);
   }
 
+  private JavacOptionsItem createJavacOptionsItem(BuildTargetIdentifier btId,
+      GradleSourceSet sourceSet, DefaultJavaExtension javaExtension) {
+    List<String> classpath = javaExtension.getCompileClasspath().stream()
+        .map(file -> file.toURI().toString())
+        .collect(Collectors.toList());
+    String classesDir;
+    if (sourceSet.getSourceOutputDir() != null) {
+      classesDir = sourceSet.getSourceOutputDir().toURI().toString();
+    } else {
+      classesDir = "";
+    }
+    return new JavacOptionsItem(
+        btId,
+        javaExtension.getCompilerArgs(),
+        classpath,
+        classesDir
+    );
+  }
+
+  /**
+   * Get the environment to run the main classes of the build targets. It is
+   * computed from the cached source sets, so no Gradle build is started.
+   */
+  public JvmRunEnvironmentResult getBuildTargetJvmRunEnvironment(
+      JvmRunEnvironmentParams params) {
+    return new JvmRunEnvironmentResult(getJvmEnvironmentItems(params.getTargets(), false));
+  }
+
+  /**
+   * Get the environment to run the tests of the build targets. It is computed
+   * from the cached source sets, so no Gradle build is started.
+   */
+  public JvmTestEnvironmentResult getBuildTargetJvmTestEnvironment(
+      JvmTestEnvironmentParams params) {
+    return new JvmTestEnvironmentResult(getJvmEnvironmentItems(params.getTargets(), true));
+  }
+
+  /**
+   * Get the environment items of the build targets, taken from the exec task of
+   * each source set to run it, or from the test task to test it.
+   */
+  private List<JvmEnvironmentItem> getJvmEnvironmentItems(
+      List<BuildTargetIdentifier> targets, boolean test) {
+    BuildTargetSnapshot snapshot = buildTargetManager.getSnapshot();
+    List<JvmEnvironmentItem> items = new ArrayList<>();
+    for (BuildTargetIdentifier btId : targets) {
+      GradleBuildTarget target = snapshot.getGradleBuildTarget(btId);
+      if (target == null) {
+        LOGGER.warning("Skip jvm environment collection for the build target: "
+            + btId.getUri() + ". Because it cannot be found in the cache.");
+        continue;
+      }
+
+      DefaultJavaExtension javaExtension = target.getJavaExtension();
+      if (javaExtension == null) {
+        LOGGER.warning("Skip jvm environment collection for the build target: "
+            + btId.getUri() + ". Because the java extension cannot be found from source set.");
+        continue;
+      }
+      items.add(target.getResponseItem(JvmEnvironmentItem.class, test ? "test" : "run",
+          () -> createJvmEnvironmentItem(btId, target.getSourceSet(), javaExtension, test)));
+    }
+    return items;
+  }
+
+  private JvmEnvironmentItem createJvmEnvironmentItem(BuildTargetIdentifier btId,
+      GradleSourceSet sourceSet, DefaultJavaExtension javaExtension, boolean test) {
+    List<String> jvmOptions = test
+        ? javaExtension.getTestJvmOptions() : javaExtension.getJvmOptions();
+    if (jvmOptions == null) {
+      jvmOptions = Collections.emptyList();
+    }
+    File workingDirectory = test
+        ? javaExtension.getTestWorkingDirectory() : javaExtension.getWorkingDirectory();
+    if (workingDirectory == null) {
+      workingDirectory = sourceSet.getProjectDir();
+    }
+    Map<String, String> environmentVariables = test
+        ? javaExtension.getTestEnvironmentVariables()
+        : javaExtension.getEnvironmentVariables();
+    if (environmentVariables == null) {
+      environmentVariables = Collections.emptyMap();
+    }
+    List<String> classpath = sourceSet.getRuntimeClasspath() == null
+        ? Collections.emptyList()
+        : sourceSet.getRuntimeClasspath().stream()
+            .map(file -> file.toURI().toString())
+            .collect(Collectors.toList());
+    JvmEnvironmentItem item = new JvmEnvironmentItem(btId, classpath, jvmOptions,
+        workingDirectory.getAbsolutePath(), environmentVariables);
+    item.setMainClasses(Collections.emptyList());
+    return item;
+  }
+
   /**
    * Group the build targets by the project root directory,
    * projects with the same root directory can run their tasks
    * in one single call.
    */
   private Map<URI, Set<BuildTargetIdentifier>> groupBuildTargetsByRootDir(
-      List<BuildTargetIdentifier> targets
+      BuildTargetSnapshot snapshot, List<BuildTargetIdentifier> targets
   ) {
     Map<URI, Set<BuildTargetIdentifier>> groupedTargets = new HashMap<>();
     for (BuildTargetIdentifier btId : targets) {
-      URI projectUri = getRootProjectUri(btId);
+      URI projectUri = getRootProjectUri(snapshot, btId);
       if (projectUri == null) {
         continue;
       }
@@ -347,8 +961,8 @@ public class BuildTargetService {
    * Try to get the project root directory uri. If root directory is not available,
    * return the uri of the build target.
    */
-  private URI getRootProjectUri(BuildTargetIdentifier btId) {
-    GradleBuildTarget gradleBuildTarget = buildTargetManager.getGradleBuildTarget(btId);
+  private URI getRootProjectUri(BuildTargetSnapshot snapshot, BuildTargetIdentifier btId) {
+    GradleBuildTarget gradleBuildTarget = snapshot.getGradleBuildTarget(btId);
     if (gradleBuildTarget == null) {
       // TODO: https://github.com/microsoft/build-server-for-gradle/issues/50
       throw new IllegalArgumentException("The build target does not exist: " + btId.getUri());
@@ -364,8 +978,8 @@ public class BuildTargetService {
   /**
    * Return the build task name - [project path]:[task].
    */
-  private String getBuildTaskName(BuildTargetIdentifier btId) {
-    GradleBuildTarget gradleBuildTarget = buildTargetManager.getGradleBuildTarget(btId);
+  private String getBuildTaskName(BuildTargetSnapshot snapshot, BuildTargetIdentifier btId) {
+    GradleBuildTarget gradleBuildTarget = snapshot.getGradleBuildTarget(btId);
     if (gradleBuildTarget == null) {
       // TODO: https://github.com/microsoft/build-server-for-gradle/issues/50
       throw new IllegalArgumentException("The build target does not exist: " + btId.getUri());
@@ -384,11 +998,39 @@ public class BuildTargetService {
     return modulePath + ":" + classesTaskName;
   }
 
+  /**
+   * Get the paths of the test tasks of the build targets, each of them is mapped to
+   * its build target. The targets without tests are skipped.
+   */
+  private Map<String, BuildTargetIdentifier> getTestTaskPaths(BuildTargetSnapshot snapshot,
+      Set<BuildTargetIdentifier> btIds) {
+    Map<String, BuildTargetIdentifier> testTasks = new LinkedHashMap<>();
+    for (BuildTargetIdentifier btId : btIds) {
+      GradleBuildTarget gradleBuildTarget = snapshot.getGradleBuildTarget(btId);
+      if (gradleBuildTarget == null) {
+        // TODO: https://github.com/microsoft/build-server-for-gradle/issues/50
+        throw new IllegalArgumentException("The build target does not exist: " + btId.getUri());
+      }
+      GradleSourceSet sourceSet = gradleBuildTarget.getSourceSet();
+      if (!sourceSet.hasTests() || sourceSet.getTestTaskNames() == null) {
+        LOGGER.info("Skip the build target without tests: " + btId.getUri());
+        continue;
+      }
+      String modulePath = sourceSet.getProjectPath();
+      // the task path is used, since a task name would run the tasks of all the projects.
+      String prefix = modulePath == null || modulePath.equals(":") ? ":" : modulePath + ":";
+      for (String testTaskName : sourceSet.getTestTaskNames()) {
+        testTasks.put(prefix + testTaskName, btId);
+      }
+    }
+    return testTasks;
+  }
+
   /**
    * Return the clean task name - [project path]:[task].
    */
-  private String getCleanTaskName(BuildTargetIdentifier btId) {
-    GradleBuildTarget gradleBuildTarget = buildTargetManager.getGradleBuildTarget(btId);
+  private String getCleanTaskName(BuildTargetSnapshot snapshot, BuildTargetIdentifier btId) {
+    GradleBuildTarget gradleBuildTarget = snapshot.getGradleBuildTarget(btId);
     if (gradleBuildTarget == null) {
       // TODO: https://github.com/microsoft/build-server-for-gradle/issues/50
       throw new IllegalArgumentException("The build target does not exist: " + btId.getUri());
@@ -403,24 +1045,41 @@ public class BuildTargetService {
     return modulePath + ":" + classesTaskName;
   }
 
-  class RefetchBuildTargetTask implements Runnable {
+  /**
+   * Refetch the build targets after the given targets are compiled. Only the
+   * projects whose build scripts or generated source roots have been changed
+   * need to be refetched.
+   *
+   * @param cancellationToken token to cancel the refetch, can be <code>null</code>.
+   * @return <code>false</code> if nothing needs to be refetched.
+   */
+  boolean refetchBuildTargets(Set<BuildTargetIdentifier> compiledTargets,
+      CancellationToken cancellationToken) {
+    BuildTargetSnapshot snapshot = buildTargetManager.getSnapshot();
+    // stamped before the changes are checked, so a build script changed or a
+    // source root generated while the source sets are fetched triggers the next
+    // refetch.
+    Map<File, String> fetchStamps = buildTargetManager.stampTrackedFiles();
+    Set<String> projectPaths = buildTargetManager.getChangedProjectPaths();
+    projectPaths.addAll(buildTargetManager.getGeneratedSourceChangedProjectPaths(
+        compiledTargets));
+    if (projectPaths.isEmpty()) {
+      return false;
+    }
 
-    @Override
-    public void run() {
+    List<BuildTargetEvent> events;
+    if (projectPaths.containsAll(snapshot.getAllProjectPaths())) {
       GradleSourceSets sourceSets = connector.getGradleSourceSets(
-          preferenceManager.getRootUri());
-      List<BuildTargetIdentifier> changedTargets = buildTargetManager.store(sourceSets);
-      if (!changedTargets.isEmpty()) {
-        notifyBuildTargetsChanged(changedTargets);
-      }
+          preferenceManager.getRootUri(), Collections.emptySet(), cancellationToken);
+      events = buildTargetManager.store(sourceSets, fetchStamps);
+    } else {
+      GradleSourceSets sourceSets = connector.getGradleSourceSets(
+          preferenceManager.getRootUri(), projectPaths, cancellationToken);
+      events = buildTargetManager.store(sourceSets, projectPaths, fetchStamps);
     }
-
-    private void notifyBuildTargetsChanged(List<BuildTargetIdentifier> changedTargets) {
-      List<BuildTargetEvent> events = changedTargets.stream()
-          .map(BuildTargetEvent::new)
-          .collect(Collectors.toList());
-      DidChangeBuildTarget param = new DidChangeBuildTarget(events);
-      Launcher.client.onBuildTargetDidChange(param);
+    if (!events.isEmpty()) {
+      Launcher.client.onBuildTargetDidChange(new DidChangeBuildTarget(events));
     }
+    return true;
   }
 }
@@ -4,25 +4,38 @@
 package com.microsoft.java.bs.core.internal.services;
 
 import static com.microsoft.java.bs.core.Launcher.LOGGER;
+import static com.microsoft.java.bs.core.Launcher.METRICS;
 
 import java.io.File;
 import java.lang.Runtime.Version;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 
 import org.apache.commons.lang3.StringUtils;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnector;
 
 import com.microsoft.java.bs.core.Constants;
+import com.microsoft.java.bs.core.Launcher;
 import com.microsoft.java.bs.core.internal.gradle.GradleApiConnector;
 import com.microsoft.java.bs.core.internal.gradle.GradleBuildKind;
 import com.microsoft.java.bs.core.internal.gradle.Utils;
 import com.microsoft.java.bs.core.internal.managers.BuildTargetManager;
 import com.microsoft.java.bs.core.internal.managers.PreferenceManager;
+import com.microsoft.java.bs.core.internal.managers.SnapshotManager;
+import com.microsoft.java.bs.core.internal.model.MetricsResult;
 import com.microsoft.java.bs.core.internal.model.Preferences;
+import com.microsoft.java.bs.core.internal.model.TimingReportsParams;
+import com.microsoft.java.bs.core.internal.model.TimingReportsResult;
 import com.microsoft.java.bs.core.internal.utils.JsonUtils;
 import com.microsoft.java.bs.core.internal.utils.TelemetryUtils;
 import com.microsoft.java.bs.core.internal.utils.UriUtils;
@@ -30,9 +43,13 @@ import com.microsoft.java.bs.gradle.model.GradleSourceSets;
 import com.microsoft.java.bs.gradle.model.SupportedLanguages;
 
 import ch.epfl.scala.bsp4j.BuildServerCapabilities;
+import ch.epfl.scala.bsp4j.BuildTargetEvent;
 import ch.epfl.scala.bsp4j.CompileProvider;
+import ch.epfl.scala.bsp4j.DidChangeBuildTarget;
 import ch.epfl.scala.bsp4j.InitializeBuildParams;
 import ch.epfl.scala.bsp4j.InitializeBuildResult;
+import ch.epfl.scala.bsp4j.RunProvider;
+import ch.epfl.scala.bsp4j.TestProvider;
 
 /**
  * Lifecycle service.
@@ -47,22 +64,38 @@ public class LifecycleService {
 
   private PreferenceManager preferenceManager;
 
+  private SnapshotManager snapshotManager;
+
+  /**
+   * Cancels the background refresh of the restored build targets.
+   */
+  private CancellationTokenSource refreshTokenSource;
+
   /**
    * Constructor for {@link LifecycleService}.
    */
   public LifecycleService(BuildTargetManager buildTargetManager,
-      GradleApiConnector connector, PreferenceManager preferenceManager) {
+      GradleApiConnector connector, PreferenceManager preferenceManager,
+      SnapshotManager snapshotManager) {
     this.buildTargetManager = buildTargetManager;
     this.connector = connector;
     this.preferenceManager = preferenceManager;
+    this.snapshotManager = snapshotManager;
   }
 
   /**
    * Initialize the build server.
+   *
+   * @param params the initialize parameters.
+   * @param refreshExecutor the executor of the model requests, which refreshes the
+   *     build targets restored from the persisted snapshot in background.
    */
-  public InitializeBuildResult initializeServer(InitializeBuildParams params) {
+  public InitializeBuildResult initializeServer(InitializeBuildParams params,
+      Executor refreshExecutor) {
     initializePreferenceManager(params);
-    updateBuildTargetManager();
+    if (!restoreBuildTargetManager(refreshExecutor)) {
+      updateBuildTargetManager(null);
+    }
 
     BuildServerCapabilities capabilities = initializeServerCapabilities();
     return new InitializeBuildResult(
@@ -73,8 +106,13 @@ public class LifecycleService {
     );
   }
 
-  public Object reloadWorkspace() {
-    updateBuildTargetManager();
+  /**
+   * Fetch the build targets from Gradle again.
+   */
+  public Object reloadWorkspace(CancellationToken cancellationToken) {
+    // the reload supersedes the background refresh of the restored build targets.
+    cancelRefresh();
+    updateBuildTargetManager(cancellationToken);
     return null;
   }
 
@@ -93,31 +131,111 @@ public class LifecycleService {
     updateGradleJavaHomeIfNecessary(rootUri);
   }
 
-  void updateBuildTargetManager() {
+  void updateBuildTargetManager(CancellationToken cancellationToken) {
+    Map<File, String> fetchStamps = buildTargetManager.stampTrackedFiles();
     GradleSourceSets sourceSets = connector.getGradleSourceSets(
-          preferenceManager.getRootUri());
+          preferenceManager.getRootUri(), Collections.emptySet(), cancellationToken);
+    buildTargetManager.store(sourceSets, fetchStamps);
+    snapshotManager.save(preferenceManager.getRootUri(), sourceSets);
+  }
+
+  /**
+   * Restore the build targets from the persisted snapshot if it is still up-to-date,
+   * and refresh them from Gradle in background.
+   *
+   * @param refreshExecutor the executor which refreshes the build targets.
+   * @return <code>true</code> if the build targets are restored from the snapshot.
+   */
+  boolean restoreBuildTargetManager(Executor refreshExecutor) {
+    GradleSourceSets sourceSets = snapshotManager.load(preferenceManager.getRootUri());
+    if (sourceSets == null) {
+      return false;
+    }
+
     buildTargetManager.store(sourceSets);
+    Map<String, String> map = TelemetryUtils.getMetadataMap("restoredBuildTargetCount",
+        String.valueOf(sourceSets.getGradleSourceSets().size()));
+    LOGGER.log(Level.INFO, "Restored build targets from the persisted snapshot.", map);
+    CancellationTokenSource tokenSource = GradleConnector.newCancellationTokenSource();
+    synchronized (this) {
+      refreshTokenSource = tokenSource;
+    }
+    refreshExecutor.execute(() -> refreshBuildTargetManager(tokenSource.token()));
+    return true;
+  }
+
+  /**
+   * Fetch the source sets from Gradle and replace the restored ones. The client
+   * will be notified if any of the restored build targets is stale.
+   */
+  private void refreshBuildTargetManager(CancellationToken cancellationToken) {
+    try {
+      Map<File, String> fetchStamps = buildTargetManager.stampTrackedFiles();
+      GradleSourceSets sourceSets = connector.getGradleSourceSets(
+          preferenceManager.getRootUri(), Collections.emptySet(), cancellationToken);
+      if (cancellationToken.isCancellationRequested()) {
+        // superseded by a reload while the source sets were fetched.
+        return;
+      }
+      List<BuildTargetEvent> events = buildTargetManager.store(sourceSets, fetchStamps);
+      snapshotManager.save(preferenceManager.getRootUri(), sourceSets);
+      if (!events.isEmpty() && Launcher.client != null) {
+        Launcher.client.onBuildTargetDidChange(new DidChangeBuildTarget(events));
+      }
+    } catch (BuildCancelledException e) {
+      LOGGER.info("The refresh of the restored build targets is cancelled.");
+    } catch (Exception e) {
+      LOGGER.severe("Failed to refresh the restored build targets: " + e.getMessage());
+    }
+  }
+
+  private synchronized void cancelRefresh() {
+    if (refreshTokenSource != null) {
+      refreshTokenSource.cancel();
+      refreshTokenSource = null;
+    }
   }
 
   private BuildServerCapabilities initializeServerCapabilities() {
     BuildServerCapabilities capabilities = new BuildServerCapabilities();
     capabilities.setResourcesProvider(true);
+    capabilities.setInverseSourcesProvider(true);
     capabilities.setOutputPathsProvider(true);
     capabilities.setDependencyModulesProvider(true);
+    capabilities.setDependencySourcesProvider(true);
+    capabilities.setJvmRunEnvironmentProvider(true);
+    capabilities.setJvmTestEnvironmentProvider(true);
     capabilities.setCanReload(true);
     capabilities.setBuildTargetChangedProvider(true);
     capabilities.setCompileProvider(new CompileProvider(Arrays.asList(SupportedLanguages.JAVA)));
+    capabilities.setTestProvider(new TestProvider(Arrays.asList(SupportedLanguages.JAVA)));
+    capabilities.setRunProvider(new RunProvider(Arrays.asList(SupportedLanguages.JAVA)));
     return capabilities;
   }
 
+  /**
+   * Get the timing reports of the latest Gradle operations.
+   */
+  public TimingReportsResult getTimingReports(TimingReportsParams params) {
+    Integer count = params == null ? null : params.getCount();
+    return new TimingReportsResult(connector.getTimingReportManager().getReports(
+        count == null ? Integer.MAX_VALUE : count));
+  }
+
+  public MetricsResult getMetrics() {
+    return METRICS.getSnapshot();
+  }
+
   public void onBuildInitialized() {
     status = Status.INITIALIZED;
   }
 
   /**
-   * Shutdown all Gradle connectors and mark the server status to shutdown.
+   * Cancel the background refresh, shutdown all Gradle connectors and mark the server
+   * status to shutdown.
    */
   public Object shutdown() {
+    cancelRefresh();
     connector.shutdown();
     status = Status.SHUTDOWN;
     return null;
@@ -0,0 +1,177 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.services;
+
+import static com.microsoft.java.bs.core.Launcher.LOGGER;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnector;
+
+import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+
+/**
+ * Schedule the refetch of the build targets after compilations.
+ *
+ * <p>At most one refetch runs at a time. Requests are debounced, so that the
+ * requests arriving within the debounce window are coalesced into one refetch.
+ * Requests arriving while a refetch is running are coalesced into at most one
+ * follow-up refetch. The running refetch is cancelled when the scheduler is shut
+ * down.
+ */
+public class RefetchScheduler {
+
+  private final ScheduledExecutorService executor;
+
+  /**
+   * The refetch action, it returns <code>false</code> if the refetch is skipped.
+   */
+  private final BiPredicate<Set<BuildTargetIdentifier>, CancellationToken> refetcher;
+
+  private final LongSupplier debounce;
+
+  private Set<BuildTargetIdentifier> pendingTargets;
+
+  private ScheduledFuture<?> scheduled;
+
+  private boolean running;
+
+  private boolean followUpRequested;
+
+  private CancellationTokenSource runningTokenSource;
+
+  private final AtomicLong requestedCount = new AtomicLong();
+
+  private final AtomicLong refetchedCount = new AtomicLong();
+
+  private final AtomicLong coalescedCount = new AtomicLong();
+
+  private final AtomicLong skippedCount = new AtomicLong();
+
+  /**
+   * Instantiates a new refetch scheduler.
+   *
+   * @param refetcher refetch the build targets of the given compiled targets with the
+   *     cancellation token of the refetch, returns <code>false</code> if there is
+   *     nothing to refetch.
+   * @param debounce supplier of the debounce window in milliseconds.
+   */
+  public RefetchScheduler(BiPredicate<Set<BuildTargetIdentifier>, CancellationToken> refetcher,
+      LongSupplier debounce) {
+    this.refetcher = refetcher;
+    this.debounce = debounce;
+    this.pendingTargets = new HashSet<>();
+    this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "bsp-refetch-scheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Request a refetch of the build targets after the given targets are compiled.
+   */
+  public synchronized void schedule(Collection<BuildTargetIdentifier> compiledTargets) {
+    requestedCount.incrementAndGet();
+    pendingTargets.addAll(compiledTargets);
+    if (running) {
+      if (followUpRequested) {
+        coalescedCount.incrementAndGet();
+      }
+      followUpRequested = true;
+      return;
+    }
+
+    if (scheduled != null) {
+      coalescedCount.incrementAndGet();
+      if (!scheduled.cancel(false)) {
+        // the refetch has just started and will pick up the pending targets.
+        return;
+      }
+    }
+    scheduled = executor.schedule(this::refetch, Math.max(0L, debounce.getAsLong()),
+        TimeUnit.MILLISECONDS);
+  }
+
+  private void refetch() {
+    Set<BuildTargetIdentifier> targets;
+    CancellationTokenSource tokenSource = GradleConnector.newCancellationTokenSource();
+    synchronized (this) {
+      targets = pendingTargets;
+      pendingTargets = new HashSet<>();
+      scheduled = null;
+      running = true;
+      runningTokenSource = tokenSource;
+    }
+
+    try {
+      if (refetcher.test(targets, tokenSource.token())) {
+        refetchedCount.incrementAndGet();
+      } else {
+        skippedCount.incrementAndGet();
+      }
+    } catch (BuildCancelledException e) {
+      LOGGER.info("The refetch of the build targets is cancelled.");
+    } catch (Exception e) {
+      LOGGER.log(Level.SEVERE, "Failed to refetch the build targets: " + e.getMessage(), e);
+    } finally {
+      synchronized (this) {
+        running = false;
+        runningTokenSource = null;
+        if (followUpRequested && !executor.isShutdown()) {
+          followUpRequested = false;
+          scheduled = executor.schedule(this::refetch, Math.max(0L, debounce.getAsLong()),
+              TimeUnit.MILLISECONDS);
+        }
+      }
+    }
+  }
+
+  /**
+   * Stop the scheduler, cancel the running refetch and wait for it to finish. The
+   * scheduled refetches are dropped.
+   */
+  public void shutdown() throws InterruptedException {
+    synchronized (this) {
+      if (scheduled != null) {
+        scheduled.cancel(false);
+        scheduled = null;
+      }
+      if (runningTokenSource != null) {
+        runningTokenSource.cancel();
+      }
+      executor.shutdown();
+    }
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+  }
+
+  public long getRequestedCount() {
+    return requestedCount.get();
+  }
+
+  public long getRefetchedCount() {
+    return refetchedCount.get();
+  }
+
+  public long getCoalescedCount() {
+    return coalescedCount.get();
+  }
+
+  public long getSkippedCount() {
+    return skippedCount.get();
+  }
+}
@@ -7,21 +7,36 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnector;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import com.microsoft.java.bs.core.Launcher;
 import com.microsoft.java.bs.core.internal.managers.PreferenceManager;
 import com.microsoft.java.bs.core.internal.model.Preferences;
+import com.microsoft.java.bs.core.internal.reporter.DiagnosticsReporter;
 import com.microsoft.java.bs.gradle.model.GradleSourceSet;
 import com.microsoft.java.bs.gradle.model.GradleSourceSets;
 
+import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+import ch.epfl.scala.bsp4j.StatusCode;
+
 class GradleApiConnectorTest {
 
   private static Path projectPath;
@@ -117,6 +132,11 @@ class GradleApiConnectorTest {
     assertFalse(findSourceSet(gradleSourceSets, "test-tag [noTests]").hasTests());
     assertTrue(findSourceSet(gradleSourceSets, "test-tag [intTest]").hasTests());
     assertFalse(findSourceSet(gradleSourceSets, "test-tag [testFixtures]").hasTests());
+    assertEquals(Set.of("test"),
+        findSourceSet(gradleSourceSets, "test-tag [test]").getTestTaskNames());
+    assertEquals(Set.of("integrationTest"),
+        findSourceSet(gradleSourceSets, "test-tag [intTest]").getTestTaskNames());
+    assertTrue(findSourceSet(gradleSourceSets, "test-tag [main]").getTestTaskNames().isEmpty());
   }
 
   private void assertHasBuildTargetDependency(GradleSourceSet sourceSet,
@@ -232,4 +252,75 @@ class GradleApiConnectorTest {
     GradleSourceSet testB = findSourceSet(gradleSourceSets, "b [test]");
     assertHasBuildTargetDependency(testB, testA);
   }
+
+  @Test
+  void testCancelRunTasks() throws Exception {
+    File projectDir = projectPath.resolve("slow-build").toFile();
+    File startedFile = new File(projectDir, "build/slow-task-started");
+    startedFile.delete();
+    PreferenceManager preferenceManager = new PreferenceManager();
+    preferenceManager.setPreferences(new Preferences());
+    GradleApiConnector connector = new GradleApiConnector(preferenceManager);
+    BuildTargetIdentifier btId = new BuildTargetIdentifier(projectDir.toURI().toString());
+    CancellationTokenSource tokenSource = GradleConnector.newCancellationTokenSource();
+    final CompletableFuture<StatusCode> result = CompletableFuture.supplyAsync(() ->
+        connector.runTasks(projectDir.toURI(), Set.of(btId), tokenSource.token(), null,
+            "slowTask"));
+
+    long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(2);
+    while (!startedFile.exists() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(100);
+    }
+    assertTrue(startedFile.exists());
+    tokenSource.cancel();
+
+    // the task waits for two minutes, the build must be stopped much earlier.
+    long cancelTime = System.currentTimeMillis();
+    assertEquals(StatusCode.CANCELLED, result.get(30, TimeUnit.SECONDS));
+    // the daemon is released and runs the next build promptly, the task is stopped
+    // instead of the daemon being killed.
+    assertEquals(StatusCode.OK, connector.runTasks(projectDir.toURI(), Set.of(btId), null,
+        null, "daemonPid"));
+    assertTrue(System.currentTimeMillis() - cancelTime < TimeUnit.SECONDS.toMillis(60));
+    File pidFile = new File(projectDir, "build/daemon-pid");
+    assertEquals(Files.readString(startedFile.toPath()), Files.readString(pidFile.toPath()));
+  }
+
+  @Test
+  void testCancelGetGradleSourceSets() {
+    File projectDir = projectPath.resolve("junit5-jupiter-starter-gradle").toFile();
+    PreferenceManager preferenceManager = new PreferenceManager();
+    preferenceManager.setPreferences(new Preferences());
+    GradleApiConnector connector = new GradleApiConnector(preferenceManager);
+    CancellationTokenSource tokenSource = GradleConnector.newCancellationTokenSource();
+    tokenSource.cancel();
+
+    assertThrows(BuildCancelledException.class, () -> connector.getGradleSourceSets(
+        projectDir.toURI(), Collections.emptySet(), tokenSource.token()));
+    // the model can still be fetched without cancellation.
+    assertEquals(2, connector.getGradleSourceSets(projectDir.toURI())
+        .getGradleSourceSets().size());
+  }
+
+  @Test
+  void testRunTasksReportsDiagnostics() {
+    File projectDir = projectPath.resolve("compile-diagnostics").toFile();
+    PreferenceManager preferenceManager = new PreferenceManager();
+    preferenceManager.setPreferences(new Preferences());
+    GradleApiConnector connector = new GradleApiConnector(preferenceManager);
+    BuildTargetIdentifier btId = new BuildTargetIdentifier(projectDir.toURI().toString()
+        + "?sourceset=main");
+    Map<BuildTargetIdentifier, Set<String>> publishedDocuments = new HashMap<>();
+    DiagnosticsReporter diagnosticsReporter = new DiagnosticsReporter(Set.of(btId), null,
+        file -> btId, publishedDocuments);
+
+    assertEquals(StatusCode.ERROR, connector.runTasks(projectDir.toURI(), Set.of(btId), null,
+        diagnosticsReporter, "compileJava"));
+    diagnosticsReporter.finish();
+
+    assertEquals(1, diagnosticsReporter.getErrorCount(btId));
+    assertEquals(1, diagnosticsReporter.getWarningCount(btId));
+    File barFile = new File(projectDir, "src/main/java/foo/Bar.java");
+    assertEquals(Set.of(barFile.toURI().toString()), publishedDocuments.get(btId));
+  }
 }
@@ -0,0 +1,127 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.launcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarFile;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ClassDataSharingCacheTest {
+
+  @TempDir
+  Path tempDir;
+
+  private File cacheDir;
+
+  private File classesDir;
+
+  private File dependency;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    cacheDir = tempDir.resolve("cds").toFile();
+    classesDir = tempDir.resolve("classes").toFile();
+    Files.createDirectories(classesDir.toPath().resolve("foo"));
+    Files.writeString(classesDir.toPath().resolve("foo/Foo.class"), "foo");
+    dependency = tempDir.resolve("dependency.jar").toFile();
+    Files.writeString(dependency.toPath(), "jar");
+  }
+
+  @Test
+  void testPackDirectories() throws IOException {
+    ClassDataSharingCache cache = new ClassDataSharingCache();
+    ClassDataSharingCache.Launch launch = cache.prepare(cacheDir,
+        Arrays.asList(classesDir, dependency), null, 17);
+    cache.release(launch);
+
+    List<File> classpath = launch.getClasspath();
+    assertEquals(2, classpath.size());
+    assertEquals(dependency, classpath.get(1));
+    File jar = classpath.get(0);
+    assertTrue(jar.getName().endsWith(".jar"));
+    try (JarFile jarFile = new JarFile(jar)) {
+      assertTrue(jarFile.getEntry("foo/Foo.class") != null);
+      assertTrue(jarFile.getEntry("foo/") != null);
+    }
+    assertTrue(getArchiveOption(launch).startsWith("-XX:ArchiveClassesAtExit="));
+
+    // the unchanged directory is not packed again, so the archive is reused.
+    assertTrue(jar.setLastModified(1000L));
+    ClassDataSharingCache.Launch dumping = cache.prepare(cacheDir,
+        Arrays.asList(classesDir, dependency), null, 17);
+    cache.release(dumping);
+    String archiveOption = getArchiveOption(dumping);
+    Files.createFile(new File(archiveOption.substring(archiveOption.indexOf('=') + 1))
+        .toPath());
+    ClassDataSharingCache.Launch reused = cache.prepare(cacheDir,
+        Arrays.asList(classesDir, dependency), null, 17);
+    cache.release(reused);
+    assertEquals(1000L, jar.lastModified());
+    assertEquals(archiveOption.replace("ArchiveClassesAtExit", "SharedArchiveFile"),
+        getArchiveOption(reused));
+
+    // a changed directory creates a new archive.
+    Files.writeString(classesDir.toPath().resolve("foo/Bar.class"), "bar");
+    ClassDataSharingCache.Launch changed = cache.prepare(cacheDir,
+        Arrays.asList(classesDir, dependency), null, 17);
+    cache.release(changed);
+    assertNotEquals(1000L, jar.lastModified());
+    assertTrue(getArchiveOption(changed).startsWith("-XX:ArchiveClassesAtExit="));
+    assertEquals(Collections.emptyList(), Arrays.asList(
+        cacheDir.listFiles((dir, name) -> name.endsWith(".jsa"))));
+  }
+
+  @Test
+  void testAutoCreateArchive() {
+    ClassDataSharingCache cache = new ClassDataSharingCache();
+    ClassDataSharingCache.Launch launch = cache.prepare(cacheDir,
+        Arrays.asList(classesDir, dependency), null, 21);
+    cache.release(launch);
+
+    assertTrue(launch.getJvmOptions().contains("-XX:+AutoCreateSharedArchive"));
+  }
+
+  @Test
+  void testOldJdk() {
+    ClassDataSharingCache cache = new ClassDataSharingCache();
+    List<File> classpath = Arrays.asList(classesDir, dependency);
+    ClassDataSharingCache.Launch launch = cache.prepare(cacheDir, classpath, null, 11);
+
+    assertEquals(classpath, launch.getClasspath());
+    assertTrue(launch.getJvmOptions().isEmpty());
+  }
+
+  @Test
+  void testConcurrentLaunches() {
+    ClassDataSharingCache cache = new ClassDataSharingCache();
+    List<File> classpath = Arrays.asList(classesDir, dependency);
+    ClassDataSharingCache.Launch first = cache.prepare(cacheDir, classpath, null, 17);
+    // the running launch owns the packed jars and the archive.
+    ClassDataSharingCache.Launch second = cache.prepare(cacheDir, classpath, null, 17);
+    assertEquals(classpath, second.getClasspath());
+    assertTrue(second.getJvmOptions().isEmpty());
+
+    cache.release(first);
+    ClassDataSharingCache.Launch third = cache.prepare(cacheDir, classpath, null, 17);
+    assertNotEquals(classpath, third.getClasspath());
+  }
+
+  private String getArchiveOption(ClassDataSharingCache.Launch launch) {
+    List<String> jvmOptions = launch.getJvmOptions();
+    return jvmOptions.get(jvmOptions.size() - 1);
+  }
+}
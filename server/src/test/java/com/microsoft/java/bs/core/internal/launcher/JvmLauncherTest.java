@@ -0,0 +1,133 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.launcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import com.microsoft.java.bs.core.Launcher;
+import com.microsoft.java.bs.gradle.model.GradleSourceSet;
+import com.microsoft.java.bs.gradle.model.impl.DefaultJavaExtension;
+
+import ch.epfl.scala.bsp4j.BuildClient;
+import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+import ch.epfl.scala.bsp4j.LogMessageParams;
+import ch.epfl.scala.bsp4j.ScalaMainClass;
+import ch.epfl.scala.bsp4j.StatusCode;
+
+class JvmLauncherTest {
+
+  @TempDir
+  Path tempDir;
+
+  private BuildClient client;
+
+  @BeforeEach
+  void setUp() {
+    client = mock(BuildClient.class);
+    Launcher.client = client;
+  }
+
+  @AfterEach
+  void tearDown() {
+    Launcher.client = null;
+  }
+
+  @Test
+  void testGetCommand() {
+    ScalaMainClass mainClass = new ScalaMainClass("foo.Main", Arrays.asList("a"),
+        Arrays.asList("-Xmx1g"));
+    File javaHome = new File("jdk");
+    ClassDataSharingCache.Launch launch = new ClassDataSharingCache.Launch(null,
+        Arrays.asList(new File("classes"), new File("lib.jar")),
+        Arrays.asList("-XX:SharedArchiveFile=app.jsa"));
+
+    List<String> command = JvmLauncher.getCommand(javaHome, launch,
+        Arrays.asList("-Dfoo=bar", "-Xmx512m"), mainClass, Arrays.asList("b"));
+
+    assertTrue(command.get(0).startsWith(new File(javaHome, "bin").getAbsolutePath()));
+    assertEquals(Arrays.asList("-XX:SharedArchiveFile=app.jsa", "-Dfoo=bar", "-Xmx512m",
+        "-Xmx1g", "-cp",
+        new File("classes").getAbsolutePath() + File.pathSeparator
+            + new File("lib.jar").getAbsolutePath(), "foo.Main", "a", "b"),
+        command.subList(1, command.size()));
+  }
+
+  @Test
+  void testGetJavaVersion() {
+    DefaultJavaExtension javaExtension = new DefaultJavaExtension();
+    javaExtension.setJavaHome(new File("jdk"));
+    javaExtension.setJavaVersion("1.8");
+    assertEquals(8, JvmLauncher.getJavaVersion(javaExtension));
+    javaExtension.setJavaVersion("17.0.2");
+    assertEquals(17, JvmLauncher.getJavaVersion(javaExtension));
+    javaExtension.setJavaVersion(null);
+    assertEquals(0, JvmLauncher.getJavaVersion(javaExtension));
+    // the JDK of the server is used without a java home.
+    assertEquals(Runtime.version().feature(), JvmLauncher.getJavaVersion(null));
+  }
+
+  @Test
+  void testLaunchWithClassDataSharing() throws IOException {
+    File classesDir = compile("package foo; public class Main { public static void main("
+        + "String[] args) { System.out.println(\"Hello \" + args[0] + System.getenv(\"FOO\"));"
+        + " } }");
+    GradleSourceSet sourceSet = mock(GradleSourceSet.class);
+    when(sourceSet.getRootDir()).thenReturn(tempDir.toFile());
+    when(sourceSet.getProjectDir()).thenReturn(tempDir.toFile());
+    when(sourceSet.getRuntimeClasspath()).thenReturn(Arrays.asList(classesDir));
+    ScalaMainClass mainClass = new ScalaMainClass("foo.Main", Collections.emptyList(),
+        Collections.emptyList());
+    mainClass.setEnvironmentVariables(Arrays.asList("FOO=!"));
+    BuildTargetIdentifier btId = new BuildTargetIdentifier("foo");
+
+    JvmLauncher launcher = new JvmLauncher();
+    // the first launch creates the archive, the second one uses it.
+    for (int i = 0; i < 2; i++) {
+      assertEquals(StatusCode.OK, launcher.launch(btId, sourceSet, null, mainClass,
+          Arrays.asList("world"), "origin", true, null));
+    }
+
+    if (Runtime.version().feature() >= ClassDataSharingCache.MIN_JAVA_VERSION) {
+      try (Stream<Path> files = Files.walk(tempDir.resolve(".gradle/bsp/cds"))) {
+        assertTrue(files.anyMatch(file -> file.toString().endsWith(".jsa")));
+      }
+    }
+    ArgumentCaptor<LogMessageParams> captor = ArgumentCaptor.forClass(LogMessageParams.class);
+    verify(client, times(2)).onBuildLogMessage(captor.capture());
+    assertEquals("Hello world!", captor.getValue().getMessage());
+    assertEquals("origin", captor.getValue().getOriginId());
+  }
+
+  private File compile(String source) throws IOException {
+    Path sourceFile = tempDir.resolve("src/foo/Main.java");
+    Files.createDirectories(sourceFile.getParent());
+    Files.writeString(sourceFile, source);
+    File classesDir = tempDir.resolve("classes").toFile();
+    assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null,
+        "-d", classesDir.getPath(), sourceFile.toString()));
+    return classesDir;
+  }
+}
@@ -0,0 +1,93 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import ch.epfl.scala.bsp4j.BuildClient;
+import ch.epfl.scala.bsp4j.LogMessageParams;
+import ch.epfl.scala.bsp4j.MessageType;
+
+class LogDispatcherTest {
+
+  @Test
+  void testBatchConsecutiveMessages() throws InterruptedException {
+    BuildClient client = mock(BuildClient.class);
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    // block the dispatch thread on the first message, so the others are queued.
+    doAnswer(invocation -> {
+      if (blocked.getCount() > 0) {
+        blocked.countDown();
+        release.await();
+      }
+      return null;
+    }).when(client).onBuildLogMessage(any());
+    LogDispatcher dispatcher = new LogDispatcher(100, () -> client);
+    dispatcher.log(MessageType.INFORMATION, "first");
+    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    dispatcher.log(MessageType.INFORMATION, "a");
+    dispatcher.log(MessageType.INFORMATION, "b");
+    dispatcher.logTelemetry(Collections.singletonMap("kind", "test"));
+    dispatcher.log(MessageType.INFORMATION, "c");
+    dispatcher.log(MessageType.ERROR, "d");
+    release.countDown();
+    dispatcher.close();
+
+    ArgumentCaptor<LogMessageParams> captor = ArgumentCaptor.forClass(LogMessageParams.class);
+    verify(client, times(5)).onBuildLogMessage(captor.capture());
+    List<LogMessageParams> messages = captor.getAllValues();
+    assertEquals("first", messages.get(0).getMessage());
+    assertEquals("a\nb", messages.get(1).getMessage());
+    assertEquals(MessageType.LOG, messages.get(2).getType());
+    assertEquals("{\"kind\":\"test\"}", messages.get(2).getMessage());
+    assertEquals("c", messages.get(3).getMessage());
+    assertEquals(MessageType.ERROR, messages.get(4).getType());
+  }
+
+  @Test
+  void testDropOldestWhenFull() throws InterruptedException {
+    BuildClient client = mock(BuildClient.class);
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      if (blocked.getCount() > 0) {
+        blocked.countDown();
+        release.await();
+      }
+      return null;
+    }).when(client).onBuildLogMessage(any());
+    LogDispatcher dispatcher = new LogDispatcher(2, () -> client);
+    dispatcher.log(MessageType.INFORMATION, "first");
+    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    for (int i = 0; i < 5; i++) {
+      dispatcher.log(MessageType.INFORMATION, "message" + i);
+    }
+    release.countDown();
+    dispatcher.flush(5_000);
+
+    assertEquals(3, dispatcher.getDroppedCount());
+    ArgumentCaptor<LogMessageParams> captor = ArgumentCaptor.forClass(LogMessageParams.class);
+    verify(client, times(3)).onBuildLogMessage(captor.capture());
+    List<LogMessageParams> messages = captor.getAllValues();
+    assertEquals(MessageType.WARNING, messages.get(1).getType());
+    assertTrue(messages.get(1).getMessage().startsWith("3 log messages were dropped"));
+    assertEquals("message3\nmessage4", messages.get(2).getMessage());
+    dispatcher.close();
+  }
+}
@@ -0,0 +1,71 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.managers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.microsoft.java.bs.gradle.model.GradleSourceSet;
+
+class BuildScriptTrackerTest {
+
+  @TempDir
+  File tempDir;
+
+  @Test
+  void testIncludedBuildsWithSamePath() throws IOException {
+    File app = new File(tempDir, "app");
+    File lib = new File(tempDir, "lib");
+    writeScript(lib, "plugins {}");
+    final File appScript = writeScript(app, "plugins {}");
+    BuildScriptTracker tracker = new BuildScriptTracker();
+    tracker.update(List.of(createSourceSet(app, ":"), createSourceSet(lib, ":")), null);
+    assertTrue(tracker.getChangedProjectPaths().isEmpty());
+
+    Files.writeString(appScript.toPath(), "plugins { id 'java' }");
+    assertEquals(Set.of(":"), tracker.getChangedProjectPaths());
+  }
+
+  @Test
+  void testChangedWhileFetching() throws IOException {
+    File app = new File(tempDir, "app");
+    File appScript = writeScript(app, "plugins {}");
+    BuildScriptTracker tracker = new BuildScriptTracker();
+    List<GradleSourceSet> sourceSets = List.of(createSourceSet(app, ":"));
+    tracker.update(sourceSets, null);
+
+    Map<File, String> fetchStamps = tracker.stamp();
+    // the build script is changed after the fetch started.
+    Files.writeString(appScript.toPath(), "plugins { id 'java' }");
+    tracker.update(sourceSets, fetchStamps);
+    assertEquals(Set.of(":"), tracker.getChangedProjectPaths());
+  }
+
+  private File writeScript(File projectDir, String content) throws IOException {
+    projectDir.mkdirs();
+    File script = new File(projectDir, "build.gradle");
+    Files.writeString(script.toPath(), content);
+    return script;
+  }
+
+  private GradleSourceSet createSourceSet(File rootDir, String projectPath) {
+    GradleSourceSet sourceSet = mock(GradleSourceSet.class);
+    when(sourceSet.getRootDir()).thenReturn(rootDir);
+    when(sourceSet.getProjectDir()).thenReturn(rootDir);
+    when(sourceSet.getProjectPath()).thenReturn(projectPath);
+    return sourceSet;
+  }
+}
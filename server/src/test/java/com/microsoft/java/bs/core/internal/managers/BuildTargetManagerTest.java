@@ -4,11 +4,13 @@
 package com.microsoft.java.bs.core.internal.managers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -16,8 +18,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import com.microsoft.java.bs.core.internal.model.GradleBuildTarget;
 import com.microsoft.java.bs.gradle.model.BuildTargetDependency;
@@ -25,8 +33,15 @@ import com.microsoft.java.bs.gradle.model.GradleSourceSet;
 import com.microsoft.java.bs.gradle.model.GradleSourceSets;
 import com.microsoft.java.bs.gradle.model.JavaExtension;
 import com.microsoft.java.bs.gradle.model.SupportedLanguages;
+import com.microsoft.java.bs.gradle.model.impl.DefaultBuildTargetDependency;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleSourceSet;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleSourceSets;
+import com.microsoft.java.bs.gradle.model.impl.DefaultJavaExtension;
 
 import ch.epfl.scala.bsp4j.BuildTarget;
+import ch.epfl.scala.bsp4j.BuildTargetEvent;
+import ch.epfl.scala.bsp4j.BuildTargetEventKind;
+import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
 import ch.epfl.scala.bsp4j.JvmBuildTarget;
 import ch.epfl.scala.bsp4j.extended.JvmBuildTargetEx;
 
@@ -49,6 +64,7 @@ class BuildTargetManagerTest {
     assertTrue(buildTarget.getTags().contains("test"));
     assertTrue(buildTarget.getId().getUri().contains("?sourceset=test"));
     assertEquals("test name", buildTarget.getDisplayName());
+    assertTrue(buildTarget.getCapabilities().getCanTest());
   }
 
   @Test
@@ -87,6 +103,72 @@ class BuildTargetManagerTest {
     assertEquals("17", jvmBt.getTargetCompatibility());
   }
 
+  @Test
+  void testJavaExtensionDecodedOnStore() {
+    GradleSourceSet gradleSourceSet = getMockedTestGradleSourceSet();
+    GradleSourceSets gradleSourceSets = mock(GradleSourceSets.class);
+    when(gradleSourceSets.getGradleSourceSets()).thenReturn(Arrays.asList(gradleSourceSet));
+
+    BuildTargetManager manager = new BuildTargetManager();
+    manager.store(gradleSourceSets);
+
+    DefaultJavaExtension javaExtension = manager.getAllGradleBuildTargets().get(0)
+        .getJavaExtension();
+    assertEquals("17", javaExtension.getJavaVersion());
+    assertEquals("17", javaExtension.getSourceCompatibility());
+  }
+
+  @Test
+  void testJavaExtensionWithoutJavaExtensionType() {
+    GradleSourceSet gradleSourceSet = getMockedTestGradleSourceSet();
+    Map<String, Object> extensions = new HashMap<>();
+    extensions.put(SupportedLanguages.JAVA, new ForeignJavaExtension());
+    when(gradleSourceSet.getExtensions()).thenReturn(extensions);
+    GradleSourceSets gradleSourceSets = mock(GradleSourceSets.class);
+    when(gradleSourceSets.getGradleSourceSets()).thenReturn(Arrays.asList(gradleSourceSet));
+
+    BuildTargetManager manager = new BuildTargetManager();
+    manager.store(gradleSourceSets);
+
+    DefaultJavaExtension javaExtension = manager.getAllGradleBuildTargets().get(0)
+        .getJavaExtension();
+    assertEquals("11", javaExtension.getJavaVersion());
+    assertEquals(Arrays.asList("-parameters"), javaExtension.getCompilerArgs());
+  }
+
+  @Test
+  void testResponseItemsKeptForUnchangedTargets() {
+    GradleSourceSet gradleSourceSetFoo = getMockedTestGradleSourceSet();
+    when(gradleSourceSetFoo.getProjectPath()).thenReturn(":foo");
+    when(gradleSourceSetFoo.getProjectDir()).thenReturn(new File("foo"));
+    GradleSourceSet gradleSourceSetBar = getMockedTestGradleSourceSet();
+    when(gradleSourceSetBar.getProjectPath()).thenReturn(":bar");
+    when(gradleSourceSetBar.getProjectDir()).thenReturn(new File("bar"));
+    GradleSourceSets gradleSourceSets = mock(GradleSourceSets.class);
+    when(gradleSourceSets.getGradleSourceSets()).thenReturn(
+        Arrays.asList(gradleSourceSetFoo, gradleSourceSetBar));
+
+    BuildTargetManager manager = new BuildTargetManager();
+    manager.store(gradleSourceSets);
+    for (GradleBuildTarget buildTarget : manager.getAllGradleBuildTargets()) {
+      buildTarget.getResponseItem(String.class, () -> buildTarget.getSourceSet().getProjectPath());
+    }
+
+    GradleSourceSet newGradleSourceSetFoo = getMockedTestGradleSourceSet();
+    when(newGradleSourceSetFoo.getProjectPath()).thenReturn(":foo");
+    when(newGradleSourceSetFoo.getProjectDir()).thenReturn(new File("foo"));
+    GradleSourceSets partialSourceSets = mock(GradleSourceSets.class);
+    when(partialSourceSets.getGradleSourceSets()).thenReturn(
+        Arrays.asList(newGradleSourceSetFoo));
+    manager.store(partialSourceSets, new HashSet<>(Arrays.asList(":foo")), null);
+
+    for (GradleBuildTarget buildTarget : manager.getAllGradleBuildTargets()) {
+      String projectPath = buildTarget.getSourceSet().getProjectPath();
+      String expected = ":bar".equals(projectPath) ? ":bar" : "rebuilt";
+      assertEquals(expected, buildTarget.getResponseItem(String.class, () -> "rebuilt"));
+    }
+  }
+
   @Test
   void testBuildTargetDependency() {
     GradleSourceSet gradleSourceSetFoo = getMockedTestGradleSourceSet();
@@ -125,6 +207,215 @@ class BuildTargetManagerTest {
     assertTrue(buildTargetBar.getDependencies().contains(buildTargetFoo.getId()));
   }
 
+  @Test
+  void testStorePartially() {
+    GradleSourceSet gradleSourceSetFoo = getMockedTestGradleSourceSet();
+    when(gradleSourceSetFoo.getProjectPath()).thenReturn(":foo");
+    when(gradleSourceSetFoo.getProjectDir()).thenReturn(new File("foo"));
+    GradleSourceSet gradleSourceSetBar = getMockedTestGradleSourceSet();
+    when(gradleSourceSetBar.getProjectPath()).thenReturn(":bar");
+    when(gradleSourceSetBar.getProjectDir()).thenReturn(new File("bar"));
+    GradleSourceSets gradleSourceSets = mock(GradleSourceSets.class);
+    when(gradleSourceSets.getGradleSourceSets()).thenReturn(
+        Arrays.asList(gradleSourceSetFoo, gradleSourceSetBar));
+
+    BuildTargetManager manager = new BuildTargetManager();
+    manager.store(gradleSourceSets);
+
+    GradleSourceSet newGradleSourceSetFoo = getMockedTestGradleSourceSet();
+    when(newGradleSourceSetFoo.getProjectPath()).thenReturn(":foo");
+    when(newGradleSourceSetFoo.getProjectDir()).thenReturn(new File("foo"));
+    when(newGradleSourceSetFoo.getSourceDirs()).thenReturn(
+        new HashSet<>(Arrays.asList(new File("foo/src/main/java"))));
+    GradleSourceSets partialSourceSets = mock(GradleSourceSets.class);
+    when(partialSourceSets.getGradleSourceSets()).thenReturn(
+        Arrays.asList(newGradleSourceSetFoo));
+
+    List<BuildTargetEvent> events = manager.store(partialSourceSets,
+        new HashSet<>(Arrays.asList(":foo")), null);
+
+    assertEquals(1, events.size());
+    assertTrue(events.get(0).getTarget().getUri().contains("foo"));
+    assertEquals(BuildTargetEventKind.CHANGED, events.get(0).getKind());
+    assertEquals(2, manager.getAllGradleBuildTargets().size());
+    assertEquals(new HashSet<>(Arrays.asList(":foo", ":bar")), manager.getAllProjectPaths());
+  }
+
+  @Test
+  void testSnapshotGenerations() {
+    BuildTargetManager manager = new BuildTargetManager();
+    BuildTargetSnapshot empty = manager.getSnapshot();
+    manager.store(new DefaultGradleSourceSets(Arrays.asList(
+        createSourceSet(0, 0), createSourceSet(1, 0))));
+    BuildTargetSnapshot first = manager.getSnapshot();
+    manager.store(new DefaultGradleSourceSets(Arrays.asList(createSourceSet(1, 0))));
+    BuildTargetSnapshot second = manager.getSnapshot();
+
+    assertEquals(0, empty.getAllGradleBuildTargets().size());
+    assertEquals(first.getGeneration() + 1, second.getGeneration());
+    // the published generation is not modified by the later stores.
+    assertEquals(2, first.getAllGradleBuildTargets().size());
+    GradleBuildTarget dependent = first.getAllGradleBuildTargets().stream()
+        .filter(target -> ":p1".equals(target.getSourceSet().getProjectPath()))
+        .findFirst().get();
+    assertEquals(1, dependent.getBuildTarget().getDependencies().size());
+    assertEquals(0, second.getAllGradleBuildTargets().get(0).getBuildTarget()
+        .getDependencies().size());
+    // the roots of the removed project are dropped from the index.
+    File source = new File("/workspace/stress/p0/src/v0/Foo.java");
+    assertEquals(1, first.getSourceRootIndex().getBuildTargets(source).size());
+    assertTrue(second.getSourceRootIndex().getBuildTargets(source).isEmpty());
+  }
+
+  @Test
+  void testCreatedAndDeletedEvents() {
+    BuildTargetManager manager = new BuildTargetManager();
+    manager.store(new DefaultGradleSourceSets(Arrays.asList(createSourceSet(0, 0))));
+
+    // the source set of :p0 is unchanged, :p1 appears.
+    List<BuildTargetEvent> events = manager.store(new DefaultGradleSourceSets(Arrays.asList(
+        createSourceSet(0, 0), createSourceSet(1, 0))));
+    assertEquals(1, events.size());
+    assertTrue(events.get(0).getTarget().getUri().contains("p1"));
+    assertEquals(BuildTargetEventKind.CREATED, events.get(0).getKind());
+
+    events = manager.store(new DefaultGradleSourceSets(Arrays.asList(createSourceSet(0, 0))));
+    assertEquals(1, events.size());
+    assertTrue(events.get(0).getTarget().getUri().contains("p1"));
+    assertEquals(BuildTargetEventKind.DELETED, events.get(0).getKind());
+  }
+
+  @Test
+  void testConcurrentStoresAndReads() throws Exception {
+    final int projectCount = 4;
+    final int versionCount = 50;
+    BuildTargetManager manager = new BuildTargetManager();
+    List<GradleSourceSet> initial = new ArrayList<>();
+    for (int i = 0; i < projectCount; i++) {
+      initial.add(createSourceSet(i, 0));
+    }
+    manager.store(new DefaultGradleSourceSets(initial));
+
+    ExecutorService executor = Executors.newFixedThreadPool(projectCount + 2);
+    AtomicBoolean writing = new AtomicBoolean(true);
+    List<Future<?>> writers = new ArrayList<>();
+    List<Future<?>> readers = new ArrayList<>();
+    try {
+      // each writer refetches its own project, like the refetch after a compilation.
+      for (int i = 0; i < projectCount; i++) {
+        final int project = i;
+        writers.add(executor.submit(() -> {
+          for (int version = 1; version <= versionCount; version++) {
+            List<BuildTargetEvent> changed = manager.store(new DefaultGradleSourceSets(
+                Arrays.asList(createSourceSet(project, version))),
+                Collections.singleton(":p" + project), null);
+            assertEquals(1, changed.size());
+          }
+        }));
+      }
+      for (int i = 0; i < 2; i++) {
+        readers.add(executor.submit(() -> {
+          long lastGeneration = 0;
+          while (writing.get()) {
+            BuildTargetSnapshot snapshot = manager.getSnapshot();
+            assertTrue(snapshot.getGeneration() >= lastGeneration);
+            lastGeneration = snapshot.getGeneration();
+            // no project is lost by a concurrent store, and the dependencies
+            // are resolved in the same generation.
+            assertEquals(projectCount, snapshot.getAllGradleBuildTargets().size());
+            for (GradleBuildTarget target : snapshot.getAllGradleBuildTargets()) {
+              for (BuildTargetIdentifier dependency
+                  : target.getBuildTarget().getDependencies()) {
+                assertNotNull(snapshot.getGradleBuildTarget(dependency));
+              }
+            }
+          }
+        }));
+      }
+      for (Future<?> writer : writers) {
+        writer.get(1, TimeUnit.MINUTES);
+      }
+      writing.set(false);
+      for (Future<?> reader : readers) {
+        reader.get(1, TimeUnit.MINUTES);
+      }
+    } finally {
+      writing.set(false);
+      executor.shutdownNow();
+    }
+
+    BuildTargetSnapshot snapshot = manager.getSnapshot();
+    assertEquals(1 + projectCount * versionCount, snapshot.getGeneration());
+    for (int i = 0; i < projectCount; i++) {
+      assertEquals(createSourceSet(i, versionCount),
+          snapshot.getGradleBuildTarget(getBuildTargetId(i)).getSourceSet());
+    }
+  }
+
+  private BuildTargetIdentifier getBuildTargetId(int project) {
+    return new BuildTargetIdentifier(new File("/workspace/stress/p" + project).toURI()
+        + "?sourceset=main");
+  }
+
+  @Test
+  void testGeneratedSourcesOfUpstreamProjects(@TempDir File tempDir) {
+    List<GradleSourceSet> sourceSets = new ArrayList<>();
+    for (int project = 0; project < 2; project++) {
+      DefaultGradleSourceSet sourceSet = createSourceSet(project, 0);
+      sourceSet.setProjectDir(new File(tempDir, "p" + project));
+      sourceSet.setRootDir(tempDir);
+      sourceSets.add(sourceSet);
+    }
+    BuildTargetManager manager = new BuildTargetManager();
+    manager.store(new DefaultGradleSourceSets(sourceSets));
+    BuildTargetIdentifier downstream = manager.getSnapshot().getAllGradleBuildTargets().stream()
+        .filter(target -> ":p1".equals(target.getSourceSet().getProjectPath()))
+        .findFirst()
+        .get()
+        .getBuildTarget()
+        .getId();
+    assertTrue(manager.getGeneratedSourceChangedProjectPaths(List.of(downstream)).isEmpty());
+
+    // compiling :p1 runs the code generator of :p0, which it depends on.
+    Map<File, String> fetchStamps = manager.stampTrackedFiles();
+    assertTrue(new File(tempDir, "p0/build/generated/source/proto/main").mkdirs());
+    assertEquals(Set.of(":p0"), manager.getGeneratedSourceChangedProjectPaths(
+        List.of(downstream)));
+
+    // the root generated while the source sets are fetched is found again.
+    manager.store(new DefaultGradleSourceSets(sourceSets), fetchStamps);
+    assertEquals(Set.of(":p0"), manager.getGeneratedSourceChangedProjectPaths(
+        List.of(downstream)));
+    manager.store(new DefaultGradleSourceSets(sourceSets));
+    assertTrue(manager.getGeneratedSourceChangedProjectPaths(List.of(downstream)).isEmpty());
+  }
+
+  /**
+   * Create the source set of a project, all the projects but the first one depend
+   * on the first one. Each version has a different source directory.
+   */
+  private DefaultGradleSourceSet createSourceSet(int project, int version) {
+    File projectDir = new File("/workspace/stress/p" + project);
+    DefaultGradleSourceSet sourceSet = new DefaultGradleSourceSet();
+    sourceSet.setGradleVersion("8.0");
+    sourceSet.setDisplayName("p" + project);
+    sourceSet.setProjectName("p" + project);
+    sourceSet.setProjectPath(":p" + project);
+    sourceSet.setProjectDir(projectDir);
+    sourceSet.setRootDir(new File("/workspace/stress"));
+    sourceSet.setSourceSetName("main");
+    sourceSet.setClassesTaskName("classes");
+    sourceSet.setSourceDirs(Collections.singleton(new File(projectDir, "src/v" + version)));
+    sourceSet.setGeneratedSourceDirs(Collections.emptySet());
+    sourceSet.setResourceDirs(Collections.emptySet());
+    sourceSet.setModuleDependencies(Collections.emptySet());
+    sourceSet.setBuildTargetDependencies(project == 0 ? Collections.emptySet()
+        : Collections.singleton(new DefaultBuildTargetDependency(":p0", "main")));
+    sourceSet.setExtensions(Collections.singletonMap(SupportedLanguages.JAVA,
+        new DefaultJavaExtension()));
+    return sourceSet;
+  }
+
   private GradleSourceSet getMockedTestGradleSourceSet() {
     GradleSourceSet mocked = mock(GradleSourceSet.class);
     when(mocked.getGradleVersion()).thenReturn("8.0");
@@ -145,4 +436,34 @@ class BuildTargetManagerTest {
     when(mocked.getExtensions()).thenReturn(extensions);
     return mocked;
   }
+
+  /**
+   * A java extension which does not implement the {@link JavaExtension} of the
+   * server, like the one loaded by the class loader of the Tooling API.
+   */
+  public static class ForeignJavaExtension {
+    public List<File> getCompileClasspath() {
+      return Collections.emptyList();
+    }
+
+    public File getJavaHome() {
+      return null;
+    }
+
+    public String getJavaVersion() {
+      return "11";
+    }
+
+    public String getSourceCompatibility() {
+      return "11";
+    }
+
+    public String getTargetCompatibility() {
+      return "11";
+    }
+
+    public List<String> getCompilerArgs() {
+      return Arrays.asList("-parameters");
+    }
+  }
 }
@@ -0,0 +1,58 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.managers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.microsoft.java.bs.gradle.model.impl.DefaultArtifact;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleModuleDependency;
+
+class ModuleArtifactsCacheTest {
+
+  private static final String RESOLVED = "group:resolved:1.0.0";
+
+  private static final String MISSING = "group:missing:1.0.0";
+
+  @Test
+  void testMissesExpireWithSnapshot() {
+    ModuleArtifactsCache cache = new ModuleArtifactsCache();
+    BuildTargetSnapshot snapshot = mock(BuildTargetSnapshot.class);
+    List<String> coordinates = List.of(RESOLVED, MISSING);
+    Set<String> unresolved = cache.getUnresolvedCoordinates(coordinates, snapshot);
+    assertEquals(Set.of(RESOLVED, MISSING), unresolved);
+
+    cache.store(unresolved, List.of(new DefaultGradleModuleDependency("group", "resolved",
+        "1.0.0", List.of(new DefaultArtifact(new File("sources").toURI(), "sources")))),
+        snapshot);
+    assertEquals(1, cache.getArtifacts(RESOLVED).size());
+    assertTrue(cache.getArtifacts(MISSING).isEmpty());
+    assertTrue(cache.getUnresolvedCoordinates(coordinates, snapshot).isEmpty());
+
+    // the missing module is retried after the build targets are reloaded.
+    BuildTargetSnapshot reloaded = mock(BuildTargetSnapshot.class);
+    assertEquals(Set.of(MISSING), cache.getUnresolvedCoordinates(coordinates, reloaded));
+  }
+
+  @Test
+  void testIgnoreMissesOfOlderSnapshot() {
+    ModuleArtifactsCache cache = new ModuleArtifactsCache();
+    BuildTargetSnapshot snapshot = mock(BuildTargetSnapshot.class);
+    BuildTargetSnapshot reloaded = mock(BuildTargetSnapshot.class);
+    Set<String> unresolved = cache.getUnresolvedCoordinates(List.of(MISSING), snapshot);
+    cache.getUnresolvedCoordinates(List.of(MISSING), reloaded);
+
+    // the resolution requested for the older snapshot completes after the reload.
+    cache.store(unresolved, Collections.emptyList(), snapshot);
+    assertEquals(Set.of(MISSING), cache.getUnresolvedCoordinates(List.of(MISSING), reloaded));
+  }
+}
@@ -0,0 +1,139 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.managers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.microsoft.java.bs.core.internal.model.Preferences;
+import com.microsoft.java.bs.gradle.model.GradleSourceSets;
+import com.microsoft.java.bs.gradle.model.SupportedLanguages;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleSourceSet;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleSourceSets;
+import com.microsoft.java.bs.gradle.model.impl.DefaultJavaExtension;
+
+class SnapshotManagerTest {
+
+  @TempDir
+  Path rootDir;
+
+  private PreferenceManager preferenceManager;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    Files.writeString(rootDir.resolve("settings.gradle"), "rootProject.name = 'foo'");
+    Files.writeString(rootDir.resolve("build.gradle"), "apply plugin: 'java'");
+    preferenceManager = new PreferenceManager();
+    preferenceManager.setPreferences(new Preferences());
+    preferenceManager.setClientSupportedLanguages(Arrays.asList(SupportedLanguages.JAVA));
+  }
+
+  @Test
+  void testSaveAndLoad() {
+    SnapshotManager snapshotManager = new SnapshotManager(preferenceManager);
+    GradleSourceSets sourceSets = getSourceSets();
+    snapshotManager.save(rootDir.toUri(), sourceSets);
+
+    assertEquals(sourceSets, snapshotManager.load(rootDir.toUri()));
+  }
+
+  @Test
+  void testLoadWithoutSnapshot() {
+    SnapshotManager snapshotManager = new SnapshotManager(preferenceManager);
+
+    assertNull(snapshotManager.load(rootDir.toUri()));
+  }
+
+  @Test
+  void testStaleWhenBuildScriptChanged() throws IOException {
+    SnapshotManager snapshotManager = new SnapshotManager(preferenceManager);
+    snapshotManager.save(rootDir.toUri(), getSourceSets());
+    Files.writeString(rootDir.resolve("build.gradle"), "apply plugin: 'java-library'");
+
+    assertNull(snapshotManager.load(rootDir.toUri()));
+  }
+
+  @Test
+  void testStaleWhenPreferencesChanged() {
+    SnapshotManager snapshotManager = new SnapshotManager(preferenceManager);
+    snapshotManager.save(rootDir.toUri(), getSourceSets());
+    Preferences preferences = new Preferences();
+    preferences.setGradleVersion("8.1");
+    preferenceManager.setPreferences(preferences);
+
+    assertNull(snapshotManager.load(rootDir.toUri()));
+  }
+
+  @Test
+  void testRejectUnknownSerializedClasses() {
+    SnapshotManager snapshotManager = new SnapshotManager(preferenceManager);
+    DefaultGradleSourceSets sourceSets = (DefaultGradleSourceSets) getSourceSets();
+    DefaultGradleSourceSet sourceSet =
+        (DefaultGradleSourceSet) sourceSets.getGradleSourceSets().get(0);
+    Map<String, Object> extensions = new HashMap<>(sourceSet.getExtensions());
+    extensions.put("custom", new UnknownExtension());
+    sourceSet.setExtensions(extensions);
+    snapshotManager.save(rootDir.toUri(), sourceSets);
+
+    assertNull(snapshotManager.load(rootDir.toUri()));
+  }
+
+  private GradleSourceSets getSourceSets() {
+    File projectDir = rootDir.toFile();
+    DefaultGradleSourceSet sourceSet = new DefaultGradleSourceSet();
+    sourceSet.setGradleVersion("8.1");
+    sourceSet.setDisplayName("foo [main]");
+    sourceSet.setProjectName("foo");
+    sourceSet.setProjectPath(":");
+    sourceSet.setProjectDir(projectDir);
+    sourceSet.setRootDir(projectDir);
+    sourceSet.setSourceSetName("main");
+    sourceSet.setClassesTaskName("classes");
+    sourceSet.setSourceDirs(new HashSet<>(Arrays.asList(new File(projectDir, "src/main/java"))));
+    sourceSet.setGeneratedSourceDirs(new HashSet<>());
+    sourceSet.setResourceDirs(new HashSet<>());
+    sourceSet.setSourceOutputDir(new File(projectDir, "build/classes/java/main"));
+    sourceSet.setModuleDependencies(new HashSet<>());
+    sourceSet.setBuildTargetDependencies(new HashSet<>());
+    sourceSet.setRuntimeClasspath(Arrays.asList(new File(projectDir, "build/classes/java/main"),
+        new File(projectDir, "lib/foo.jar")));
+    DefaultJavaExtension javaExtension = new DefaultJavaExtension();
+    javaExtension.setJavaVersion("17");
+    javaExtension.setCompileClasspath(new LinkedList<>());
+    javaExtension.setCompilerArgs(Collections.emptyList());
+    javaExtension.setJvmOptions(Arrays.asList("-Dfoo=bar"));
+    javaExtension.setWorkingDirectory(projectDir);
+    javaExtension.setEnvironmentVariables(Collections.singletonMap("FOO", "bar"));
+    javaExtension.setTestJvmOptions(Arrays.asList("-ea"));
+    javaExtension.setTestWorkingDirectory(projectDir);
+    javaExtension.setTestEnvironmentVariables(Collections.emptyMap());
+    Map<String, Object> extensions = new HashMap<>();
+    extensions.put(SupportedLanguages.JAVA, javaExtension);
+    sourceSet.setExtensions(extensions);
+    return new DefaultGradleSourceSets(new LinkedList<>(Arrays.asList(sourceSet)));
+  }
+
+  /**
+   * A serializable class which is not part of the model.
+   */
+  static class UnknownExtension implements Serializable {
+    private static final long serialVersionUID = 1L;
+  }
+}
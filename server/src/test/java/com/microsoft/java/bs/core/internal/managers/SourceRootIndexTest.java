@@ -0,0 +1,120 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.managers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import com.microsoft.java.bs.core.internal.model.GradleBuildTarget;
+import com.microsoft.java.bs.gradle.model.GradleSourceSet;
+
+import ch.epfl.scala.bsp4j.BuildTarget;
+import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+
+class SourceRootIndexTest {
+
+  private static final File ROOT = new File("/workspace/index");
+
+  @Test
+  void testNearestRoot() {
+    GradleBuildTarget app = createTarget("app", new File(ROOT, "app/src/main/java"));
+    GradleBuildTarget nested = createTarget("nested", new File(ROOT, "app/src/main/java/gen"));
+    SourceRootIndex index = SourceRootIndex.EMPTY.update(Collections.emptyList(),
+        List.of(app, nested));
+
+    assertEquals(List.of(getId(app)), index.getBuildTargets(
+        new File(ROOT, "app/src/main/java/foo/Foo.java")));
+    assertEquals(List.of(getId(nested)), index.getBuildTargets(
+        new File(ROOT, "app/src/main/java/gen/Gen.java")));
+    assertEquals(List.of(getId(app)), index.getBuildTargets(
+        new File(ROOT, "app/src/main/java/gen/../Foo.java")));
+    assertTrue(index.getBuildTargets(new File(ROOT, "app/src/Foo.java")).isEmpty());
+    assertTrue(index.getBuildTargets(new File("/other/Foo.java")).isEmpty());
+  }
+
+  @Test
+  @EnabledOnOs(OS.WINDOWS)
+  void testDriveLetterCase() {
+    GradleBuildTarget app = createTarget("app", new File("C:\\workspace\\app\\src"));
+    SourceRootIndex index = SourceRootIndex.EMPTY.update(Collections.emptyList(),
+        List.of(app));
+
+    assertEquals(List.of(getId(app)), index.getBuildTargets(
+        new File("c:\\workspace\\app\\src\\Foo.java")));
+  }
+
+  @Test
+  void testSharedRoot() {
+    File shared = new File(ROOT, "shared/src");
+    GradleBuildTarget main = createTarget("main", shared);
+    GradleBuildTarget test = createTarget("test", shared);
+    SourceRootIndex index = SourceRootIndex.EMPTY.update(Collections.emptyList(),
+        List.of(main, test));
+
+    assertEquals(List.of(getId(main), getId(test)),
+        index.getBuildTargets(new File(shared, "Foo.java")));
+  }
+
+  @Test
+  void testUpdateKeepsPreviousIndex() {
+    GradleBuildTarget app = createTarget("app", new File(ROOT, "app/src"));
+    GradleBuildTarget lib = createTarget("lib", new File(ROOT, "lib/src"));
+    SourceRootIndex first = SourceRootIndex.EMPTY.update(Collections.emptyList(),
+        List.of(app, lib));
+    GradleBuildTarget movedLib = createTarget("lib", new File(ROOT, "lib/java"));
+    SourceRootIndex second = first.update(List.of(lib), List.of(movedLib));
+
+    assertEquals(List.of(getId(lib)), first.getBuildTargets(new File(ROOT, "lib/src/A.java")));
+    assertTrue(first.getBuildTargets(new File(ROOT, "lib/java/A.java")).isEmpty());
+    assertTrue(second.getBuildTargets(new File(ROOT, "lib/src/A.java")).isEmpty());
+    assertEquals(List.of(getId(lib)), second.getBuildTargets(new File(ROOT, "lib/java/A.java")));
+    assertEquals(List.of(getId(app)), second.getBuildTargets(new File(ROOT, "app/src/A.java")));
+
+    SourceRootIndex third = second.update(List.of(movedLib, app), Collections.emptyList());
+    assertTrue(third.getBuildTargets(new File(ROOT, "lib/java/A.java")).isEmpty());
+    assertTrue(third.getBuildTargets(new File(ROOT, "app/src/A.java")).isEmpty());
+  }
+
+  @Test
+  void testResourceAndGeneratedRoots() {
+    GradleSourceSet sourceSet = mock(GradleSourceSet.class);
+    when(sourceSet.getGeneratedSourceDirs()).thenReturn(Set.of(new File(ROOT, "build/gen")));
+    when(sourceSet.getResourceDirs()).thenReturn(Set.of(new File(ROOT, "src/resources")));
+    GradleBuildTarget target = createTarget("app", sourceSet);
+    SourceRootIndex index = SourceRootIndex.EMPTY.update(Collections.emptyList(),
+        List.of(target));
+
+    assertEquals(List.of(getId(target)), index.getBuildTargets(new File(ROOT, "build/gen/A.java")));
+    assertEquals(List.of(getId(target)),
+        index.getBuildTargets(new File(ROOT, "src/resources/a.properties")));
+  }
+
+  private GradleBuildTarget createTarget(String name, File sourceDir) {
+    GradleSourceSet sourceSet = mock(GradleSourceSet.class);
+    when(sourceSet.getSourceDirs()).thenReturn(Set.of(sourceDir));
+    return createTarget(name, sourceSet);
+  }
+
+  private GradleBuildTarget createTarget(String name, GradleSourceSet sourceSet) {
+    BuildTarget buildTarget = mock(BuildTarget.class);
+    when(buildTarget.getId()).thenReturn(new BuildTargetIdentifier(
+        new File(ROOT, name).toURI() + "?sourceset=main"));
+    return new GradleBuildTarget(buildTarget, sourceSet);
+  }
+
+  private BuildTargetIdentifier getId(GradleBuildTarget target) {
+    return target.getBuildTarget().getId();
+  }
+}
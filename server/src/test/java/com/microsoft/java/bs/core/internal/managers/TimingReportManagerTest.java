@@ -0,0 +1,77 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.managers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.microsoft.java.bs.core.internal.model.BuildTimingReport;
+
+class TimingReportManagerTest {
+
+  @TempDir
+  Path rootDir;
+
+  @Test
+  void testWriteReport() throws IOException {
+    TimingReportManager manager = new TimingReportManager(Runnable::run);
+    BuildTimingReport report = new BuildTimingReport("build", rootDir.toString(),
+        Arrays.asList(":app:compileJava"), 1000);
+    report.addTask(":app:compileJava", 42, "SUCCESS");
+    manager.record(report);
+
+    File[] files = rootDir.resolve("build/bsp-timing").toFile().listFiles();
+    assertEquals(1, files.length);
+    assertTrue(files[0].getName().endsWith("-build.json"));
+    String content = Files.readString(files[0].toPath());
+    assertTrue(content.contains("\":app:compileJava\""));
+    assertTrue(content.contains("\"taskTime\": 42"));
+  }
+
+  @Test
+  void testKeepLatestReports() {
+    TimingReportManager manager = new TimingReportManager(Runnable::run);
+    for (int i = 0; i < TimingReportManager.MAX_REPORTS + 5; i++) {
+      manager.record(new BuildTimingReport("build", rootDir.toString(),
+          Collections.emptyList(), i));
+    }
+
+    assertEquals(TimingReportManager.MAX_REPORTS,
+        rootDir.resolve("build/bsp-timing").toFile().listFiles().length);
+    List<BuildTimingReport> reports = manager.getReports(3);
+    assertEquals(3, reports.size());
+    // the newest first.
+    assertEquals(TimingReportManager.MAX_REPORTS + 4, reports.get(0).getStartTime());
+    assertEquals(TimingReportManager.MAX_REPORTS,
+        manager.getReports(Integer.MAX_VALUE).size());
+  }
+
+  @Test
+  void testWriteInBackground() {
+    List<Runnable> pendingWrites = new ArrayList<>();
+    TimingReportManager manager = new TimingReportManager(pendingWrites::add);
+    manager.record(new BuildTimingReport("build", rootDir.toString(),
+        Collections.emptyList(), 1000));
+
+    // the report is readable before it is written.
+    assertEquals(1, manager.getReports(1).size());
+    assertFalse(rootDir.resolve("build/bsp-timing").toFile().exists());
+    assertEquals(1, pendingWrites.size());
+    pendingWrites.get(0).run();
+    assertEquals(1, rootDir.resolve("build/bsp-timing").toFile().listFiles().length);
+  }
+}
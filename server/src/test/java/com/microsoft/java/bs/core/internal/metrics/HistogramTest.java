@@ -0,0 +1,48 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class HistogramTest {
+
+  @Test
+  void testBucketIndex() {
+    assertEquals(0, Histogram.getBucketIndex(0));
+    assertEquals(1, Histogram.getBucketIndex(1));
+    assertEquals(3, Histogram.getBucketIndex(3));
+    assertEquals(3, Histogram.getBucketIndex(5));
+    assertEquals(4, Histogram.getBucketIndex(6));
+    assertEquals(Histogram.BOUNDS.length, Histogram.getBucketIndex(Long.MAX_VALUE));
+  }
+
+  @Test
+  void testPercentiles() {
+    Histogram histogram = new Histogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(5050, histogram.getSum());
+    assertEquals(100, histogram.getMax());
+    assertEquals(50, histogram.getPercentile(0.5));
+    // the upper bound of the bucket is capped by the max value.
+    assertEquals(100, histogram.getPercentile(0.99));
+    assertEquals(1, histogram.getPercentile(0));
+  }
+
+  @Test
+  void testEmptyAndOverflow() {
+    Histogram histogram = new Histogram();
+    assertEquals(0, histogram.getPercentile(0.5));
+
+    histogram.record(Long.MAX_VALUE);
+    histogram.record(-1);
+    assertEquals(0, histogram.getPercentile(0.5));
+    assertEquals(Long.MAX_VALUE, histogram.getPercentile(0.99));
+  }
+}
@@ -0,0 +1,79 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.eclipse.lsp4j.jsonrpc.MessageConsumer;
+import org.eclipse.lsp4j.jsonrpc.json.MessageJsonHandler;
+import org.eclipse.lsp4j.jsonrpc.json.StreamMessageConsumer;
+import org.eclipse.lsp4j.jsonrpc.messages.NotificationMessage;
+import org.junit.jupiter.api.Test;
+
+import com.microsoft.java.bs.core.internal.model.MetricsResult;
+
+class MetricsRegistryTest {
+
+  @Test
+  void testSnapshot() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.increment("cache.hit");
+    registry.add("cache.hit", 2);
+    registry.registerGauge("refetch.requested", () -> 7L);
+    registry.record("bsp.request.buildTarget/compile", 120);
+    registry.record("bsp.request.buildTarget/compile", 30);
+
+    MetricsResult result = registry.getSnapshot();
+
+    assertEquals(3L, result.getCounters().get("cache.hit"));
+    assertEquals(7L, result.getCounters().get("refetch.requested"));
+    MetricsResult.HistogramSummary summary =
+        result.getHistograms().get("bsp.request.buildTarget/compile");
+    assertEquals(2, summary.getCount());
+    assertEquals(150, summary.getSum());
+    assertEquals(120, summary.getMax());
+    assertEquals(50, summary.getP50());
+    assertEquals(120, summary.getP99());
+  }
+
+  @Test
+  void testPrometheusText() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.increment("cache.hit");
+    registry.record("bsp.request.buildTarget/compile", 3);
+
+    String text = registry.toPrometheusText();
+
+    assertTrue(text.contains("# TYPE bsp_cache_hit_total counter\nbsp_cache_hit_total 1\n"));
+    assertTrue(text.contains("bsp_bsp_request_buildTarget_compile_bucket{le=\"2\"} 0\n"));
+    assertTrue(text.contains("bsp_bsp_request_buildTarget_compile_bucket{le=\"5\"} 1\n"));
+    assertTrue(text.contains("bsp_bsp_request_buildTarget_compile_bucket{le=\"+Inf\"} 1\n"));
+    assertTrue(text.contains("bsp_bsp_request_buildTarget_compile_count 1\n"));
+  }
+
+  @Test
+  void testMessageSizes() {
+    MetricsRegistry registry = new MetricsRegistry();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    MessageSizeRecorder recorder = new MessageSizeRecorder(registry,
+        new ByteArrayInputStream(new byte[0]), out);
+    MessageConsumer outgoing = recorder.wrap(new StreamMessageConsumer(recorder.getOutput(),
+        new MessageJsonHandler(Collections.emptyMap())));
+    NotificationMessage message = new NotificationMessage();
+    message.setMethod("build/logMessage");
+
+    outgoing.consume(message);
+    outgoing.consume(message);
+
+    Histogram histogram = registry.getHistogram(MessageSizeRecorder.OUTGOING);
+    assertEquals(2, histogram.getCount());
+    assertEquals(out.toString(StandardCharsets.UTF_8).length(), histogram.getSum());
+  }
+}
@@ -0,0 +1,158 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationDescriptor;
+import org.gradle.tooling.events.OperationResult;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.configuration.ProjectConfigurationFinishEvent;
+import org.gradle.tooling.events.configuration.ProjectConfigurationOperationDescriptor;
+import org.gradle.tooling.events.configuration.ProjectConfigurationOperationResult;
+import org.gradle.tooling.events.download.FileDownloadFinishEvent;
+import org.gradle.tooling.events.download.FileDownloadOperationDescriptor;
+import org.gradle.tooling.events.download.FileDownloadResult;
+import org.gradle.tooling.events.task.TaskFailureResult;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskOperationDescriptor;
+import org.gradle.tooling.events.task.TaskOperationResult;
+import org.gradle.tooling.events.task.TaskSkippedResult;
+import org.gradle.tooling.events.task.TaskStartEvent;
+import org.gradle.tooling.events.task.TaskSuccessResult;
+import org.gradle.tooling.model.ProjectIdentifier;
+import org.junit.jupiter.api.Test;
+
+import com.microsoft.java.bs.core.internal.model.BuildTimingReport;
+
+import ch.epfl.scala.bsp4j.StatusCode;
+
+class BuildTimingCollectorTest {
+
+  private static final URI PROJECT_URI = new File("/workspace/foo").toURI();
+
+  @Test
+  void testCollectTimings() {
+    AtomicLong time = new AtomicLong(1000);
+    BuildTimingCollector collector = new BuildTimingCollector("build", PROJECT_URI,
+        Arrays.asList("compileJava"), time::get);
+    collector.statusChanged(projectConfigured(":", 100, 150));
+    collector.statusChanged(projectConfigured(":app", 150, 250));
+    collector.statusChanged(mock(TaskStartEvent.class));
+    collector.statusChanged(taskFinished(":app:compileJava", success(false, false), 300, 700));
+    collector.statusChanged(taskFinished(":app:processResources", success(true, false),
+        700, 710));
+    collector.statusChanged(taskFinished(":app:jar", success(false, true), 710, 730));
+    collector.statusChanged(taskFinished(":app:test", mock(TaskFailureResult.class),
+        730, 800));
+    TaskSkippedResult skipped = result(TaskSkippedResult.class, 800, 800);
+    when(skipped.getSkipMessage()).thenReturn("NO-SOURCE");
+    collector.statusChanged(taskFinished(":app:compileTestJava", skipped, 800, 800));
+    collector.statusChanged(downloaded("https://repo/foo.jar", 1024, 200, 260));
+    collector.statusChanged(genericFinished("Resolve dependencies of :app:compileClasspath",
+        260, 290));
+    collector.statusChanged(genericFinished("Run build", 0, 1000));
+    time.set(2000);
+
+    BuildTimingReport report = collector.finish(StatusCode.ERROR);
+
+    assertEquals("build", report.getOperation());
+    assertEquals(new File(PROJECT_URI).getAbsolutePath(), report.getRootDir());
+    assertEquals(1000, report.getDuration());
+    assertEquals("ERROR", report.getStatus());
+    assertEquals(150, report.getConfigurationTime());
+    assertEquals(2, report.getProjects().size());
+    assertEquals(":app", report.getProjects().get(1).getName());
+    assertEquals(500, report.getTaskTime());
+    assertEquals(5, report.getTaskTimings().size());
+    assertEquals("SUCCESS", report.getTaskTimings().get(0).getOutcome());
+    assertEquals(400, report.getTaskTimings().get(0).getDuration());
+    assertEquals("UP-TO-DATE", report.getTaskTimings().get(1).getOutcome());
+    assertEquals("FROM-CACHE", report.getTaskTimings().get(2).getOutcome());
+    assertEquals("FAILED", report.getTaskTimings().get(3).getOutcome());
+    assertEquals("NO-SOURCE", report.getTaskTimings().get(4).getOutcome());
+    assertEquals(60, report.getDownloadTime());
+    assertEquals(1024, report.getDownloadedBytes());
+    assertEquals(30, report.getDependencyResolutionTime());
+    assertEquals(1, report.getDependencyResolutions().size());
+  }
+
+  @Test
+  void testOperationTypes() {
+    assertEquals(3, BuildTimingCollector.getOperationTypes(false).length);
+    assertTrue(Arrays.asList(BuildTimingCollector.getOperationTypes(true))
+        .contains(OperationType.GENERIC));
+  }
+
+  private ProjectConfigurationFinishEvent projectConfigured(String projectPath, long start,
+      long end) {
+    ProjectIdentifier project = mock(ProjectIdentifier.class);
+    when(project.getProjectPath()).thenReturn(projectPath);
+    ProjectConfigurationOperationDescriptor descriptor =
+        mock(ProjectConfigurationOperationDescriptor.class);
+    when(descriptor.getProject()).thenReturn(project);
+    ProjectConfigurationOperationResult result =
+        result(ProjectConfigurationOperationResult.class, start, end);
+    ProjectConfigurationFinishEvent event = mock(ProjectConfigurationFinishEvent.class);
+    when(event.getDescriptor()).thenReturn(descriptor);
+    when(event.getResult()).thenReturn(result);
+    return event;
+  }
+
+  private TaskFinishEvent taskFinished(String taskPath, TaskOperationResult result,
+      long start, long end) {
+    when(result.getStartTime()).thenReturn(start);
+    when(result.getEndTime()).thenReturn(end);
+    TaskOperationDescriptor descriptor = mock(TaskOperationDescriptor.class);
+    when(descriptor.getTaskPath()).thenReturn(taskPath);
+    TaskFinishEvent event = mock(TaskFinishEvent.class);
+    when(event.getDescriptor()).thenReturn(descriptor);
+    when(event.getResult()).thenReturn(result);
+    return event;
+  }
+
+  private TaskSuccessResult success(boolean upToDate, boolean fromCache) {
+    TaskSuccessResult result = mock(TaskSuccessResult.class);
+    when(result.isUpToDate()).thenReturn(upToDate);
+    when(result.isFromCache()).thenReturn(fromCache);
+    return result;
+  }
+
+  private FileDownloadFinishEvent downloaded(String uri, long bytes, long start, long end) {
+    FileDownloadOperationDescriptor descriptor = mock(FileDownloadOperationDescriptor.class);
+    when(descriptor.getUri()).thenReturn(URI.create(uri));
+    FileDownloadResult result = result(FileDownloadResult.class, start, end);
+    when(result.getBytesDownloaded()).thenReturn(bytes);
+    FileDownloadFinishEvent event = mock(FileDownloadFinishEvent.class);
+    when(event.getDescriptor()).thenReturn(descriptor);
+    when(event.getResult()).thenReturn(result);
+    return event;
+  }
+
+  private FinishEvent genericFinished(String displayName, long start, long end) {
+    OperationDescriptor descriptor = mock(OperationDescriptor.class);
+    when(descriptor.getDisplayName()).thenReturn(displayName);
+    OperationResult result = result(OperationResult.class, start, end);
+    FinishEvent event = mock(FinishEvent.class);
+    when(event.getDescriptor()).thenReturn(descriptor);
+    when(event.getResult()).thenReturn(result);
+    return event;
+  }
+
+  private <T extends OperationResult> T result(Class<T> type, long start, long end) {
+    T result = mock(type);
+    when(result.getStartTime()).thenReturn(start);
+    when(result.getEndTime()).thenReturn(end);
+    return result;
+  }
+}
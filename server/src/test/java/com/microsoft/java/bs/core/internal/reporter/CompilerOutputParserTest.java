@@ -0,0 +1,135 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.scala.bsp4j.Diagnostic;
+import ch.epfl.scala.bsp4j.DiagnosticSeverity;
+
+class CompilerOutputParserTest {
+
+  private List<File> files;
+
+  private List<Diagnostic> diagnostics;
+
+  private CompilerOutputParser parser;
+
+  @BeforeEach
+  void setUp() {
+    files = new ArrayList<>();
+    diagnostics = new ArrayList<>();
+    parser = new CompilerOutputParser((file, diagnostic) -> {
+      files.add(file);
+      diagnostics.add(diagnostic);
+    });
+  }
+
+  @Test
+  void testJavacError() {
+    parse(
+        "> Task :compileJava FAILED",
+        "/workspace/src/main/java/foo/Foo.java:12: error: cannot find symbol",
+        "    bar();",
+        "    ^",
+        "  symbol:   method bar()",
+        "  location: class Foo",
+        "1 error"
+    );
+
+    assertEquals(1, diagnostics.size());
+    assertEquals(new File("/workspace/src/main/java/foo/Foo.java"), files.get(0));
+    Diagnostic diagnostic = diagnostics.get(0);
+    assertEquals(DiagnosticSeverity.ERROR, diagnostic.getSeverity());
+    assertEquals("javac", diagnostic.getSource());
+    assertEquals(11, diagnostic.getRange().getStart().getLine());
+    assertEquals(4, diagnostic.getRange().getStart().getCharacter());
+    assertEquals("cannot find symbol\nsymbol:   method bar()\nlocation: class Foo",
+        diagnostic.getMessage());
+    assertNull(diagnostic.getCode());
+  }
+
+  @Test
+  void testJavacWarningWithUnindentedSourceLine() {
+    parse(
+        "/workspace/src/main/java/foo/Foo.java:3: warning: [deprecation] Bar in foo has been"
+            + " deprecated",
+        "import foo.Bar;",
+        "          ^",
+        "/workspace/src/main/java/foo/Foo.java:8: error: ';' expected",
+        "    int x = 1",
+        "             ^",
+        "1 error",
+        "1 warning"
+    );
+
+    assertEquals(2, diagnostics.size());
+    Diagnostic warning = diagnostics.get(0);
+    assertEquals(DiagnosticSeverity.WARNING, warning.getSeverity());
+    assertEquals("deprecation", warning.getCode());
+    assertEquals(2, warning.getRange().getStart().getLine());
+    assertEquals(10, warning.getRange().getStart().getCharacter());
+    assertEquals("[deprecation] Bar in foo has been deprecated", warning.getMessage());
+    Diagnostic error = diagnostics.get(1);
+    assertEquals(DiagnosticSeverity.ERROR, error.getSeverity());
+    assertEquals(7, error.getRange().getStart().getLine());
+    assertEquals(13, error.getRange().getStart().getCharacter());
+  }
+
+  @Test
+  void testScalacError() {
+    parse(
+        "[Error] /workspace/src/main/scala/foo/Foo.scala:5:16: type mismatch;",
+        " found   : String(\"\")",
+        " required: Int",
+        "  val x: Int = \"\"",
+        "               ^",
+        "[Warn] /workspace/src/main/scala/foo/Foo.scala:9:3: a pure expression does nothing",
+        "one warning found",
+        "one error found"
+    );
+
+    assertEquals(2, diagnostics.size());
+    Diagnostic error = diagnostics.get(0);
+    assertEquals(new File("/workspace/src/main/scala/foo/Foo.scala"), files.get(0));
+    assertEquals(DiagnosticSeverity.ERROR, error.getSeverity());
+    assertEquals("scalac", error.getSource());
+    assertEquals(4, error.getRange().getStart().getLine());
+    assertEquals(15, error.getRange().getStart().getCharacter());
+    assertEquals("type mismatch;\nfound   : String(\"\")\nrequired: Int", error.getMessage());
+    Diagnostic warning = diagnostics.get(1);
+    assertEquals(DiagnosticSeverity.WARNING, warning.getSeverity());
+    assertEquals(8, warning.getRange().getStart().getLine());
+    assertEquals(2, warning.getRange().getStart().getCharacter());
+    assertEquals("a pure expression does nothing", warning.getMessage());
+  }
+
+  @Test
+  void testOtherOutputIgnored() {
+    parse(
+        "> Task :compileJava",
+        "Note: Some input files use unchecked or unsafe operations.",
+        "warning: [options] bootstrap class path not set in conjunction with -source 8",
+        "BUILD SUCCESSFUL in 1s"
+    );
+
+    assertTrue(diagnostics.isEmpty());
+  }
+
+  private void parse(String... lines) {
+    for (String line : lines) {
+      parser.onOutputLine(line);
+    }
+    parser.onOutputClosed();
+  }
+}
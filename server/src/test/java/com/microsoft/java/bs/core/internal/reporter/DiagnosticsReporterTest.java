@@ -0,0 +1,171 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.microsoft.java.bs.core.Launcher;
+
+import ch.epfl.scala.bsp4j.BuildClient;
+import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+import ch.epfl.scala.bsp4j.PublishDiagnosticsParams;
+
+class DiagnosticsReporterTest {
+
+  private static final File FOO = new File("/workspace/a/src/main/java/Foo.java");
+
+  private static final File BAR = new File("/workspace/a/src/main/java/Bar.java");
+
+  private static final File BAZ = new File("/workspace/b/src/main/java/Baz.java");
+
+  private final BuildTargetIdentifier targetA = new BuildTargetIdentifier("a");
+
+  private final BuildTargetIdentifier targetB = new BuildTargetIdentifier("b");
+
+  private final Function<File, BuildTargetIdentifier> resolver = file ->
+      file.getPath().startsWith(new File("/workspace/a").getPath()) ? targetA : targetB;
+
+  private BuildClient client;
+
+  @BeforeEach
+  void setUp() {
+    client = mock(BuildClient.class);
+    Launcher.client = client;
+  }
+
+  @AfterEach
+  void tearDown() {
+    Launcher.client = null;
+  }
+
+  @Test
+  void testPublishDiagnostics() throws IOException {
+    DiagnosticsReporter reporter = new DiagnosticsReporter(List.of(targetA), "origin",
+        resolver, new HashMap<>());
+    try (OutputStream out = new LineOutputStream(reporter.newParser())) {
+      out.write(String.join("\n",
+          error(FOO, 1),
+          error(FOO, 2),
+          warning(BAR, 3),
+          error(BAZ, 4)
+      ).getBytes(StandardCharsets.UTF_8));
+    }
+    reporter.finish();
+
+    assertEquals(2, reporter.getErrorCount(targetA));
+    assertEquals(1, reporter.getWarningCount(targetA));
+    assertEquals(1, reporter.getErrorCount(targetB));
+    assertEquals(0, reporter.getWarningCount(targetB));
+
+    List<PublishDiagnosticsParams> published = getPublished(4);
+    // the first diagnostic of a document resets the document, the others are appended.
+    assertPublished(published.get(0), FOO, targetA, 1, true);
+    assertPublished(published.get(1), FOO, targetA, 1, false);
+    assertPublished(published.get(2), BAR, targetA, 1, true);
+    assertPublished(published.get(3), BAZ, targetB, 1, true);
+    assertEquals("origin", published.get(0).getOriginId());
+  }
+
+  @Test
+  void testClearFixedDocuments() throws IOException {
+    Map<BuildTargetIdentifier, Set<String>> publishedDocuments = new HashMap<>();
+    DiagnosticsReporter first = new DiagnosticsReporter(List.of(targetA), null, resolver,
+        publishedDocuments);
+    try (OutputStream out = new LineOutputStream(first.newParser())) {
+      out.write((error(FOO, 1) + "\n" + error(BAR, 1)).getBytes(StandardCharsets.UTF_8));
+    }
+    first.buildCompleted(List.of(targetA));
+    first.finish();
+    assertEquals(Set.of(FOO.toURI().toString(), BAR.toURI().toString()),
+        publishedDocuments.get(targetA));
+
+    DiagnosticsReporter second = new DiagnosticsReporter(List.of(targetA), null, resolver,
+        publishedDocuments);
+    try (OutputStream out = new LineOutputStream(second.newParser())) {
+      out.write(error(FOO, 2).getBytes(StandardCharsets.UTF_8));
+    }
+    second.buildCompleted(List.of(targetA));
+    second.finish();
+
+    List<PublishDiagnosticsParams> published = getPublished(4);
+    assertPublished(published.get(2), FOO, targetA, 1, true);
+    // Bar.java is fixed, its diagnostics are cleared.
+    assertPublished(published.get(3), BAR, targetA, 0, true);
+    assertEquals(Set.of(FOO.toURI().toString()), publishedDocuments.get(targetA));
+
+    DiagnosticsReporter third = new DiagnosticsReporter(List.of(targetA), null, resolver,
+        publishedDocuments);
+    third.buildCompleted(List.of(targetA));
+    third.finish();
+    assertPublished(getPublished(5).get(4), FOO, targetA, 0, true);
+    assertFalse(publishedDocuments.containsKey(targetA));
+  }
+
+  @Test
+  void testKeepDocumentsOfIncompleteBuilds() throws IOException {
+    Map<BuildTargetIdentifier, Set<String>> publishedDocuments = new HashMap<>();
+    publishedDocuments.put(targetA, Set.of(FOO.toURI().toString()));
+    publishedDocuments.put(targetB, Set.of(BAZ.toURI().toString()));
+    DiagnosticsReporter reporter = new DiagnosticsReporter(List.of(targetA, targetB), null,
+        resolver, publishedDocuments);
+    try (OutputStream out = new LineOutputStream(reporter.newParser())) {
+      out.write(error(BAR, 1).getBytes(StandardCharsets.UTF_8));
+    }
+    // the build of target b is cancelled or never run.
+    reporter.buildCompleted(List.of(targetA));
+    reporter.finish();
+
+    List<PublishDiagnosticsParams> published = getPublished(2);
+    assertPublished(published.get(0), BAR, targetA, 1, true);
+    assertPublished(published.get(1), FOO, targetA, 0, true);
+    assertEquals(Set.of(BAR.toURI().toString()), publishedDocuments.get(targetA));
+    assertEquals(Set.of(BAZ.toURI().toString()), publishedDocuments.get(targetB));
+  }
+
+  private List<PublishDiagnosticsParams> getPublished(int count) {
+    ArgumentCaptor<PublishDiagnosticsParams> captor =
+        ArgumentCaptor.forClass(PublishDiagnosticsParams.class);
+    verify(client, times(count)).onBuildPublishDiagnostics(captor.capture());
+    return captor.getAllValues();
+  }
+
+  private void assertPublished(PublishDiagnosticsParams params, File file,
+      BuildTargetIdentifier btId, int diagnosticCount, boolean reset) {
+    assertEquals(file.toURI().toString(), params.getTextDocument().getUri());
+    assertEquals(btId, params.getBuildTarget());
+    assertEquals(diagnosticCount, params.getDiagnostics().size());
+    assertEquals(reset, params.getReset());
+  }
+
+  private String error(File file, int line) {
+    return file.getPath() + ":" + line + ": error: cannot find symbol\n"
+        + "    bar();\n"
+        + "    ^";
+  }
+
+  private String warning(File file, int line) {
+    return file.getPath() + ":" + line + ": warning: [rawtypes] found raw type: List\n"
+        + "    List list;\n"
+        + "    ^";
+  }
+}
@@ -0,0 +1,85 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LineOutputStreamTest {
+
+  @Test
+  void testSplitLines() {
+    List<String> lines = new ArrayList<>();
+    List<String> copies = new ArrayList<>();
+    LineOutputStream out = new LineOutputStream(lines::add, copies::add);
+    byte[] bytes = "first\r\nsecond\n\nlast".getBytes(StandardCharsets.UTF_8);
+    // the output may be split anywhere.
+    out.write(bytes, 0, 3);
+    out.write(bytes, 3, 5);
+    out.write(bytes[8]);
+    out.write(bytes, 9, bytes.length - 9);
+    assertEquals(Arrays.asList("first", "second", ""), lines);
+
+    out.close();
+    assertEquals(Arrays.asList("first", "second", "", "last"), lines);
+    assertEquals(lines, copies);
+  }
+
+  @Test
+  void testTruncateLongLine() {
+    List<String> lines = new ArrayList<>();
+    LineOutputStream out = new LineOutputStream(lines::add);
+    byte[] chunk = new byte[1024];
+    Arrays.fill(chunk, (byte) 'a');
+    for (int i = 0; i < 1024; i++) {
+      out.write(chunk, 0, chunk.length);
+    }
+    out.write('\n');
+    out.write("next\n".getBytes(StandardCharsets.UTF_8), 0, 5);
+
+    assertEquals(2, lines.size());
+    assertEquals(LineOutputStream.MAX_LINE_LENGTH + 3, lines.get(0).length());
+    assertTrue(lines.get(0).endsWith("a..."));
+    assertEquals("next", lines.get(1));
+  }
+
+  @Test
+  void testTruncateAtCharacterBoundary() {
+    List<String> lines = new ArrayList<>();
+    LineOutputStream out = new LineOutputStream(lines::add);
+    byte[] prefix = new byte[LineOutputStream.MAX_LINE_LENGTH - 1];
+    Arrays.fill(prefix, (byte) 'a');
+    out.write(prefix, 0, prefix.length);
+    // the 3 bytes of the euro sign do not fit in the line.
+    byte[] euro = {(byte) 0xE2, (byte) 0x82, (byte) 0xAC, '\n'};
+    out.write(euro, 0, euro.length);
+
+    assertEquals(1, lines.size());
+    assertEquals(new String(prefix, StandardCharsets.UTF_8) + "...", lines.get(0));
+  }
+
+  @Test
+  void testCloseNotifiesListeners() {
+    boolean[] closed = new boolean[1];
+    LineOutputStream out = new LineOutputStream(new BuildOutputListener() {
+      @Override
+      public void onOutputLine(String line) {
+      }
+
+      @Override
+      public void onOutputClosed() {
+        closed[0] = true;
+      }
+    });
+    out.close();
+    assertTrue(closed[0]);
+  }
+}
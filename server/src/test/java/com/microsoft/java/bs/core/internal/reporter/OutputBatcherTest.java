@@ -0,0 +1,57 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class OutputBatcherTest {
+
+  @Test
+  void testSendLinesInOneBatch() {
+    List<String> batches = Collections.synchronizedList(new ArrayList<>());
+    OutputBatcher batcher = new OutputBatcher(batches::add);
+    batcher.onOutputLine("first");
+    batcher.onOutputLine("");
+    batcher.onOutputLine("last");
+    batcher.onOutputClosed();
+    // the batch scheduled for the interval is sent on close.
+    assertEquals(Arrays.asList("first\n\nlast"), batches);
+
+    batcher.onOutputClosed();
+    assertEquals(1, batches.size());
+  }
+
+  @Test
+  void testSendBatchAfterInterval() throws InterruptedException {
+    List<String> batches = Collections.synchronizedList(new ArrayList<>());
+    OutputBatcher batcher = new OutputBatcher(batches::add);
+    batcher.onOutputLine("line");
+    long deadline = System.currentTimeMillis() + 10_000L;
+    while (batches.isEmpty() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(OutputBatcher.FLUSH_INTERVAL_MILLIS);
+    }
+    assertEquals(Arrays.asList("line"), batches);
+  }
+
+  @Test
+  void testSendLargeBatchAtOnce() {
+    List<String> batches = new ArrayList<>();
+    OutputBatcher batcher = new OutputBatcher(batches::add);
+    char[] chars = new char[OutputBatcher.MAX_BATCH_LENGTH / 2];
+    Arrays.fill(chars, 'a');
+    String line = new String(chars);
+    batcher.onOutputLine(line);
+    batcher.onOutputLine(line);
+    assertEquals(1, batches.size());
+    assertTrue(batches.get(0).length() > OutputBatcher.MAX_BATCH_LENGTH);
+  }
+}
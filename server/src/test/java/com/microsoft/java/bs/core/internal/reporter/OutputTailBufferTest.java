@@ -0,0 +1,30 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class OutputTailBufferTest {
+
+  @Test
+  void testKeepAllLines() {
+    OutputTailBuffer buffer = new OutputTailBuffer(3);
+    buffer.onOutputLine("a");
+    buffer.onOutputLine("b");
+
+    assertEquals("a\nb\n", buffer.toString());
+  }
+
+  @Test
+  void testKeepLastLines() {
+    OutputTailBuffer buffer = new OutputTailBuffer(3);
+    for (int i = 0; i < 10; i++) {
+      buffer.onOutputLine(String.valueOf(i));
+    }
+
+    assertEquals("... 7 lines omitted\n7\n8\n9\n", buffer.toString());
+  }
+}
@@ -0,0 +1,192 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.gradle.tooling.events.lifecycle.BuildPhaseOperationDescriptor;
+import org.gradle.tooling.events.lifecycle.BuildPhaseStartEvent;
+import org.gradle.tooling.events.task.TaskFailureResult;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskOperationDescriptor;
+import org.gradle.tooling.events.task.TaskOperationResult;
+import org.gradle.tooling.events.task.TaskStartEvent;
+import org.gradle.tooling.events.task.TaskSuccessResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import ch.epfl.scala.bsp4j.StatusCode;
+
+class TaskProgressReporterTest {
+
+  private ProgressReporter progressReporter;
+
+  private AtomicLong time;
+
+  private ScheduledExecutorService scheduler;
+
+  private TaskProgressReporter reporter;
+
+  @BeforeEach
+  void setUp() {
+    progressReporter = mock(ProgressReporter.class);
+    time = new AtomicLong(1000);
+    scheduler = mock(ScheduledExecutorService.class);
+    reporter = new TaskProgressReporter(progressReporter, time::get, scheduler);
+  }
+
+  @Test
+  void testProgressOfPlannedTasks() {
+    reporter.statusChanged(buildPhaseStarted("RUN_MAIN_TASKS", 3));
+    reporter.statusChanged(taskStarted(":a"));
+    reporter.statusChanged(taskFinished(":a", success(false, false)));
+    time.addAndGet(TaskProgressReporter.PROGRESS_INTERVAL_MILLIS);
+    reporter.statusChanged(taskFinished(":b", success(true, false)));
+    // the last task is always reported.
+    reporter.statusChanged(taskFinished(":c", success(false, true)));
+
+    verify(progressReporter).taskInProgress("Task :a started", 0, 3, "tasks");
+    verify(progressReporter).taskInProgress("Task :b finished", 2, 3, "tasks");
+    verify(progressReporter).taskInProgress("Task :c finished", 3, 3, "tasks");
+    verify(progressReporter, times(3)).taskInProgress(anyString(), anyLong(), anyLong(),
+        anyString());
+  }
+
+  @Test
+  void testProgressThrottled() {
+    for (int i = 0; i < 100; i++) {
+      reporter.statusChanged(taskStarted(":task" + i));
+      reporter.statusChanged(taskFinished(":task" + i, success(true, false)));
+    }
+    // only the first event is reported within the interval.
+    verify(progressReporter, times(1)).taskInProgress(anyString(), anyLong(), anyLong(),
+        anyString());
+    // the total is unknown without the build phase events.
+    verify(progressReporter).taskInProgress("Task :task0 started", 0, 0, "tasks");
+
+    time.addAndGet(TaskProgressReporter.PROGRESS_INTERVAL_MILLIS);
+    reporter.statusChanged(taskStarted(":last"));
+    verify(progressReporter).taskInProgress("Task :last started", 100, 0, "tasks");
+  }
+
+  @Test
+  void testNoSubtasksOfQuickTasks() {
+    for (int i = 0; i < 100; i++) {
+      reporter.statusChanged(taskStarted(":task" + i));
+      reporter.statusChanged(taskFinished(":task" + i, success(i % 2 == 0, i % 2 == 1)));
+    }
+    verify(progressReporter, never()).subtaskStarted(anyString(), anyString(), anyLong());
+    verify(progressReporter, never()).subtaskFinished(anyString(), anyString(), any(),
+        anyLong());
+  }
+
+  @Test
+  void testSubtasksOfLongRunningTasks() {
+    reporter.statusChanged(taskStarted(":compileJava"));
+    verify(progressReporter, never()).subtaskStarted(anyString(), anyString(), anyLong());
+
+    time.addAndGet(TaskProgressReporter.PROGRESS_INTERVAL_MILLIS);
+    reporter.statusChanged(taskStarted(":processResources"));
+    verify(progressReporter).subtaskStarted(":compileJava", ":compileJava", 5);
+
+    reporter.statusChanged(taskFinished(":processResources", success(true, false)));
+    reporter.statusChanged(taskFinished(":compileJava", success(false, false)));
+    verify(progressReporter).subtaskFinished(":compileJava", ":compileJava SUCCESS (15 ms)",
+        StatusCode.OK, 25);
+
+    // a failure is reported even if the task fails at once.
+    reporter.statusChanged(taskStarted(":test"));
+    reporter.statusChanged(taskFinished(":test", mock(TaskFailureResult.class)));
+    verify(progressReporter).subtaskStarted(":test", ":test", 5);
+    verify(progressReporter).subtaskFinished(eq(":test"), anyString(), eq(StatusCode.ERROR),
+        anyLong());
+
+    verify(progressReporter, times(2)).subtaskStarted(anyString(), anyString(), anyLong());
+    verify(progressReporter, times(2)).subtaskFinished(anyString(), anyString(), any(),
+        anyLong());
+  }
+
+  @Test
+  void testScheduledCheckOfLongRunningTasks() {
+    reporter.statusChanged(taskStarted(":compileJava"));
+    ArgumentCaptor<Runnable> check = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler).schedule(check.capture(),
+        eq(TaskProgressReporter.PROGRESS_INTERVAL_MILLIS), eq(TimeUnit.MILLISECONDS));
+
+    // no other event comes while the task is running.
+    time.addAndGet(TaskProgressReporter.PROGRESS_INTERVAL_MILLIS);
+    check.getValue().run();
+    verify(progressReporter).subtaskStarted(":compileJava", ":compileJava", 5);
+  }
+
+  @Test
+  void testFinishRunningSubtasks() {
+    reporter.statusChanged(taskStarted(":compileJava"));
+    time.addAndGet(TaskProgressReporter.PROGRESS_INTERVAL_MILLIS);
+    reporter.statusChanged(taskStarted(":jar"));
+    reporter.taskFinished("BUILD CANCELLED", StatusCode.CANCELLED);
+
+    // the quick task is not reported.
+    verify(progressReporter).subtaskFinished(":compileJava", ":compileJava",
+        StatusCode.CANCELLED, 1200);
+    verify(progressReporter, times(1)).subtaskFinished(anyString(), anyString(), any(),
+        anyLong());
+    verify(progressReporter).taskFinished("BUILD CANCELLED", StatusCode.CANCELLED);
+  }
+
+  private BuildPhaseStartEvent buildPhaseStarted(String phase, int itemCount) {
+    BuildPhaseOperationDescriptor descriptor = mock(BuildPhaseOperationDescriptor.class);
+    when(descriptor.getBuildPhase()).thenReturn(phase);
+    when(descriptor.getBuildItemsCount()).thenReturn(itemCount);
+    BuildPhaseStartEvent event = mock(BuildPhaseStartEvent.class);
+    when(event.getDescriptor()).thenReturn(descriptor);
+    return event;
+  }
+
+  private TaskStartEvent taskStarted(String taskPath) {
+    TaskStartEvent event = mock(TaskStartEvent.class);
+    TaskOperationDescriptor descriptor = taskDescriptor(taskPath);
+    when(event.getDescriptor()).thenReturn(descriptor);
+    when(event.getDisplayName()).thenReturn("Task " + taskPath + " started");
+    when(event.getEventTime()).thenReturn(5L);
+    return event;
+  }
+
+  private TaskFinishEvent taskFinished(String taskPath, TaskOperationResult result) {
+    when(result.getStartTime()).thenReturn(10L);
+    when(result.getEndTime()).thenReturn(25L);
+    TaskFinishEvent event = mock(TaskFinishEvent.class);
+    TaskOperationDescriptor descriptor = taskDescriptor(taskPath);
+    when(event.getDescriptor()).thenReturn(descriptor);
+    when(event.getDisplayName()).thenReturn("Task " + taskPath + " finished");
+    when(event.getResult()).thenReturn(result);
+    return event;
+  }
+
+  private TaskOperationDescriptor taskDescriptor(String taskPath) {
+    TaskOperationDescriptor descriptor = mock(TaskOperationDescriptor.class);
+    when(descriptor.getTaskPath()).thenReturn(taskPath);
+    return descriptor;
+  }
+
+  private TaskSuccessResult success(boolean upToDate, boolean fromCache) {
+    TaskSuccessResult result = mock(TaskSuccessResult.class);
+    when(result.isUpToDate()).thenReturn(upToDate);
+    when(result.isFromCache()).thenReturn(fromCache);
+    return result;
+  }
+}
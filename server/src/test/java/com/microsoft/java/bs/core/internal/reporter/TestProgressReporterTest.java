@@ -0,0 +1,152 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.reporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.tooling.Failure;
+import org.gradle.tooling.events.OperationDescriptor;
+import org.gradle.tooling.events.task.TaskOperationDescriptor;
+import org.gradle.tooling.events.test.JvmTestKind;
+import org.gradle.tooling.events.test.JvmTestOperationDescriptor;
+import org.gradle.tooling.events.test.TestFailureResult;
+import org.gradle.tooling.events.test.TestFinishEvent;
+import org.gradle.tooling.events.test.TestOperationResult;
+import org.gradle.tooling.events.test.TestSkippedResult;
+import org.gradle.tooling.events.test.TestStartEvent;
+import org.gradle.tooling.events.test.TestSuccessResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.microsoft.java.bs.core.Launcher;
+
+import ch.epfl.scala.bsp4j.BuildClient;
+import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+import ch.epfl.scala.bsp4j.StatusCode;
+import ch.epfl.scala.bsp4j.TaskDataKind;
+import ch.epfl.scala.bsp4j.TaskFinishParams;
+import ch.epfl.scala.bsp4j.TaskStartParams;
+import ch.epfl.scala.bsp4j.TestFinish;
+import ch.epfl.scala.bsp4j.TestReport;
+import ch.epfl.scala.bsp4j.TestStatus;
+
+class TestProgressReporterTest {
+
+  private final BuildTargetIdentifier unitId = new BuildTargetIdentifier("unit");
+
+  private final BuildTargetIdentifier integrationId = new BuildTargetIdentifier("integration");
+
+  private BuildClient client;
+
+  @BeforeEach
+  void setUp() {
+    client = mock(BuildClient.class);
+    Launcher.client = client;
+  }
+
+  @AfterEach
+  void tearDown() {
+    Launcher.client = null;
+  }
+
+  @Test
+  void testReportTestsByTask() {
+    TestProgressReporter reporter = new TestProgressReporter(
+        Map.of(":test", unitId, ":integrationTest", integrationId), "origin");
+    reporter.taskStarted("Test started");
+    runTest(reporter, ":test", "FooTest", "testPass", mock(TestSuccessResult.class));
+    runTest(reporter, ":test", "FooTest", "testSkip", mock(TestSkippedResult.class));
+    runTest(reporter, ":integrationTest", "BarTest", "testFail", failure("expected: <1>"));
+    // the suites are not reported.
+    JvmTestOperationDescriptor suite = testDescriptor(":test", "FooTest", null,
+        JvmTestKind.SUITE);
+    reporter.statusChanged(testStarted(suite));
+    reporter.taskFinished("Test finished", StatusCode.ERROR);
+
+    assertEquals(1, reporter.getCount(unitId, TestStatus.PASSED));
+    assertEquals(1, reporter.getCount(unitId, TestStatus.IGNORED));
+    assertEquals(1, reporter.getCount(integrationId, TestStatus.FAILED));
+    assertEquals(0, reporter.getCount(integrationId, TestStatus.PASSED));
+
+    ArgumentCaptor<TaskStartParams> startCaptor = ArgumentCaptor.forClass(TaskStartParams.class);
+    // one test task of each build target and one subtask of each test case.
+    verify(client, times(5)).onBuildTaskStart(startCaptor.capture());
+    assertEquals(TaskDataKind.TEST_TASK, startCaptor.getAllValues().get(0).getDataKind());
+    assertEquals(TaskDataKind.TEST_START, startCaptor.getAllValues().get(2).getDataKind());
+
+    ArgumentCaptor<TaskFinishParams> finishCaptor =
+        ArgumentCaptor.forClass(TaskFinishParams.class);
+    verify(client, times(5)).onBuildTaskFinish(finishCaptor.capture());
+    List<TaskFinishParams> finishes = finishCaptor.getAllValues();
+    TestFinish failed = (TestFinish) finishes.get(2).getData();
+    assertEquals("BarTest.testFail", failed.getDisplayName());
+    assertEquals(TestStatus.FAILED, failed.getStatus());
+    assertEquals("expected: <1>", failed.getMessage());
+    TestReport report = (TestReport) finishes.get(3).getData();
+    assertEquals(TaskDataKind.TEST_REPORT, finishes.get(3).getDataKind());
+    assertEquals("origin", report.getOriginId());
+    assertEquals(1, report.getPassed() + report.getFailed());
+  }
+
+  @Test
+  void testSingleTargetWithoutTaskEvents() {
+    TestProgressReporter reporter = new TestProgressReporter(Map.of(":test", unitId), null);
+    reporter.taskStarted("Test started");
+    runTest(reporter, null, "FooTest", "testPass", mock(TestSuccessResult.class));
+    reporter.taskFinished("Test finished", StatusCode.OK);
+
+    assertEquals(1, reporter.getCount(unitId, TestStatus.PASSED));
+  }
+
+  private void runTest(TestProgressReporter reporter, String taskPath, String className,
+      String methodName, TestOperationResult result) {
+    JvmTestOperationDescriptor descriptor = testDescriptor(taskPath, className, methodName,
+        JvmTestKind.ATOMIC);
+    reporter.statusChanged(testStarted(descriptor));
+    TestFinishEvent finishEvent = mock(TestFinishEvent.class);
+    when(finishEvent.getDescriptor()).thenReturn(descriptor);
+    when(finishEvent.getResult()).thenReturn(result);
+    reporter.statusChanged(finishEvent);
+  }
+
+  private TestStartEvent testStarted(JvmTestOperationDescriptor descriptor) {
+    TestStartEvent event = mock(TestStartEvent.class);
+    when(event.getDescriptor()).thenReturn(descriptor);
+    return event;
+  }
+
+  private JvmTestOperationDescriptor testDescriptor(String taskPath, String className,
+      String methodName, JvmTestKind kind) {
+    OperationDescriptor parent = null;
+    if (taskPath != null) {
+      TaskOperationDescriptor task = mock(TaskOperationDescriptor.class);
+      when(task.getTaskPath()).thenReturn(taskPath);
+      parent = task;
+    }
+    JvmTestOperationDescriptor descriptor = mock(JvmTestOperationDescriptor.class);
+    when(descriptor.getParent()).thenReturn(parent);
+    when(descriptor.getClassName()).thenReturn(className);
+    when(descriptor.getMethodName()).thenReturn(methodName);
+    when(descriptor.getJvmTestKind()).thenReturn(kind);
+    return descriptor;
+  }
+
+  private TestFailureResult failure(String message) {
+    Failure failure = mock(Failure.class);
+    when(failure.getMessage()).thenReturn(message);
+    List<Failure> failures = List.of(failure);
+    TestFailureResult result = mock(TestFailureResult.class);
+    when(result.getFailures()).thenAnswer(invocation -> failures);
+    return result;
+  }
+}
@@ -21,6 +21,7 @@ import com.microsoft.java.bs.core.Launcher;
 import com.microsoft.java.bs.core.internal.gradle.GradleApiConnector;
 import com.microsoft.java.bs.core.internal.managers.BuildTargetManager;
 import com.microsoft.java.bs.core.internal.managers.PreferenceManager;
+import com.microsoft.java.bs.core.internal.managers.SnapshotManager;
 import com.microsoft.java.bs.core.internal.services.BuildTargetService;
 import com.microsoft.java.bs.core.internal.services.LifecycleService;
 import com.microsoft.java.bs.gradle.model.SupportedLanguages;
@@ -52,8 +53,9 @@ class BuildTargetServerIntegrationTest {
     BuildTargetManager buildTargetManager = new BuildTargetManager();
     PreferenceManager preferenceManager = new PreferenceManager();
     GradleApiConnector connector = new GradleApiConnector(preferenceManager);
+    SnapshotManager snapshotManager = new SnapshotManager(preferenceManager);
     LifecycleService lifecycleService = new LifecycleService(buildTargetManager,
-        connector, preferenceManager);
+        connector, preferenceManager, snapshotManager);
     BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
         connector, preferenceManager);
     gradleBuildServer = new GradleBuildServer(lifecycleService, buildTargetService);
@@ -0,0 +1,56 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.server;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.gradle.tooling.CancellationToken;
+import org.junit.jupiter.api.Test;
+
+import com.microsoft.java.bs.core.internal.services.BuildTargetService;
+import com.microsoft.java.bs.core.internal.services.LifecycleService;
+
+import ch.epfl.scala.bsp4j.CompileParams;
+import ch.epfl.scala.bsp4j.CompileResult;
+import ch.epfl.scala.bsp4j.StatusCode;
+
+class GradleBuildServerTest {
+
+  @Test
+  void testCancelCompile() throws Exception {
+    BuildTargetService buildTargetService = mock(BuildTargetService.class);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch cancelled = new CountDownLatch(1);
+    when(buildTargetService.compile(any(), any())).thenAnswer(invocation -> {
+      CancellationToken token = invocation.getArgument(1);
+      started.countDown();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (!token.isCancellationRequested() && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      if (token.isCancellationRequested()) {
+        cancelled.countDown();
+      }
+      return new CompileResult(StatusCode.CANCELLED);
+    });
+    GradleBuildServer server = new GradleBuildServer(mock(LifecycleService.class),
+        buildTargetService);
+
+    CompletableFuture<CompileResult> result = server.buildTargetCompile(
+        new CompileParams(Collections.emptyList()));
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    // this is what the JSON-RPC endpoint does for '$/cancelRequest'.
+    result.cancel(true);
+
+    assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,111 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.microsoft.java.bs.core.internal.server.RequestExecutor.RequestKind;
+
+class RequestExecutorTest {
+
+  private ExecutorService delegate;
+
+  @BeforeEach
+  void setUp() {
+    delegate = RequestExecutor.newThreadPerTaskExecutor("test");
+  }
+
+  @AfterEach
+  void tearDown() {
+    delegate.shutdownNow();
+  }
+
+  @Test
+  void testRequestKind() {
+    assertEquals(RequestKind.BUILD, RequestExecutor.getRequestKind("buildTarget/compile"));
+    assertEquals(RequestKind.MODEL, RequestExecutor.getRequestKind("workspace/reload"));
+    assertEquals(RequestKind.READ, RequestExecutor.getRequestKind("buildTarget/sources"));
+    assertEquals(RequestKind.RUN, RequestExecutor.getRequestKind("buildTarget/run"));
+  }
+
+  @Test
+  void testBuildsNotBlockedByRunningApplications() throws Exception {
+    RequestExecutor executor = new RequestExecutor(delegate, 1, 1, 4);
+    CountDownLatch release = new CountDownLatch(1);
+    for (int i = 0; i < 3; i++) {
+      CompletableFuture.runAsync(() -> await(release),
+          executor.getExecutor("buildTarget/run"));
+    }
+
+    CompletableFuture<String> compile = CompletableFuture.supplyAsync(() -> "compile",
+        executor.getExecutor("buildTarget/compile"));
+
+    assertEquals("compile", compile.get(10, TimeUnit.SECONDS));
+    assertEquals(3, executor.getBulkhead(RequestKind.RUN).getRunningCount());
+    release.countDown();
+  }
+
+  @Test
+  void testReadNotBlockedByBuilds() throws Exception {
+    RequestExecutor executor = new RequestExecutor(delegate, 1, 1, 4);
+    CountDownLatch release = new CountDownLatch(1);
+    for (int i = 0; i < 3; i++) {
+      CompletableFuture.runAsync(() -> await(release),
+          executor.getExecutor("buildTarget/compile"));
+    }
+
+    CompletableFuture<String> sources = CompletableFuture.supplyAsync(() -> "sources",
+        executor.getExecutor("buildTarget/sources"));
+
+    assertEquals("sources", sources.get(10, TimeUnit.SECONDS));
+    BulkheadExecutor builds = executor.getBulkhead(RequestKind.BUILD);
+    assertEquals(1, builds.getRunningCount());
+    assertEquals(2, builds.getQueuedCount());
+    release.countDown();
+  }
+
+  @Test
+  void testBulkheadLimit() throws Exception {
+    BulkheadExecutor bulkhead = new BulkheadExecutor(delegate, 3);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    int taskCount = 50;
+    CountDownLatch done = new CountDownLatch(taskCount);
+    for (int i = 0; i < taskCount; i++) {
+      bulkhead.execute(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+          Thread.sleep(2);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        running.decrementAndGet();
+        done.countDown();
+      });
+    }
+
+    assertTrue(done.await(30, TimeUnit.SECONDS));
+    assertTrue(maxRunning.get() <= 3);
+    assertEquals(0, bulkhead.getQueuedCount());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(30, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -4,61 +4,105 @@
 package com.microsoft.java.bs.core.internal.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.gradle.tooling.BuildCancelledException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import com.microsoft.java.bs.core.internal.gradle.GradleApiConnector;
+import com.microsoft.java.bs.core.internal.launcher.JvmLauncher;
 import com.microsoft.java.bs.core.internal.managers.BuildTargetManager;
+import com.microsoft.java.bs.core.internal.managers.BuildTargetSnapshot;
 import com.microsoft.java.bs.core.internal.managers.PreferenceManager;
+import com.microsoft.java.bs.core.internal.managers.SourceRootIndex;
 import com.microsoft.java.bs.core.internal.model.GradleBuildTarget;
 import com.microsoft.java.bs.core.internal.model.Preferences;
+import com.microsoft.java.bs.core.internal.reporter.DiagnosticsReporter;
+import com.microsoft.java.bs.core.internal.reporter.LineOutputStream;
 import com.microsoft.java.bs.gradle.model.Artifact;
 import com.microsoft.java.bs.gradle.model.GradleModuleDependency;
 import com.microsoft.java.bs.gradle.model.GradleSourceSet;
-import com.microsoft.java.bs.gradle.model.JavaExtension;
-import com.microsoft.java.bs.gradle.model.SupportedLanguages;
+import com.microsoft.java.bs.gradle.model.impl.DefaultArtifact;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleModuleDependencies;
+import com.microsoft.java.bs.gradle.model.impl.DefaultGradleModuleDependency;
+import com.microsoft.java.bs.gradle.model.impl.DefaultJavaExtension;
 
 import ch.epfl.scala.bsp4j.BuildTarget;
 import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+import ch.epfl.scala.bsp4j.CompileParams;
+import ch.epfl.scala.bsp4j.CompileResult;
 import ch.epfl.scala.bsp4j.DependencyModule;
 import ch.epfl.scala.bsp4j.DependencyModulesParams;
 import ch.epfl.scala.bsp4j.DependencyModulesResult;
+import ch.epfl.scala.bsp4j.DependencySourcesParams;
+import ch.epfl.scala.bsp4j.DependencySourcesResult;
+import ch.epfl.scala.bsp4j.InverseSourcesParams;
+import ch.epfl.scala.bsp4j.InverseSourcesResult;
 import ch.epfl.scala.bsp4j.JavacOptionsParams;
 import ch.epfl.scala.bsp4j.JavacOptionsResult;
+import ch.epfl.scala.bsp4j.JvmEnvironmentItem;
+import ch.epfl.scala.bsp4j.JvmRunEnvironmentParams;
+import ch.epfl.scala.bsp4j.JvmTestEnvironmentParams;
 import ch.epfl.scala.bsp4j.MavenDependencyModule;
 import ch.epfl.scala.bsp4j.MavenDependencyModuleArtifact;
 import ch.epfl.scala.bsp4j.OutputPathsParams;
 import ch.epfl.scala.bsp4j.OutputPathsResult;
 import ch.epfl.scala.bsp4j.ResourcesParams;
 import ch.epfl.scala.bsp4j.ResourcesResult;
+import ch.epfl.scala.bsp4j.RunParams;
+import ch.epfl.scala.bsp4j.RunParamsDataKind;
+import ch.epfl.scala.bsp4j.RunResult;
+import ch.epfl.scala.bsp4j.ScalaMainClass;
+import ch.epfl.scala.bsp4j.ScalaTestClassesItem;
+import ch.epfl.scala.bsp4j.ScalaTestParams;
+import ch.epfl.scala.bsp4j.ScalaTestSuiteSelection;
+import ch.epfl.scala.bsp4j.ScalaTestSuites;
 import ch.epfl.scala.bsp4j.SourcesParams;
 import ch.epfl.scala.bsp4j.SourcesResult;
+import ch.epfl.scala.bsp4j.StatusCode;
+import ch.epfl.scala.bsp4j.TestParams;
+import ch.epfl.scala.bsp4j.TestParamsDataKind;
+import ch.epfl.scala.bsp4j.TestResult;
+import ch.epfl.scala.bsp4j.TextDocumentIdentifier;
 import ch.epfl.scala.bsp4j.WorkspaceBuildTargetsResult;
 
 class BuildTargetServiceTest {
 
   private BuildTargetManager buildTargetManager;
+  private BuildTargetSnapshot snapshot;
   private GradleApiConnector connector;
   private PreferenceManager preferenceManager;
 
   @BeforeEach
   void setUp() {
     buildTargetManager = mock(BuildTargetManager.class);
+    snapshot = mock(BuildTargetSnapshot.class);
+    when(buildTargetManager.getSnapshot()).thenReturn(snapshot);
     connector = mock(GradleApiConnector.class);
     preferenceManager = mock(PreferenceManager.class);
     Preferences preferences = new Preferences();
@@ -71,7 +115,7 @@ class BuildTargetServiceTest {
     when(target.getBaseDirectory()).thenReturn("foo/bar");
     GradleBuildTarget gradleBuildTarget = new GradleBuildTarget(target,
         mock(GradleSourceSet.class));
-    when(buildTargetManager.getAllGradleBuildTargets())
+    when(snapshot.getAllGradleBuildTargets())
         .thenReturn(Arrays.asList(gradleBuildTarget));
     
     BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
@@ -85,11 +129,10 @@ class BuildTargetServiceTest {
 
   @Test
   void testGetBuildTargetSources() {
-    GradleBuildTarget gradleBuildTarget = mock(GradleBuildTarget.class);
-    when(buildTargetManager.getGradleBuildTarget(any())).thenReturn(gradleBuildTarget);
-
     GradleSourceSet gradleSourceSet = mock(GradleSourceSet.class);
-    when(gradleBuildTarget.getSourceSet()).thenReturn(gradleSourceSet);
+    GradleBuildTarget gradleBuildTarget = new GradleBuildTarget(mock(BuildTarget.class),
+        gradleSourceSet);
+    when(snapshot.getGradleBuildTarget(any())).thenReturn(gradleBuildTarget);
 
     File srcDir = new File(("srcDir"));
     Set<File> srcDirs = new HashSet<>();
@@ -118,12 +161,53 @@ class BuildTargetServiceTest {
   }
 
   @Test
-  void testGetBuildTargetResources() {
-    GradleBuildTarget gradleBuildTarget = mock(GradleBuildTarget.class);
-    when(buildTargetManager.getGradleBuildTarget(any())).thenReturn(gradleBuildTarget);
+  void testBuildTargetSourcesCached() {
+    GradleSourceSet gradleSourceSet = mock(GradleSourceSet.class);
+    GradleBuildTarget gradleBuildTarget = new GradleBuildTarget(mock(BuildTarget.class),
+        gradleSourceSet);
+    when(snapshot.getGradleBuildTarget(any())).thenReturn(gradleBuildTarget);
+    when(gradleSourceSet.getSourceDirs()).thenReturn(Set.of(new File("srcDir")));
+    when(gradleSourceSet.getGeneratedSourceDirs()).thenReturn(Set.of());
+
+    BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
+        connector, preferenceManager);
+    SourcesParams params = new SourcesParams(Arrays.asList(new BuildTargetIdentifier("test")));
+    SourcesResult first = buildTargetService.getBuildTargetSources(params);
+    SourcesResult second = buildTargetService.getBuildTargetSources(params);
+
+    assertSame(first.getItems().get(0), second.getItems().get(0));
+    verify(gradleSourceSet, times(1)).getSourceDirs();
+  }
 
+  @Test
+  void testGetBuildTargetInverseSources() {
+    BuildTargetIdentifier mainId = mockBuildTargetOfRoot("foo");
+    GradleBuildTarget main = snapshot.getGradleBuildTarget(mainId);
+    when(main.getBuildTarget().getId()).thenReturn(mainId);
+    File sourceDir = new File("foo/src/main/java").getAbsoluteFile();
+    when(main.getSourceSet().getSourceDirs()).thenReturn(Set.of(sourceDir));
+    SourceRootIndex sourceRootIndex = SourceRootIndex.EMPTY.update(Collections.emptyList(),
+        List.of(main));
+    when(snapshot.getSourceRootIndex()).thenReturn(sourceRootIndex);
+
+    BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
+        connector, preferenceManager);
+    InverseSourcesResult result = buildTargetService.getBuildTargetInverseSources(
+        new InverseSourcesParams(new TextDocumentIdentifier(
+            new File(sourceDir, "foo/Foo.java").toURI().toString())));
+    assertEquals(List.of(mainId), result.getTargets());
+
+    result = buildTargetService.getBuildTargetInverseSources(new InverseSourcesParams(
+        new TextDocumentIdentifier(new File("bar/Bar.java").getAbsoluteFile().toURI().toString())));
+    assertTrue(result.getTargets().isEmpty());
+  }
+
+  @Test
+  void testGetBuildTargetResources() {
     GradleSourceSet gradleSourceSet = mock(GradleSourceSet.class);
-    when(gradleBuildTarget.getSourceSet()).thenReturn(gradleSourceSet);
+    GradleBuildTarget gradleBuildTarget = new GradleBuildTarget(mock(BuildTarget.class),
+        gradleSourceSet);
+    when(snapshot.getGradleBuildTarget(any())).thenReturn(gradleBuildTarget);
 
     File resourceDir = new File(("resourceDir"));
     Set<File> resourceDirs = new HashSet<>();
@@ -144,11 +228,10 @@ class BuildTargetServiceTest {
 
   @Test
   void testGetBuildTargetOutputPaths() {
-    GradleBuildTarget gradleBuildTarget = mock(GradleBuildTarget.class);
-    when(buildTargetManager.getGradleBuildTarget(any())).thenReturn(gradleBuildTarget);
-
     GradleSourceSet gradleSourceSet = mock(GradleSourceSet.class);
-    when(gradleBuildTarget.getSourceSet()).thenReturn(gradleSourceSet);
+    GradleBuildTarget gradleBuildTarget = new GradleBuildTarget(mock(BuildTarget.class),
+        gradleSourceSet);
+    when(snapshot.getGradleBuildTarget(any())).thenReturn(gradleBuildTarget);
 
     File sourceOutputDir = new File(("sourceOutputDir"));
     when(gradleSourceSet.getSourceOutputDir()).thenReturn(sourceOutputDir);
@@ -165,11 +248,10 @@ class BuildTargetServiceTest {
 
   @Test
   void testGetBuildTargetDependencyModules() {
-    GradleBuildTarget gradleBuildTarget = mock(GradleBuildTarget.class);
-    when(buildTargetManager.getGradleBuildTarget(any())).thenReturn(gradleBuildTarget);
-
     GradleSourceSet gradleSourceSet = mock(GradleSourceSet.class);
-    when(gradleBuildTarget.getSourceSet()).thenReturn(gradleSourceSet);
+    GradleBuildTarget gradleBuildTarget = new GradleBuildTarget(mock(BuildTarget.class),
+        gradleSourceSet);
+    when(snapshot.getGradleBuildTarget(any())).thenReturn(gradleBuildTarget);
 
     GradleModuleDependency moduleDependency = new GradleModuleDependency() {
       @Override
@@ -226,21 +308,85 @@ class BuildTargetServiceTest {
   }
 
   @Test
-  void testGetJavacOptions() {
+  void testGetBuildTargetDependencyModulesWithLazySources() {
+    preferenceManager.getPreferences().setLazySourcesAndJavadoc(true);
     GradleBuildTarget gradleBuildTarget = mock(GradleBuildTarget.class);
-    when(buildTargetManager.getGradleBuildTarget(any())).thenReturn(gradleBuildTarget);
-
+    when(snapshot.getGradleBuildTarget(any())).thenReturn(gradleBuildTarget);
     GradleSourceSet gradleSourceSet = mock(GradleSourceSet.class);
+    when(gradleSourceSet.getProjectPath()).thenReturn(":foo");
     when(gradleBuildTarget.getSourceSet()).thenReturn(gradleSourceSet);
+    GradleModuleDependency moduleDependency = new DefaultGradleModuleDependency("group",
+        "module", "1.0.0", Arrays.asList(new DefaultArtifact(new File("jar").toURI(), null)));
+    when(gradleSourceSet.getModuleDependencies()).thenReturn(Set.of(moduleDependency));
+    GradleModuleDependency sourcesDependency = new DefaultGradleModuleDependency("group",
+        "module", "1.0.0", Arrays.asList(
+            new DefaultArtifact(new File("sources").toURI(), "sources")));
+    when(connector.getModuleDependencies(any(), any(), any())).thenReturn(
+        new DefaultGradleModuleDependencies(Arrays.asList(sourcesDependency)));
+
+    BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
+        connector, preferenceManager);
+    DependencyModulesParams params = new DependencyModulesParams(
+        Arrays.asList(new BuildTargetIdentifier("test")));
+    buildTargetService.getBuildTargetDependencyModules(params);
+    DependencyModulesResult res = buildTargetService.getBuildTargetDependencyModules(params);
+
+    MavenDependencyModule module = (MavenDependencyModule) res.getItems().get(0)
+        .getModules().get(0).getData();
+    assertEquals(2, module.getArtifacts().size());
+    assertEquals("sources", module.getArtifacts().get(1).getClassifier());
+    // the resolved artifacts are cached.
+    verify(connector, times(1)).getModuleDependencies(any(), eq(Set.of(":foo")),
+        eq(Set.of("group:module:1.0.0")));
+  }
+
+  @Test
+  void testGetBuildTargetDependencySources() {
+    File sourcesJar = new File("module-sources.jar");
+    // the decoded model shares the dependency instances among the source sets.
+    GradleModuleDependency moduleDependency = new DefaultGradleModuleDependency("group",
+        "module", "1.0.0", Arrays.asList(
+            new DefaultArtifact(new File("module.jar").toURI(), null),
+            new DefaultArtifact(sourcesJar.toURI(), "sources")));
+    GradleBuildTarget foo = createTargetWithDependency(moduleDependency);
+    GradleBuildTarget bar = createTargetWithDependency(moduleDependency);
+    BuildTargetIdentifier fooId = new BuildTargetIdentifier("foo");
+    BuildTargetIdentifier barId = new BuildTargetIdentifier("bar");
+    when(snapshot.getGradleBuildTarget(fooId)).thenReturn(foo);
+    when(snapshot.getGradleBuildTarget(barId)).thenReturn(bar);
+
+    BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
+        connector, preferenceManager);
+    DependencySourcesResult res = buildTargetService.getBuildTargetDependencySources(
+        new DependencySourcesParams(Arrays.asList(fooId, barId)));
+
+    assertEquals(2, res.getItems().size());
+    assertEquals(List.of(sourcesJar.toURI().toString()), res.getItems().get(0).getSources());
+    // the targets share the uri of the same jar.
+    assertSame(res.getItems().get(0).getSources().get(0),
+        res.getItems().get(1).getSources().get(0));
+  }
+
+  private GradleBuildTarget createTargetWithDependency(GradleModuleDependency moduleDependency) {
+    GradleSourceSet gradleSourceSet = mock(GradleSourceSet.class);
+    when(gradleSourceSet.getModuleDependencies()).thenReturn(Set.of(moduleDependency));
+    return new GradleBuildTarget(mock(BuildTarget.class), gradleSourceSet);
+  }
 
-    JavaExtension mockedJavaExtension = mock(JavaExtension.class);
+  @Test
+  void testGetJavacOptions() {
+    GradleSourceSet gradleSourceSet = mock(GradleSourceSet.class);
+    GradleBuildTarget gradleBuildTarget = new GradleBuildTarget(mock(BuildTarget.class),
+        gradleSourceSet);
+    when(snapshot.getGradleBuildTarget(any())).thenReturn(gradleBuildTarget);
+
+    DefaultJavaExtension javaExtension = new DefaultJavaExtension();
     List<String> compilerArgs = new ArrayList<>();
     compilerArgs.add("--add-opens");
     compilerArgs.add("java.base/java.lang=ALL-UNNAMED");
-    when(mockedJavaExtension.getCompilerArgs()).thenReturn(compilerArgs);
-    Map<String, Object> extensions = new HashMap<>();
-    extensions.put(SupportedLanguages.JAVA, mockedJavaExtension);
-    when(gradleSourceSet.getExtensions()).thenReturn(extensions);
+    javaExtension.setCompilerArgs(compilerArgs);
+    javaExtension.setCompileClasspath(new ArrayList<>());
+    gradleBuildTarget.setJavaExtension(javaExtension);
 
     BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
         connector, preferenceManager);
@@ -250,4 +396,281 @@ class BuildTargetServiceTest {
     assertEquals(1, javacOptions.getItems().size());
     assertEquals(2, javacOptions.getItems().get(0).getOptions().size());
   }
+
+  @Test
+  void testGetJvmEnvironment() {
+    GradleSourceSet gradleSourceSet = mock(GradleSourceSet.class);
+    File classesDir = new File("build/classes/java/main");
+    File dependency = new File("lib/foo.jar");
+    when(gradleSourceSet.getRuntimeClasspath()).thenReturn(Arrays.asList(classesDir, dependency));
+    when(gradleSourceSet.getProjectDir()).thenReturn(new File("project"));
+    GradleBuildTarget gradleBuildTarget = new GradleBuildTarget(mock(BuildTarget.class),
+        gradleSourceSet);
+    when(snapshot.getGradleBuildTarget(any())).thenReturn(gradleBuildTarget);
+
+    DefaultJavaExtension javaExtension = new DefaultJavaExtension();
+    javaExtension.setJvmOptions(Arrays.asList("-Dfoo=bar", "-Xmx1g"));
+    javaExtension.setEnvironmentVariables(Map.of("FOO", "bar"));
+    javaExtension.setTestJvmOptions(Arrays.asList("-ea"));
+    javaExtension.setTestWorkingDirectory(new File("project/test"));
+    gradleBuildTarget.setJavaExtension(javaExtension);
+
+    BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
+        connector, preferenceManager);
+    List<BuildTargetIdentifier> targets = Arrays.asList(new BuildTargetIdentifier("test"));
+    List<JvmEnvironmentItem> items = buildTargetService.getBuildTargetJvmRunEnvironment(
+        new JvmRunEnvironmentParams(targets)).getItems();
+
+    assertEquals(1, items.size());
+    JvmEnvironmentItem item = items.get(0);
+    assertEquals(Arrays.asList(classesDir.toURI().toString(), dependency.toURI().toString()),
+        item.getClasspath());
+    assertEquals(Arrays.asList("-Dfoo=bar", "-Xmx1g"), item.getJvmOptions());
+    // the project directory is the default working directory.
+    assertEquals(new File("project").getAbsolutePath(), item.getWorkingDirectory());
+    assertEquals(Map.of("FOO", "bar"), item.getEnvironmentVariables());
+
+    // the tests are run with the environment of the test task.
+    List<JvmEnvironmentItem> testItems = buildTargetService.getBuildTargetJvmTestEnvironment(
+        new JvmTestEnvironmentParams(targets)).getItems();
+    assertEquals(1, testItems.size());
+    JvmEnvironmentItem testItem = testItems.get(0);
+    assertEquals(item.getClasspath(), testItem.getClasspath());
+    assertEquals(Arrays.asList("-ea"), testItem.getJvmOptions());
+    assertEquals(new File("project/test").getAbsolutePath(), testItem.getWorkingDirectory());
+    assertEquals(Map.of(), testItem.getEnvironmentVariables());
+  }
+
+  @Test
+  void testCompileRootsConcurrently() throws Exception {
+    preferenceManager.getPreferences().setMaxConcurrentBuilds(2);
+    BuildTargetIdentifier fooId = mockBuildTargetOfRoot("foo");
+    BuildTargetIdentifier barId = mockBuildTargetOfRoot("bar");
+    // both builds must be running at the same time to pass the latch.
+    CountDownLatch started = new CountDownLatch(2);
+    when(connector.runTasks(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+      started.countDown();
+      assertTrue(started.await(10, TimeUnit.SECONDS));
+      Set<BuildTargetIdentifier> btIds = invocation.getArgument(1);
+      return btIds.contains(fooId) ? StatusCode.ERROR : StatusCode.OK;
+    });
+
+    BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
+        connector, preferenceManager);
+    CompileResult result = buildTargetService.compile(
+        new CompileParams(Arrays.asList(fooId, barId)), null);
+
+    assertEquals(StatusCode.ERROR, result.getStatusCode());
+    verify(connector, times(2)).runTasks(any(), any(), any(), any(), any());
+  }
+
+  @Test
+  void testCompileRootsConcurrentlyWithCancellation() {
+    preferenceManager.getPreferences().setMaxConcurrentBuilds(2);
+    BuildTargetIdentifier fooId = mockBuildTargetOfRoot("foo");
+    BuildTargetIdentifier barId = mockBuildTargetOfRoot("bar");
+    when(connector.runTasks(any(), eq(Set.of(fooId)), any(), any(), any())).thenThrow(
+        new BuildCancelledException("cancelled"));
+    when(connector.runTasks(any(), eq(Set.of(barId)), any(), any(), any()))
+        .thenReturn(StatusCode.OK);
+
+    BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
+        connector, preferenceManager);
+    CompileResult result = buildTargetService.compile(
+        new CompileParams(Arrays.asList(fooId, barId)), null);
+
+    assertEquals(StatusCode.CANCELLED, result.getStatusCode());
+    verify(connector).runTasks(any(), eq(Set.of(barId)), any(), any(), any());
+  }
+
+  @Test
+  void testCompileReportsDiagnosticsBySourceRoot() {
+    BuildTargetIdentifier mainId = mockBuildTargetOfRoot("foo");
+    GradleBuildTarget main = snapshot.getGradleBuildTarget(mainId);
+    when(main.getBuildTarget().getId()).thenReturn(mainId);
+    File sourceDir = new File("foo/src/main/java").getAbsoluteFile();
+    when(main.getSourceSet().getSourceDirs()).thenReturn(Set.of(sourceDir));
+    SourceRootIndex sourceRootIndex = SourceRootIndex.EMPTY.update(Collections.emptyList(),
+        List.of(main));
+    when(snapshot.getSourceRootIndex()).thenReturn(sourceRootIndex);
+    when(connector.runTasks(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+      DiagnosticsReporter diagnosticsReporter = invocation.getArgument(3);
+      try (OutputStream out = new LineOutputStream(diagnosticsReporter.newParser())) {
+        out.write((new File(sourceDir, "foo/Foo.java") + ":1: error: ';' expected\n"
+            + new File("bar/src/main/java/Bar.java").getAbsolutePath()
+            + ":1: error: ';' expected\n").getBytes(StandardCharsets.UTF_8));
+      }
+      // the file out of any source root is skipped.
+      assertEquals(1, diagnosticsReporter.getErrorCount(mainId));
+      return StatusCode.ERROR;
+    });
+
+    BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
+        connector, preferenceManager);
+    CompileResult result = buildTargetService.compile(
+        new CompileParams(Arrays.asList(mainId)), null);
+
+    assertEquals(StatusCode.ERROR, result.getStatusCode());
+    verify(connector).runTasks(any(), any(), any(), any(), any());
+  }
+
+  @Test
+  void testTest() {
+    BuildTargetIdentifier testId = mockBuildTargetOfRoot("foo");
+    GradleSourceSet sourceSet = snapshot.getGradleBuildTarget(testId).getSourceSet();
+    when(sourceSet.hasTests()).thenReturn(true);
+    when(sourceSet.getTestTaskNames()).thenReturn(Set.of("test"));
+    BuildTargetIdentifier mainId = mockBuildTargetOfRoot("bar");
+    when(connector.runTests(any(), any(), any(), any(), any())).thenReturn(StatusCode.ERROR);
+
+    BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
+        connector, preferenceManager);
+    TestParams params = new TestParams(Arrays.asList(testId, mainId));
+    params.setOriginId("originId");
+    TestResult result = buildTargetService.test(params, null);
+
+    assertEquals(StatusCode.ERROR, result.getStatusCode());
+    assertEquals("originId", result.getOriginId());
+    // the build target without tests is skipped.
+    verify(connector).runTests(eq(new File("foo").toURI()), eq(Map.of(":test", testId)),
+        eq(Collections.emptyMap()), eq("originId"), any());
+    verify(connector, times(1)).runTests(any(), any(), any(), any(), any());
+  }
+
+  @Test
+  void testTestSelectionsOfEachRoot() {
+    BuildTargetIdentifier fooId = mockBuildTargetOfRoot("foo");
+    BuildTargetIdentifier barId = mockBuildTargetOfRoot("bar");
+    for (BuildTargetIdentifier btId : Arrays.asList(fooId, barId)) {
+      GradleSourceSet sourceSet = snapshot.getGradleBuildTarget(btId).getSourceSet();
+      when(sourceSet.hasTests()).thenReturn(true);
+      when(sourceSet.getTestTaskNames()).thenReturn(Set.of("test"));
+    }
+    when(connector.runTests(any(), any(), any(), any(), any())).thenReturn(StatusCode.OK);
+
+    TestParams params = new TestParams(Arrays.asList(fooId, barId));
+    params.setDataKind(TestParamsDataKind.SCALA_TEST);
+    ScalaTestParams scalaTestParams = new ScalaTestParams();
+    scalaTestParams.setTestClasses(Arrays.asList(
+        new ScalaTestClassesItem(fooId, Arrays.asList("foo.FooTest"))));
+    params.setData(scalaTestParams);
+    BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
+        connector, preferenceManager);
+
+    assertEquals(StatusCode.OK, buildTargetService.test(params, null).getStatusCode());
+    // the root without selected tests is skipped.
+    verify(connector).runTests(eq(new File("foo").toURI()), eq(Map.of(":test", fooId)),
+        eq(Map.of(fooId, Arrays.asList(new ScalaTestSuiteSelection("foo.FooTest",
+            Collections.emptyList())))), any(), any());
+    verify(connector, times(1)).runTests(any(), any(), any(), any(), any());
+  }
+
+  @Test
+  void testGetTestSelections() {
+    BuildTargetIdentifier fooId = new BuildTargetIdentifier("foo");
+    BuildTargetIdentifier barId = new BuildTargetIdentifier("bar");
+    TestParams params = new TestParams(Arrays.asList(fooId, barId));
+    assertTrue(BuildTargetService.getTestSelections(params).isEmpty());
+
+    params.setDataKind(TestParamsDataKind.SCALA_TEST);
+    ScalaTestParams scalaTestParams = new ScalaTestParams();
+    scalaTestParams.setTestClasses(Arrays.asList(
+        new ScalaTestClassesItem(fooId, Arrays.asList("foo.FooTest"))));
+    params.setData(scalaTestParams);
+    Map<BuildTargetIdentifier, List<ScalaTestSuiteSelection>> selections =
+        BuildTargetService.getTestSelections(params);
+    assertEquals(Set.of(fooId), selections.keySet());
+    assertEquals("foo.FooTest", selections.get(fooId).get(0).getClassName());
+
+    params.setDataKind("scala-test-suites-selection");
+    params.setData(new ScalaTestSuites(Arrays.asList(new ScalaTestSuiteSelection(
+        "foo.FooTest", Arrays.asList("testFoo"))), Collections.emptyList(),
+        Collections.emptyList()));
+    selections = BuildTargetService.getTestSelections(params);
+    assertEquals(Set.of(fooId, barId), selections.keySet());
+    assertEquals(Arrays.asList("testFoo"), selections.get(barId).get(0).getTests());
+  }
+
+  @Test
+  void testRun() {
+    BuildTargetIdentifier appId = mockBuildTargetOfRoot("app");
+    BuildTargetIdentifier libId = new BuildTargetIdentifier("lib");
+    GradleBuildTarget app = snapshot.getGradleBuildTarget(appId);
+    GradleBuildTarget lib = mock(GradleBuildTarget.class, RETURNS_DEEP_STUBS);
+    File libClasses = new File("lib/build/classes/java/main");
+    when(lib.getBuildTarget().getId()).thenReturn(libId);
+    when(lib.getSourceSet().getSourceOutputDir()).thenReturn(libClasses);
+    when(app.getBuildTarget().getId()).thenReturn(appId);
+    when(app.getSourceSet().getRuntimeClasspath()).thenReturn(
+        Arrays.asList(libClasses, new File("foo.jar")));
+    when(snapshot.getAllGradleBuildTargets()).thenReturn(Arrays.asList(app, lib));
+    when(snapshot.getGradleBuildTarget(libId)).thenReturn(lib);
+    when(lib.getSourceSet().getClassesTaskName()).thenReturn("classes");
+    when(lib.getSourceSet().getProjectPath()).thenReturn(":lib");
+    when(lib.getBuildTarget().getBaseDirectory()).thenReturn(
+        new File("app").toURI().toString());
+    // both classes tasks are passed as the varargs.
+    when(connector.runTasks(any(), any(), any(), any(), any(String[].class)))
+        .thenReturn(StatusCode.OK);
+    JvmLauncher launcher = mock(JvmLauncher.class);
+    when(launcher.launch(any(), any(), any(), any(), any(), any(), anyBoolean(), any()))
+        .thenReturn(StatusCode.OK);
+
+    BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
+        connector, preferenceManager, launcher);
+    RunParams params = new RunParams(appId);
+    params.setOriginId("originId");
+    params.setDataKind(RunParamsDataKind.SCALA_MAIN_CLASS);
+    params.setData(new ScalaMainClass("foo.Main", Collections.emptyList(),
+        Collections.emptyList()));
+    RunResult result = buildTargetService.run(params, null);
+
+    assertEquals(StatusCode.OK, result.getStatusCode());
+    assertEquals("originId", result.getOriginId());
+    // the build target and its runtime dependency are compiled before the launch.
+    verify(connector).runTasks(any(), eq(Set.of(appId, libId)), any(), any(),
+        any(String[].class));
+    verify(launcher).launch(eq(appId), any(), any(), any(), any(), eq("originId"), eq(false),
+        any());
+
+    // the direct run launches without compiling.
+    preferenceManager.getPreferences().setDirectRun(true);
+    buildTargetService.run(params, null);
+    verify(connector, times(1)).runTasks(any(), any(), any(), any(), any(String[].class));
+    verify(launcher).launch(eq(appId), any(), any(), any(), any(), eq("originId"), eq(true),
+        any());
+  }
+
+  @Test
+  void testRunWithoutMainClass() {
+    BuildTargetIdentifier appId = mockBuildTargetOfRoot("app");
+    BuildTargetService buildTargetService = new BuildTargetService(buildTargetManager,
+        connector, preferenceManager, mock(JvmLauncher.class));
+
+    assertThrows(IllegalArgumentException.class,
+        () -> buildTargetService.run(new RunParams(appId), null));
+  }
+
+  @Test
+  void testAggregateStatusCode() {
+    assertEquals(StatusCode.OK,
+        BuildTargetService.aggregateStatusCode(StatusCode.OK, StatusCode.OK));
+    assertEquals(StatusCode.CANCELLED,
+        BuildTargetService.aggregateStatusCode(StatusCode.OK, StatusCode.CANCELLED));
+    assertEquals(StatusCode.ERROR,
+        BuildTargetService.aggregateStatusCode(StatusCode.CANCELLED, StatusCode.ERROR));
+  }
+
+  private BuildTargetIdentifier mockBuildTargetOfRoot(String rootDir) {
+    BuildTargetIdentifier btId = new BuildTargetIdentifier(
+        new File(rootDir).toURI() + "?sourceset=main");
+    BuildTarget target = mock(BuildTarget.class);
+    when(target.getBaseDirectory()).thenReturn(new File(rootDir).toURI().toString());
+    GradleSourceSet gradleSourceSet = mock(GradleSourceSet.class);
+    when(gradleSourceSet.getClassesTaskName()).thenReturn("classes");
+    when(gradleSourceSet.getProjectPath()).thenReturn(":");
+    when(snapshot.getGradleBuildTarget(btId)).thenReturn(
+        new GradleBuildTarget(target, gradleSourceSet));
+    return btId;
+  }
 }
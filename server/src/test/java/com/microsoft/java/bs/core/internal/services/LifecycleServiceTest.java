@@ -23,6 +23,7 @@ import com.microsoft.java.bs.core.Constants;
 import com.microsoft.java.bs.core.internal.gradle.GradleApiConnector;
 import com.microsoft.java.bs.core.internal.managers.BuildTargetManager;
 import com.microsoft.java.bs.core.internal.managers.PreferenceManager;
+import com.microsoft.java.bs.core.internal.managers.SnapshotManager;
 import com.microsoft.java.bs.core.internal.model.Preferences;
 import com.microsoft.java.bs.gradle.model.SupportedLanguages;
 
@@ -45,11 +46,11 @@ class LifecycleServiceTest {
     );
 
     LifecycleService lifecycleService = mock(LifecycleService.class);
-    doNothing().when(lifecycleService).updateBuildTargetManager();
+    doNothing().when(lifecycleService).updateBuildTargetManager(any());
     doNothing().when(lifecycleService).initializePreferenceManager(any());
-    when(lifecycleService.initializeServer(any())).thenCallRealMethod();
+    when(lifecycleService.initializeServer(any(), any())).thenCallRealMethod();
 
-    InitializeBuildResult res = lifecycleService.initializeServer(params);
+    InitializeBuildResult res = lifecycleService.initializeServer(params, Runnable::run);
 
     assertEquals(Constants.SERVER_NAME, res.getDisplayName());
     assertEquals(Constants.SERVER_VERSION, res.getVersion());
@@ -73,7 +74,7 @@ class LifecycleServiceTest {
 
     PreferenceManager preferenceManager = new PreferenceManager();
     LifecycleService lifecycleService = new LifecycleService(mock(BuildTargetManager.class),
-        mock(GradleApiConnector.class), preferenceManager);
+        mock(GradleApiConnector.class), preferenceManager, mock(SnapshotManager.class));
     lifecycleService.initializePreferenceManager(params);
 
     assertEquals("8.1", preferenceManager.getPreferences().getGradleVersion());
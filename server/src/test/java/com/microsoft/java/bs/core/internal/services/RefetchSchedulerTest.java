@@ -0,0 +1,117 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.java.bs.core.internal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.scala.bsp4j.BuildTargetIdentifier;
+
+class RefetchSchedulerTest {
+
+  private static final BuildTargetIdentifier FOO = new BuildTargetIdentifier("foo");
+  private static final BuildTargetIdentifier BAR = new BuildTargetIdentifier("bar");
+
+  @Test
+  void testDebounce() throws InterruptedException {
+    List<Set<BuildTargetIdentifier>> refetched = new CopyOnWriteArrayList<>();
+    CountDownLatch done = new CountDownLatch(1);
+    RefetchScheduler scheduler = new RefetchScheduler((targets, token) -> {
+      refetched.add(targets);
+      done.countDown();
+      return true;
+    }, () -> 200L);
+
+    scheduler.schedule(Arrays.asList(FOO));
+    scheduler.schedule(Arrays.asList(BAR));
+    scheduler.schedule(Arrays.asList(FOO));
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    scheduler.shutdown();
+    assertEquals(1, refetched.size());
+    assertEquals(Set.of(FOO, BAR), refetched.get(0));
+    assertEquals(3, scheduler.getRequestedCount());
+    assertEquals(2, scheduler.getCoalescedCount());
+  }
+
+  @Test
+  void testFollowUpWhileRunning() throws InterruptedException {
+    List<Set<BuildTargetIdentifier>> refetched = new CopyOnWriteArrayList<>();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(2);
+    RefetchScheduler scheduler = new RefetchScheduler((targets, token) -> {
+      started.countDown();
+      try {
+        release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      refetched.add(targets);
+      done.countDown();
+      return true;
+    }, () -> 0L);
+
+    scheduler.schedule(Arrays.asList(FOO));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    scheduler.schedule(Arrays.asList(BAR));
+    scheduler.schedule(Arrays.asList(BAR));
+    scheduler.schedule(Arrays.asList(FOO));
+    release.countDown();
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    scheduler.shutdown();
+    assertEquals(2, refetched.size());
+    assertEquals(Set.of(FOO), refetched.get(0));
+    assertEquals(Set.of(FOO, BAR), refetched.get(1));
+    assertEquals(2, scheduler.getRefetchedCount());
+    assertEquals(2, scheduler.getCoalescedCount());
+  }
+
+  @Test
+  void testSkipped() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1);
+    RefetchScheduler scheduler = new RefetchScheduler((targets, token) -> {
+      done.countDown();
+      return false;
+    }, () -> 0L);
+
+    scheduler.schedule(Arrays.asList(FOO));
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    scheduler.shutdown();
+    assertEquals(0, scheduler.getRefetchedCount());
+    assertEquals(1, scheduler.getSkippedCount());
+  }
+
+  @Test
+  void testCancelRunningRefetchOnShutdown() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicBoolean cancelled = new AtomicBoolean();
+    RefetchScheduler scheduler = new RefetchScheduler((targets, token) -> {
+      started.countDown();
+      long deadline = System.currentTimeMillis() + 5_000L;
+      while (!token.isCancellationRequested() && System.currentTimeMillis() < deadline) {
+        Thread.onSpinWait();
+      }
+      cancelled.set(token.isCancellationRequested());
+      return true;
+    }, () -> 0L);
+
+    scheduler.schedule(Arrays.asList(FOO));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    scheduler.shutdown();
+    assertTrue(cancelled.get());
+  }
+}
@@ -0,0 +1,14 @@
+package foo;
+
+import java.util.Date;
+
+public class Bar {
+
+  public int getYear() {
+    return new Date().getYear();
+  }
+
+  public int getCount() {
+    return "";
+  }
+}